@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.exception.UnparsableException;
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.checklistbank.utils.NameParsers;
+import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.LookupUsage;
+import org.gbif.utils.file.InputStreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Loads the backbone subset shared with the nub tests, i.e. all index/nubXX.json match results incl their alternatives,
+ * and builds the lookup structures the benchmarks run against.
+ */
+public class Fixtures {
+  private static final int MAX_INDEX_FILES = 300;
+
+  private Fixtures() {
+  }
+
+  /**
+   * @return all distinct usages found in the index/nubXX.json resources
+   */
+  public static Collection<NameUsageMatch> usages() {
+    Map<Integer, NameUsageMatch> usages = Maps.newHashMap();
+
+    InputStreamUtils isu = new InputStreamUtils();
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    for (int id = 1; id < MAX_INDEX_FILES; id++) {
+      String file = "index/nub" + id + ".json";
+      InputStream json = isu.classpathStream(file);
+      if (json != null) {
+        try {
+          NameUsageMatch m = mapper.readValue(json, NameUsageMatch.class);
+          usages.put(m.getUsageKey(), m);
+          if (m.getAlternatives() != null) {
+            for (NameUsageMatch alt : m.getAlternatives()) {
+              usages.put(alt.getUsageKey(), alt);
+            }
+          }
+        } catch (IOException e) {
+          throw new IllegalStateException("Failed to read " + file, e);
+        }
+      }
+    }
+    return usages.values();
+  }
+
+  public static NubIndex index() throws IOException {
+    return NubIndex.newMemoryIndex(usages());
+  }
+
+  public static HigherTaxaComparator higherTaxaComparator() throws IOException {
+    HigherTaxaComparator htComp = new HigherTaxaComparator();
+    htComp.loadClasspathDicts("dicts");
+    return htComp;
+  }
+
+  /**
+   * @return the same usages as the nub index with the scientific names split into canonical name, authorship and year
+   */
+  public static List<LookupUsage> lookupUsages(HigherTaxaComparator htComp) {
+    List<LookupUsage> usages = Lists.newArrayList();
+    for (NameUsageMatch m : usages()) {
+      String canonical = m.getCanonicalName();
+      String authorship = null;
+      String year = null;
+      try {
+        ParsedName pn = NameParsers.INSTANCE.parse(m.getScientificName(), m.getRank());
+        authorship = pn.getAuthorship();
+        year = pn.getYear();
+        if (canonical == null) {
+          canonical = pn.canonicalName();
+        }
+      } catch (UnparsableException e) {
+        // use the canonical name only
+      }
+      if (canonical == null) {
+        canonical = m.getScientificName();
+      }
+      Kingdom kingdom = htComp.toKingdom(m.getKingdom());
+      usages.add(new LookupUsage(m.getUsageKey(), canonical, authorship, year, m.getRank(), m.getStatus(),
+          kingdom == null ? Kingdom.INCERTAE_SEDIS : kingdom, false));
+    }
+    return usages;
+  }
+
+  public static IdLookupImpl idLookup(List<LookupUsage> usages) {
+    return IdLookupImpl.temp().load(usages);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.LookupUsage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Exact id lookups as done by the nub builder and the rematching of checklists,
+ * querying every fixture usage once with its own and once with a conflicting authorship.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdLookupBenchmark {
+
+  private IdLookupImpl lookup;
+  private LookupUsage[] queries;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    List<LookupUsage> usages = Fixtures.lookupUsages(Fixtures.higherTaxaComparator());
+    lookup = Fixtures.idLookup(usages);
+    queries = usages.toArray(new LookupUsage[0]);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    lookup.close();
+  }
+
+  @Benchmark
+  public LookupUsage match(Cursor cursor) {
+    LookupUsage u = queries[cursor.idx++ % queries.length];
+    return lookup.match(u.getCanonical(), u.getAuthorship(), u.getYear(), u.getRank(), u.getStatus(), u.getKingdom());
+  }
+
+  @Benchmark
+  public LookupUsage matchAuthorMismatch(Cursor cursor) {
+    LookupUsage u = queries[cursor.idx++ % queries.length];
+    return lookup.match(u.getCanonical(), "Smith", "1901", u.getRank(), u.getStatus(), u.getKingdom());
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.nub.lookup.fuzzy.NubIndex;
+import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Full match2 calls against an in memory nub index built from the test fixtures.
+ * The result cache is disabled so every invocation runs the complete parse, search and scoring path.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchBenchmark {
+
+  /**
+   * The kind of queries to run, ALL for the entire mixed corpus.
+   */
+  @Param({"ALL", "EXACT", "FUZZY", "HIGHER_RANK", "UNPARSABLE"})
+  public String kind;
+
+  private NubIndex index;
+  private NubMatchingServiceImpl matcher;
+  private Query[] queries;
+
+  @State(Scope.Thread)
+  public static class Cursor {
+    int idx;
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    index = Fixtures.index();
+    matcher = new NubMatchingServiceImpl(index, Fixtures.higherTaxaComparator());
+    List<Query> selected = Query.CORPUS.stream()
+        .filter(q -> kind.equals("ALL") || q.kind.name().equals(kind))
+        .collect(Collectors.toList());
+    queries = selected.toArray(new Query[0]);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    index.close();
+  }
+
+  @Benchmark
+  public NameUsageMatch match2(Cursor cursor) {
+    Query q = queries[cursor.idx++ % queries.length];
+    return matcher.match2(null, q.name, null, null, null, null, q.rank, q.classification(), new HashSet<>(), false, false);
+  }
+
+  @Benchmark
+  public NameUsageMatch match2Verbose(Cursor cursor) {
+    Query q = queries[cursor.idx++ % queries.length];
+    return matcher.match2(null, q.name, null, null, null, null, q.rank, q.classification(), new HashSet<>(), false, true);
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public NameUsageMatch match2Concurrent(Cursor cursor) {
+    Query q = queries[cursor.idx++ % queries.length];
+    return matcher.match2(null, q.name, null, null, null, null, q.rank, q.classification(), new HashSet<>(), false, false);
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.exception.UnparsableException;
+import org.gbif.checklistbank.utils.NameParsers;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Parses the scientific names of the match query corpus with the shared name parser instance used by the matching service.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+  private Query[] queries;
+  private int idx;
+
+  @Setup
+  public void setup() {
+    queries = Query.CORPUS.toArray(new Query[0]);
+  }
+
+  @Benchmark
+  public Object parse() {
+    Query q = queries[idx++ % queries.length];
+    try {
+      return NameParsers.INSTANCE.parse(q.name, q.rank);
+    } catch (UnparsableException e) {
+      return e.type;
+    }
+  }
+
+  @Benchmark
+  public String parseToCanonical() {
+    Query q = queries[idx++ % queries.length];
+    return NameParsers.INSTANCE.parseToCanonical(q.name, q.rank);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.model.common.LinneanClassification;
+import org.gbif.api.vocabulary.Rank;
+
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * A single benchmark match query and the fixed corpus of queries all matching benchmarks iterate over.
+ * The corpus mixes the different paths through the matching service in roughly the proportions seen in
+ * occurrence processing: mostly exact names, some misspellings, names only known to the backbone at a higher rank
+ * and names the parser cannot handle at all.
+ */
+public class Query {
+
+  public enum Kind {
+    EXACT, FUZZY, HIGHER_RANK, UNPARSABLE
+  }
+
+  public final Kind kind;
+  public final String name;
+  public final Rank rank;
+  private final String kingdom;
+  private final String family;
+
+  Query(Kind kind, String name, Rank rank, String kingdom, String family) {
+    this.kind = kind;
+    this.name = name;
+    this.rank = rank;
+    this.kingdom = kingdom;
+    this.family = family;
+  }
+
+  /**
+   * @return a new classification instance for every call, as the matching service modifies the one it is given
+   */
+  public LinneanClassification classification() {
+    NameUsageMatch cl = new NameUsageMatch();
+    cl.setKingdom(kingdom);
+    cl.setFamily(family);
+    return cl;
+  }
+
+  public static final List<Query> CORPUS = ImmutableList.of(
+      new Query(Kind.EXACT, "Abacion tesselatum Rafinesque, 1820", null, "Animalia", "Abacionidae"),
+      new Query(Kind.EXACT, "Ablabera rufa", Rank.SPECIES, "Animalia", null),
+      new Query(Kind.EXACT, "Felis concolor Linnaeus, 1771", null, "Animalia", "Felidae"),
+      new Query(Kind.EXACT, "Zingiber banhaoense Mood & Theilade", null, "Plantae", "Zingiberaceae"),
+      new Query(Kind.EXACT, "Carex", Rank.GENUS, "Plantae", null),
+      new Query(Kind.EXACT, "Mollusca", null, null, null),
+      new Query(Kind.EXACT, "Pizaia Terra, 1982", null, null, null),
+      new Query(Kind.EXACT, "Amphibos", null, null, null),
+
+      new Query(Kind.FUZZY, "Abacion tesselatim", null, "Animalia", null),
+      new Query(Kind.FUZZY, "Ablabera ruffa (Fabricius, 1775)", null, null, null),
+      new Query(Kind.FUZZY, "Zingiber banhaoensis", Rank.SPECIES, "Plantae", null),
+      new Query(Kind.FUZZY, "Dionychopus Herrich-Schaeffer", null, "Animalia", null),
+
+      new Query(Kind.HIGHER_RANK, "Abacion nonexistens Smith, 1999", null, "Animalia", "Abacionidae"),
+      new Query(Kind.HIGHER_RANK, "Carex nonexistens var. foobaria", null, "Plantae", "Cyperaceae"),
+      new Query(Kind.HIGHER_RANK, "Zingiber sp.", null, "Plantae", null),
+
+      new Query(Kind.UNPARSABLE, "BOLD:AAA1234", null, "Animalia", null),
+      new Query(Kind.UNPARSABLE, "Tobacco mosaic virus", null, null, null),
+      new Query(Kind.UNPARSABLE, "Carex acuta x Carex nigra", null, "Plantae", null),
+      new Query(Kind.UNPARSABLE, "unidentified plant", null, null, null)
+  );
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.benchmarks;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
+import org.gbif.nub.lookup.similarity.ScientificNameSimilarity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The individual scoring components the matching service applies to every candidate of a search.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoringBenchmark {
+
+  // query name, candidate name
+  private static final String[][] NAMES = {
+      {"Abacion tesselatum", "Abacion tesselatum"},
+      {"Abacion tesselatim", "Abacion tesselatum"},
+      {"Zingiber banhaoensis", "Zingiber banhaoense"},
+      {"Ablabera ruffa", "Ablabera rufa"},
+      {"Dionychopus", "Dionychopus"},
+      {"Carex nonexistens", "Carex"}
+  };
+
+  // query authorship, query year, candidate authorship, candidate year
+  private static final String[][] AUTHORS = {
+      {"Rafinesque", "1820", "Rafinesque", "1820"},
+      {"Raf.", null, "Rafinesque", "1820"},
+      {"L.", null, "Linnaeus", "1771"},
+      {"Fabricius", "1775", "Fabr.", "1776"},
+      {"Mood & Theilade", null, "Mood, Theilade", null},
+      {"Herrich-Schaeffer", null, "Herrich-Schäffer", "1856"},
+      {"Smith", "1999", "Rafinesque", "1820"}
+  };
+
+  private final ScientificNameSimilarity nameSimilarity = new ScientificNameSimilarity();
+  private final AuthorComparator authComp = AuthorComparator.createWithAuthormap();
+  private HigherTaxaComparator htComp;
+  private NameUsageMatch[] queries;
+  private NameUsageMatch[] candidates;
+  private int idx;
+
+  @Setup
+  public void setup() throws Exception {
+    htComp = Fixtures.higherTaxaComparator();
+    queries = new NameUsageMatch[]{
+        classification("Animalia", "Arthropoda", "Diplopoda", "Abacionidae"),
+        classification("Metazoa", null, null, "Felidae"),
+        classification("Plantae", "Tracheophyta", "Liliopsida", "Zingiberaceae"),
+        classification("Plants", null, null, "Cyperaceae")
+    };
+    candidates = new NameUsageMatch[]{
+        classification("Animalia", "Arthropoda", "Diplopoda", "Abacionidae"),
+        classification("Animalia", "Chordata", "Mammalia", "Felidae"),
+        classification("Plantae", "Tracheophyta", "Liliopsida", "Zingiberaceae"),
+        classification("Plantae", "Tracheophyta", "Liliopsida", "Juncaceae")
+    };
+  }
+
+  private static NameUsageMatch classification(String kingdom, String phylum, String clazz, String family) {
+    NameUsageMatch m = new NameUsageMatch();
+    m.setKingdom(kingdom);
+    m.setPhylum(phylum);
+    m.setClazz(clazz);
+    m.setFamily(family);
+    return m;
+  }
+
+  @Benchmark
+  public double nameSimilarity() {
+    String[] pair = NAMES[idx++ % NAMES.length];
+    return nameSimilarity.getSimilarity(pair[0], pair[1]);
+  }
+
+  @Benchmark
+  public Object authorComparator() {
+    String[] a = AUTHORS[idx++ % AUTHORS.length];
+    return authComp.compare(a[0], a[1], a[2], a[3]);
+  }
+
+  /**
+   * Same ranks and weights as the classification similarity of the matching service.
+   */
+  @Benchmark
+  public int higherTaxaComparator() {
+    int i = idx++ % queries.length;
+    int rate = htComp.compareHigherRank(Rank.KINGDOM, queries[i], candidates[i], 5, -10, -1);
+    rate += htComp.compareHigherRank(Rank.PHYLUM, queries[i], candidates[i], 10, -10, -1);
+    rate += htComp.compareHigherRank(Rank.CLASS, queries[i], candidates[i], 15, -10, 0);
+    rate += htComp.compareHigherRank(Rank.ORDER, queries[i], candidates[i], 15, -10, 0);
+    rate += htComp.compareHigherRank(Rank.FAMILY, queries[i], candidates[i], 25, -15, 0);
+    return rate;
+  }
+}
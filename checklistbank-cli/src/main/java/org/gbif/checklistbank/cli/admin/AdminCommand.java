@@ -26,23 +26,34 @@ import org.gbif.api.vocabulary.DatasetType;
 import org.gbif.checklistbank.authorship.AuthorComparator;
 import org.gbif.checklistbank.cli.common.SpringContextBuilder;
 import org.gbif.checklistbank.cli.common.ZookeeperUtils;
+import org.gbif.checklistbank.cli.matcher.BulkRematcher;
 import org.gbif.checklistbank.cli.nubbuild.BackboneDatasetUpdater;
 import org.gbif.checklistbank.cli.registry.RegistryService;
 import org.gbif.checklistbank.model.DatasetCore;
 import org.gbif.checklistbank.neo.UsageDao;
 import org.gbif.checklistbank.nub.NubDb;
+import org.gbif.checklistbank.nub.lookup.NubMatchService;
 import org.gbif.checklistbank.nub.source.ClbSource;
 import org.gbif.checklistbank.nub.validation.NubAssertions;
 import org.gbif.checklistbank.nub.validation.NubTreeValidation;
 import org.gbif.checklistbank.nub.validation.NubValidation;
+import org.gbif.checklistbank.service.DatasetImportService;
 import org.gbif.checklistbank.service.mybatis.export.Exporter;
 import org.gbif.checklistbank.service.mybatis.persistence.liquibase.DbSchemaUpdater;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.DatasetMapper;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.NameUsageMapper;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.ParsedNameMapper;
+import org.gbif.checklistbank.service.mybatis.service.CitationServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.DatasetImportServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.service.DatasetMetricsServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.DescriptionServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.DistributionServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.service.NameUsageServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.service.ParsedNameServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.SpeciesProfileServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.UsageServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.UsageSyncServiceMyBatis;
+import org.gbif.checklistbank.service.mybatis.service.VernacularNameServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.tmp.NameUsageReparser;
 import org.gbif.checklistbank.ws.client.NubResourceClient;
 import org.gbif.cli.BaseCommand;
@@ -50,6 +61,8 @@ import org.gbif.common.messaging.DefaultMessagePublisher;
 import org.gbif.common.messaging.api.Message;
 import org.gbif.common.messaging.api.MessagePublisher;
 import org.gbif.common.messaging.api.messages.*;
+import org.gbif.nub.config.ClbNubConfiguration;
+import org.gbif.nub.lookup.straight.IdLookupImpl;
 import org.gbif.registry.ws.client.*;
 import org.gbif.ws.client.ClientBuilder;
 
@@ -61,6 +74,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.io.FileUtils;
 import org.neo4j.graphdb.Transaction;
@@ -222,6 +236,10 @@ public class AdminCommand extends BaseCommand {
         rematchAll();
         break;
 
+      case BULK_REMATCH:
+        bulkRematch();
+        break;
+
       default:
         throw new UnsupportedOperationException();
     }
@@ -254,6 +272,56 @@ public class AdminCommand extends BaseCommand {
     LOG.info("Sent dataset match message for all {} checklists", counter);
   }
 
+  private void bulkRematch() throws Exception {
+    initRegistry();
+    boolean es = cfg.elasticsearch.hosts != null;
+    ApplicationContext matchCtx = SpringContextBuilder.create()
+        .withClbConfiguration(cfg.clb)
+        .withElasticsearchConfiguration(es ? cfg.elasticsearch : null)
+        .withComponents(
+            DatasetImportServiceMyBatis.class,
+            UsageSyncServiceMyBatis.class,
+            NameUsageServiceMyBatis.class,
+            UsageServiceMyBatis.class,
+            ParsedNameServiceMyBatis.class,
+            VernacularNameServiceMyBatis.class,
+            DescriptionServiceMyBatis.class,
+            DistributionServiceMyBatis.class,
+            SpeciesProfileServiceMyBatis.class,
+            CitationServiceMyBatis.class)
+        .build();
+    DatasetImportService sqlService = matchCtx.getBean(DatasetImportServiceMyBatis.class);
+    DatasetImportService searchService = es ? matchCtx.getBean(SpringContextBuilder.SEARCH_INDEX_SERVICE_BEAN_NAME, DatasetImportService.class) : null;
+    if (!es) {
+      LOG.warn("No elasticsearch hosts configured. Matches will not be updated in the search index");
+    }
+
+    // loads all nub usages directly from clb postgres once - this can take a few minutes
+    try (IdLookupImpl lookup = IdLookupImpl.temp().load(ClbNubConfiguration.fromClbConfiguration(cfg.clb), false)) {
+      NubMatchService matcher = new NubMatchService(cfg.clb, cfg.neo, lookup, sqlService, searchService);
+      BulkRematcher rematcher = new BulkRematcher(matcher, cfg.threads, key -> {
+        // trigger a new dataset analysis
+        synchronized (this) {
+          try {
+            send(new ChecklistSyncedMessage(key, new Date(), 0, 0));
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      });
+      LOG.info("Start rematching all checklists but the Backbone and CoL");
+      rematcher.run(() -> StreamSupport.stream(Iterables.datasets(DatasetType.CHECKLIST, datasetService).spliterator(), false)
+          .map(Dataset::getKey)
+          .filter(k -> !Constants.COL_DATASET_KEY.equals(k) && !Constants.NUB_DATASET_KEY.equals(k))
+          .iterator());
+    } finally {
+      sqlService.close();
+      if (searchService != null) {
+        searchService.close();
+      }
+    }
+  }
+
   private void updateSchema() {
     try (Connection c = cfg.clb.connect()) {
       DbSchemaUpdater.update(c);
@@ -16,6 +16,7 @@ package org.gbif.checklistbank.cli.admin;
 import org.gbif.api.vocabulary.DatasetType;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.common.ZooKeeperConfiguration;
+import org.gbif.checklistbank.cli.config.ElasticsearchConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.config.RegistryServiceConfiguration;
 import org.gbif.common.messaging.config.MessagingConfiguration;
@@ -88,6 +89,17 @@ public class AdminConfiguration {
   @NotNull
   public AdminOperation operation;
 
+  @ParametersDelegate
+  @NotNull
+  @Valid
+  public ElasticsearchConfiguration elasticsearch = new ElasticsearchConfiguration();
+
+  /**
+   * Number of datasets to match concurrently, see BULK_REMATCH operation
+   */
+  @Parameter(names = {"--threads"})
+  public int threads = 4;
+
   @Parameter(names = {"--nub-ranks-only"})
   @Valid
   public boolean nubRanksOnly = false;
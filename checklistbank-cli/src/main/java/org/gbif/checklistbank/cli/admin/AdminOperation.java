@@ -54,6 +54,14 @@ public enum AdminOperation {
    */
   REMATCH(true),
 
+  /**
+   * Rematches all checklist datasets excluding the nub and the CoL right away on a pool of threads
+   * sharing a single backbone lookup, instead of sending messages to the matcher service.
+   * Matched datasets are sent to the analysis via ChecklistSyncedMessages just like the matcher service does.
+   * Search index relations are only updated if elasticsearch hosts are configured.
+   */
+  BULK_REMATCH(true),
+
   /**
    * Exports a requested checklist dataset into a dwc archive.
    */
@@ -18,6 +18,7 @@ public class Metrics {
     public static final String OPEN_FILES = "clb.openfiles";
     public static final String INSERT_METER = "taxon.inserts";
     public static final String RELATION_METER = "taxon.relations";
+    public static final String RELATION_COMMIT_TIMER = "taxon.relations.commits";
     public static final String METRICS_METER = "taxon.metrics";
     public static final String DENORMED_METER = "taxon.denormed";
 
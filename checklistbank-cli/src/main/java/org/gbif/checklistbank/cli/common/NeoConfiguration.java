@@ -58,6 +58,13 @@ public class NeoConfiguration {
     return new File(neoRepository, "kvp" + File.separator + datasetKey.toString());
   }
 
+  /**
+   * @return the compact source usage file used for the given nub source
+   */
+  public File sourceFile(UUID datasetKey) {
+    return new File(neoRepository, "src" + File.separator + datasetKey.toString());
+  }
+
   /**
    * Creates a new embedded db in the neoRepository folder.
    *
@@ -18,6 +18,7 @@ import org.gbif.checklistbank.cli.admin.AdminConfiguration;
 import org.gbif.checklistbank.cli.config.ElasticsearchConfiguration;
 import org.gbif.checklistbank.cli.stubs.MessagePublisherStub;
 import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.index.EsBulkConfiguration;
 import org.gbif.checklistbank.index.NameUsageIndexServiceEs;
 import org.gbif.checklistbank.index.model.NameUsageAvro;
 import org.gbif.checklistbank.service.DatasetImportService;
@@ -216,6 +217,7 @@ public class SpringContextBuilder {
         ctx.registerBean(SEARCH_INDEX_SERVICE_BEAN_NAME, NameUsageIndexServiceEs.class);
         ctx.registerBean("syncThreads", Integer.class, elasticsearchConfiguration.syncThreads);
         ctx.registerBean("indexName", String.class, elasticsearchConfiguration.alias);
+        ctx.registerBean(EsBulkConfiguration.class, elasticsearchConfiguration::bulkConfiguration);
 
       } else {
         ctx.registerBean(SEARCH_INDEX_SERVICE_BEAN_NAME, DatasetImportService.class, DatasetImportService::passThru);
@@ -13,6 +13,7 @@
  */
 package org.gbif.checklistbank.cli.config;
 
+import org.gbif.checklistbank.index.EsBulkConfiguration;
 import org.gbif.common.search.es.EsClient;
 
 import com.beust.jcommander.Parameter;
@@ -46,6 +47,31 @@ public class ElasticsearchConfiguration {
   @Parameter(names = {"--es-enabled"})
   public boolean enabled = true;
 
+  @Parameter(names = {"--es-bulk-max-bytes"})
+  public int bulkMaxBytes = 5 * 1024 * 1024;
+
+  @Parameter(names = {"--es-bulk-max-docs"})
+  public int bulkMaxDocs = 1000;
+
+  @Parameter(names = {"--es-bulk-max-in-flight"})
+  public int bulkMaxInFlight = 4;
+
+  @Parameter(names = {"--es-bulk-max-retries"})
+  public int bulkMaxRetries = 5;
+
+  @Parameter(names = {"--es-bulk-backoff-millis"})
+  public long bulkBackoffMillis = 200;
+
+  public EsBulkConfiguration bulkConfiguration() {
+    EsBulkConfiguration cfg = new EsBulkConfiguration();
+    cfg.setMaxBytes(bulkMaxBytes);
+    cfg.setMaxDocs(bulkMaxDocs);
+    cfg.setMaxInFlight(bulkMaxInFlight);
+    cfg.setMaxRetries(bulkMaxRetries);
+    cfg.setBackoffMillis(bulkBackoffMillis);
+    return cfg;
+  }
+
   public EsClient buildClient() {
     EsClient.EsClientConfiguration elasticsearchConfiguration = new EsClient.EsClientConfiguration();
     elasticsearchConfiguration.setHosts(hosts);
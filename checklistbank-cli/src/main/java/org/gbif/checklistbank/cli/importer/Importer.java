@@ -25,6 +25,7 @@ import org.gbif.api.vocabulary.Rank;
 import org.gbif.api.vocabulary.TaxonomicStatus;
 import org.gbif.checklistbank.cli.model.UsageFacts;
 import org.gbif.checklistbank.kryo.CliKryoFactory;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.model.UsageExtensions;
 import org.gbif.checklistbank.model.UsageForeignKeys;
 import org.gbif.checklistbank.neo.ImportDb;
@@ -97,10 +98,14 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
   // list of pro parte synonym neo node ids
   private Set<Long> proParteNodes = new HashSet<>();
   private int maxExistingNubKey = -1;
+  // true if the dataset did not have any usages before, so all records are streamed as new inserts
+  private boolean newDataset;
   private volatile int firstUsageKey = -1;
   private Future<List<NameUsage>> proParteFuture;
   private final Queue<Future<List<Integer>>> usageFutures = new ConcurrentLinkedQueue<>();
   private final Queue<Future<?>> otherFutures = new ConcurrentLinkedQueue<>();
+  // dataset metrics counted from the synced records, persisted for the dataset analysis
+  private final DatasetMetricsCounter metrics = new DatasetMetricsCounter();
 
   private final KryoPool kryoPool = new KryoPool.Builder(new CliKryoFactory()).build();
 
@@ -141,6 +146,7 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
       awaitProParteFuture();
       // wait for extensions and indexing jobs to finish
       awaitOtherFutures();
+      sqlService.stageMetrics(datasetKey, metrics);
       LOG.info("Importing succeeded. {} main, {} subtree chunk and {} pro parte usages synced", syncCounterMain, syncCounterBatches, syncCounterProParte);
 
     } catch (InterruptedException e) {
@@ -176,6 +182,11 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
       Integer high = usageService.maxUsageKey(Constants.NUB_DATASET_KEY);
       maxExistingNubKey = high == null ? -1 : high;
       LOG.info("Sync GBIF backbone. Current max nub usageKey={}", maxExistingNubKey);
+    } else if (usageService != null) {
+      newDataset = usageService.maxUsageKey(datasetKey) == null;
+      if (newDataset) {
+        LOG.info("First import of dataset {}. All usages will be copied as new records", datasetKey);
+      }
     }
     // we keep the very first usage key to retrieve the exact last modified timestamp from the database
     // in order to avoid clock differences between machines and threads.
@@ -248,8 +259,10 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
       throw new EmptyImportException(datasetKey, "No records imported for dataset " + datasetKey);
     }
 
-    // remove old usages
-    deleteOldUsages();
+    // remove old usages, a new dataset cannot have any
+    if (!newDataset) {
+      deleteOldUsages();
+    }
   }
 
   private void updateForeignKeys() {
@@ -521,6 +534,13 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     }
   }
 
+  @Override
+  public String readTaxonID(long id) {
+    try (Transaction tx = dao.beginTx()) {
+      return (String) dao.getNeo().getNodeById(id).getProperty(NeoProperties.TAXON_ID, null);
+    }
+  }
+
   @Override
   public ParsedName readName(long id) {
     if (Constants.NUB_DATASET_KEY.equals(datasetKey)) {
@@ -632,6 +652,20 @@ public class Importer extends ImportDb implements Runnable, ImporterCallback {
     otherFutures.add(future);
   }
 
+  @Override
+  public void reportSyncedUsage(NameUsage u) {
+    metrics.countUsage(u);
+    // backbone usages have no nub relations
+    if (!datasetKey.equals(Constants.NUB_DATASET_KEY)) {
+      metrics.countNubMatch(u.getNubKey());
+    }
+  }
+
+  @Override
+  public void reportSyncedExtensions(UsageExtensions extensions) {
+    metrics.countExtensions(extensions);
+  }
+
   public int getSyncCounter() {
     return syncCounterMain + syncCounterBatches + syncCounterProParte;
   }
@@ -21,6 +21,7 @@ import org.gbif.checklistbank.cli.common.RabbitDatasetService;
 import org.gbif.checklistbank.cli.common.SpringContextBuilder;
 import org.gbif.checklistbank.cli.common.ZookeeperUtils;
 import org.gbif.checklistbank.cli.registry.RegistryService;
+import org.gbif.checklistbank.index.NameUsageIndexServiceEs;
 import org.gbif.checklistbank.service.DatasetImportService;
 import org.gbif.checklistbank.service.UsageService;
 import org.gbif.checklistbank.service.mybatis.service.*;
@@ -81,6 +82,9 @@ public class ImporterService extends RabbitDatasetService<ChecklistNormalizedMes
 
     sqlService = ctx.getBean(DatasetImportServiceMyBatis.class);
     searchIndexService = ctx.getBean(SpringContextBuilder.SEARCH_INDEX_SERVICE_BEAN_NAME, DatasetImportService.class);
+    if (searchIndexService instanceof NameUsageIndexServiceEs) {
+      getRegistry().registerAll(((NameUsageIndexServiceEs) searchIndexService).getMetrics());
+    }
     nameUsageService = ctx.getBean(NameUsageServiceMyBatis.class);
     usageService = ctx.getBean(UsageServiceMyBatis.class);
   }
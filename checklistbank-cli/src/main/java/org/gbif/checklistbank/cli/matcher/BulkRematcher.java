@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.cli.matcher;
+
+import org.gbif.checklistbank.nub.lookup.DatasetMatchSummary;
+import org.gbif.checklistbank.nub.lookup.NubMatchService;
+import org.gbif.nub.lookup.straight.DatasetMatchFailed;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Meter;
+import com.google.common.base.Stopwatch;
+
+/**
+ * Rematches many checklists concurrently on a pool of threads which all share the same NubMatchService
+ * and therefore a single, read only backbone lookup.
+ * Throughput in datasets per hour and names per second is logged every minute.
+ */
+public class BulkRematcher {
+  private static final Logger LOG = LoggerFactory.getLogger(BulkRematcher.class);
+
+  private final NubMatchService matcher;
+  private final int threads;
+  private final Consumer<UUID> onMatched;
+  private final Meter datasets = new Meter();
+  private final Meter names = new Meter();
+  private final AtomicInteger failed = new AtomicInteger();
+  private final Stopwatch watch = Stopwatch.createUnstarted();
+
+  /**
+   * @param onMatched called with the key of every successfully matched dataset, from any of the worker threads
+   */
+  public BulkRematcher(NubMatchService matcher, int threads, Consumer<UUID> onMatched) {
+    this.matcher = matcher;
+    this.threads = threads;
+    this.onMatched = onMatched;
+  }
+
+  /**
+   * Matches all given datasets and blocks until all of them are done.
+   * Datasets are only taken from the iterable when a worker is free, so keys can be loaded lazily.
+   */
+  public void run(Iterable<UUID> datasetKeys) throws InterruptedException {
+    LOG.info("Start rematching datasets with {} threads", threads);
+    watch.start();
+    ThreadPoolExecutor exec = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads), new NamedThreadFactory("rematch"), new ThreadPoolExecutor.CallerRunsPolicy());
+    ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("rematch-reporter"));
+    reporter.scheduleAtFixedRate(this::report, 1, 1, TimeUnit.MINUTES);
+    try {
+      for (UUID key : datasetKeys) {
+        exec.execute(() -> match(key));
+      }
+      exec.shutdown();
+      exec.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+    } finally {
+      exec.shutdownNow();
+      reporter.shutdownNow();
+    }
+    watch.stop();
+    report();
+    LOG.info("Rematched {} datasets with {} names in {}. {} datasets failed", datasets.getCount(), names.getCount(), watch, failed.get());
+  }
+
+  private void match(UUID key) {
+    try {
+      DatasetMatchSummary summary = matcher.matchDataset(key);
+      names.mark(summary.getTotalUsages());
+      datasets.mark();
+      onMatched.accept(key);
+    } catch (DatasetMatchFailed e) {
+      failed.incrementAndGet();
+      LOG.error("Dataset matching failed for {}", key, e);
+    } catch (RuntimeException e) {
+      failed.incrementAndGet();
+      LOG.error("Failed to process rematched dataset {}", key, e);
+    }
+  }
+
+  private void report() {
+    LOG.info("Rematched {} datasets at {} datasets/hour and {} names with {} names/s. {} datasets failed",
+        datasets.getCount(), Math.round(datasets.getMeanRate() * 3600),
+        names.getCount(), Math.round(names.getMeanRate()),
+        failed.get());
+  }
+
+  public long getDatasets() {
+    return datasets.getCount();
+  }
+
+  public int getFailed() {
+    return failed.get();
+  }
+}
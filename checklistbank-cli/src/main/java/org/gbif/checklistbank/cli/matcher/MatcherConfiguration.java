@@ -34,6 +34,12 @@ public class MatcherConfiguration {
   @Min(1)
   public int poolSize = 1;
 
+  /**
+   * If true copies each dataset into a temporary neo4j store for matching instead of streaming it from postgres.
+   */
+  @Parameter(names = "--use-neo")
+  public boolean useNeo = false;
+
   @ParametersDelegate
   @Valid
   @NotNull
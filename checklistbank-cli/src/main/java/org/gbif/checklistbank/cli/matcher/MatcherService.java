@@ -82,7 +82,7 @@ public class MatcherService extends RabbitDatasetService<MatchDatasetMessage> {
   protected void startUpBeforeListening() throws Exception {
     // loads all nub usages directly from clb postgres - this can take a few minutes
     IdLookup lookup = IdLookupImpl.temp().load(ClbNubConfiguration.fromClbConfiguration(cfg.clb), false);
-    matcher = new NubMatchService(cfg.clb, cfg.neo, lookup, sqlImportService, searchImportService);
+    matcher = new NubMatchService(cfg.clb, cfg.neo, lookup, sqlImportService, searchImportService, cfg.useNeo);
   }
 
   @Override
@@ -26,6 +26,7 @@ import org.gbif.checklistbank.cli.model.NameUsageNode;
 import org.gbif.checklistbank.cli.model.RankedName;
 import org.gbif.checklistbank.neo.*;
 import org.gbif.checklistbank.neo.traverse.NubMatchHandler;
+import org.gbif.checklistbank.neo.traverse.RankSplitEvaluator;
 import org.gbif.checklistbank.neo.traverse.Traversals;
 import org.gbif.checklistbank.neo.traverse.TreeWalker;
 import org.gbif.checklistbank.neo.traverse.UsageMetricsHandler;
@@ -36,6 +37,7 @@ import org.gbif.nub.lookup.straight.IdLookupPassThru;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
@@ -47,6 +49,7 @@ import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
@@ -78,22 +81,32 @@ public class Normalizer extends ImportDb implements Runnable {
   private final Meter relationMeter;
   private final Meter denormedMeter;
   private final Meter metricsMeter;
+  private final Timer relationCommitTimer;
   private final int batchSize;
+  private final int walkerThreads;
+  private final Rank walkerSplitRank;
+  private final int inserterThreads;
   private InsertMetadata meta;
   private List<String> cycles = Lists.newArrayList();
+  // true if new nodes have been created since the last relation setup commit
+  private boolean uncommittedNodes;
   private UsageMetricsHandler metricsHandler;
   private NubMatchHandler matchHandler;
 
-  private Normalizer(UUID datasetKey, UsageDao dao, File dwca, int batchSize,
-                     MetricRegistry registry, Map<String, UUID> constituents, IdLookup lookup) {
+  private Normalizer(UUID datasetKey, UsageDao dao, File dwca, int batchSize, int walkerThreads, Rank walkerSplitRank,
+                     int inserterThreads, MetricRegistry registry, Map<String, UUID> constituents, IdLookup lookup) {
     super(datasetKey, dao);
     this.constituents = constituents;
     relationMeter = registry.meter(Metrics.RELATION_METER);
     metricsMeter = registry.meter(Metrics.METRICS_METER);
     denormedMeter = registry.meter(Metrics.DENORMED_METER);
+    relationCommitTimer = registry.timer(Metrics.RELATION_COMMIT_TIMER);
     this.dwca = dwca;
     this.lookup = lookup;
     this.batchSize = batchSize;
+    this.walkerThreads = walkerThreads;
+    this.walkerSplitRank = walkerSplitRank;
+    this.inserterThreads = inserterThreads;
   }
 
   /**
@@ -106,11 +119,14 @@ public class Normalizer extends ImportDb implements Runnable {
         UsageDao.persistentDao(cfg.neo, datasetKey, registry, true),
         cfg.archiveDir(datasetKey),
         cfg.neo.batchSize,
+        cfg.walkerThreads,
+        cfg.walkerSplitRank,
+        cfg.inserterThreads,
         registry, constituents, lookup);
   }
 
   public static Normalizer create(UUID datasetKey, UsageDao dao, File dwca, IdLookup lookup, int batchSize) {
-    return new Normalizer(datasetKey, dao, dwca, batchSize, new MetricRegistry(), Maps.newHashMap(), lookup);
+    return new Normalizer(datasetKey, dao, dwca, batchSize, 1, Rank.FAMILY, 1, new MetricRegistry(), Maps.newHashMap(), lookup);
   }
 
   /**
@@ -194,7 +210,7 @@ public class Normalizer extends ImportDb implements Runnable {
 
   private void batchInsertData() throws NormalizationFailedException {
     try {
-      NeoInserter inserter = dao.createBatchInserter(batchSize);
+      NeoInserter inserter = dao.createBatchInserter(batchSize, inserterThreads);
       try {
         meta = inserter.insert(dwca, constituents);
       } finally {
@@ -539,7 +555,11 @@ public class Normalizer extends ImportDb implements Runnable {
     metricsHandler = new UsageMetricsHandler(dao);
     matchHandler = new NubMatchHandler(lookup, dao);
     final long before = metricsMeter.getCount();
-    TreeWalker.walkAcceptedTree(dao.getNeo(), null, null, metricsMeter, metricsHandler, matchHandler);
+    if (walkerThreads > 1) {
+      TreeWalker.walkAcceptedTree(dao.getNeo(), new RankSplitEvaluator(walkerSplitRank), walkerThreads, metricsMeter, metricsHandler, matchHandler);
+    } else {
+      TreeWalker.walkAcceptedTree(dao.getNeo(), null, null, metricsMeter, metricsHandler, matchHandler);
+    }
     final long after = metricsMeter.getCount();
     LOG.info("Walked all {} accepted taxa and built metrics", after - before);
   }
@@ -590,13 +610,23 @@ public class Normalizer extends ImportDb implements Runnable {
 
 
   private Transaction renewTx(Transaction tx) {
-    tx.success();
-    tx.close();
+    try (Timer.Context ignored = relationCommitTimer.time()) {
+      tx.success();
+      tx.close();
+    }
+    uncommittedNodes = false;
     return dao.getNeo().beginTx();
   }
 
+  @Override
+  protected NameUsageNode create(NameUsage u, boolean isRoot) {
+    uncommittedNodes = true;
+    return super.create(u, isRoot);
+  }
+
   /**
    * Creates implicit nodes and sets up relations between taxa.
+   * Changes are committed in batches of batchSize nodes.
    */
   private void normalize() throws NormalizationFailedException {
     LOG.info("Start processing explicit relations ...");
@@ -607,14 +637,19 @@ public class Normalizer extends ImportDb implements Runnable {
       // This iterates over ALL NODES, even the ones created within this loop which trigger a transaction commit!
       // iteration is by node id starting from node id 1 to highest.
       // if nodes are created within this loop they receive the highest node id and thus are added to the end of this loop
+      // as long as they have been committed before the iteration reaches them
       for (Node n : dao.getNeo().getAllNodes()) {
         setupRelation(n);
         // inc counters & commit batch
         counter++;
         relationMeter.mark();
-        tx = renewTx(tx);
+        if (uncommittedNodes || counter % batchSize == 0) {
+          tx = renewTx(tx);
+        }
         if (counter % 10000 == 0) {
-          LOG.debug("Processed relations for {} nodes", counter);
+          LOG.debug("Processed relations for {} nodes at {} nodes/s, {} commits with a mean latency of {}ms",
+              counter, (int) relationMeter.getOneMinuteRate(), relationCommitTimer.getCount(),
+              TimeUnit.NANOSECONDS.toMillis((long) relationCommitTimer.getSnapshot().getMean()));
           // interrupted? then lets get out of here
           checkInterrupted();
         }
@@ -631,7 +666,9 @@ public class Normalizer extends ImportDb implements Runnable {
     // finally resolve cycles and other bad relations
     cleanupRelations();
 
-    LOG.info("Relation setup completed, {} nodes processed. Setup rate: {}", counter, relationMeter.getMeanRate());
+    LOG.info("Relation setup completed, {} nodes processed in {} commits. Setup rate: {}, mean commit latency: {}ms",
+        counter, relationCommitTimer.getCount(), relationMeter.getMeanRate(),
+        TimeUnit.NANOSECONDS.toMillis((long) relationCommitTimer.getSnapshot().getMean()));
   }
 
   private NameUsage setupRelation(Node n) {
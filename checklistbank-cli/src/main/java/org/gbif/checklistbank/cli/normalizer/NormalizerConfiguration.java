@@ -13,6 +13,7 @@
  */
 package org.gbif.checklistbank.cli.normalizer;
 
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.cli.common.ZooKeeperConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
@@ -65,6 +66,27 @@ public class NormalizerConfiguration {
     @Min(1)
     public int poolSize = 3;
 
+    /**
+     * Number of threads to walk the accepted tree with when building metrics and matching to the backbone.
+     */
+    @Parameter(names = "--walker-threads")
+    @Min(1)
+    public int walkerThreads = 1;
+
+    /**
+     * Rank at which the accepted tree is split into subtrees walked concurrently.
+     */
+    @Parameter(names = "--walker-split-rank")
+    @NotNull
+    public Rank walkerSplitRank = Rank.FAMILY;
+
+    /**
+     * Number of threads cleaning and interpreting archive records before they are inserted into neo4j.
+     */
+    @Parameter(names = "--inserter-threads")
+    @Min(1)
+    public int inserterThreads = 1;
+
     @Parameter(names = "--archive-repository")
     @NotNull
     public File archiveRepository;
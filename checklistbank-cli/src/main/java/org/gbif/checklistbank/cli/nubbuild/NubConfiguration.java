@@ -49,6 +49,11 @@ public class NubConfiguration {
 
   public int sourceLoaderThreads = 2;
 
+  /**
+   * If true backbone sources are loaded into a compact single file each instead of a neo4j db with a kvp store.
+   */
+  public boolean compactSources = true;
+
   @ParametersDelegate
   @Valid
   @NotNull
@@ -39,13 +39,22 @@ import org.gbif.dwc.record.Record;
 import org.gbif.dwc.record.StarRecord;
 import org.gbif.dwc.terms.*;
 import org.gbif.utils.ObjectUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nullable;
@@ -70,11 +79,18 @@ import it.unimi.dsi.fastutil.objects.ObjectSet;
 
 import static org.gbif.dwc.terms.GbifTerm.datasetKey;
 
+/**
+ * Inserts all records of a dwc archive into a new neo4j db and the kvp store.
+ * With more than one thread records are read from the archive in a separate thread, cleaned and interpreted
+ * by a pool of workers and written in archive order by the calling thread, as the batch inserter is single threaded.
+ */
 public class NeoInserter implements AutoCloseable {
 
   private static final Logger LOG = LoggerFactory.getLogger(NeoInserter.class);
   private static final Pattern NOM_YEAR_PATTERN = Pattern.compile("^(?:1[7-9]|20)\\d{2}$");
   private static final TermFactory TF = TermFactory.instance();
+  // marks the end of the archive in the pipeline queue
+  private static final Future<InterpretedRecord> END = CompletableFuture.completedFuture(null);
 
   private Archive arch;
   private Map<String, UUID> constituents;
@@ -85,6 +101,7 @@ public class NeoInserter implements AutoCloseable {
   private ExtensionInterpreter extensionInterpreter = new ExtensionInterpreter();
   private final BatchInserter inserter;
   private final int batchSize;
+  private final int threads;
   private final Meter insertMeter;
   private final Map<Term, Extension> extensions;
   private final UsageDao dao;
@@ -92,13 +109,14 @@ public class NeoInserter implements AutoCloseable {
   // not good for memory footprint...but we try our best in using fastutils and a compact utf8 byte buffer instead of a string
   private final ObjectSet<ByteBuffer> taxonIDs;
 
-  private NeoInserter(UsageDao dao, File storeDir, int batchSize, @Nullable Meter insertMeter) throws IOException {
+  private NeoInserter(UsageDao dao, File storeDir, int batchSize, int threads, @Nullable Meter insertMeter) throws IOException {
     Preconditions.checkNotNull(dao, "DAO required");
     LOG.info("Creating new neo db at {}", storeDir.getAbsolutePath());
     this.dao = dao;
     initNeoDir(storeDir);
     inserter = BatchInserters.inserter(storeDir);
     this.batchSize = batchSize;
+    this.threads = threads;
     this.insertMeter = insertMeter;
     extensions = Maps.newHashMap();
     for (Extension e : Extension.values()) {
@@ -108,14 +126,25 @@ public class NeoInserter implements AutoCloseable {
   }
 
   public static NeoInserter create(UsageDao dao, File storeDir, int batchSize, @Nullable MetricRegistry registry) throws IOException {
-    return new NeoInserter(dao, storeDir, batchSize, registry == null ? null : registry.meter(Metrics.INSERT_METER));
+    return create(dao, storeDir, batchSize, 1, registry);
+  }
+
+  /**
+   * @param threads number of threads interpreting records. One or less reads, interprets and writes in the calling thread
+   */
+  public static NeoInserter create(UsageDao dao, File storeDir, int batchSize, int threads, @Nullable MetricRegistry registry) throws IOException {
+    return new NeoInserter(dao, storeDir, batchSize, threads, registry == null ? null : registry.meter(Metrics.INSERT_METER));
   }
 
   public InsertMetadata insert(File dwca, Map<String, UUID> constituents) throws NormalizationFailedException {
     this.constituents = constituents;
     openArchive(dwca);
-    for (StarRecord star : arch) {
-      insertStarRecord(star);
+    if (threads > 1) {
+      insertConcurrently();
+    } else {
+      for (StarRecord star : arch) {
+        insertStarRecord(star);
+      }
     }
     LOG.info("Data insert completed, {} nodes created", meta.getRecords());
     if (insertMeter != null) {
@@ -126,76 +155,199 @@ public class NeoInserter implements AutoCloseable {
 
   @VisibleForTesting
   protected void insertStarRecord(StarRecord star) throws NormalizationFailedException {
-    try {
-      VerbatimNameUsage v = new VerbatimNameUsage();
-
-      // set core props
-      Record core = star.core();
-      final String id =  taxonID(core);
-      // check taxonIDs are unique!
-      if (id != null) {
-        ByteBuffer idAsBytes = ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
-        if (taxonIDs.contains(idAsBytes)) {
-          throw new NormalizationFailedException("taxonID value "+id+" is not unique");
-        } else {
-          taxonIDs.add(idAsBytes);
+    write(interpret(read(star)));
+  }
+
+  /**
+   * Pipes records from a reader thread through the interpretation workers to the single writing calling thread.
+   * Queues are bounded, so neither reading nor interpretation can run far ahead of the writer.
+   */
+  private void insertConcurrently() throws NormalizationFailedException {
+    LOG.info("Interpret records with {} threads", threads);
+    ExecutorService exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory("neo-interpreter"));
+    // futures in archive order
+    BlockingQueue<Future<InterpretedRecord>> queue = new ArrayBlockingQueue<>(threads * 16);
+    Thread reader = new Thread(() -> {
+      try {
+        Future<InterpretedRecord> last = END;
+        try {
+          for (StarRecord star : arch) {
+            RawRecord raw = read(star);
+            queue.put(exec.submit(() -> interpret(raw)));
+          }
+        } catch (RuntimeException e) {
+          // hand over to the writer, e.g. a not unique taxonID
+          last = CompletableFuture.failedFuture(e);
         }
+        queue.put(last);
+
+      } catch (InterruptedException e) {
+        // the writer stopped
+        Thread.currentThread().interrupt();
       }
-      for (Term t : core.terms()) {
-        String val = CleanupUtils.clean(core.value(t));
-        if (val != null) {
-          v.setCoreField(t, val);
-        }
+    }, "neo-archive-reader");
+    reader.start();
+
+    try {
+      Future<InterpretedRecord> f;
+      while ((f = queue.take()) != END) {
+        write(f.get());
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new NormalizationFailedException("NeoInserter interrupted", e);
+
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof NormalizationFailedException) {
+        throw (NormalizationFailedException) e.getCause();
+      }
+      throw new NormalizationFailedException("Failed to interpret record", e.getCause());
+
+    } finally {
+      reader.interrupt();
+      exec.shutdownNow();
+    }
+  }
+
+  /**
+   * A verbatim record copied from the archive, as star records are reused by the archive iterator.
+   */
+  private static class RawRecord {
+    final String coreId;
+    final String taxonID;
+    final Map<Term, String> core = Maps.newHashMap();
+    final Map<Extension, List<Map<Term, String>>> extensions = Maps.newHashMap();
+
+    RawRecord(String coreId, String taxonID) {
+      this.coreId = coreId;
+      this.taxonID = taxonID;
+    }
+  }
+
+  /**
+   * A fully interpreted record ready to be written, or an ignored one.
+   */
+  private static class InterpretedRecord {
+    final String coreId;
+    VerbatimNameUsage verbatim;
+    ParsedNameUsageCompound pnu;
+    UsageExtensions extensions;
+    Map<String, Object> props;
+    String ignored;
+
+    InterpretedRecord(String coreId) {
+      this.coreId = coreId;
+    }
+  }
+
+  /**
+   * Copies all values of a star record and verifies the uniqueness of the taxonID in archive order.
+   */
+  private RawRecord read(StarRecord star) throws NormalizationFailedException {
+    Record core = star.core();
+    final String id = taxonID(core);
+    // check taxonIDs are unique!
+    if (id != null) {
+      ByteBuffer idAsBytes = ByteBuffer.wrap(id.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+      if (taxonIDs.contains(idAsBytes)) {
+        throw new NormalizationFailedException("taxonID value "+id+" is not unique");
+      } else {
+        taxonIDs.add(idAsBytes);
       }
-      // make sure this is last to override already put taxonID keys
-      v.setCoreField(DwcTerm.taxonID, id);
-      // readUsage extensions data
-      for (Map.Entry<Term, Extension> ext : extensions.entrySet()) {
-        if (star.hasExtension(ext.getKey())) {
-          v.getExtensions().put(ext.getValue(), Lists.<Map<Term, String>>newArrayList());
-          for (Record eRec : star.extension(ext.getKey())) {
-            Map<Term, String> data = Maps.newHashMap();
-            for (Term t : eRec.terms()) {
-              String val = CleanupUtils.clean(eRec.value(t));
-              if (val != null) {
-                data.put(t, val);
-              }
-            }
-            v.getExtensions().get(ext.getValue()).add(data);
+    }
+    RawRecord raw = new RawRecord(core.id(), id);
+    for (Term t : core.terms()) {
+      raw.core.put(t, core.value(t));
+    }
+    for (Map.Entry<Term, Extension> ext : extensions.entrySet()) {
+      if (star.hasExtension(ext.getKey())) {
+        List<Map<Term, String>> records = Lists.newArrayList();
+        for (Record eRec : star.extension(ext.getKey())) {
+          Map<Term, String> data = Maps.newHashMap();
+          for (Term t : eRec.terms()) {
+            data.put(t, eRec.value(t));
           }
+          records.add(data);
         }
+        raw.extensions.put(ext.getValue(), records);
       }
-      // convert into a NameUsage interpreting all enums and other needed types
-      // creates a ParsedName from various verbatim options
-      ParsedNameUsageCompound pnu = buildUsage(v);
-      final NameUsage u = pnu.usage;
-      UsageExtensions ext = extensionInterpreter.interpret(u, v);
-
-      // and batch insert key neo properties used during normalization
-      Map<String, Object> props = dao.neoProperties(core.id(), u, v);
-      long nodeId = inserter.createNode(props, Labels.TAXON, u.isSynonym() ? Labels.SYNONYM : Labels.TAXON);
-      // store verbatim instance
-      dao.store(nodeId, v);
-      dao.store(nodeId, u, false);
-      dao.store(nodeId, pnu.parsedName);
-      dao.store(nodeId, ext);
-
-      meta.incRecords();
-      meta.incRank(u.getRank());
-      if (insertMeter != null) {
-        insertMeter.mark();
+    }
+    return raw;
+  }
+
+  /**
+   * Cleans and interprets a record. Safe to be called concurrently.
+   */
+  private InterpretedRecord interpret(RawRecord raw) {
+    InterpretedRecord rec = new InterpretedRecord(raw.coreId);
+    VerbatimNameUsage v = new VerbatimNameUsage();
+    // set core props
+    for (Map.Entry<Term, String> e : raw.core.entrySet()) {
+      String val = CleanupUtils.clean(e.getValue());
+      if (val != null) {
+        v.setCoreField(e.getKey(), val);
       }
-      if (meta.getRecords() % (batchSize * 10) == 0) {
-        LOG.info("Inserts done into neo4j: {}", meta.getRecords());
-        if (Thread.interrupted()) {
-          LOG.warn("NeoInserter interrupted, exit {} early with incomplete parsing", datasetKey);
-          throw new NormalizationFailedException("NeoInserter interrupted");
+    }
+    // make sure this is last to override already put taxonID keys
+    v.setCoreField(DwcTerm.taxonID, raw.taxonID);
+    // readUsage extensions data
+    for (Map.Entry<Extension, List<Map<Term, String>>> ext : raw.extensions.entrySet()) {
+      v.getExtensions().put(ext.getKey(), Lists.<Map<Term, String>>newArrayList());
+      for (Map<Term, String> eRec : ext.getValue()) {
+        Map<Term, String> data = Maps.newHashMap();
+        for (Map.Entry<Term, String> e : eRec.entrySet()) {
+          String val = CleanupUtils.clean(e.getValue());
+          if (val != null) {
+            data.put(e.getKey(), val);
+          }
         }
+        v.getExtensions().get(ext.getKey()).add(data);
       }
+    }
+    rec.verbatim = v;
+    try {
+      // convert into a NameUsage interpreting all enums and other needed types
+      // creates a ParsedName from various verbatim options
+      rec.pnu = buildUsage(v);
+      rec.extensions = extensionInterpreter.interpret(rec.pnu.usage, v);
+      // key neo properties used during normalization
+      rec.props = dao.neoProperties(raw.coreId, rec.pnu.usage, v);
 
     } catch (IgnoreNameUsageException e) {
+      rec.ignored = e.getMessage();
+    }
+    return rec;
+  }
+
+  /**
+   * Batch inserts the neo node and stores the kvp data. Must only be called from a single thread.
+   */
+  private void write(InterpretedRecord rec) throws NormalizationFailedException {
+    if (rec.ignored != null) {
       meta.incIgnored();
-      LOG.info("Ignoring record {}: {}", star.core().id(), e.getMessage());
+      LOG.info("Ignoring record {}: {}", rec.coreId, rec.ignored);
+      return;
+    }
+    final NameUsage u = rec.pnu.usage;
+    long nodeId = inserter.createNode(rec.props, Labels.TAXON, u.isSynonym() ? Labels.SYNONYM : Labels.TAXON);
+    // store verbatim instance
+    dao.store(nodeId, rec.verbatim);
+    dao.store(nodeId, u, false);
+    dao.store(nodeId, rec.pnu.parsedName);
+    dao.store(nodeId, rec.extensions);
+
+    meta.incRecords();
+    meta.incRank(u.getRank());
+    if (insertMeter != null) {
+      insertMeter.mark();
+    }
+    if (meta.getRecords() % (batchSize * 10) == 0) {
+      LOG.info("Inserts done into neo4j: {}", meta.getRecords());
+      if (Thread.interrupted()) {
+        LOG.warn("NeoInserter interrupted, exit {} early with incomplete parsing", datasetKey);
+        throw new NormalizationFailedException("NeoInserter interrupted");
+      }
     }
   }
 
@@ -336,8 +336,15 @@ public class UsageDao implements AutoCloseable {
    * Make sure you do not access any other dao methods until the batch inserter was closed properly!
    */
   public NeoInserter createBatchInserter(int batchSize) throws IOException {
+    return createBatchInserter(batchSize, 1);
+  }
+
+  /**
+   * @param threads number of threads interpreting archive records concurrently
+   */
+  public NeoInserter createBatchInserter(int batchSize, int threads) throws IOException {
     closeNeo();
-    return NeoInserter.create(this, neoDir, batchSize, registry);
+    return NeoInserter.create(this, neoDir, batchSize, threads, registry);
   }
 
   public Transaction beginTx() {
@@ -19,7 +19,6 @@ import org.gbif.checklistbank.neo.UsageDao;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Path;
 import org.neo4j.graphdb.traversal.Evaluation;
-import org.neo4j.graphdb.traversal.Evaluator;
 
 import com.google.common.base.Preconditions;
 
@@ -32,7 +31,7 @@ import it.unimi.dsi.fastutil.longs.LongSet;
  * or could take account of the current depth (path.length()), to avoid marking many
  * unplaced families.
  */
-public class ChunkingEvaluator implements Evaluator {
+public class ChunkingEvaluator implements SplitEvaluator {
 
   private UsageDao dao;
   private int chunkSize;
@@ -61,6 +60,7 @@ public class ChunkingEvaluator implements Evaluator {
     }
   }
 
+  @Override
   public boolean isChunk(long nodeId) {
     return chunkIds.contains(nodeId);
   }
@@ -41,13 +41,17 @@ public class ExclusionEvaluator implements Evaluator {
   @Override
   public Evaluation evaluate(Path path) {
     Node end = path.endNode();
-    String name = NeoProperties.getCanonicalName(end).toUpperCase().trim();
-    if (exclusion.containsKey(name)) {
-      Rank rank = NeoProperties.getRank(end, Rank.UNRANKED);
-      if (rank == exclusion.get(name)) {
-        return Evaluation.EXCLUDE_AND_PRUNE;
-      }
+    if (isExcluded(NeoProperties.getCanonicalName(end), NeoProperties.getRank(end, Rank.UNRANKED))) {
+      return Evaluation.EXCLUDE_AND_PRUNE;
     }
     return Evaluation.INCLUDE_AND_CONTINUE;
   }
+
+  /**
+   * @return true if the canonical name and rank match one of the excluded taxa
+   */
+  public boolean isExcluded(String canonicalName, Rank rank) {
+    String name = canonicalName.toUpperCase().trim();
+    return exclusion.containsKey(name) && rank == exclusion.get(name);
+  }
 }
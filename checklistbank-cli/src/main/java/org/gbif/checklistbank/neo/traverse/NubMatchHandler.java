@@ -26,6 +26,7 @@ import org.gbif.common.parsers.core.ParseResult;
 import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.LookupUsage;
 
+import java.util.List;
 import java.util.Set;
 
 import org.neo4j.graphdb.Node;
@@ -38,7 +39,7 @@ import com.google.common.collect.Sets;
 /**
  * Assigns existing usageKey through a backbone match.
  */
-public class NubMatchHandler implements StartEndHandler {
+public class NubMatchHandler implements SubtreeHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(NubMatchHandler.class);
   private final Set<NameType> unparsableMatchTypes = Sets.newHashSet(NameType.VIRUS, NameType.HYBRID, NameType.CULTIVAR, NameType.CANDIDATUS);
@@ -85,6 +86,29 @@ public class NubMatchHandler implements StartEndHandler {
     }
   }
 
+  /**
+   * Creates a handler sharing the same lookup with the kingdom detected from the given ancestors.
+   */
+  @Override
+  public NubMatchHandler forSubtree(List<Node> ancestors) {
+    NubMatchHandler sub = new NubMatchHandler(lookup, dao);
+    for (Node n : ancestors) {
+      if (sub.currKingdom == null) {
+        NameUsage u = dao.readUsage(n, false);
+        ParseResult<Kingdom> k = kParser.parse(u.getCanonicalName());
+        if (k.isSuccessful()) {
+          sub.setCurrKingdom(k.getPayload(), n);
+        }
+      }
+    }
+    return sub;
+  }
+
+  @Override
+  public void merge(SubtreeHandler subtree) {
+    counter += ((NubMatchHandler) subtree).counter;
+  }
+
   /**
    * Use an in memory backbone matching so there is no need for retries.
    * The resulting usageKey of the match and potential issues will be stored in the neo node.
@@ -0,0 +1,56 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.neo.traverse;
+
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.neo.NeoProperties;
+
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.Path;
+import org.neo4j.graphdb.traversal.Evaluation;
+
+import com.google.common.base.Preconditions;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * Marks the first node on each path with a rank equal or below the split rank as a chunk.
+ * Unranked nodes are never chunks, so informal groups between real ranks do not end up as one huge chunk.
+ */
+public class RankSplitEvaluator implements SplitEvaluator {
+
+  private final Rank splitRank;
+  private final LongSet chunkIds = new LongOpenHashSet();
+
+  public RankSplitEvaluator(Rank splitRank) {
+    this.splitRank = Preconditions.checkNotNull(splitRank);
+  }
+
+  @Override
+  public Evaluation evaluate(Path path) {
+    Node n = path.endNode();
+    Rank rank = Rank.values()[(int) n.getProperty(NeoProperties.RANK, Rank.UNRANKED.ordinal())];
+    if (rank != Rank.UNRANKED && rank != Rank.OTHER && !rank.higherThan(splitRank)) {
+      chunkIds.add(n.getId());
+      return Evaluation.INCLUDE_AND_PRUNE;
+    }
+    return Evaluation.INCLUDE_AND_CONTINUE;
+  }
+
+  @Override
+  public boolean isChunk(long nodeId) {
+    return chunkIds.contains(nodeId);
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.neo.traverse;
+
+import org.neo4j.graphdb.traversal.Evaluator;
+
+/**
+ * An evaluator that prunes a traversal at nodes which root independent subtrees, so called chunks,
+ * that can be processed separately.
+ */
+public interface SplitEvaluator extends Evaluator {
+
+  /**
+   * @return true if the node was marked as the root of a chunk during the traversal
+   */
+  boolean isChunk(long nodeId);
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.neo.traverse;
+
+import java.util.List;
+
+import org.neo4j.graphdb.Node;
+
+/**
+ * A StartEndHandler that supports walking independent subtrees concurrently.
+ * Every subtree is walked by a separate handler instance which is merged back into the main handler
+ * at the position of the subtree root in the main walk.
+ */
+public interface SubtreeHandler extends StartEndHandler {
+
+  /**
+   * Creates a new, independent handler to walk a subtree with.
+   * It is called from the thread doing the subtree walk inside an open transaction.
+   *
+   * @param ancestors the accepted parent nodes of the subtree root, starting with the root of the whole tree
+   */
+  SubtreeHandler forSubtree(List<Node> ancestors);
+
+  /**
+   * Merges the results of a subtree handler that has completed its walk into this handler.
+   * Called by the main walk instead of start and end for the subtree root node while all ancestors are started.
+   *
+   * @param subtree a handler created by {@link #forSubtree(List)} of this handler
+   */
+  void merge(SubtreeHandler subtree);
+}
@@ -15,6 +15,14 @@ package org.gbif.checklistbank.neo.traverse;
 
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.neo.NeoProperties;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
@@ -26,9 +34,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Meter;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Iterators;
-import com.google.common.collect.PeekingIterator;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 
 import jakarta.annotation.Nullable;
 
@@ -71,8 +82,101 @@ public class TreeWalker {
   }
 
 
+  /**
+   * Walks all accepted nodes like {@link #walkAcceptedTree(GraphDatabaseService, Node, Rank, Meter, StartEndHandler...)},
+   * but hands off the subtrees marked as chunks by the split evaluator to a pool of worker threads.
+   * Each subtree is walked in its own transaction with new handler instances
+   * created by {@link SubtreeHandler#forSubtree(List)} and merged back into the given handlers
+   * in the same order as a single threaded walk would have visited them.
+   *
+   * @param splitter evaluator marking the subtree roots, e.g. a {@link RankSplitEvaluator}
+   * @param threads number of threads to walk subtrees with
+   */
+  public static void walkAcceptedTree(GraphDatabaseService db, SplitEvaluator splitter, int threads, @Nullable Meter meter, SubtreeHandler ... handler) {
+    ExecutorService exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory("tree-walker"));
+    try (Transaction tx = db.beginTx()){
+      ResourceIterable<Path> paths = MultiRootPathIterator.create(TreeIterablesSorted.findRoot(db),
+          Traversals.SORTED_ACCEPTED_TREE.evaluator(splitter));
+
+      // submit all subtrees first, the upper tree is usually small
+      Map<Long, Future<SubtreeHandler[]>> subtrees = Maps.newHashMap();
+      try (ResourceIterator<Path> iter = paths.iterator()){
+        while (iter.hasNext()) {
+          Path p = iter.next();
+          if (splitter.isChunk(p.endNode().getId())) {
+            LongArrayList ancestors = new LongArrayList();
+            for (Node n : p.nodes()) {
+              ancestors.add(n.getId());
+            }
+            long root = ancestors.removeLong(ancestors.size() - 1);
+            subtrees.put(root, exec.submit(() -> walkSubtree(db, root, ancestors, meter, handler)));
+          }
+        }
+      }
+      LOG.info("Walking {} subtrees with {} threads", subtrees.size(), threads);
+
+      // now walk the upper tree merging the subtree results in place
+      walkTree(paths, meter, new ChunkMerger() {
+        @Override
+        public boolean isChunk(Node n) {
+          return splitter.isChunk(n.getId());
+        }
+
+        @Override
+        public void merge(Node n) {
+          try {
+            SubtreeHandler[] results = subtrees.remove(n.getId()).get();
+            for (int i = 0; i < handler.length; i++) {
+              handler[i].merge(results[i]);
+            }
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while walking subtree " + n.getId(), e);
+          } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException("Failed to walk subtree " + n.getId(), e.getCause());
+          }
+        }
+      }, handler);
+
+    } finally {
+      exec.shutdownNow();
+    }
+  }
+
+  private static SubtreeHandler[] walkSubtree(GraphDatabaseService db, long rootId, LongList ancestorIds, @Nullable Meter meter, SubtreeHandler[] handler) {
+    try (Transaction tx = db.beginTx()){
+      List<Node> ancestors = Lists.newArrayList();
+      for (long id : ancestorIds) {
+        ancestors.add(db.getNodeById(id));
+      }
+      SubtreeHandler[] sub = new SubtreeHandler[handler.length];
+      for (int i = 0; i < handler.length; i++) {
+        sub[i] = handler[i].forSubtree(ancestors);
+      }
+      walkTree(TreeIterablesSorted.acceptedPath(db, db.getNodeById(rootId), null), meter, null, sub);
+      return sub;
+    }
+  }
+
+  /**
+   * Callback for the main walk to replace subtree roots with the results of their separate walk.
+   */
+  private interface ChunkMerger {
+    boolean isChunk(Node n);
+
+    void merge(Node n);
+  }
+
   private static void walkTree(ResourceIterable<Path> paths, @Nullable Meter meter, StartEndHandler ... handler) {
-    Path lastPath = null;
+    walkTree(paths, meter, null, handler);
+  }
+
+  /**
+   * @param chunks if given the end nodes of paths marked as chunks are not started, but merged instead
+   */
+  private static void walkTree(ResourceIterable<Path> paths, @Nullable Meter meter, @Nullable ChunkMerger chunks, StartEndHandler ... handler) {
+    List<Node> lastPath = null;
     long counter = 0;
     try (ResourceIterator<Path> iter = paths.iterator()){
       while (iter.hasNext()) {
@@ -81,38 +185,41 @@ public class TreeWalker {
         if (counter % reportingSize == 0) {
           LOG.debug("Processed {}. Rate = {}", counter, meter == null ? "unknown" : meter.getMeanRate());
         }
-        if (meter != null) {
+        List<Node> path = Lists.newArrayList(p.nodes());
+        boolean chunk = chunks != null && chunks.isChunk(p.endNode());
+        if (meter != null && !chunk) {
           meter.mark();
         }
+        int shared = 0;
         if (lastPath != null) {
-          PeekingIterator<Node> lIter = Iterators.peekingIterator(lastPath.nodes().iterator());
-          PeekingIterator<Node> cIter = Iterators.peekingIterator(p.nodes().iterator());
-          while (lIter.hasNext() && cIter.hasNext() && lIter.peek().equals(cIter.peek())) {
-            lIter.next();
-            cIter.next();
+          while (shared < lastPath.size() && shared < path.size() && lastPath.get(shared).equals(path.get(shared))) {
+            shared++;
           }
           // only non shared nodes left.
           // first close allAccepted old nodes, then open new ones
           // reverse order for closing nodes...
-          for (Node n : ImmutableList.copyOf(lIter).reverse()) {
-            handleEnd(n, handler);
+          for (int i = lastPath.size() - 1; i >= shared; i--) {
+            handleEnd(lastPath.get(i), handler);
           }
-          while (cIter.hasNext()) {
-            handleStart(cIter.next(), handler);
+        }
+        if (chunk) {
+          // the subtree was walked separately, just open the new parents
+          for (int i = shared; i < path.size() - 1; i++) {
+            handleStart(path.get(i), handler);
           }
-
+          chunks.merge(p.endNode());
+          path.remove(path.size() - 1);
         } else {
-          // only new nodes
-          for (Node n : p.nodes()) {
-            handleStart(n, handler);
+          for (int i = shared; i < path.size(); i++) {
+            handleStart(path.get(i), handler);
           }
         }
-        lastPath = p;
+        lastPath = path;
         counter++;
       }
       // close all remaining nodes
       if (lastPath != null) {
-        for (Node n : ImmutableList.copyOf(lastPath.nodes()).reverse()) {
+        for (Node n : Lists.reverse(lastPath)) {
           handleEnd(n, handler);
         }
       }
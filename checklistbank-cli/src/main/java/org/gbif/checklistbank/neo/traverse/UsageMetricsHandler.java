@@ -32,6 +32,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
@@ -40,9 +41,12 @@ import com.google.common.collect.Maps;
  * Synonym usages do not need a data record as its zero all over.
  * The handler works on taxonomic neo relations and the NameUsage instances in the kvp store, so make sure they exist!
  */
-public class UsageMetricsHandler implements StartEndHandler {
+public class UsageMetricsHandler implements SubtreeHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(UsageMetricsHandler.class);
+    private static final List<Rank> COUNTED_RANKS = ImmutableList.of(
+        Rank.PHYLUM, Rank.CLASS, Rank.ORDER, Rank.FAMILY, Rank.GENUS, Rank.SUBGENUS, Rank.SPECIES
+    );
     // neo node ids for the higher classification links
     private final Classification classification = new Classification();
     private final LinkedList<NameUsageMetrics> parentCounts = Lists.newLinkedList();
@@ -126,6 +130,49 @@ public class UsageMetricsHandler implements StartEndHandler {
         if (debug) LOG.info("end: {} {} {} #  {}-{}-{}", u.getTaxonID(), u.getRank(), u.getScientificName(), metrics.getNumDescendants(), metrics.getNumSynonyms(), parentCounts.size());
     }
 
+    /**
+     * Creates a handler with the classification of the given ancestors and a virtual parent metrics record
+     * that collects the counts of the entire subtree to be merged into the real ancestors later.
+     */
+    @Override
+    public UsageMetricsHandler forSubtree(List<Node> ancestors) {
+        UsageMetricsHandler sub = new UsageMetricsHandler(dao);
+        for (Node n : ancestors) {
+            NameUsage u = dao.readUsage(n, false);
+            if (u != null && u.getRank() != null && u.getRank().isLinnean()) {
+                ClassificationUtils.setHigherRankKey(sub.classification, u.getRank(), (int) n.getId());
+                ClassificationUtils.setHigherRank(sub.classification, u.getRank(), u.getCanonicalOrScientificName());
+            }
+        }
+        sub.depth = ancestors.size();
+        NameUsageMetrics virtualParent = new NameUsageMetrics();
+        virtualParent.setNumDescendants(0);
+        sub.parentCounts.add(virtualParent);
+        return sub;
+    }
+
+    @Override
+    public void merge(SubtreeHandler subtree) {
+        UsageMetricsHandler sub = (UsageMetricsHandler) subtree;
+        Preconditions.checkArgument(sub.parentCounts.size() == 1, "Subtree walk not completed");
+        NameUsageMetrics subCounts = sub.parentCounts.getFirst();
+        for (NameUsageMetrics m : parentCounts) {
+            for (Rank r : COUNTED_RANKS) {
+                setNumByRank(m, r, m.getNumByRank(r) + subCounts.getNumByRank(r));
+            }
+        }
+        if (!parentCounts.isEmpty()) {
+            parentCounts.getLast().setNumChildren(parentCounts.getLast().getNumChildren() + subCounts.getNumChildren());
+        }
+        // open parents calculate their descendants from the counter
+        counter += sub.counter;
+        roots += sub.roots;
+        maxDepth = Math.max(maxDepth, sub.maxDepth);
+        synonyms += sub.synonyms;
+        sub.countByOrigin.forEach((k, v) -> countByOrigin.merge(k, v, Integer::sum));
+        sub.countByRank.forEach((k, v) -> countByRank.merge(k, v, Integer::sum));
+    }
+
     public NormalizerStats getStats(int ignored, List<String> cycles) {
         return new NormalizerStats(roots, maxDepth, synonyms, ignored, countByOrigin, countByRank, cycles);
     }
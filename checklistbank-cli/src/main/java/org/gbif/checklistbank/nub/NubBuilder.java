@@ -1167,7 +1167,7 @@ public class NubBuilder implements Runnable {
       src2NubKey.remove(sourceId);
     }
     basionymRels.remove(nub.node.getId());
-    db.dao().delete(nub);
+    db.delete(nub);
   }
 
   /**
@@ -71,6 +71,9 @@ public class NubDb {
   }
 
   private NubUsage incertaeSedis;
+  // in memory name index for new dbs only, existing ones are looked up through the neo4j index
+  @Nullable
+  private final NubNameIndex names;
 
   private NubDb(UsageDao dao, AuthorComparator authorComparator, boolean initialize) {
     this.dao = dao;
@@ -82,6 +85,9 @@ public class NubDb {
         schema.indexFor(Labels.TAXON).on(NeoProperties.CANONICAL_NAME).create();
         tx.success();
       }
+      names = new NubNameIndex();
+    } else {
+      names = null;
     }
   }
 
@@ -198,7 +204,10 @@ public class NubDb {
     final String normedCanonical = SciNameNormalizer.normalize(canonical);
     List<NubUsage> usages = Lists.newArrayList();
     List<NubUsage> doubtful = Lists.newArrayList();
-    for (Node n : Iterators.loop(dao.getNeo().findNodes(Labels.TAXON, NeoProperties.CANONICAL_NAME, normedCanonical))) {
+    NubNameIndex.Filter filter = (r, k, s) -> (kingdom == null || kingdom == k)
+        && (rank == null || rank == r)
+        && (inclSynonyms || s == null || s.isAccepted());
+    for (Node n : findNodes(normedCanonical, filter)) {
       NubUsage rn = dao.readNub(n);
       if ((kingdom == null || kingdom == rn.kingdom)
           && (rank == null || rank == rn.rank)
@@ -312,10 +321,10 @@ public class NubDb {
     int canonMatches = 0;
     NubUsage doubtful = null;
     final String name = dao.canonicalOrScientificName(pn);
-    for (Node n : Iterators.loop(dao.getNeo().findNodes(Labels.TAXON, NeoProperties.CANONICAL_NAME, name))) {
+    for (Node n : findNodes(name, (r, k, s) -> matchesRank(rank, r))) {
       NubUsage rn = dao.readNub(n);
       // snap to
-      if (rank == null || rank == rn.rank || rank.isSuprageneric() && RankUtils.linneanBaseRank(rank) == RankUtils.linneanBaseRank(rn.rank)) {
+      if (matchesRank(rank, rn.rank)) {
         checked.add(rn);
       }
     }
@@ -495,6 +504,26 @@ public class NubDb {
     throw new IgnoreSourceUsageException("homonym " + pn.getScientificName(), pn.getScientificName());
   }
 
+  private static boolean matchesRank(@Nullable Rank rank, Rank nubRank) {
+    return rank == null || rank == nubRank || rank.isSuprageneric() && RankUtils.linneanBaseRank(rank) == RankUtils.linneanBaseRank(nubRank);
+  }
+
+  /**
+   * Finds all nodes by their normalized canonical name.
+   * For new dbs the in memory name index is used which applies the filter before any nub usage is read.
+   * The filter is a cheap pre-filter only, so callers still need to check the nub usages.
+   */
+  private Iterable<Node> findNodes(String name, NubNameIndex.Filter filter) {
+    if (names == null) {
+      return Iterators.loop(dao.getNeo().findNodes(Labels.TAXON, NeoProperties.CANONICAL_NAME, name));
+    }
+    List<Node> nodes = new ArrayList<>();
+    for (long id : names.find(name, filter)) {
+      nodes.add(dao.getNeo().getNodeById(id));
+    }
+    return nodes;
+  }
+
   private long countDescendants(NubUsage u) {
     return Iterables.count(Traversals.DESCENDANTS.traverse(u.node).nodes());
   }
@@ -818,7 +847,16 @@ public class NubDb {
       }
     }
 
+    if (names != null) {
+      String previous = (String) nub.node.getProperty(NeoProperties.CANONICAL_NAME, null);
+      if (previous != null) {
+        names.remove(previous, nub.node.getId());
+      }
+    }
     dao.store(nub);
+    if (names != null && nub.node.hasProperty(NeoProperties.CANONICAL_NAME)) {
+      names.put((String) nub.node.getProperty(NeoProperties.CANONICAL_NAME), nub.node.getId(), nub.rank, nub.kingdom, nub.status);
+    }
     if (nub.rank == Rank.KINGDOM) {
       kingdoms.put(nub.kingdom, nub);
       if (nub.kingdom == Kingdom.INCERTAE_SEDIS) {
@@ -828,6 +866,16 @@ public class NubDb {
     return nub;
   }
 
+  /**
+   * Deletes the nub usage and its node together with all its relations.
+   */
+  public void delete(NubUsage nub) {
+    if (names != null && nub.node.hasProperty(NeoProperties.CANONICAL_NAME)) {
+      names.remove((String) nub.node.getProperty(NeoProperties.CANONICAL_NAME), nub.node.getId());
+    }
+    dao.delete(nub);
+  }
+
   /**
    * @param n      the node to start the parental hierarchy search from
    * @param search the node to find in the hierarchy
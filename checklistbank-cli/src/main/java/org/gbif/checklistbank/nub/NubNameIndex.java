@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.nub;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * An in memory index of nub usages by their normalized canonical name, i.e. the same key as the neo4j CANONICAL_NAME index.
+ * For every name the node ids are kept together with the rank, kingdom and status of the usage packed into a single long,
+ * so name lookups can be filtered before any nub usage is read from the kvp store.
+ * Entries of a name are ordered by node id like the neo4j index.
+ * <p>
+ * The index only stays in sync with the nub usages if all of them are stored and deleted through NubDb.
+ */
+class NubNameIndex {
+  private static final long[] EMPTY = new long[0];
+  private static final int NONE = 0xFF;
+  private static final Rank[] RANKS = Rank.values();
+  private static final Kingdom[] KINGDOMS = Kingdom.values();
+  private static final TaxonomicStatus[] STATI = TaxonomicStatus.values();
+
+  private final Map<String, long[]> index = new HashMap<>();
+
+  interface Filter {
+    boolean test(@Nullable Rank rank, @Nullable Kingdom kingdom, @Nullable TaxonomicStatus status);
+  }
+
+  /**
+   * Adds or replaces the entry for the given node.
+   */
+  void put(String name, long nodeId, @Nullable Rank rank, @Nullable Kingdom kingdom, @Nullable TaxonomicStatus status) {
+    final long entry = nodeId << 24 | ordinal(rank) << 16 | ordinal(kingdom) << 8 | ordinal(status);
+    long[] entries = index.getOrDefault(name, EMPTY);
+    int idx = find(entries, nodeId);
+    if (idx >= 0) {
+      entries[idx] = entry;
+    } else {
+      idx = -idx - 1;
+      long[] updated = new long[entries.length + 1];
+      System.arraycopy(entries, 0, updated, 0, idx);
+      updated[idx] = entry;
+      System.arraycopy(entries, idx, updated, idx + 1, entries.length - idx);
+      index.put(name, updated);
+    }
+  }
+
+  void remove(String name, long nodeId) {
+    long[] entries = index.get(name);
+    if (entries != null) {
+      int idx = find(entries, nodeId);
+      if (idx >= 0) {
+        if (entries.length == 1) {
+          index.remove(name);
+        } else {
+          long[] updated = new long[entries.length - 1];
+          System.arraycopy(entries, 0, updated, 0, idx);
+          System.arraycopy(entries, idx + 1, updated, idx, entries.length - idx - 1);
+          index.put(name, updated);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the node ids of all usages with the given name that pass the filter
+   */
+  long[] find(String name, Filter filter) {
+    long[] entries = index.getOrDefault(name, EMPTY);
+    long[] nodeIds = new long[entries.length];
+    int size = 0;
+    for (long e : entries) {
+      if (filter.test(value(RANKS, e >>> 16), value(KINGDOMS, e >>> 8), value(STATI, e))) {
+        nodeIds[size++] = e >>> 24;
+      }
+    }
+    return size == nodeIds.length ? nodeIds : Arrays.copyOf(nodeIds, size);
+  }
+
+  /**
+   * Binary search for a node id in entries ordered by node id.
+   * @return the index of the node or (-(insertion point) - 1) if not existing
+   */
+  private static int find(long[] entries, long nodeId) {
+    int low = 0;
+    int high = entries.length - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long id = entries[mid] >>> 24;
+      if (id < nodeId) {
+        low = mid + 1;
+      } else if (id > nodeId) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private static long ordinal(@Nullable Enum<?> value) {
+    return value == null ? NONE : value.ordinal();
+  }
+
+  private static <T> T value(T[] values, long packed) {
+    int ordinal = (int) (packed & NONE);
+    return ordinal == NONE ? null : values[ordinal];
+  }
+}
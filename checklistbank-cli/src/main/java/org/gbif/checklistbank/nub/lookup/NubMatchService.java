@@ -16,13 +16,16 @@ package org.gbif.checklistbank.nub.lookup;
 import org.gbif.api.model.Constants;
 import org.gbif.api.model.registry.Dataset;
 import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.NameType;
 import org.gbif.checklistbank.cli.common.NeoConfiguration;
 import org.gbif.checklistbank.config.ClbConfiguration;
 import org.gbif.checklistbank.iterable.CloseableIterator;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.nub.ParentStack;
 import org.gbif.checklistbank.nub.model.NubUsage;
 import org.gbif.checklistbank.nub.model.SrcUsage;
 import org.gbif.checklistbank.nub.source.ClbSource;
+import org.gbif.checklistbank.nub.source.ClbSourceStream;
 import org.gbif.checklistbank.service.DatasetImportService;
 import org.gbif.checklistbank.utils.NameFormatter;
 import org.gbif.nub.lookup.straight.DatasetMatchFailed;
@@ -31,34 +34,54 @@ import org.gbif.nub.lookup.straight.LookupUsage;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Maps;
 
+import it.unimi.dsi.fastutil.ints.Int2ByteMap;
+import it.unimi.dsi.fastutil.ints.Int2ByteOpenHashMap;
+
+/**
+ * Rematches all usages of a checklist in postgres to the backbone, passing on the kingdom of matched parents to their descendants.
+ * By default usages are streamed straight from postgres in breadth first order,
+ * the neo4j backed {@link ClbSource} is only used if configured.
+ * A single instance can match several datasets concurrently as long as its IdLookup is not modified.
+ */
 public class NubMatchService {
   private static final Logger LOG = LoggerFactory.getLogger(NubMatchService.class);
+  private static final Kingdom[] KINGDOMS = Kingdom.values();
   protected final ClbConfiguration cfg;
   private final NeoConfiguration neo;
   protected IdLookup nubLookup;
   private final DatasetImportService sqlService;
   private final DatasetImportService searchIndexService;
-  private int counter = 0;
+  private final boolean useNeo;
+  private final AtomicInteger counter = new AtomicInteger();
 
   public NubMatchService(ClbConfiguration cfg, NeoConfiguration neo, IdLookup nubLookup, DatasetImportService sqlService, DatasetImportService searchIndexService) {
+    this(cfg, neo, nubLookup, sqlService, searchIndexService, false);
+  }
+
+  /**
+   * @param useNeo if true copies each dataset into a temporary neo4j store to iterate it in taxonomic order
+   */
+  public NubMatchService(ClbConfiguration cfg, NeoConfiguration neo, IdLookup nubLookup, DatasetImportService sqlService, DatasetImportService searchIndexService, boolean useNeo) {
     this.cfg = cfg;
     this.neo = neo;
     this.nubLookup = nubLookup;
     this.sqlService = sqlService;
     this.searchIndexService = searchIndexService;
+    this.useNeo = useNeo;
   }
 
   /**
    * @return number of checklists that have been matched so far.
    */
   public int getCounter() {
-    return counter;
+    return counter.get();
   }
 
   /**
@@ -79,51 +102,12 @@ public class NubMatchService {
 
     LOG.info("Rematch checklist {} to Backbone", d.getKey());
     Map<Integer, Integer> relations = Maps.newHashMap();
-    try (ClbSource src = new ClbSource(cfg, neo, d, null)) {
-      // read in postgres usages
-      LOG.info("Copy usages for {} from pg into neo", d.getKey());
-      src.init(false, false);
-
-      NubUsage unknown = new NubUsage();
-      unknown.usageKey = Kingdom.INCERTAE_SEDIS.nubUsageKey();
-      unknown.kingdom = Kingdom.INCERTAE_SEDIS;
-      // this is a taxonomically sorted iteration. We remember the parent kingdom using the ParentStack
-      ParentStack parents = new ParentStack(unknown);
-      try (CloseableIterator<SrcUsage> iter = src.iterator()) {
-        while (iter.hasNext()) {
-          SrcUsage u = iter.next();
-          parents.add(u);
-        
-          if (u.parsedName.isParsableType() && !u.parsedName.isParsed()) {
-            summary.addUnparsable();
-          }
-
-          // ignore status when matching to backbone!!!
-          LookupUsage match;
-          if (u.parsedName.isParsed()) {
-            // match by canonically reconstructed name
-            match = nubLookup.match(NameFormatter.canonicalOrScientificName(u.parsedName), u.parsedName.getAuthorship(), u.parsedName.getYear(), u.rank, null, parents.nubKingdom());
-          } else {
-            // match by full sciname
-            match = nubLookup.match(u.scientificName, u.rank, parents.nubKingdom());
-          }
-
-          if (match != null) {
-            summary.addMatch(u.rank);
-            // add to relations
-            relations.put(u.key, match.getKey());
-            // store current kingdom in parent stack for further nub lookups of children
-            NubUsage nub = new NubUsage();
-            nub.kingdom = match.getKingdom();
-            parents.put(nub);
-
-          } else {
-            summary.addNoMatch(u.rank);
-            LOG.debug("No match for {} in dataset {}. Parsed name: {}", u, d.getKey(), u.parsedName);
-            // also store no matches as nulls so we can flag an issue
-            relations.put(u.key, null);
-          }
-        }
+    DatasetMetricsCounter metrics = new DatasetMetricsCounter();
+    try {
+      if (useNeo) {
+        matchNeo(d, summary, relations, metrics);
+      } else {
+        matchStream(d, summary, relations, metrics);
       }
 
       // warn if matches are little
@@ -141,11 +125,13 @@ public class NubMatchService {
             d.getKey()
         );
         sqlService.insertNubRelations(d.getKey(), relations);
+        // the dataset analysis following the rematch does not need to aggregate the new matches again
+        sqlService.stageMetrics(d.getKey(), metrics);
         if (searchIndexService != null) {
           LOG.warn("No SOLR service configured to update matches in search index for dataset {}!", d.getKey());
           searchIndexService.insertNubRelations(d.getKey(), relations);
         }
-        counter++;
+        counter.incrementAndGet();
       } else {
         LOG.warn("No sql service configured to persist the matches for dataset {}!", d.getKey());
       }
@@ -159,4 +145,90 @@ public class NubMatchService {
     return summary;
   }
 
+  private void matchNeo(Dataset d, DatasetMatchSummary summary, Map<Integer, Integer> relations, DatasetMetricsCounter metrics) throws Exception {
+    try (ClbSource src = new ClbSource(cfg, neo, d, null)) {
+      // read in postgres usages
+      LOG.info("Copy usages for {} from pg into neo", d.getKey());
+      src.init(false, false);
+
+      NubUsage unknown = new NubUsage();
+      unknown.usageKey = Kingdom.INCERTAE_SEDIS.nubUsageKey();
+      unknown.kingdom = Kingdom.INCERTAE_SEDIS;
+      // this is a taxonomically sorted iteration. We remember the parent kingdom using the ParentStack
+      ParentStack parents = new ParentStack(unknown);
+      try (CloseableIterator<SrcUsage> iter = src.iterator()) {
+        while (iter.hasNext()) {
+          SrcUsage u = iter.next();
+          parents.add(u);
+          LookupUsage match = match(d, u, parents.nubKingdom(), summary, relations, metrics);
+          if (match != null) {
+            // store current kingdom in parent stack for further nub lookups of children
+            NubUsage nub = new NubUsage();
+            nub.kingdom = match.getKingdom();
+            parents.put(nub);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Matches usages streamed from postgres, keeping just the resolved kingdom ordinal of usages outside
+   * of incertae sedis in memory, so parents are known when their children are matched.
+   */
+  private void matchStream(Dataset d, DatasetMatchSummary summary, Map<Integer, Integer> relations, DatasetMetricsCounter metrics) throws Exception {
+    final Int2ByteMap kingdoms = new Int2ByteOpenHashMap();
+    kingdoms.defaultReturnValue((byte) Kingdom.INCERTAE_SEDIS.ordinal());
+    int cnt = ClbSourceStream.stream(cfg, d.getKey(), u -> {
+      Kingdom k = u.parentKey == null ? Kingdom.INCERTAE_SEDIS : KINGDOMS[kingdoms.get((int) u.parentKey)];
+      // OTU names are not matched, same as in the neo4j based source
+      if (u.parsedName.getType() != NameType.OTU) {
+        LookupUsage match = match(d, u, k, summary, relations, metrics);
+        if (match != null && match.getKingdom() != null) {
+          k = match.getKingdom();
+        }
+      }
+      if (k != Kingdom.INCERTAE_SEDIS) {
+        kingdoms.put((int) u.key, (byte) k.ordinal());
+      }
+    });
+    LOG.info("Matched {} usages streamed from dataset {}", cnt, d.getKey());
+  }
+
+  /**
+   * Matches a single source usage, ignoring its status, and records the result.
+   *
+   * @return the backbone match or null
+   */
+  private LookupUsage match(Dataset d, SrcUsage u, Kingdom kingdom, DatasetMatchSummary summary, Map<Integer, Integer> relations, DatasetMetricsCounter metrics) {
+    if (u.parsedName.isParsableType() && !u.parsedName.isParsed()) {
+      summary.addUnparsable();
+    }
+
+    // ignore status when matching to backbone!!!
+    LookupUsage match;
+    if (u.parsedName.isParsed()) {
+      // match by canonically reconstructed name
+      match = nubLookup.match(NameFormatter.canonicalOrScientificName(u.parsedName), u.parsedName.getAuthorship(), u.parsedName.getYear(), u.rank, null, kingdom);
+    } else {
+      // match by full sciname
+      match = nubLookup.match(u.scientificName, u.rank, kingdom);
+    }
+    boolean synonym = u.status != null && u.status.isSynonym();
+    metrics.countNubMatch(match == null ? null : match.getKey(), synonym, match == null ? null : match.getKingdom());
+
+    if (match != null) {
+      summary.addMatch(u.rank);
+      // add to relations
+      relations.put(u.key, match.getKey());
+
+    } else {
+      summary.addNoMatch(u.rank);
+      LOG.debug("No match for {} in dataset {}. Parsed name: {}", u, d.getKey(), u.parsedName);
+      // also store no matches as nulls so we can flag an issue
+      relations.put(u.key, null);
+    }
+    return match;
+  }
+
 }
@@ -21,6 +21,10 @@ import org.gbif.api.vocabulary.TaxonomicStatus;
 import java.util.Arrays;
 import java.util.Objects;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Strings;
+
 public class SrcUsage {
   public Integer key;
   public Integer parentKey;
@@ -32,6 +36,14 @@ public class SrcUsage {
   public TaxonomicStatus status;
   public NomenclaturalStatus[] nomStatus;
 
+  /**
+   * @return the canonical name of the already parsed name or null if there is none
+   */
+  @Nullable
+  public String canonicalName() {
+    return parsedName == null ? null : Strings.emptyToNull(parsedName.canonicalName());
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -96,6 +96,7 @@ public class ClbSourceList extends NubSourceList {
   private static NubSource buildSource(Dataset d, NubConfiguration cfg, NubSourceConfig sourceConfig) {
     NubSource src = new ClbSource(cfg.clb, cfg.neoSources, d.getKey(), d.getTitle(), sourceConfig.exclude);
     src.created = d.getCreated();
+    src.compactStore = cfg.compactSources;
     src.ignoreSynonyms = !sourceConfig.synonyms;
     src.nameTypeMapping = sourceConfig.nameTypeMapping;
     src.nomenclator = DatasetSubtype.NOMENCLATOR_AUTHORITY == d.getSubtype();
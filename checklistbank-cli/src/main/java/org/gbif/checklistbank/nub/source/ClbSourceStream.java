@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.nub.source;
+
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.nub.model.SrcUsage;
+import org.gbif.checklistbank.postgres.TabMapperBase;
+import org.gbif.checklistbank.utils.NameParsers;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+
+import com.google.common.base.Strings;
+
+/**
+ * Streams the usages of a postgres checklist in breadth first order without any intermediate neo4j store.
+ * Every usage comes after its parent or accepted usage in case of synonyms,
+ * which is sufficient to pass on the kingdom of matched parents when matching a dataset to the backbone.
+ * Like the neo4j backed {@link ClbSource} usages not connected to a root are not included,
+ * but OTU names are and need to be skipped by the consumer if needed.
+ * Only the key, parentKey, rank, status, scientificName and parsedName of the source usages are populated.
+ */
+public class ClbSourceStream {
+
+  private ClbSourceStream() {
+  }
+
+  /**
+   * @return the number of streamed usages
+   */
+  public static int stream(ClbConfiguration clb, UUID datasetKey, Consumer<SrcUsage> consumer) throws Exception {
+    try (BaseConnection c = (BaseConnection) clb.connect();
+         UsageMapper mapper = new UsageMapper(consumer)
+    ) {
+      final CopyManager cm = new CopyManager(c);
+      cm.copyOut("COPY ("
+          + "WITH RECURSIVE tree AS ("
+          + "  SELECT id, 0 AS depth FROM name_usage WHERE dataset_key = '" + datasetKey + "' AND parent_fk IS NULL"
+          + " UNION ALL"
+          + "  SELECT u.id, t.depth + 1 FROM name_usage u JOIN tree t ON u.parent_fk = t.id"
+          + "  WHERE u.dataset_key = '" + datasetKey + "'"
+          + ")"
+          + " SELECT u.id, u.parent_fk, u.rank,"
+          + " coalesce(u.status, CASE WHEN (u.is_synonym) THEN 'SYNONYM'::taxonomic_status ELSE 'ACCEPTED'::taxonomic_status END),"
+          + " n.scientific_name"
+          + " FROM tree t JOIN name_usage u ON u.id = t.id JOIN name n ON u.name_fk = n.id"
+          + " ORDER BY t.depth)"
+          + " TO STDOUT WITH NULL ''", mapper);
+      return mapper.counter;
+    }
+  }
+
+  private static class UsageMapper extends TabMapperBase {
+    private final Consumer<SrcUsage> consumer;
+    private int counter = 0;
+
+    UsageMapper(Consumer<SrcUsage> consumer) {
+      super(5);
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+      SrcUsage u = new SrcUsage();
+      u.key = toInt(row[0]);
+      u.parentKey = toInt(row[1]);
+      u.rank = row[2] == null ? null : Rank.valueOf(row[2]);
+      u.status = row[3] == null ? null : TaxonomicStatus.valueOf(row[3]);
+      u.scientificName = row[4];
+      u.parsedName = NameParsers.INSTANCE.parseQuietly(u.scientificName, u.rank);
+      counter++;
+      consumer.accept(u);
+    }
+
+    private static Integer toInt(String x) {
+      return Strings.isNullOrEmpty(x) ? null : Integer.valueOf(x);
+    }
+  }
+}
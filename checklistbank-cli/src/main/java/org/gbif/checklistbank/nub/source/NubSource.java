@@ -26,6 +26,7 @@ import org.gbif.checklistbank.neo.RelType;
 import org.gbif.checklistbank.neo.UsageDao;
 import org.gbif.checklistbank.neo.traverse.ExclusionEvaluator;
 import org.gbif.checklistbank.neo.traverse.MultiRootNodeIterator;
+import org.gbif.checklistbank.neo.traverse.TaxonomicOrder;
 import org.gbif.checklistbank.neo.traverse.Traversals;
 import org.gbif.checklistbank.neo.traverse.TreeIterablesSorted;
 import org.gbif.checklistbank.nub.NubBuilder;
@@ -34,6 +35,7 @@ import org.gbif.checklistbank.postgres.TabMapperBase;
 import org.gbif.checklistbank.utils.NameParsers;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 
@@ -43,13 +45,13 @@ import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Relationship;
 import org.neo4j.graphdb.ResourceIterator;
 import org.neo4j.graphdb.Transaction;
-import org.neo4j.graphdb.traversal.Evaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
+import com.google.common.collect.Ordering;
 
 import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
@@ -73,6 +75,9 @@ import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
  * <li>namePublishedIn</li>
  * </ul>
  * Implement the abstract initNeo method to supply such a tab delimited stream to the NeoUsageWriter instance.
+ * <p>
+ * With compactStore enabled the usages are written into a single compact file instead of neo4j,
+ * which is much cheaper when many sources are loaded but does not offer a dao.
  */
 
 public abstract class NubSource implements AutoCloseable {
@@ -80,7 +85,7 @@ public abstract class NubSource implements AutoCloseable {
 
   protected final NeoConfiguration cfg;
   private final Stopwatch watch = Stopwatch.createUnstarted();
-  private final Evaluator exclusionEvaluator;
+  private final ExclusionEvaluator exclusionEvaluator;
   public UUID key;
   public String shortKey;
   public String name;
@@ -91,9 +96,11 @@ public abstract class NubSource implements AutoCloseable {
   public boolean includeOTUs = false;
   public boolean includeUnranked = false;
   boolean ignoreSynonyms = false;
+  public boolean compactStore = false;
   public RankedName scope;
   Map<NameType, NameType> nameTypeMapping;
   private UsageDao dao;
+  private SrcUsageStore store;
   private final boolean useTmpDao;
 
   /**
@@ -123,10 +130,20 @@ public abstract class NubSource implements AutoCloseable {
    * @param nubRanksOnly       if true skip non nub ranks
    */
   public void init(boolean writeNeoProperties, boolean nubRanksOnly) throws Exception {
-    // load data into neo4j
-    LOG.debug("Start loading source data from {} {} into neo", key, name);
     watch.reset().start();
+    if (compactStore) {
+      LOG.debug("Start loading source data from {} {} into a compact store", key, name);
+      store = new SrcUsageStore(cfg.sourceFile(key), exclusionEvaluator);
+      store.create();
+      try (NeoUsageWriter writer = new NeoUsageWriter(store, nubRanksOnly)) {
+        initNeo(writer);
+        LOG.info("Loaded nub source with {} usages from {} {} into a compact store in {}ms. {} unparsable, skipping {}", writer.getCounter(), key, name, watch.elapsed(TimeUnit.MILLISECONDS), writer.getUnparsable(), writer.getSkipped());
+      }
+      return;
+    }
 
+    // load data into neo4j
+    LOG.debug("Start loading source data from {} {} into neo", key, name);
     UsageDao dao;
     if (useTmpDao) {
       dao = UsageDao.temporaryDao(128);
@@ -158,6 +175,7 @@ public abstract class NubSource implements AutoCloseable {
     private Int2IntMap ids = new Int2IntOpenHashMap();
     private Int2ObjectMap<Integer> nonNubRankUsages = new Int2ObjectOpenHashMap<>();
     private final UsageDao dao;
+    private final SrcUsageStore store;
     private final boolean writeNeoProperties;
     private final boolean nubRanksOnly;
 
@@ -167,12 +185,27 @@ public abstract class NubSource implements AutoCloseable {
      * @param nubRanksOnly       if true skip non nub ranks
      */
     public NeoUsageWriter(UsageDao dao, boolean writeNeoProperties, boolean nubRanksOnly) {
+      this(dao, null, writeNeoProperties, nubRanksOnly);
+      tx = dao.beginTx();
+    }
+
+    /**
+     * Writes usages into a compact store instead of neo4j.
+     * Parents of skipped non nub rank usages are resolved when the store is built on close.
+     *
+     * @param nubRanksOnly if true skip non nub ranks
+     */
+    NeoUsageWriter(SrcUsageStore store, boolean nubRanksOnly) {
+      this(null, store, false, nubRanksOnly);
+    }
+
+    private NeoUsageWriter(UsageDao dao, SrcUsageStore store, boolean writeNeoProperties, boolean nubRanksOnly) {
       // the number of columns in our query to consume
       super(8);
       this.dao = dao;
+      this.store = store;
       this.writeNeoProperties = writeNeoProperties;
       this.nubRanksOnly = nubRanksOnly;
-      tx = dao.beginTx();
     }
 
     @Override
@@ -198,7 +231,7 @@ public abstract class NubSource implements AutoCloseable {
           // do not persist a node, just keep the id mapped to the next higher parent with an nub rank
           nonNubRankUsages.put((int) u.key, u.parentKey);
           // we might have created a node already, delete it if there is one
-          if (ids.containsKey((int) u.key)) {
+          if (store == null && ids.containsKey((int) u.key)) {
             Node n = dao.getNeo().getNodeById(ids.get(u.key));
             // delete all relations and relink parent rel to next nub rank
             while (u.parentKey != null && nonNubRankUsages.containsKey((int) u.parentKey)) {
@@ -222,7 +255,7 @@ public abstract class NubSource implements AutoCloseable {
           skipped++;
           return;
 
-        } else {
+        } else if (store == null) {
           // make sure the parent and basionym are nub ranks
           while (u.parentKey != null && nonNubRankUsages.containsKey((int) u.parentKey)) {
             u.parentKey = nonNubRankUsages.get((int) u.parentKey);
@@ -251,12 +284,16 @@ public abstract class NubSource implements AutoCloseable {
       }
 
       counter++;
+      if (store != null) {
+        store.add(u);
+        return;
+      }
       Node n = getOrCreate(u.key);
       dao.storeSourceUsage(n, u);
       // also add neo properties?
       if (writeNeoProperties) {
         n.setProperty(NeoProperties.SCIENTIFIC_NAME, u.scientificName);
-        String canonical = NameParsers.INSTANCE.parseToCanonical(u.scientificName, u.rank);
+        String canonical = u.canonicalName();
         if (canonical != null) {
           n.setProperty(NeoProperties.CANONICAL_NAME, canonical);
         }
@@ -311,6 +348,10 @@ public abstract class NubSource implements AutoCloseable {
 
     @Override
     public void close() throws IOException {
+      if (store != null) {
+        store.build(nonNubRankUsages);
+        return;
+      }
       tx.success();
       tx.close();
       if (!useTmpDao) {
@@ -347,6 +388,14 @@ public abstract class NubSource implements AutoCloseable {
     }
   }
 
+  /**
+   * Orders roots like siblings in the tree: synonyms and basionyms first, then by rank and name.
+   */
+  private static final Ordering<Node> ROOT_ORDER = Ordering.natural().reverse()
+      .onResultOf((Node n) -> n.hasLabel(Labels.SYNONYM))
+      .compound(Ordering.natural().reverse().onResultOf((Node n) -> n.hasLabel(Labels.SYNONYM) && n.hasLabel(Labels.BASIONYM)))
+      .compound(new TaxonomicOrder());
+
   public class SrcUsageIterator implements CloseableIterator<SrcUsage> {
     private final Transaction tx;
     private final ResourceIterator<Node> nodes;
@@ -354,8 +403,8 @@ public abstract class NubSource implements AutoCloseable {
     public SrcUsageIterator(UsageDao dao) {
       tx = dao.beginTx();
       nodes = MultiRootNodeIterator.create(
-          TreeIterablesSorted.findRoot(dao.getNeo()),
-          exclusionEvaluator == null ? Traversals.TREE : Traversals.TREE.evaluator(exclusionEvaluator)
+          ROOT_ORDER.sortedCopy(TreeIterablesSorted.findRoot(dao.getNeo())),
+          exclusionEvaluator == null ? Traversals.SORTED_TREE : Traversals.SORTED_TREE.evaluator(exclusionEvaluator)
       ).iterator();
     }
 
@@ -383,7 +432,7 @@ public abstract class NubSource implements AutoCloseable {
   }
 
   /**
-   * Returns a neo db backed iterator over all usages.
+   * Returns a neo db or compact store backed iterator over all usages.
    * The iteration is in taxonomic order, starting with the highest root taxa and walks
    * the taxonomic tree in depth order first, including synonyms.
    *
@@ -392,6 +441,16 @@ public abstract class NubSource implements AutoCloseable {
    * This is why we do not implement the convenient iterables interface in NubSOurce (anymore).
    */
   public CloseableIterator<SrcUsage> iterator() {
+    if (compactStore) {
+      if (store == null) {
+        store = new SrcUsageStore(cfg.sourceFile(key), exclusionEvaluator);
+      }
+      try {
+        return store.iterator();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
     if (dao == null) {
       dao = openOrCreate(false);
     }
@@ -420,6 +479,9 @@ public abstract class NubSource implements AutoCloseable {
     if (dao != null) {
       dao.closeAndDelete();
     }
+    if (store != null) {
+      store.delete();
+    }
   }
 
   @Override
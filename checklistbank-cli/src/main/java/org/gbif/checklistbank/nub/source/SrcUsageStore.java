@@ -0,0 +1,390 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.nub.source;
+
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.iterable.CloseableIterator;
+import org.gbif.checklistbank.kryo.CliKryoFactory;
+import org.gbif.checklistbank.neo.NeoProperties;
+import org.gbif.checklistbank.neo.traverse.ExclusionEvaluator;
+import org.gbif.checklistbank.nub.model.SrcUsage;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.pool.KryoPool;
+
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * A compact, single file store for the usages of a nub source that can be iterated in taxonomic order
+ * without the neo4j db and kvp store otherwise created for every source.
+ * <p>
+ * Usages are appended as length prefixed kryo records while only their keys, rank, status and names are kept in memory.
+ * Once all usages are added the tree is rebuilt from the parent keys and an index with the record offsets
+ * in taxonomic order is appended to the file. The order is the same as the sorted neo4j traversal:
+ * depth first with synonyms before accepted children, basionyms first amongst synonyms
+ * and siblings ordered by rank, canonical and scientific name.
+ * Like with the neo4j traversal usages not connected to a root are not included and excluded taxa are pruned.
+ * The file is read through memory mapped segments.
+ */
+class SrcUsageStore {
+  private static final Logger LOG = LoggerFactory.getLogger(SrcUsageStore.class);
+  private static final KryoPool KPOOL = new KryoPool.Builder(new CliKryoFactory())
+      .softReferences()
+      .build();
+  private static final int NULL_KEY = Integer.MIN_VALUE;
+  private static final int MAX_RECORD_SIZE = 1024 * 1024;
+  // segments overlap so that every record or index entry is fully contained in the segment it starts in
+  private static final long SEGMENT_SIZE = 1L << 30;
+  private static final int SEGMENT_OVERLAP = MAX_RECORD_SIZE + 16;
+  // offset, parent key, flags
+  private static final int ENTRY_SIZE = 16;
+  // index start, index size
+  private static final int TRAILER_SIZE = 12;
+  private static final int CLEAR_BASIONYM = 1;
+  private static final byte NAME_SEPARATOR = 0;
+
+  private final File file;
+  @Nullable
+  private final ExclusionEvaluator exclusion;
+  // state while adding usages only
+  private DataOutputStream out;
+  private Kryo kryo;
+  private Output buffer;
+  private long pos;
+  private IntArrayList keys;
+  private IntArrayList parents;
+  private IntArrayList basionyms;
+  private ByteArrayList ranks;
+  // utf8 canonical and scientific name of all usages
+  private ByteArrayList names;
+  private IntArrayList nameOffsets;
+  private LongArrayList offsets;
+  private BitSet synonyms;
+  private BitSet excluded;
+
+  SrcUsageStore(File file, @Nullable ExclusionEvaluator exclusion) {
+    this.file = file;
+    this.exclusion = exclusion;
+  }
+
+  /**
+   * Creates a new, empty store replacing any existing file.
+   */
+  void create() throws IOException {
+    FileUtils.deleteQuietly(file);
+    FileUtils.forceMkdir(file.getParentFile());
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024));
+    kryo = KPOOL.borrow();
+    buffer = new Output(1024, MAX_RECORD_SIZE);
+    pos = 0;
+    keys = new IntArrayList();
+    parents = new IntArrayList();
+    basionyms = new IntArrayList();
+    ranks = new ByteArrayList();
+    names = new ByteArrayList();
+    nameOffsets = new IntArrayList();
+    offsets = new LongArrayList();
+    synonyms = new BitSet();
+    excluded = new BitSet();
+  }
+
+  void add(SrcUsage u) {
+    buffer.clear();
+    kryo.writeObject(buffer, u);
+    try {
+      out.writeInt(buffer.position());
+      out.write(buffer.getBuffer(), 0, buffer.position());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    final int idx = keys.size();
+    offsets.add(pos);
+    pos += 4 + buffer.position();
+    keys.add((int) u.key);
+    parents.add(u.parentKey == null ? NULL_KEY : u.parentKey);
+    basionyms.add(u.originalNameKey == null ? NULL_KEY : u.originalNameKey);
+    ranks.add(u.rank == null ? Byte.MAX_VALUE : (byte) u.rank.ordinal());
+    if (u.status != null && u.status.isSynonym()) {
+      synonyms.set(idx);
+    }
+    // same fallbacks as the neo4j node properties
+    final String scientificName = u.scientificName == null ? NeoProperties.NULL_NAME : u.scientificName;
+    final String canonical = u.canonicalName() == null ? scientificName : u.canonicalName();
+    nameOffsets.add(names.size());
+    names.addElements(names.size(), canonical.getBytes(StandardCharsets.UTF_8));
+    names.add(NAME_SEPARATOR);
+    names.addElements(names.size(), scientificName.getBytes(StandardCharsets.UTF_8));
+    if (exclusion != null && u.scientificName != null) {
+      if (exclusion.isExcluded(canonical, u.rank == null ? Rank.UNRANKED : u.rank)) {
+        excluded.set(idx);
+      }
+    }
+  }
+
+  /**
+   * @return the canonical and scientific name of a usage
+   */
+  private String[] names(int idx) {
+    final int from = nameOffsets.getInt(idx);
+    final int to = idx + 1 < nameOffsets.size() ? nameOffsets.getInt(idx + 1) : names.size();
+    final byte[] bytes = names.elements();
+    int sep = from;
+    while (bytes[sep] != NAME_SEPARATOR) {
+      sep++;
+    }
+    return new String[]{
+        new String(bytes, from, sep - from, StandardCharsets.UTF_8),
+        new String(bytes, sep + 1, to - sep - 1, StandardCharsets.UTF_8)
+    };
+  }
+
+  /**
+   * Sorts the siblings children[from, to) in taxonomic order.
+   * Names are only decoded once per usage as every usage has a single parent.
+   */
+  private void sortSiblings(int[] children, int from, int to, BitSet basionyms) {
+    final int size = to - from;
+    if (size < 2) {
+      return;
+    }
+    final int[] usages = Arrays.copyOfRange(children, from, to);
+    final String[][] usageNames = new String[size][];
+    final int[] pos = new int[size];
+    for (int x = 0; x < size; x++) {
+      pos[x] = x;
+      usageNames[x] = names(usages[x]);
+    }
+    IntArrays.quickSort(pos, (a, b) -> {
+      final int i = usages[a];
+      final int j = usages[b];
+      if (synonyms.get(i) != synonyms.get(j)) {
+        return synonyms.get(i) ? -1 : 1;
+      }
+      if (synonyms.get(i) && basionyms.get(i) != basionyms.get(j)) {
+        return basionyms.get(i) ? -1 : 1;
+      }
+      int r = Byte.compare(ranks.getByte(i), ranks.getByte(j));
+      if (r == 0) {
+        r = usageNames[a][0].compareTo(usageNames[b][0]);
+      }
+      if (r == 0) {
+        r = usageNames[a][1].compareTo(usageNames[b][1]);
+      }
+      return r != 0 ? r : Integer.compare(i, j);
+    });
+    for (int x = 0; x < size; x++) {
+      children[from + x] = usages[pos[x]];
+    }
+  }
+
+  /**
+   * Builds the taxonomic order index, appends it to the file and releases all memory used while adding usages.
+   *
+   * @param skippedParents parent keys of usages that were not added, e.g. non nub ranks.
+   *                       Parents are resolved through them and basionyms pointing to them removed.
+   * @return the number of indexed usages
+   */
+  int build(Int2ObjectMap<Integer> skippedParents) throws IOException {
+    try {
+      final int n = keys.size();
+      Int2IntOpenHashMap key2idx = new Int2IntOpenHashMap(n);
+      key2idx.defaultReturnValue(-1);
+      for (int i = 0; i < n; i++) {
+        key2idx.put(keys.getInt(i), i);
+      }
+      // parent index per usage with n being the virtual root and -1 a missing parent
+      int[] parentIdx = new int[n];
+      BitSet clearBasionym = new BitSet();
+      // usages referenced as the original name of another usage
+      BitSet isBasionym = new BitSet();
+      for (int i = 0; i < n; i++) {
+        int p = parents.getInt(i);
+        while (p != NULL_KEY && skippedParents.containsKey(p)) {
+          Integer pp = skippedParents.get(p);
+          p = pp == null ? NULL_KEY : pp;
+        }
+        parents.set(i, p);
+        parentIdx[i] = p == NULL_KEY ? n : key2idx.get(p);
+        int b = basionyms.getInt(i);
+        if (b != NULL_KEY && skippedParents.containsKey(b)) {
+          clearBasionym.set(i);
+        } else if (b != NULL_KEY && key2idx.get(b) >= 0) {
+          isBasionym.set(key2idx.get(b));
+        }
+      }
+
+      // children of each usage in a single array, starting at start[idx]
+      int[] start = new int[n + 2];
+      for (int i = 0; i < n; i++) {
+        if (parentIdx[i] >= 0) {
+          start[parentIdx[i] + 1]++;
+        }
+      }
+      for (int i = 1; i < start.length; i++) {
+        start[i] += start[i - 1];
+      }
+      int[] children = new int[start[n + 1]];
+      int[] next = Arrays.copyOf(start, n + 1);
+      for (int i = 0; i < n; i++) {
+        if (parentIdx[i] >= 0) {
+          children[next[parentIdx[i]]++] = i;
+        }
+      }
+      for (int p = 0; p <= n; p++) {
+        sortSiblings(children, start[p], start[p + 1], isBasionym);
+      }
+
+      // walk the tree depth first and write the index
+      final long indexStart = pos;
+      int size = 0;
+      IntArrayList stack = new IntArrayList();
+      for (int c = start[n + 1] - 1; c >= start[n]; c--) {
+        stack.push(children[c]);
+      }
+      while (!stack.isEmpty()) {
+        int i = stack.popInt();
+        if (excluded.get(i)) {
+          continue;
+        }
+        out.writeLong(offsets.getLong(i));
+        out.writeInt(parents.getInt(i));
+        out.writeInt(clearBasionym.get(i) ? CLEAR_BASIONYM : 0);
+        size++;
+        for (int c = start[i + 1] - 1; c >= start[i]; c--) {
+          stack.push(children[c]);
+        }
+      }
+      out.writeLong(indexStart);
+      out.writeInt(size);
+      LOG.debug("Indexed {} out of {} usages in {}", size, n, file);
+      return size;
+
+    } finally {
+      out.close();
+      KPOOL.release(kryo);
+      out = null;
+      kryo = null;
+      buffer = null;
+      keys = null;
+      parents = null;
+      basionyms = null;
+      ranks = null;
+      names = null;
+      nameOffsets = null;
+      offsets = null;
+      synonyms = null;
+      excluded = null;
+    }
+  }
+
+  /**
+   * @return an iterator over all usages of a built store in taxonomic order
+   */
+  CloseableIterator<SrcUsage> iterator() throws IOException {
+    return new StoreIterator();
+  }
+
+  void delete() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  private class StoreIterator implements CloseableIterator<SrcUsage> {
+    private final ByteBuffer[] segments;
+    private final long indexStart;
+    private final int size;
+    private final Kryo kryo;
+    private int cursor;
+
+    StoreIterator() throws IOException {
+      try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        final long length = ch.size();
+        segments = new ByteBuffer[(int) ((length + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int s = 0; s < segments.length; s++) {
+          long from = s * SEGMENT_SIZE;
+          segments[s] = ch.map(FileChannel.MapMode.READ_ONLY, from, Math.min(SEGMENT_SIZE + SEGMENT_OVERLAP, length - from));
+        }
+        ByteBuffer trailer = at(length - TRAILER_SIZE);
+        indexStart = trailer.getLong();
+        size = trailer.getInt();
+      }
+      kryo = KPOOL.borrow();
+    }
+
+    private ByteBuffer at(long position) {
+      ByteBuffer b = segments[(int) (position / SEGMENT_SIZE)].duplicate();
+      b.position((int) (position % SEGMENT_SIZE));
+      return b;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return cursor < size;
+    }
+
+    @Override
+    public SrcUsage next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      ByteBuffer entry = at(indexStart + (long) cursor++ * ENTRY_SIZE);
+      ByteBuffer rec = at(entry.getLong());
+      byte[] bytes = new byte[rec.getInt()];
+      rec.get(bytes);
+      SrcUsage u = kryo.readObject(new Input(bytes), SrcUsage.class);
+      int parent = entry.getInt();
+      u.parentKey = parent == NULL_KEY ? null : parent;
+      if ((entry.getInt() & CLEAR_BASIONYM) != 0) {
+        u.originalNameKey = null;
+      }
+      return u;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Not implemented");
+    }
+
+    @Override
+    public void close() {
+      KPOOL.release(kryo);
+    }
+  }
+}
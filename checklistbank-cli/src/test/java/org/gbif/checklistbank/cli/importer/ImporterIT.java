@@ -86,6 +86,8 @@ public class ImporterIT extends BaseTest implements AutoCloseable {
   private UsageService usageService;
   private DatasetImportService sqlService;
   private DatasetImportService searchIndexService;
+  private ParsedNameServiceMyBatis parsedNameService;
+  private CitationServiceMyBatis citationService;
   private SpeciesResourceClient searchService;
   private Connection dbConnection;
 
@@ -135,6 +137,8 @@ public class ImporterIT extends BaseTest implements AutoCloseable {
       dbConnection = PG_CONTAINER.createConnection("");
       nameUsageService = ctx.getBean(NameUsageServiceMyBatis.class);
       usageService = ctx.getBean(UsageServiceMyBatis.class);
+      parsedNameService = ctx.getBean(ParsedNameServiceMyBatis.class);
+      citationService = ctx.getBean(CitationServiceMyBatis.class);
       sqlService = ctx.getBean(DatasetImportServiceMyBatis.class);
       searchIndexService =
           ctx.getBean(
@@ -169,6 +173,9 @@ public class ImporterIT extends BaseTest implements AutoCloseable {
       st.execute("TRUNCATE citation CASCADE");
       st.execute("TRUNCATE name CASCADE");
     }
+    // cached keys point to truncated records
+    parsedNameService.invalidateCache();
+    citationService.invalidateCache();
   }
 
   @AfterEach
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.cli.matcher;
+
+import org.gbif.checklistbank.nub.lookup.DatasetMatchSummary;
+import org.gbif.checklistbank.nub.lookup.NubMatchService;
+import org.gbif.nub.lookup.straight.DatasetMatchFailed;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BulkRematcherTest {
+
+  /**
+   * Counts the matches per dataset, fails every 4th dataset and optionally blocks until released.
+   */
+  private static class StubMatchService extends NubMatchService {
+    final Map<UUID, AtomicInteger> calls = new ConcurrentHashMap<>();
+    final Set<UUID> failing = ConcurrentHashMap.newKeySet();
+    final AtomicInteger running = new AtomicInteger();
+    final CountDownLatch release;
+
+    StubMatchService(List<UUID> keys, CountDownLatch release) {
+      super(null, null, null, null, null);
+      this.release = release;
+      for (int i = 0; i < keys.size(); i = i + 4) {
+        failing.add(keys.get(i));
+      }
+    }
+
+    @Override
+    public DatasetMatchSummary matchDataset(UUID key) throws DatasetMatchFailed {
+      calls.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+      running.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new DatasetMatchFailed(key, e);
+      } finally {
+        running.decrementAndGet();
+      }
+      if (failing.contains(key)) {
+        throw new DatasetMatchFailed(key, "failed on purpose", null);
+      }
+      DatasetMatchSummary summary = new DatasetMatchSummary(key);
+      summary.addMatch(null);
+      return summary;
+    }
+  }
+
+  private static List<UUID> keys(int size) {
+    return IntStream.range(0, size).mapToObj(i -> UUID.randomUUID()).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testRun() throws Exception {
+    List<UUID> keys = keys(50);
+    StubMatchService matcher = new StubMatchService(keys, new CountDownLatch(0));
+    Set<UUID> matched = ConcurrentHashMap.newKeySet();
+    BulkRematcher rematcher = new BulkRematcher(matcher, 4, matched::add);
+    rematcher.run(keys);
+
+    assertEquals(keys.size(), matcher.calls.size());
+    for (UUID key : keys) {
+      assertEquals(1, matcher.calls.get(key).get());
+      assertEquals(!matcher.failing.contains(key), matched.contains(key));
+    }
+    assertEquals(13, matcher.failing.size());
+    assertEquals(13, rematcher.getFailed());
+    assertEquals(37, rematcher.getDatasets());
+    assertEquals(37, matched.size());
+  }
+
+  /**
+   * With all workers busy and the queue full the calling thread matches the next dataset itself,
+   * so no more keys are taken from the iterable than can be worked on.
+   */
+  @Test
+  public void testCallerRuns() throws Exception {
+    final int threads = 2;
+    List<UUID> keys = keys(20);
+    CountDownLatch release = new CountDownLatch(1);
+    StubMatchService matcher = new StubMatchService(keys, release);
+    AtomicInteger pulled = new AtomicInteger();
+    Iterable<UUID> lazyKeys = () -> new Iterator<UUID>() {
+      final Iterator<UUID> iter = keys.iterator();
+
+      @Override
+      public boolean hasNext() {
+        return iter.hasNext();
+      }
+
+      @Override
+      public UUID next() {
+        pulled.incrementAndGet();
+        return iter.next();
+      }
+    };
+
+    BulkRematcher rematcher = new BulkRematcher(matcher, threads, k -> {});
+    Thread caller = new Thread(() -> {
+      try {
+        rematcher.run(lazyKeys);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    caller.start();
+
+    // all workers plus the calling thread are blocked in a match
+    long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (matcher.running.get() < threads + 1 && System.currentTimeMillis() < timeout) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    assertEquals(threads + 1, matcher.running.get());
+    // running workers, a full queue and the one matched by the caller
+    assertEquals(threads * 2 + 1, pulled.get());
+
+    release.countDown();
+    caller.join(TimeUnit.SECONDS.toMillis(10));
+    assertFalse(caller.isAlive());
+    assertEquals(keys.size(), pulled.get());
+    assertEquals(keys.size(), matcher.calls.size());
+    assertTrue(matcher.calls.values().stream().allMatch(c -> c.get() == 1));
+    assertEquals(5, rematcher.getFailed());
+    assertEquals(15, rematcher.getDatasets());
+  }
+}
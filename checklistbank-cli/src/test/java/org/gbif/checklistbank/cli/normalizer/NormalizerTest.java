@@ -27,9 +27,12 @@ import org.gbif.checklistbank.neo.NeoProperties;
 import java.io.PrintWriter;
 import java.io.Writer;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import org.junit.jupiter.api.Disabled;
@@ -432,6 +435,31 @@ public class NormalizerTest extends BaseTest {
     }
   }
 
+  /**
+   * Interpreting records concurrently must insert the very same records.
+   */
+  @Test
+  public void testConcurrentInsert() throws Exception {
+    cfg.inserterThreads = 4;
+    NormalizerStats stats = normalize(6);
+    assertEquals(1, stats.getRoots());
+    assertEquals(226, stats.getCountByOrigin(Origin.SOURCE));
+    assertEquals(43, stats.getCountByOrigin(Origin.DENORMED_CLASSIFICATION));
+    try (Transaction tx = beginTx()) {
+      assertEquals("Lepiota seminuda var. seminuda", getUsageByTaxonId("426221").getScientificName());
+    }
+  }
+
+  /**
+   * A not unique taxonID must also fail the normalization when records are interpreted concurrently.
+   */
+  @Test
+  public void testConcurrentNonUniqueTaxonID() throws Exception {
+    cfg.inserterThreads = 4;
+    Normalizer norm = Normalizer.create(cfg, datasetKey(25));
+    assertThrows(NormalizationFailedException.class, norm::run);
+  }
+
   /**
    * Tests the index fungorum format using a denormed classification.
    * All records of the genus Zignoëlla have been included in the test resources,
@@ -1040,6 +1068,59 @@ public class NormalizerTest extends BaseTest {
 
   }
 
+  /**
+   * Relations are set up in transactions of batchSize nodes, committing early whenever new nodes are created,
+   * so they are visible once the node iteration reaches them.
+   * Normalizing with commit batches much smaller than the number of relations must produce the very same graph
+   * as a single commit.
+   */
+  @Test
+  public void testRelationBatches() throws Exception {
+    for (int key : new int[]{6, 18}) {
+      final UUID datasetKey = datasetKey(key);
+
+      cfg.neo.batchSize = 10000;
+      NormalizerStats single = normalizeAndSnapshot(datasetKey);
+      List<String> expected = snapshot();
+      dao.close();
+
+      cfg.neo.batchSize = 3;
+      NormalizerStats batched = normalizeAndSnapshot(datasetKey);
+      assertTrue(batched.getCount() > cfg.neo.batchSize * 10);
+      assertEquals(single.getCount(), batched.getCount());
+      assertEquals(single.getSynonyms(), batched.getSynonyms());
+      assertEquals(single.getCountByOrigin(), batched.getCountByOrigin());
+      assertEquals(expected, snapshot());
+      dao.close();
+    }
+    dao = null;
+  }
+
+  private NormalizerStats normalizeAndSnapshot(UUID datasetKey) {
+    Normalizer norm = Normalizer.create(cfg, datasetKey);
+    norm.run();
+    NormalizerStats stats = norm.getStats();
+    openDb(datasetKey);
+    compareStats(stats);
+    return stats;
+  }
+
+  /**
+   * @return all usages with their relations by name, sorted
+   */
+  private List<String> snapshot() {
+    List<String> usages = new ArrayList<>();
+    try (Transaction tx = beginTx()) {
+      for (NameUsage u : getAllUsages()) {
+        usages.add(u.getTaxonID() + "|" + u.getScientificName() + "|" + u.getRank() + "|" + u.getTaxonomicStatus()
+            + "|" + u.getOrigin() + "|" + u.getParent() + "|" + u.getAccepted() + "|" + u.getBasionym()
+            + "|" + new TreeSet<>(u.getIssues()));
+      }
+    }
+    Collections.sort(usages);
+    return usages;
+  }
+
   /**
    * Tests the simple images media extension
    */
@@ -13,15 +13,27 @@
  */
 package org.gbif.checklistbank.neo.traverse;
 
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.cli.model.UsageFacts;
+import org.gbif.checklistbank.cli.normalizer.Normalizer;
 import org.gbif.checklistbank.neo.Labels;
 import org.gbif.checklistbank.neo.NeoProperties;
 import org.gbif.checklistbank.neo.RelType;
+import org.gbif.checklistbank.neo.UsageDao;
 import org.gbif.checklistbank.neo.printer.TxtPrinter;
+import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.LookupUsage;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.FileUtils;
@@ -33,10 +45,14 @@ import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
+import org.neo4j.helpers.collection.Iterators;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 public class TreeWalkerTest {
   private File dbf;
@@ -208,4 +224,125 @@ public class TreeWalkerTest {
     assertEquals(Resources.toString(Resources.getResource("traverse/treeAcceptedGenus.txt"), Charsets.UTF_8), writer.toString());
   }
 
+  @Test
+  public void testConcurrentWalk() throws Exception {
+    CountingHandler single = new CountingHandler();
+    TreeWalker.walkAcceptedTree(db, null, null, null, single);
+
+    CountingHandler concurrent = new CountingHandler();
+    TreeWalker.walkAcceptedTree(db, new RankSplitEvaluator(Rank.FAMILY), 3, null, concurrent);
+
+    assertEquals(single.starts, single.ends);
+    assertEquals(single.starts, concurrent.starts);
+    assertEquals(single.ends, concurrent.ends);
+    assertEquals(single.maxDepth, concurrent.maxDepth);
+  }
+
+  /**
+   * Walking the normalized index fungorum tree split into family subtrees
+   * must result in the very same metrics, classifications and nub matches as a single walk.
+   */
+  @Test
+  public void testConcurrentWalkHandlers() throws Exception {
+    List<LookupUsage> nub = Lists.newArrayList(
+        new LookupUsage(1, "Fungi", null, null, Rank.KINGDOM, TaxonomicStatus.ACCEPTED, Kingdom.FUNGI, false),
+        new LookupUsage(2, "Agaricaceae", null, null, Rank.FAMILY, TaxonomicStatus.ACCEPTED, Kingdom.FUNGI, false),
+        new LookupUsage(3, "Agaricaceae", null, null, Rank.FAMILY, TaxonomicStatus.ACCEPTED, Kingdom.PLANTAE, false),
+        new LookupUsage(4, "Lepiota", null, null, Rank.GENUS, TaxonomicStatus.ACCEPTED, Kingdom.FUNGI, false),
+        new LookupUsage(5, "Lepiota", null, null, Rank.GENUS, TaxonomicStatus.ACCEPTED, Kingdom.ANIMALIA, false),
+        new LookupUsage(6, "Agaricus palmarum", "F. Brig.", null, Rank.SPECIES, TaxonomicStatus.ACCEPTED, Kingdom.FUNGI, false),
+        new LookupUsage(7, "Polyporaceae", null, null, Rank.FAMILY, TaxonomicStatus.ACCEPTED, Kingdom.FUNGI, false)
+    );
+    File dwca = new File(Resources.getResource("dwcas/00000006-c6af-11e2-9b88-00145eb45e9a").toURI());
+    UsageDao dao = UsageDao.temporaryDao(128);
+    try (IdLookupImpl lookup = IdLookupImpl.temp().load(nub)) {
+      Normalizer.create(UUID.randomUUID(), dao, dwca, lookup, 1000).run(false);
+
+      reset(dao);
+      UsageMetricsHandler metrics = new UsageMetricsHandler(dao);
+      TreeWalker.walkAcceptedTree(dao.getNeo(), null, null, null, metrics, new NubMatchHandler(lookup, dao));
+      Map<Long, List<Object>> single = snapshot(dao);
+
+      reset(dao);
+      UsageMetricsHandler metrics2 = new UsageMetricsHandler(dao);
+      TreeWalker.walkAcceptedTree(dao.getNeo(), new RankSplitEvaluator(Rank.FAMILY), 3, null, metrics2, new NubMatchHandler(lookup, dao));
+      Map<Long, List<Object>> concurrent = snapshot(dao);
+
+      assertEquals(metrics.getStats(0, Lists.newArrayList()), metrics2.getStats(0, Lists.newArrayList()));
+      assertEquals(single.size(), concurrent.size());
+      for (Map.Entry<Long, List<Object>> e : single.entrySet()) {
+        assertEquals("node " + e.getKey(), e.getValue(), concurrent.get(e.getKey()));
+      }
+      // make sure matching worked at all
+      assertTrue(single.values().stream().anyMatch(v -> v.get(0) != null));
+
+    } finally {
+      dao.closeAndDelete();
+    }
+  }
+
+  /**
+   * Removes all nub keys and facts left by a previous walk.
+   */
+  private static void reset(UsageDao dao) {
+    try (Transaction tx = dao.beginTx()) {
+      for (Node n : Iterators.loop(dao.allTaxa())) {
+        NameUsage u = dao.readUsage(n, false);
+        u.setNubKey(null);
+        u.getIssues().remove(NameUsageIssue.BACKBONE_MATCH_NONE);
+        dao.store(n.getId(), u, false);
+        dao.store(n.getId(), new UsageFacts());
+      }
+      tx.success();
+    }
+  }
+
+  /**
+   * @return nub key, issues, metrics and classification for all usages by their node id
+   */
+  private static Map<Long, List<Object>> snapshot(UsageDao dao) {
+    Map<Long, List<Object>> data = Maps.newHashMap();
+    try (Transaction tx = dao.beginTx()) {
+      for (Node n : Iterators.loop(dao.allTaxa())) {
+        NameUsage u = dao.readUsage(n, false);
+        UsageFacts facts = dao.readFacts(n.getId());
+        data.put(n.getId(), Lists.newArrayList(u.getNubKey(), u.getIssues(), facts.metrics, facts.classification));
+      }
+    }
+    return data;
+  }
+
+  private static class CountingHandler implements SubtreeHandler {
+    int starts;
+    int ends;
+    int depth;
+    int maxDepth;
+
+    @Override
+    public void start(Node n) {
+      starts++;
+      maxDepth = Math.max(maxDepth, ++depth);
+    }
+
+    @Override
+    public void end(Node n) {
+      ends++;
+      depth--;
+    }
+
+    @Override
+    public SubtreeHandler forSubtree(List<Node> ancestors) {
+      CountingHandler sub = new CountingHandler();
+      sub.depth = ancestors.size();
+      return sub;
+    }
+
+    @Override
+    public void merge(SubtreeHandler subtree) {
+      CountingHandler sub = (CountingHandler) subtree;
+      starts += sub.starts;
+      ends += sub.ends;
+      maxDepth = Math.max(maxDepth, sub.maxDepth);
+    }
+  }
 }
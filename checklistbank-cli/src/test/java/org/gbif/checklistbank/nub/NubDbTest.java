@@ -242,6 +242,32 @@ public class NubDbTest {
     return parent;
   }
 
+  /**
+   * Lookups need to reflect status changes and deletions of existing usages.
+   */
+  @Test
+  public void testFindAfterChanges() throws Exception {
+    UsageDao dao = UsageDao.temporaryDao(10);
+    NubDb db = NubDb.create(dao, AuthorComparator.createWithoutAuthormap());
+    try (Transaction tx = dao.beginTx()) {
+      final NubUsage plantae = db.addRoot(buildNub(Kingdom.PLANTAE, "Plantae", Rank.KINGDOM, TaxonomicStatus.ACCEPTED));
+      final NubUsage oenanthe = db.addUsage(plantae, buildNub("Oenanthe Vieillot, 1816", Rank.GENUS, TaxonomicStatus.ACCEPTED));
+      final NubUsage aquatica = db.addUsage(oenanthe, buildNub("Oenanthe aquatica Poir.", Rank.SPECIES, TaxonomicStatus.ACCEPTED));
+      final NubUsage palma = db.addUsage(plantae, buildNub("Palma aquatica (Senser.)", Rank.SPECIES, TaxonomicStatus.ACCEPTED));
+
+      assertTrue(db.findAcceptedNubUsage(Kingdom.PLANTAE, "Oenanthe aquatica", Rank.SPECIES).isMatch());
+      assertFalse(db.findAcceptedNubUsage(Kingdom.ANIMALIA, "Oenanthe aquatica", Rank.SPECIES).isMatch());
+
+      db.convertToSynonym(aquatica, palma, TaxonomicStatus.SYNONYM, null);
+      assertFalse(db.findAcceptedNubUsage(Kingdom.PLANTAE, "Oenanthe aquatica", Rank.SPECIES).isMatch());
+      assertEquals(1, db.listNubUsages("Oenanthe aquatica", Rank.SPECIES, Kingdom.PLANTAE, true, false).size());
+
+      db.delete(aquatica);
+      assertTrue(db.listNubUsages("Oenanthe aquatica", Rank.SPECIES, Kingdom.PLANTAE, true, false).isEmpty());
+      assertTrue(db.findAcceptedNubUsage(Kingdom.PLANTAE, "Oenanthe", Rank.GENUS).isMatch());
+    }
+  }
+
   private NubUsage buildNub(String sciname, Rank rank, TaxonomicStatus status) {
     return buildNub(null, sciname, rank, status);
   }
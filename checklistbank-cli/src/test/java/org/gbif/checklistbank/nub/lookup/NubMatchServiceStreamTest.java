@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.nub.lookup;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.BaseDBTest;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.service.mybatis.persistence.postgres.ClbLoadTestDb;
+import org.gbif.nub.lookup.straight.IdLookupPassThru;
+import org.gbif.nub.lookup.straight.LookupUsage;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Rematches the squirrels checklist streamed from postgres to check the kingdoms used to match its usages.
+ */
+public class NubMatchServiceStreamTest {
+  private static final UUID SQUIRRELS = UUID.fromString("109aea14-c252-4a85-96e2-f5f4d5d088f4");
+
+  @RegisterExtension
+  public ClbLoadTestDb clbLoadTestDb =
+      ClbLoadTestDb.squirrels(BaseDBTest.createConnectionSupplier(PG_CONTAINER));
+
+  public static final PostgreSQLContainer PG_CONTAINER;
+
+  static {
+    PG_CONTAINER = BaseDBTest.createPostgreSQLContainer();
+    PG_CONTAINER.start();
+
+    try {
+      BaseDBTest.updateLiquibase(PG_CONTAINER);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Lookup matching only the given names to the given kingdoms,
+   * remembering the kingdom each name was looked up with.
+   */
+  private static class StubLookup extends IdLookupPassThru {
+    private final Map<String, Kingdom> matches;
+    private final Map<String, Kingdom> lookups = new ConcurrentHashMap<>();
+
+    StubLookup(Map<String, Kingdom> matches) {
+      this.matches = matches;
+    }
+
+    @Override
+    public LookupUsage match(String canonicalName, Rank rank, Kingdom kingdom) {
+      return match(canonicalName, null, null, rank, TaxonomicStatus.ACCEPTED, kingdom);
+    }
+
+    @Override
+    public LookupUsage match(String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, TaxonomicStatus status, Kingdom kingdom, IntSet... ignoreIDs) {
+      lookups.put(canonicalName, kingdom);
+      Kingdom k = matches.get(canonicalName);
+      return k == null ? null : new LookupUsage(canonicalName.hashCode(), canonicalName, authorship, year, rank, status, k, false);
+    }
+  }
+
+  private ClbConfiguration config() {
+    ClbConfiguration clb = new ClbConfiguration();
+    clb.serverName = "localhost:" + PG_CONTAINER.getFirstMappedPort();
+    clb.databaseName = PG_CONTAINER.getDatabaseName();
+    clb.user = PG_CONTAINER.getUsername();
+    clb.password = PG_CONTAINER.getPassword();
+    return clb;
+  }
+
+  /**
+   * Animalia > Chordata > Mammalia > Rodentia > Sciuromorpha > Sciuridae > ...
+   * with some usages matching to deliberately different kingdoms, so the inherited kingdom shows where it came from.
+   */
+  @Test
+  public void testStreamKingdoms() throws Exception {
+    // turn the suborder Sciuromorpha into an OTU which is never matched
+    try (Connection c = BaseDBTest.createConnectionSupplier(PG_CONTAINER).get();
+         Statement st = c.createStatement()) {
+      st.execute("UPDATE name SET scientific_name = 'BOLD:AAA1234' WHERE id = 101014");
+    }
+
+    StubLookup lookup = new StubLookup(Map.of(
+        "Animalia", Kingdom.ANIMALIA,
+        "Mammalia", Kingdom.PLANTAE,
+        "Rodentia", Kingdom.FUNGI
+    ));
+    NubMatchService service = new NubMatchService(config(), null, lookup, null, null);
+    DatasetMatchSummary summary = service.matchDataset(SQUIRRELS);
+    assertEquals(3, summary.getMatches());
+
+    // the root has no parent
+    assertEquals(Kingdom.INCERTAE_SEDIS, lookup.lookups.get("Animalia"));
+    // child of a matched parent
+    assertEquals(Kingdom.ANIMALIA, lookup.lookups.get("Chordata"));
+    // child of an unmatched parent gets the kingdom of the closest matched ancestor
+    assertEquals(Kingdom.ANIMALIA, lookup.lookups.get("Mammalia"));
+    assertEquals(Kingdom.PLANTAE, lookup.lookups.get("Rodentia"));
+    // the OTU is skipped, its child gets the kingdom of the closest matched ancestor
+    assertFalse(lookup.lookups.containsKey("BOLD:AAA1234"));
+    assertEquals(Kingdom.FUNGI, lookup.lookups.get("Sciuridae"));
+    // all further descendants, none of them matched
+    assertEquals(Kingdom.FUNGI, lookup.lookups.get("Sciurillinae"));
+    assertEquals(Kingdom.FUNGI, lookup.lookups.get("Sciurillus"));
+    assertTrue(lookup.lookups.size() > 10);
+    for (Map.Entry<String, Kingdom> e : lookup.lookups.entrySet()) {
+      if (!e.getKey().equals("Animalia") && !e.getKey().equals("Chordata") && !e.getKey().equals("Mammalia") && !e.getKey().equals("Rodentia")) {
+        assertEquals(e.getKey(), Kingdom.FUNGI, e.getValue());
+      }
+    }
+  }
+}
@@ -17,10 +17,16 @@ import org.gbif.checklistbank.iterable.CloseableIterator;
 import org.gbif.checklistbank.nub.NeoTmpRepoRule;
 import org.gbif.checklistbank.nub.model.SrcUsage;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Created by markus on 29/09/15.
@@ -48,4 +54,41 @@ public class ClasspathSourceTest {
     assertEquals(12, counter);
 
   }
-}
\ No newline at end of file
+
+  /**
+   * The compact store must yield the same usages and parents in the same taxonomic order as neo4j,
+   * with every parent before its children.
+   */
+  @Test
+  public void testCompactStore() throws Exception {
+    for (int id = 1; id <= 5; id++) {
+      List<String> neo = usages(new ClasspathSource(id, neoRepo.cfg));
+      ClasspathSource src = new ClasspathSource(id, neoRepo.cfg);
+      src.compactStore = true;
+      assertEquals("dataset " + id, neo, usages(src));
+    }
+  }
+
+  /**
+   * @return key and parent key of all usages in iteration order
+   */
+  private static List<String> usages(NubSource src) throws Exception {
+    List<String> usages = new ArrayList<>();
+    Set<Integer> seen = new HashSet<>();
+    try {
+      // neo4j needs the node properties to sort by rank and name
+      src.init(true, false);
+      try (CloseableIterator<SrcUsage> iter = src.iterator()) {
+        while (iter.hasNext()) {
+          SrcUsage u = iter.next();
+          assertTrue(u.parentKey == null || seen.contains(u.parentKey));
+          seen.add(u.key);
+          usages.add(u.key + " < " + u.parentKey);
+        }
+      }
+    } finally {
+      src.close();
+    }
+    return usages;
+  }
+}
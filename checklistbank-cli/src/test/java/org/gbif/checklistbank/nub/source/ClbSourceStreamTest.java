@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.nub.source;
+
+import org.gbif.checklistbank.BaseDBTest;
+import org.gbif.checklistbank.config.ClbConfiguration;
+import org.gbif.checklistbank.iterable.CloseableIterator;
+import org.gbif.checklistbank.nub.NeoTmpRepoRule;
+import org.gbif.checklistbank.nub.model.SrcUsage;
+import org.gbif.checklistbank.service.mybatis.persistence.postgres.ClbLoadTestDb;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClbSourceStreamTest {
+  private static final UUID SQUIRRELS = UUID.fromString("109aea14-c252-4a85-96e2-f5f4d5d088f4");
+
+  @RegisterExtension public NeoTmpRepoRule neoRepo = new NeoTmpRepoRule();
+
+  @RegisterExtension
+  public ClbLoadTestDb clbLoadTestDb =
+      ClbLoadTestDb.squirrels(BaseDBTest.createConnectionSupplier(PG_CONTAINER));
+
+  public static final PostgreSQLContainer PG_CONTAINER;
+
+  static {
+    PG_CONTAINER = BaseDBTest.createPostgreSQLContainer();
+    PG_CONTAINER.start();
+
+    try {
+      BaseDBTest.updateLiquibase(PG_CONTAINER);
+    } catch (Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private ClbConfiguration config() {
+    ClbConfiguration clb = new ClbConfiguration();
+    clb.serverName = "localhost:" + PG_CONTAINER.getFirstMappedPort();
+    clb.databaseName = PG_CONTAINER.getDatabaseName();
+    clb.user = PG_CONTAINER.getUsername();
+    clb.password = PG_CONTAINER.getPassword();
+    return clb;
+  }
+
+  /**
+   * Streams the same usages as the neo4j backed source with parents always coming first.
+   */
+  @Test
+  public void testStream() throws Exception {
+    Set<Integer> neoKeys = new HashSet<>();
+    try (ClbSource src = new ClbSource(config(), neoRepo.cfg, SQUIRRELS, "squirrels")) {
+      src.init(false, false);
+      try (CloseableIterator<SrcUsage> iter = src.iterator()) {
+        while (iter.hasNext()) {
+          neoKeys.add(iter.next().key);
+        }
+      }
+    }
+
+    Set<Integer> keys = new HashSet<>();
+    int cnt = ClbSourceStream.stream(config(), SQUIRRELS, u -> {
+      assertNotNull(u.parsedName);
+      assertTrue(u.parentKey == null || keys.contains(u.parentKey));
+      keys.add(u.key);
+    });
+    assertEquals(keys.size(), cnt);
+    assertEquals(neoKeys, keys);
+  }
+}
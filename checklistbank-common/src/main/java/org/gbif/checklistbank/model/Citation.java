@@ -13,8 +13,14 @@
  */
 package org.gbif.checklistbank.model;
 
+import org.gbif.api.model.checklistbank.Reference;
+
 import java.util.Objects;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Strings;
+
 public class Citation {
     private Integer key;
     private String citation;
@@ -28,6 +34,46 @@ public class Citation {
         this.citation = citation;
     }
 
+    /**
+     * @return the full citation of a reference, built from its pieces if not given, or null if there is nothing to cite
+     */
+    @Nullable
+    public static String citation(Reference r) {
+        return Strings.isNullOrEmpty(r.getCitation()) ? buildCitation(r) : r.getCitation();
+    }
+
+    /**
+     * Builds a citation from the author, date, title and source of a reference.
+     * @return the citation or null if none of the pieces exist
+     */
+    @Nullable
+    public static String buildCitation(Reference r) {
+        StringBuilder sb = new StringBuilder();
+        if (!Strings.isNullOrEmpty(r.getAuthor())) {
+            sb.append(r.getAuthor());
+            if (Strings.isNullOrEmpty(r.getDate())) {
+                sb.append(": ");
+            } else {
+                sb.append(" ");
+            }
+        }
+        if (!Strings.isNullOrEmpty(r.getDate())) {
+            sb.append("(");
+            sb.append(r.getDate());
+            sb.append(") ");
+        }
+        if (!Strings.isNullOrEmpty(r.getTitle())) {
+            sb.append(r.getTitle());
+        }
+        if (!Strings.isNullOrEmpty(r.getSource())) {
+            if (!Strings.isNullOrEmpty(r.getTitle())) {
+                sb.append(": ");
+            }
+            sb.append(r.getSource());
+        }
+        return Strings.emptyToNull(sb.toString().trim());
+    }
+
     public Integer getKey() {
         return key;
     }
@@ -0,0 +1,193 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.model;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.Reference;
+import org.gbif.api.model.checklistbank.VernacularName;
+import org.gbif.api.vocabulary.Extension;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Language;
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.Origin;
+import org.gbif.api.vocabulary.Rank;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.annotation.Nullable;
+
+/**
+ * Accumulates dataset metrics while usages are streamed through an import or a backbone rematching,
+ * so the dataset analysis does not need to aggregate them in the database.
+ * Counts that have not been accumulated at all are returned as null and are left to the database.
+ * All counting methods are thread safe.
+ */
+public class DatasetMetricsCounter {
+  private boolean usagesCounted;
+  private boolean extensionsCounted;
+  private boolean nubCounted;
+  private boolean kingdomsCounted;
+
+  private int usages;
+  private int synonyms;
+  private int nubMatches;
+  private int noMatches;
+  private final Map<Rank, Integer> countByRank = new EnumMap<>(Rank.class);
+  private final Map<UUID, Integer> countByConstituent = new HashMap<>();
+  private final Map<Kingdom, Integer> countByKingdom = new EnumMap<>(Kingdom.class);
+  private final Map<Origin, Integer> countByOrigin = new EnumMap<>(Origin.class);
+  private final Map<NameUsageIssue, Integer> countByIssue = new EnumMap<>(NameUsageIssue.class);
+  private final Map<Extension, Integer> countByExtension = new EnumMap<>(Extension.class);
+  private final Map<Language, Integer> countByLanguage = new EnumMap<>(Language.class);
+
+  /**
+   * Counts a synced usage. Ranks are only counted for accepted usages.
+   */
+  public synchronized void countUsage(NameUsage u) {
+    usagesCounted = true;
+    usages++;
+    if (u.isSynonym()) {
+      synonyms++;
+    } else {
+      inc(countByRank, u.getRank());
+    }
+    inc(countByConstituent, u.getConstituentKey());
+    inc(countByOrigin, u.getOrigin());
+    if (u.getIssues() != null) {
+      for (NameUsageIssue issue : u.getIssues()) {
+        inc(countByIssue, issue);
+      }
+    }
+  }
+
+  /**
+   * Counts the extension records of a synced usage.
+   */
+  public synchronized void countExtensions(UsageExtensions ext) {
+    if (!extensionsCounted) {
+      extensionsCounted = true;
+      // the database analysis always lists all extensions
+      for (Extension e : new Extension[]{Extension.DESCRIPTION, Extension.DISTRIBUTION, Extension.IDENTIFIER,
+          Extension.MULTIMEDIA, Extension.REFERENCE, Extension.SPECIES_PROFILE, Extension.TYPES_AND_SPECIMEN,
+          Extension.VERNACULAR_NAME}) {
+        countByExtension.put(e, 0);
+      }
+    }
+    add(countByExtension, Extension.DESCRIPTION, ext.descriptions.size());
+    add(countByExtension, Extension.DISTRIBUTION, ext.distributions.size());
+    add(countByExtension, Extension.IDENTIFIER, ext.identifiers.size());
+    add(countByExtension, Extension.MULTIMEDIA, ext.media.size());
+    for (Reference r : ext.referenceList) {
+      // like the sync, skip references without anything to cite
+      if (Citation.citation(r) != null) {
+        inc(countByExtension, Extension.REFERENCE);
+      }
+    }
+    add(countByExtension, Extension.SPECIES_PROFILE, ext.speciesProfiles.size());
+    add(countByExtension, Extension.TYPES_AND_SPECIMEN, ext.typeSpecimens.size());
+    add(countByExtension, Extension.VERNACULAR_NAME, ext.vernacularNames.size());
+    for (VernacularName v : ext.vernacularNames) {
+      if (v.getLanguage() != Language.UNKNOWN) {
+        inc(countByLanguage, v.getLanguage());
+      }
+    }
+  }
+
+  /**
+   * Counts the backbone match of a usage without knowing the kingdom of the matched backbone usage.
+   * @param nubKey the matching backbone usage or null if there was no match
+   */
+  public synchronized void countNubMatch(@Nullable Integer nubKey) {
+    nubCounted = true;
+    if (nubKey == null) {
+      noMatches++;
+    } else {
+      nubMatches++;
+    }
+  }
+
+  /**
+   * Counts the backbone match of a usage including the kingdom of the matched backbone usage.
+   * Like the database analysis kingdoms are only counted for accepted usages.
+   * @param nubKey the matching backbone usage or null if there was no match
+   * @param kingdom the kingdom of the matching backbone usage
+   */
+  public synchronized void countNubMatch(@Nullable Integer nubKey, boolean synonym, @Nullable Kingdom kingdom) {
+    countNubMatch(nubKey);
+    kingdomsCounted = true;
+    if (nubKey != null && !synonym) {
+      inc(countByKingdom, kingdom == null ? Kingdom.INCERTAE_SEDIS : kingdom);
+    }
+  }
+
+  private static <K> void inc(Map<K, Integer> counts, @Nullable K key) {
+    add(counts, key, 1);
+  }
+
+  private static <K> void add(Map<K, Integer> counts, @Nullable K key, int cnt) {
+    if (key != null) {
+      counts.merge(key, cnt, Integer::sum);
+    }
+  }
+
+  public synchronized Integer getUsagesCount() {
+    return usagesCounted ? usages : null;
+  }
+
+  public synchronized Integer getSynonymsCount() {
+    return usagesCounted ? synonyms : null;
+  }
+
+  public synchronized Integer getNubMatchingCount() {
+    return nubCounted ? nubMatches : null;
+  }
+
+  /**
+   * @return number of usages without a backbone match, i.e. with a BACKBONE_MATCH_NONE issue
+   */
+  public synchronized Integer getNoMatchCount() {
+    return nubCounted ? noMatches : null;
+  }
+
+  public synchronized Map<Rank, Integer> getCountByRank() {
+    return usagesCounted ? new EnumMap<>(countByRank) : null;
+  }
+
+  public synchronized Map<UUID, Integer> getCountByConstituent() {
+    return usagesCounted ? new HashMap<>(countByConstituent) : null;
+  }
+
+  public synchronized Map<Kingdom, Integer> getCountByKingdom() {
+    return kingdomsCounted ? new EnumMap<>(countByKingdom) : null;
+  }
+
+  public synchronized Map<Origin, Integer> getCountByOrigin() {
+    return usagesCounted ? new EnumMap<>(countByOrigin) : null;
+  }
+
+  public synchronized Map<NameUsageIssue, Integer> getCountByIssue() {
+    return usagesCounted ? new EnumMap<>(countByIssue) : null;
+  }
+
+  public synchronized Map<Extension, Integer> getCountExtRecordsByExtension() {
+    return extensionsCounted ? new EnumMap<>(countByExtension) : null;
+  }
+
+  public synchronized Map<Language, Integer> getCountNamesByLanguage() {
+    return extensionsCounted ? new EnumMap<>(countByLanguage) : null;
+  }
+}
@@ -13,6 +13,8 @@
  */
 package org.gbif.checklistbank.service;
 
+import java.util.Collection;
+
 /**
  * Persistence service dealing with simple reference citations.
  * This interface is restricted to the mybatis module only!
@@ -28,4 +30,10 @@ public interface CitationService {
      * Returns the key for an existing or newly inserted citation string.
      */
   Integer createOrGet(String citation, String doi, String link);
+
+  /**
+   * Loads the keys of all existing citations with a single query into a local cache,
+   * so subsequent createOrGet calls do not need to hit the database.
+   */
+  void preload(Collection<String> citations);
 }
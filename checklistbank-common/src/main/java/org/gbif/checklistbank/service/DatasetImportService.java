@@ -15,6 +15,7 @@ package org.gbif.checklistbank.service;
 
 import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.model.UsageForeignKeys;
 
 import java.util.Collections;
@@ -62,6 +63,13 @@ public interface DatasetImportService extends AutoCloseable {
    */
   void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations);
 
+  /**
+   * Stores dataset metrics accumulated during an import or a rematching for the next dataset analysis.
+   * Metrics counted during an import replace any previously staged ones,
+   * metrics with only backbone matches counted just update the staged match counts.
+   */
+  void stageMetrics(UUID datasetKey, DatasetMetricsCounter metrics);
+
   /**
    * Remove entire dataset from checklistbank
    * @return number of deleted usage records
@@ -108,6 +116,11 @@ public interface DatasetImportService extends AutoCloseable {
 
       }
 
+      @Override
+      public void stageMetrics(UUID datasetKey, DatasetMetricsCounter metrics) {
+
+      }
+
       @Override
       public int deleteDataset(UUID datasetKey) {
         return 0;
@@ -35,6 +35,11 @@ public interface ImporterCallback {
 
   ParsedName readName(long id);
 
+  /**
+   * Return just the taxonID of the usage with the given id without resolving any foreign keys.
+   */
+  String readTaxonID(long id);
+
   boolean isInsert(NameUsage usage);
 
   UsageExtensions readExtensions(long id);
@@ -48,4 +53,14 @@ public interface ImporterCallback {
   void reportUsageKey(long id, int usageKey);
 
   void reportNewFuture(Future<List<Integer>> future);
+
+  /**
+   * Reports a usage once it has been persisted, so dataset metrics can be accumulated.
+   */
+  void reportSyncedUsage(NameUsage usage);
+
+  /**
+   * Reports the extensions of a usage once they have been persisted, so dataset metrics can be accumulated.
+   */
+  void reportSyncedExtensions(UsageExtensions extensions);
 }
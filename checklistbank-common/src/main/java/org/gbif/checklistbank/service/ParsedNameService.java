@@ -15,6 +15,8 @@ package org.gbif.checklistbank.service;
 
 import org.gbif.api.model.checklistbank.ParsedName;
 
+import java.util.Collection;
+
 /**
  * Persistence service dealing with parsed names.
  * This interface is restricted to the mybatis module only!
@@ -29,6 +31,12 @@ public interface ParsedNameService {
    */
   ParsedName createOrGet(ParsedName name, boolean update);
 
+  /**
+   * Loads all existing names matching the given ones with a single query into a local cache,
+   * so subsequent createOrGet calls do not need to hit the database.
+   */
+  void preload(Collection<ParsedName> names);
+
   /**
    * Deletes all orphaned names without a name_usage linking to them
    *
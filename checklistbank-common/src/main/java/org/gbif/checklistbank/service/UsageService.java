@@ -30,6 +30,17 @@ public interface UsageService {
    */
   List<Integer> listAll();
 
+  /**
+   * @return sorted keys starting with the lowest and ending with the highest current usage key,
+   * with the equi-depth histogram bounds sampled by postgres in between. Empty if there are no usages.
+   */
+  int[] keyHistogram();
+
+  /**
+   * @return the number of name usages as estimated by postgres statistics
+   */
+  long estimateCount();
+
   /**
    * @return the highest usageKey used in the dataset
    */
@@ -17,9 +17,13 @@ import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.NameUsageMetrics;
 import org.gbif.api.model.checklistbank.ParsedName;
 import org.gbif.api.model.checklistbank.VerbatimNameUsage;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.model.UsageForeignKeys;
 
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.annotation.Nullable;
@@ -30,10 +34,39 @@ public interface UsageSyncService {
 
   void syncUsageExtras(boolean insert, UUID datasetKey, int usageKey, @Nullable VerbatimNameUsage verbatim, @Nullable UsageExtensions extensions);
 
+  /**
+   * Syncs a batch of usages read from the importer callback in the given order.
+   * Previous usage keys are resolved for the whole batch at once and every new usage key is reported
+   * to the callback before the next usage is read, so classification keys within the batch can be resolved.
+   * All usages, metrics and nub relations of the batch are written with a single round trip per table.
+   *
+   * @param ids callback ids of the usages to sync in taxonomic order
+   * @param inserts collects the callback ids of all newly inserted usages
+   * @return the synced usage keys by their callback id
+   */
+  Map<Integer, Integer> syncUsages(UUID datasetKey, ImporterCallback callback, List<Integer> ids, Set<Integer> inserts);
+
+  /**
+   * Syncs the verbatim and extension data for a batch of already synced usages read from the importer callback,
+   * writing all records with a single round trip per table.
+   *
+   * @param usageKeys the usage keys by their callback id for all usages of the batch
+   * @param inserts callback ids of usages that were newly inserted and do not have any previous records
+   */
+  void syncUsageExtras(UUID datasetKey, ImporterCallback callback, Map<Integer, Integer> usageKeys, Set<Integer> inserts);
+
   void updateForeignKeys(int usageKey, Integer parentKey, Integer basionymKey);
 
+  /**
+   * Updates the parent and basionym keys of many usages with a single set based statement.
+   * Null keys are left untouched.
+   */
+  void updateForeignKeys(List<UsageForeignKeys> fks);
+
   void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations);
 
+  void stageMetrics(UUID datasetKey, DatasetMetricsCounter metrics);
+
   int deleteDataset(UUID datasetKey);
 
   void delete(int key);
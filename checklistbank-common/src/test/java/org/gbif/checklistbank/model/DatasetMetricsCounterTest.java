@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.model;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.api.model.checklistbank.Reference;
+import org.gbif.api.model.checklistbank.VernacularName;
+import org.gbif.api.vocabulary.Extension;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Language;
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.Origin;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class DatasetMetricsCounterTest {
+
+  @Test
+  public void testCountUsages() {
+    DatasetMetricsCounter m = new DatasetMetricsCounter();
+    assertNull(m.getUsagesCount());
+    assertNull(m.getCountByRank());
+    assertNull(m.getCountExtRecordsByExtension());
+
+    m.countUsage(usage(Rank.SPECIES, TaxonomicStatus.ACCEPTED, NameUsageIssue.BACKBONE_MATCH_NONE));
+    m.countUsage(usage(Rank.SPECIES, TaxonomicStatus.SYNONYM, NameUsageIssue.BACKBONE_MATCH_NONE));
+    m.countUsage(usage(Rank.GENUS, TaxonomicStatus.ACCEPTED));
+    m.countNubMatch(null);
+    m.countNubMatch(12);
+
+    assertEquals(3, (int) m.getUsagesCount());
+    assertEquals(1, (int) m.getSynonymsCount());
+    assertEquals(1, (int) m.getNubMatchingCount());
+    assertEquals(1, (int) m.getNoMatchCount());
+    // only accepted usages are counted by rank
+    assertEquals(1, (int) m.getCountByRank().get(Rank.SPECIES));
+    assertEquals(1, (int) m.getCountByRank().get(Rank.GENUS));
+    assertEquals(3, (int) m.getCountByOrigin().get(Origin.SOURCE));
+    assertEquals(2, (int) m.getCountByIssue().get(NameUsageIssue.BACKBONE_MATCH_NONE));
+    // kingdoms are unknown without a rematch
+    assertNull(m.getCountByKingdom());
+  }
+
+  @Test
+  public void testCountExtensions() {
+    DatasetMetricsCounter m = new DatasetMetricsCounter();
+    UsageExtensions ext = new UsageExtensions();
+    ext.vernacularNames.add(vernacular(Language.ENGLISH));
+    ext.vernacularNames.add(vernacular(Language.ENGLISH));
+    ext.vernacularNames.add(vernacular(Language.GERMAN));
+    ext.referenceList.add(reference("Linnaeus, C. (1758) Systema Naturae", null));
+    ext.referenceList.add(reference(null, "Systema Naturae"));
+    // nothing to cite, skipped by the sync
+    ext.referenceList.add(reference(null, null));
+    m.countExtensions(ext);
+    m.countExtensions(new UsageExtensions());
+
+    assertEquals(8, m.getCountExtRecordsByExtension().size());
+    assertEquals(3, (int) m.getCountExtRecordsByExtension().get(Extension.VERNACULAR_NAME));
+    assertEquals(0, (int) m.getCountExtRecordsByExtension().get(Extension.DISTRIBUTION));
+    assertEquals(2, (int) m.getCountExtRecordsByExtension().get(Extension.REFERENCE));
+    assertEquals(2, (int) m.getCountNamesByLanguage().get(Language.ENGLISH));
+    assertEquals(1, (int) m.getCountNamesByLanguage().get(Language.GERMAN));
+  }
+
+  @Test
+  public void testCountMatches() {
+    DatasetMetricsCounter m = new DatasetMetricsCounter();
+    m.countNubMatch(1, false, Kingdom.ANIMALIA);
+    m.countNubMatch(2, true, Kingdom.ANIMALIA);
+    m.countNubMatch(3, false, null);
+    m.countNubMatch(null, false, null);
+
+    assertNull(m.getUsagesCount());
+    assertEquals(3, (int) m.getNubMatchingCount());
+    assertEquals(1, (int) m.getNoMatchCount());
+    // synonyms are not counted by kingdom
+    assertEquals(1, (int) m.getCountByKingdom().get(Kingdom.ANIMALIA));
+    assertEquals(1, (int) m.getCountByKingdom().get(Kingdom.INCERTAE_SEDIS));
+  }
+
+  private static NameUsage usage(Rank rank, TaxonomicStatus status, NameUsageIssue... issues) {
+    NameUsage u = new NameUsage();
+    u.setRank(rank);
+    u.setTaxonomicStatus(status);
+    u.setOrigin(Origin.SOURCE);
+    for (NameUsageIssue issue : issues) {
+      u.addIssue(issue);
+    }
+    return u;
+  }
+
+  private static Reference reference(String citation, String title) {
+    Reference r = new Reference();
+    r.setCitation(citation);
+    r.setTitle(title);
+    return r;
+  }
+
+  private static VernacularName vernacular(Language lang) {
+    VernacularName v = new VernacularName();
+    v.setVernacularName("name");
+    v.setLanguage(lang);
+    return v;
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.index;
+
+import org.gbif.checklistbank.index.model.NameUsageAvro;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricSet;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.elastic.clients.elasticsearch.ElasticsearchAsyncClient;
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.IndexOperation;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indexes name usages with asynchronous bulk requests that are sized by their estimated payload in bytes.
+ * The number of bulk requests in flight is capped across all callers, blocking them until a slot is free.
+ * Documents rejected by an overloaded cluster (HTTP 429) are retried with exponential backoff,
+ * any other failure is thrown to the caller once all its requests are done.
+ */
+@Slf4j
+public class BulkIndexer implements MetricSet {
+  private static final int TOO_MANY_REQUESTS = 429;
+  // estimated size of documents that cannot be serialized upfront
+  private static final int DEFAULT_DOC_SIZE = 2048;
+
+  private final ElasticsearchAsyncClient client;
+  private final ObjectMapper objectMapper;
+  private final String indexName;
+  private final EsBulkConfiguration cfg;
+  private final Semaphore inFlight;
+  private final Meter docs = new Meter();
+  private final Timer latency = new Timer();
+  private final Counter retries = new Counter();
+
+  public BulkIndexer(ElasticsearchClient client, String indexName, EsBulkConfiguration cfg) {
+    this.client = new ElasticsearchAsyncClient(client._transport(), client._transportOptions());
+    this.objectMapper = client._jsonpMapper() instanceof JacksonJsonpMapper ?
+        ((JacksonJsonpMapper) client._jsonpMapper()).objectMapper() : null;
+    this.indexName = indexName;
+    this.cfg = cfg;
+    this.inFlight = new Semaphore(cfg.getMaxInFlight());
+  }
+
+  /**
+   * Indexes all given usages, ignoring nulls, and waits until all of them are acknowledged.
+   * Bulk requests are sent while the iterable is still being consumed.
+   *
+   * @return the number of indexed usages
+   */
+  @SneakyThrows
+  public int index(Iterable<NameUsageAvro> usages) {
+    List<CompletableFuture<Void>> requests = new ArrayList<>();
+    List<BulkOperation> ops = new ArrayList<>();
+    long bytes = 0;
+    int count = 0;
+    for (NameUsageAvro u : usages) {
+      if (u != null) {
+        // serialize only once, so the size is known and the client sends the raw json as it is
+        byte[] json = serialize(u);
+        Object doc = json == null ? u : BinaryData.of(json, ContentType.APPLICATION_JSON);
+        ops.add(new BulkOperation.Builder()
+            .index(new IndexOperation.Builder<>().id(u.getKey().toString()).document(doc).build())
+            .build());
+        bytes += json == null ? DEFAULT_DOC_SIZE : json.length;
+        count++;
+        if (ops.size() >= cfg.getMaxDocs() || bytes >= cfg.getMaxBytes()) {
+          requests.add(send(ops));
+          ops = new ArrayList<>();
+          bytes = 0;
+        }
+      }
+    }
+    if (!ops.isEmpty()) {
+      requests.add(send(ops));
+    }
+    try {
+      CompletableFuture.allOf(requests.toArray(new CompletableFuture[0])).join();
+    } catch (CompletionException e) {
+      throw e.getCause();
+    }
+    return count;
+  }
+
+  /**
+   * Sends a new bulk request as soon as less than the maximum number of requests are in flight.
+   */
+  private CompletableFuture<Void> send(List<BulkOperation> ops) throws InterruptedException {
+    inFlight.acquire();
+    // keep the slot until all retries are done, so rejections slow down all callers.
+    // Callers wait for the returned future, so the slot is free again once they resume
+    return submit(ops, 0).whenComplete((x, e) -> inFlight.release());
+  }
+
+  private CompletableFuture<Void> submit(List<BulkOperation> ops, int attempt) {
+    final Timer.Context timer = latency.time();
+    return client.bulk(b -> b.index(indexName).operations(ops))
+        .handle((resp, e) -> {
+          timer.stop();
+          return e == null ? handleResponse(ops, resp, attempt) : handleFailure(ops, e, attempt);
+        })
+        .thenCompose(Function.identity());
+  }
+
+  private CompletableFuture<Void> handleResponse(List<BulkOperation> ops, BulkResponse resp, int attempt) {
+    List<BulkOperation> rejected = new ArrayList<>();
+    BulkResponseItem failed = null;
+    int failures = 0;
+    for (int i = 0; i < resp.items().size(); i++) {
+      BulkResponseItem item = resp.items().get(i);
+      if (item.error() == null) {
+        docs.mark();
+      } else if (item.status() == TOO_MANY_REQUESTS && attempt < cfg.getMaxRetries()) {
+        rejected.add(ops.get(i));
+      } else {
+        failed = failed == null ? item : failed;
+        failures++;
+      }
+    }
+    if (failed != null) {
+      return CompletableFuture.failedFuture(new RuntimeException(
+          "Failed to index " + failures + " documents, e.g. " + failed.id() + ": " + failed.error().reason()));
+    }
+    return rejected.isEmpty() ? CompletableFuture.completedFuture(null) : retry(rejected, attempt);
+  }
+
+  private CompletableFuture<Void> handleFailure(List<BulkOperation> ops, Throwable e, int attempt) {
+    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    if (cause instanceof ElasticsearchException
+        && ((ElasticsearchException) cause).status() == TOO_MANY_REQUESTS
+        && attempt < cfg.getMaxRetries()) {
+      return retry(ops, attempt);
+    }
+    return CompletableFuture.failedFuture(cause);
+  }
+
+  private CompletableFuture<Void> retry(List<BulkOperation> ops, int attempt) {
+    long delay = cfg.getBackoffMillis() << attempt;
+    retries.inc(ops.size());
+    log.debug("Elasticsearch rejected {} documents, retry #{} in {}ms", ops.size(), attempt + 1, delay);
+    return CompletableFuture.runAsync(() -> {}, CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+        .thenCompose(x -> submit(ops, attempt + 1));
+  }
+
+  /**
+   * @return the usage as json or null if it cannot be serialized here and is left to the client
+   */
+  private byte[] serialize(NameUsageAvro u) {
+    if (objectMapper != null) {
+      try {
+        return objectMapper.writeValueAsBytes(u);
+      } catch (Exception e) {
+        log.debug("Failed to serialize usage {}", u.getKey(), e);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return indexed documents per second
+   */
+  public Meter getDocs() {
+    return docs;
+  }
+
+  /**
+   * @return latency of single bulk requests
+   */
+  public Timer getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return the number of bulk requests that can be sent without waiting
+   */
+  int availableSlots() {
+    return inFlight.availablePermits();
+  }
+
+  @Override
+  public Map<String, Metric> getMetrics() {
+    Map<String, Metric> metrics = new HashMap<>();
+    metrics.put("es-bulk.docs", docs);
+    metrics.put("es-bulk.latency", latency);
+    metrics.put("es-bulk.retries", retries);
+    return metrics;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.index;
+
+import lombok.Data;
+
+/**
+ * Settings for the bulk requests sending name usages to elasticsearch.
+ */
+@Data
+public class EsBulkConfiguration {
+
+  /**
+   * Maximum estimated payload of a single bulk request in bytes.
+   */
+  private int maxBytes = 5 * 1024 * 1024;
+
+  /**
+   * Maximum number of documents in a single bulk request.
+   */
+  private int maxDocs = 1000;
+
+  /**
+   * Maximum number of bulk requests in flight across all sync threads.
+   */
+  private int maxInFlight = 4;
+
+  /**
+   * Number of times documents rejected by elasticsearch are retried.
+   */
+  private int maxRetries = 5;
+
+  /**
+   * Initial backoff before retrying rejected documents, doubled with every attempt.
+   */
+  private long backoffMillis = 200;
+
+}
@@ -22,6 +22,7 @@ import org.gbif.api.service.checklistbank.SpeciesProfileService;
 import org.gbif.api.service.checklistbank.VernacularNameService;
 import org.gbif.checklistbank.index.model.NameUsageAvro;
 import org.gbif.checklistbank.logging.LogContext;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.model.UsageExtensions;
 import org.gbif.checklistbank.model.UsageForeignKeys;
 import org.gbif.checklistbank.service.DatasetImportService;
@@ -38,14 +39,14 @@ import java.util.stream.StreamSupport;
 
 import javax.annotation.Nullable;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
-import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricSet;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -59,7 +60,7 @@ public class NameUsageIndexServiceEs implements DatasetImportService {
   private final static String NAME = "sync-elasticsearch";
 
   private final NameUsagesEsIndexingClient esClient;
-  private final int batchSize = 25;
+  private final BulkIndexer bulkIndexer;
   private final UsageService usageService;
   private final VernacularNameService vernacularNameService;
   private final DescriptionService descriptionService;
@@ -69,7 +70,6 @@ public class NameUsageIndexServiceEs implements DatasetImportService {
   private final PagingRequest page = new PagingRequest(0, 500);
   private final ExecutorService exec;
   private ConcurrentLinkedQueue<Future<?>> tasks = new ConcurrentLinkedQueue<>();
-  private final Meter updMeter = new Meter();
   private final AtomicInteger updCounter = new AtomicInteger(0);
 
   @Autowired
@@ -81,9 +81,11 @@ public class NameUsageIndexServiceEs implements DatasetImportService {
     DistributionService distributionService,
     SpeciesProfileService speciesProfileService,
     @Qualifier("syncThreads") Integer syncThreads,
-    @Qualifier("indexName") String indexName
+    @Qualifier("indexName") String indexName,
+    ObjectProvider<EsBulkConfiguration> bulkConfiguration
   ) {
     this.esClient = NameUsagesEsIndexingClient.builder().elasticsearchClient(elasticsearchClient).indexName(indexName).build();
+    this.bulkIndexer = new BulkIndexer(elasticsearchClient, indexName, bulkConfiguration.getIfAvailable(EsBulkConfiguration::new));
     this.usageService = usageService;
     this.vernacularNameService = vernacularNameService;
     this.descriptionService = descriptionService;
@@ -120,31 +122,27 @@ public class NameUsageIndexServiceEs implements DatasetImportService {
     ).collect(Collectors.toList()));
   }
 
-  private static  <T> Collection<List<T>> partition(Iterable<T> iterable, int batchSize) {
-    final AtomicInteger counter = new AtomicInteger();
-    return StreamSupport.stream(iterable.spliterator(),true)
-              .filter(Objects::nonNull)
-              .collect(Collectors.groupingBy(it -> counter.getAndIncrement() / batchSize))
-              .values();
-  }
-
-  @SneakyThrows
   public void insertOrUpdate(Iterable<NameUsageAvro> usages) {
-    for (List<NameUsageAvro> batch : partition(usages, batchSize)) {
-      if (!batch.isEmpty()) {
-        String datasetKey =  batch.get(0).getDatasetKey();
-        esClient.bulkAdd(batch);
-        updMeter.mark();
-        int cnt = updCounter.incrementAndGet();
-        if (cnt % 10000 == 0) {
-          LogContext.startDataset(datasetKey);
-          log.info("Synced {} usages, mean rate={}", cnt, updMeter.getMeanRate());
-          LogContext.endDataset();
-        }
-      }
+    int added = bulkIndexer.index(usages);
+    int cnt = updCounter.addAndGet(added);
+    if (cnt / 10000 > (cnt - added) / 10000) {
+      StreamSupport.stream(usages.spliterator(), false)
+          .filter(Objects::nonNull)
+          .findFirst()
+          .ifPresent(u -> LogContext.startDataset(u.getDatasetKey()));
+      log.info("Synced {} usages, mean rate={} docs/s, mean bulk latency={}ms", cnt,
+          bulkIndexer.getDocs().getMeanRate(), TimeUnit.NANOSECONDS.toMillis((long) bulkIndexer.getLatency().getSnapshot().getMean()));
+      LogContext.endDataset();
     }
   }
 
+  /**
+   * @return documents per second, bulk request latency and retries of the elasticsearch sync
+   */
+  public MetricSet getMetrics() {
+    return bulkIndexer;
+  }
+
   @Override
   public Future<List<Integer>> updateForeignKeys(UUID datasetKey, List<UsageForeignKeys> fks) {
     List<Integer> usageKeys = new ArrayList<>();
@@ -172,6 +170,11 @@ public class NameUsageIndexServiceEs implements DatasetImportService {
     exec.submit(new IndexUpdateMybatis(new ArrayList<>(relations.keySet())));
   }
 
+  @Override
+  public void stageMetrics(UUID datasetKey, DatasetMetricsCounter metrics) {
+    // metrics are kept in postgres only
+  }
+
   @Override
   public int deleteDataset(UUID datasetKey) {
     try {
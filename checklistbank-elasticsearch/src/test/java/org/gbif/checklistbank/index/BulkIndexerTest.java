@@ -0,0 +1,248 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.index;
+
+import org.gbif.checklistbank.index.model.NameUsageAvro;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.codahale.metrics.Counter;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.transport.ElasticsearchTransport;
+import co.elastic.clients.transport.Endpoint;
+import co.elastic.clients.transport.TransportOptions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BulkIndexerTest {
+  private static final String INDEX = "usages";
+
+  @JsonIgnoreProperties({"schema", "specificData"})
+  abstract static class AvroMixin {
+  }
+
+  /**
+   * Transport answering bulk requests asynchronously with a given function instead of calling elasticsearch.
+   */
+  private static class StubTransport implements ElasticsearchTransport {
+    private final JacksonJsonpMapper mapper = new JacksonJsonpMapper(new ObjectMapper().addMixIn(NameUsageAvro.class, AvroMixin.class));
+    private final Function<BulkRequest, CompletableFuture<BulkResponse>> handler;
+    private final AtomicInteger requests = new AtomicInteger();
+
+    StubTransport(Function<BulkRequest, CompletableFuture<BulkResponse>> handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public <RequestT, ResponseT, ErrorT> ResponseT performRequest(RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <RequestT, ResponseT, ErrorT> CompletableFuture<ResponseT> performRequestAsync(RequestT request, Endpoint<RequestT, ResponseT, ErrorT> endpoint, TransportOptions options) {
+      requests.incrementAndGet();
+      // answer from another thread like the real client does
+      return CompletableFuture.supplyAsync(() -> (BulkRequest) request)
+          .thenCompose(handler)
+          .thenApply(resp -> (ResponseT) resp);
+    }
+
+    @Override
+    public JsonpMapper jsonpMapper() {
+      return mapper;
+    }
+
+    @Override
+    public TransportOptions options() {
+      return null;
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static EsBulkConfiguration cfg() {
+    EsBulkConfiguration cfg = new EsBulkConfiguration();
+    cfg.setMaxDocs(10);
+    cfg.setMaxInFlight(2);
+    cfg.setMaxRetries(3);
+    cfg.setBackoffMillis(1);
+    return cfg;
+  }
+
+  private static List<NameUsageAvro> usages(int size) {
+    List<NameUsageAvro> usages = new ArrayList<>();
+    for (int key = 1; key <= size; key++) {
+      NameUsageAvro u = new NameUsageAvro();
+      u.setKey(key);
+      u.setScientificName("Abies alba " + key);
+      usages.add(u);
+    }
+    return usages;
+  }
+
+  private static String id(BulkOperation op) {
+    return op.index().id();
+  }
+
+  private static BulkResponse response(BulkRequest req, Function<String, Integer> status) {
+    List<BulkResponseItem> items = new ArrayList<>();
+    boolean errors = false;
+    for (BulkOperation op : req.operations()) {
+      int st = status.apply(id(op));
+      errors = errors || st >= 300;
+      items.add(BulkResponseItem.of(i -> {
+        i.operationType(OperationType.Index).index(INDEX).id(id(op)).status(st);
+        if (st == 429) {
+          i.error(e -> e.type("es_rejected_execution_exception").reason("rejected execution"));
+        } else if (st >= 300) {
+          i.error(e -> e.type("mapper_parsing_exception").reason("failed to parse"));
+        }
+        return i;
+      }));
+    }
+    final boolean hasErrors = errors;
+    return BulkResponse.of(r -> r.errors(hasErrors).took(1).items(items));
+  }
+
+  private static ElasticsearchException rejected() {
+    return new ElasticsearchException("bulk", ErrorResponse.of(r -> r
+        .status(429)
+        .error(e -> e.type("es_rejected_execution_exception").reason("rejected execution"))));
+  }
+
+  private static long retries(BulkIndexer indexer) {
+    return ((Counter) indexer.getMetrics().get("es-bulk.retries")).getCount();
+  }
+
+  @Test
+  public void indexAll() {
+    StubTransport transport = new StubTransport(req -> CompletableFuture.completedFuture(response(req, id -> 201)));
+    BulkIndexer indexer = new BulkIndexer(new ElasticsearchClient(transport), INDEX, cfg());
+
+    assertEquals(25, indexer.index(usages(25)));
+    assertEquals(3, transport.requests.get());
+    assertEquals(0, retries(indexer));
+    assertEquals(25, indexer.getDocs().getCount());
+    assertEquals(2, indexer.availableSlots());
+  }
+
+  @Test
+  public void retryRejectedItems() {
+    // reject every 3rd document the first time it is seen
+    Set<String> seen = ConcurrentHashMap.newKeySet();
+    StubTransport transport = new StubTransport(req -> CompletableFuture.completedFuture(
+        response(req, id -> Integer.parseInt(id) % 3 == 0 && seen.add(id) ? 429 : 201)));
+    BulkIndexer indexer = new BulkIndexer(new ElasticsearchClient(transport), INDEX, cfg());
+
+    assertEquals(25, indexer.index(usages(25)));
+    // 3 requests plus one retry for each of them
+    assertEquals(6, transport.requests.get());
+    assertEquals(8, retries(indexer));
+    assertEquals(25, indexer.getDocs().getCount());
+    assertEquals(2, indexer.availableSlots());
+  }
+
+  @Test
+  public void retryRejectedRequest() {
+    AtomicInteger calls = new AtomicInteger();
+    StubTransport transport = new StubTransport(req -> calls.getAndIncrement() == 0 ?
+        CompletableFuture.failedFuture(rejected()) :
+        CompletableFuture.completedFuture(response(req, id -> 201)));
+    BulkIndexer indexer = new BulkIndexer(new ElasticsearchClient(transport), INDEX, cfg());
+
+    assertEquals(5, indexer.index(usages(5)));
+    assertEquals(2, transport.requests.get());
+    assertEquals(5, retries(indexer));
+    assertEquals(5, indexer.getDocs().getCount());
+    assertEquals(2, indexer.availableSlots());
+  }
+
+  @Test
+  public void retriesExhausted() {
+    StubTransport transport = new StubTransport(req -> CompletableFuture.failedFuture(rejected()));
+    BulkIndexer indexer = new BulkIndexer(new ElasticsearchClient(transport), INDEX, cfg());
+
+    try {
+      indexer.index(usages(5));
+      fail("Rejections beyond the maximum retries must fail");
+    } catch (ElasticsearchException e) {
+      assertEquals(429, e.status());
+    }
+    // first attempt and 3 retries
+    assertEquals(4, transport.requests.get());
+    assertEquals(15, retries(indexer));
+    assertEquals(2, indexer.availableSlots());
+  }
+
+  @Test
+  public void failedItems() {
+    StubTransport transport = new StubTransport(req -> CompletableFuture.completedFuture(
+        response(req, id -> id.equals("13") ? 400 : 201)));
+    BulkIndexer indexer = new BulkIndexer(new ElasticsearchClient(transport), INDEX, cfg());
+
+    try {
+      indexer.index(usages(25));
+      fail("Failed documents must be thrown");
+    } catch (RuntimeException e) {
+      assertTrue(e.getMessage().contains("13: failed to parse"));
+    }
+    assertEquals(3, transport.requests.get());
+    assertEquals(0, retries(indexer));
+    assertEquals(24, indexer.getDocs().getCount());
+    assertEquals(2, indexer.availableSlots());
+  }
+
+  @Test
+  public void failedRequest() {
+    StubTransport transport = new StubTransport(req -> CompletableFuture.failedFuture(new IOException("Connection refused")));
+    BulkIndexer indexer = new BulkIndexer(new ElasticsearchClient(transport), INDEX, cfg());
+
+    try {
+      indexer.index(usages(25));
+      fail("Failed requests must be thrown");
+    } catch (Exception e) {
+      assertTrue(e instanceof IOException);
+      assertEquals("Connection refused", e.getMessage());
+    }
+    assertEquals(3, transport.requests.get());
+    assertEquals(0, retries(indexer));
+    assertEquals(2, indexer.availableSlots());
+  }
+}
@@ -19,64 +19,69 @@ import org.gbif.checklistbank.service.mybatis.persistence.mapper.*;
 import org.gbif.dwc.DwcaStreamWriter;
 import org.gbif.dwc.terms.DwcTerm;
 import org.gbif.metadata.eml.EMLWriter;
-import org.gbif.utils.file.CompressionUtil;
+import org.gbif.utils.concurrent.NamedThreadFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
-import org.springframework.transaction.annotation.Transactional;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.io.Files;
 
-@Transactional
+/**
+ * Exports a checklist as a DwC archive.
+ * The core and all extension files are written concurrently, each reading from its own database connection.
+ * Every data file is added to the archive as soon as it is complete while the remaining ones are still being written.
+ */
 public class Exporter {
 
   private static final Logger LOG = LoggerFactory.getLogger(Exporter.class);
+  private static final int DEFAULT_THREADS = 4;
   private final File repository;
-  private final NameUsageMapper usageMapper;
-  private final VernacularNameMapper vernacularMapper;
-  private final DescriptionMapper descriptionMapper;
-  private final DistributionMapper distributionMapper;
-  private final MultimediaMapper mediaMapper;
-  private final ReferenceMapper referenceMapper;
-  private final TypeSpecimenMapper typeSpecimenMapper;
+  private final SqlSessionFactory sqlSessionFactory;
   private final DatasetService datasetService;
+  private final int threads;
 
   @Autowired
   public Exporter(@Qualifier("exportRepository") File repository,
                   DatasetService datasetService,
-                  NameUsageMapper usageMapper, VernacularNameMapper vernacularMapper, DescriptionMapper descriptionMapper,
-                  DistributionMapper distributionMapper, MultimediaMapper mediaMapper, ReferenceMapper referenceMapper,
-                  TypeSpecimenMapper typeSpecimenMapper) {
+                  SqlSessionFactory sqlSessionFactory,
+                  @Value("${checklistbank.export.threads:" + DEFAULT_THREADS + "}") int threads) {
     this.repository = repository;
-    this.usageMapper = usageMapper;
-    this.vernacularMapper = vernacularMapper;
-    this.descriptionMapper = descriptionMapper;
-    this.distributionMapper = distributionMapper;
-    this.mediaMapper = mediaMapper;
-    this.referenceMapper = referenceMapper;
-    this.typeSpecimenMapper = typeSpecimenMapper;
+    this.sqlSessionFactory = sqlSessionFactory;
     this.datasetService = datasetService;
+    this.threads = Math.max(1, threads);
   }
 
   public Exporter(File repository, ApplicationContext ctx, DatasetService datasetService) {
-    this.repository = repository;
-    usageMapper = ctx.getBean(NameUsageMapper.class);
-    descriptionMapper = ctx.getBean(DescriptionMapper.class);
-    distributionMapper = ctx.getBean(DistributionMapper.class);
-    mediaMapper = ctx.getBean(MultimediaMapper.class);
-    vernacularMapper = ctx.getBean(VernacularNameMapper.class);
-    referenceMapper = ctx.getBean(ReferenceMapper.class);
-    typeSpecimenMapper = ctx.getBean(TypeSpecimenMapper.class);
-    this.datasetService = datasetService;
+    this(repository, datasetService, ctx.getBean(SqlSessionFactory.class), DEFAULT_THREADS);
   }
 
   /**
@@ -94,6 +99,32 @@ public class Exporter {
     return export(datasetService.get(datasetKey));
   }
 
+  /**
+   * A single data file written by a row handler from a dataset cursor.
+   */
+  private class FileExport<T> implements Callable<FileExport<?>> {
+    private final RowHandler<T> handler;
+    private final Function<SqlSession, Cursor<T>> cursor;
+    // the files in the dwca directory written by the handler
+    private final List<File> files;
+
+    FileExport(RowHandler<T> handler, Function<SqlSession, Cursor<T>> cursor, List<File> files) {
+      this.handler = handler;
+      this.cursor = cursor;
+      this.files = files;
+    }
+
+    @Override
+    public FileExport<?> call() throws Exception {
+      try (SqlSession session = sqlSessionFactory.openSession()) {
+        // postgres only streams results with a fetch size outside of autocommit mode
+        session.getConnection().setAutoCommit(false);
+        cursor.apply(session).forEach(handler);
+      }
+      return this;
+    }
+  }
+
   private class DwcaExport implements Runnable {
     private final EMLWriter emlWriter = EMLWriter.newInstance();
 
@@ -102,6 +133,9 @@ public class Exporter {
     private DwcaStreamWriter writer;
     private int counter;
     private int extCounter;
+    // all files of the dwca directory already attributed to a handler or added to the archive
+    private final Set<File> known = new HashSet<>();
+    private final Set<File> zipped = new HashSet<>();
 
     public DwcaExport(Dataset dataset) {
       this.dataset = dataset;
@@ -112,18 +146,23 @@ public class Exporter {
     public void run() {
       LOG.info("Start exporting checklist {} into DwC-A at {}", dataset.getKey(), dwca.getAbsolutePath());
       File tmp = Files.createTempDir();
+      File tmpZip = new File(repository, dataset.getKey().toString() + ".zip.tmp");
+      ExecutorService exec = Executors.newFixedThreadPool(threads, new NamedThreadFactory("dwca-export"));
       try {
-        exportDataFiles(tmp);
-        // zip it up to final location
         FileUtils.forceMkdir(dwca.getParentFile());
-        CompressionUtil.zipDir(tmp, dwca, true);
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(tmpZip)))) {
+          exportDataFiles(tmp, exec, zip);
+        }
+        java.nio.file.Files.move(tmpZip.toPath(), dwca.toPath(), StandardCopyOption.REPLACE_EXISTING);
 
         LOG.info("Done exporting checklist {} with {} usages and {} extensions into DwC-A at {}", dataset.getKey(), counter, extCounter, dwca.getAbsolutePath());
 
       } catch (Exception e) {
         LOG.error("Failed to create dwca for dataset {} at {}", dataset.getKey(), tmp.getAbsolutePath(), e);
+        FileUtils.deleteQuietly(tmpZip);
 
       } finally {
+        exec.shutdownNow();
         try {
           FileUtils.deleteDirectory(tmp);
         } catch (IOException e) {
@@ -132,78 +171,88 @@ public class Exporter {
       }
     }
 
-    @Transactional
-    public void exportDataFiles(File tmp) throws Exception {
-        writer = new DwcaStreamWriter(tmp, DwcTerm.Taxon, DwcTerm.taxonID, true);
-
-        // add EML
-        StringWriter emlString = new StringWriter();
-        emlWriter.writeTo(dataset, emlString);
-        writer.setMetadata(emlString.toString(), "eml.xml");
+    private void exportDataFiles(File tmp, ExecutorService exec, ZipOutputStream zip) throws Exception {
+      writer = new DwcaStreamWriter(tmp, DwcTerm.Taxon, DwcTerm.taxonID, true);
 
-        // write core taxa
-        try (RowHandler.TaxonHandler coreHandler = new RowHandler.TaxonHandler(writer, dataset.getKey())) {
-          usageMapper.processDataset(dataset.getKey()).forEach(coreHandler);
-          counter = coreHandler.getCounter();
-          LOG.info("Written {} core taxa", counter);
-
-          // add constituents
-          LOG.info("Adding {} constituents metadata", coreHandler.getConstituents().size());
-          for (UUID dkey : coreHandler.getConstituents()) {
-            Dataset constituent = datasetService.get(dkey);
-            if (constituent != null) {
-              StringWriter constituentEmlString = new StringWriter();
-              emlWriter.writeTo(constituent, constituentEmlString);
-              writer.addConstituent(constituent.getKey().toString(), constituentEmlString.toString());
-            }
-          }
-        }
+      // add EML
+      StringWriter emlString = new StringWriter();
+      emlWriter.writeTo(dataset, emlString);
+      writer.setMetadata(emlString.toString(), "eml.xml");
+      newFiles(tmp);
 
-        // descriptions
-        try (RowHandler.DescriptionHandler handler = new RowHandler.DescriptionHandler(writer)) {
-          descriptionMapper.processDataset(dataset.getKey()).forEach(handler);
-          LOG.info("Written {} description records", handler.getCounter());
-          extCounter = handler.getCounter();
-        }
+      // the stream writer is not thread safe, so all handlers are created and closed in this thread
+      final UUID key = dataset.getKey();
+      List<FileExport<?>> exports = new ArrayList<>();
+      RowHandler.TaxonHandler coreHandler = new RowHandler.TaxonHandler(writer, key);
+      exports.add(new FileExport<>(coreHandler, s -> s.getMapper(NameUsageMapper.class).processDataset(key), newFiles(tmp)));
+      exports.add(new FileExport<>(new RowHandler.DescriptionHandler(writer), s -> s.getMapper(DescriptionMapper.class).processDataset(key), newFiles(tmp)));
+      exports.add(new FileExport<>(new RowHandler.DistributionHandler(writer), s -> s.getMapper(DistributionMapper.class).processDataset(key), newFiles(tmp)));
+      exports.add(new FileExport<>(new RowHandler.NameUsageMediaObjectHandler(writer), s -> s.getMapper(MultimediaMapper.class).processDataset(key), newFiles(tmp)));
+      exports.add(new FileExport<>(new RowHandler.ReferenceHandler(writer), s -> s.getMapper(ReferenceMapper.class).processDataset(key), newFiles(tmp)));
+      exports.add(new FileExport<>(new RowHandler.TypeSpecimenHandler(writer), s -> s.getMapper(TypeSpecimenMapper.class).processDataset(key), newFiles(tmp)));
+      exports.add(new FileExport<>(new RowHandler.VernacularNameHandler(writer), s -> s.getMapper(VernacularNameMapper.class).processDataset(key), newFiles(tmp)));
 
-        // distributions
-        try (RowHandler.DistributionHandler handler = new RowHandler.DistributionHandler(writer)) {
-          distributionMapper.processDataset(dataset.getKey()).forEach(handler);
-          LOG.info("Written {} distribution records", handler.getCounter());
-          extCounter = +handler.getCounter();
+      CompletionService<FileExport<?>> completion = new ExecutorCompletionService<>(exec);
+      for (FileExport<?> fe : exports) {
+        completion.submit(fe);
+      }
+      for (int i = 0; i < exports.size(); i++) {
+        FileExport<?> fe = completion.take().get();
+        fe.handler.close();
+        LOG.info("Written {} {} records, {} records/s", fe.handler.getCounter(), fe.handler.getRowType().simpleName(), fe.handler.getRate());
+        if (fe.handler == coreHandler) {
+          counter = coreHandler.getCounter();
+          addConstituents(coreHandler);
+        } else {
+          extCounter += fe.handler.getCounter();
         }
+        zip(tmp, zip, fe.files);
+      }
 
-        // media
-        try (RowHandler.NameUsageMediaObjectHandler handler = new RowHandler.NameUsageMediaObjectHandler(writer)) {
-          mediaMapper.processDataset(dataset.getKey()).forEach(handler);
-          LOG.info("Written {} media records", handler.getCounter());
-          extCounter = +handler.getCounter();
-        }
+      // finish dwca and add the remaining metadata files
+      writer.close();
+      zip(tmp, zip, FileUtils.listFiles(tmp, null, true));
+    }
 
-        // references
-        try (RowHandler.ReferenceHandler handler = new RowHandler.ReferenceHandler(writer)) {
-          referenceMapper.processDataset(dataset.getKey()).forEach(handler);
-          LOG.info("Written {} reference records", handler.getCounter());
-          extCounter = +handler.getCounter();
+    private void addConstituents(RowHandler.TaxonHandler coreHandler) throws IOException {
+      LOG.info("Adding {} constituents metadata", coreHandler.getConstituents().size());
+      for (UUID dkey : coreHandler.getConstituents()) {
+        Dataset constituent = datasetService.get(dkey);
+        if (constituent != null) {
+          StringWriter constituentEmlString = new StringWriter();
+          emlWriter.writeTo(constituent, constituentEmlString);
+          writer.addConstituent(constituent.getKey().toString(), constituentEmlString.toString());
         }
+      }
+    }
 
-        // types
-        try (RowHandler.TypeSpecimenHandler handler = new RowHandler.TypeSpecimenHandler(writer)) {
-          typeSpecimenMapper.processDataset(dataset.getKey()).forEach(handler);
-          LOG.info("Written {} typification records", handler.getCounter());
-          extCounter = +handler.getCounter();
+    /**
+     * @return all files in the dwca directory that have not been seen before
+     */
+    private List<File> newFiles(File tmp) {
+      List<File> files = new ArrayList<>();
+      for (File f : FileUtils.listFiles(tmp, null, true)) {
+        if (known.add(f)) {
+          files.add(f);
         }
+      }
+      return files;
+    }
 
-        // vernacular names
-        try (RowHandler.VernacularNameHandler handler = new RowHandler.VernacularNameHandler(writer)) {
-          vernacularMapper.processDataset(dataset.getKey()).forEach(handler);
-          LOG.info("Written {} vernacular name records", handler.getCounter());
-          extCounter = +handler.getCounter();
+    /**
+     * Streams completed files into the archive, skipping the ones added before.
+     */
+    private void zip(File tmp, ZipOutputStream zip, Iterable<File> files) throws IOException {
+      for (File f : files) {
+        if (f.exists() && zipped.add(f)) {
+          Stopwatch watch = Stopwatch.createStarted();
+          String name = tmp.toPath().relativize(f.toPath()).toString().replace(File.separatorChar, '/');
+          zip.putNextEntry(new ZipEntry(name));
+          Files.copy(f, zip);
+          zip.closeEntry();
+          LOG.info("Added {} with {} bytes to archive in {}", name, f.length(), watch);
         }
-
-
-        // finish dwca
-        writer.close();
+      }
     }
   }
 
@@ -21,6 +21,7 @@ import org.gbif.dwc.DwcaStreamWriter;
 import org.gbif.dwc.terms.*;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import org.apache.commons.lang3.time.DateFormatUtils;
@@ -28,6 +29,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
@@ -39,6 +41,8 @@ abstract class RowHandler<T> implements Consumer<T>, AutoCloseable {
   private final DwcaStreamWriter.RowWriteHandler writer;
   private int counter;
   private final Term rowType;
+  // measures the time since the first record was added
+  private final Stopwatch watch = Stopwatch.createUnstarted();
 
   public RowHandler(DwcaStreamWriter writer, Term rowType, List<Term> columns) {
     int idx = 1;
@@ -54,9 +58,12 @@ abstract class RowHandler<T> implements Consumer<T>, AutoCloseable {
 
   @Override
   public void accept(T result) {
+    if (!watch.isRunning()) {
+      watch.start();
+    }
     writer.write(toRow(result));
-    if (counter++ % 100000 == 0) {
-      LOG.debug("{} {} records added to dwca", counter, rowType.simpleName());
+    if (++counter % 100000 == 0) {
+      LOG.info("{} {} records added to dwca, {} records/s", counter, rowType.simpleName(), getRate());
     }
   }
 
@@ -64,6 +71,18 @@ abstract class RowHandler<T> implements Consumer<T>, AutoCloseable {
     return counter;
   }
 
+  public Term getRowType() {
+    return rowType;
+  }
+
+  /**
+   * @return the number of records written per second
+   */
+  public long getRate() {
+    long millis = watch.elapsed(TimeUnit.MILLISECONDS);
+    return millis == 0 ? counter : counter * 1000L / millis;
+  }
+
   @Override
   public void close() throws Exception {
     writer.close();
@@ -15,6 +15,9 @@ package org.gbif.checklistbank.service.mybatis.persistence.mapper;
 
 import org.gbif.checklistbank.model.Citation;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
@@ -23,6 +26,11 @@ public interface CitationMapper {
 
   Integer getByCitation(@Param("citation") String citation);
 
+  /**
+   * @return key and citation of all existing records for the given citations
+   */
+  List<Citation> listByCitations(@Param("citations") Collection<String> citations);
+
   void insert(@Param("c") Citation citation);
 
 }
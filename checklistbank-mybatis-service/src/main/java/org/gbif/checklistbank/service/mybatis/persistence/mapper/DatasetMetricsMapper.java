@@ -14,6 +14,7 @@
 package org.gbif.checklistbank.service.mybatis.persistence.mapper;
 
 import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 
 import java.util.Date;
 import java.util.List;
@@ -32,6 +33,27 @@ public interface DatasetMetricsMapper {
 
   List<DatasetMetrics> list(@Param("uuid") UUID datasetKey);
 
-  void insert(@Param("uuid") UUID datasetKey, @Param("downloaded") Date downloaded);
+  /**
+   * Creates a new latest metrics record aggregating all counts in the database.
+   * @param pending if true use the staged counts of the last import and rematching instead where they exist
+   */
+  void insert(@Param("uuid") UUID datasetKey, @Param("downloaded") Date downloaded, @Param("pending") boolean pending);
+
+  /**
+   * Stages all counts accumulated during an import, replacing previously staged ones.
+   */
+  void stage(@Param("uuid") UUID datasetKey, @Param("m") DatasetMetricsCounter metrics);
+
+  /**
+   * Stages the backbone match counts of a rematching, keeping all other staged counts.
+   */
+  void stageMatches(@Param("uuid") UUID datasetKey, @Param("m") DatasetMetricsCounter metrics);
+
+  /**
+   * @return the columns of the staged counts that differ from the latest metrics record
+   */
+  List<String> listPendingDifferences(@Param("uuid") UUID datasetKey);
+
+  void deletePending(@Param("uuid") UUID datasetKey);
 
 }
@@ -20,6 +20,7 @@ import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.checklistbank.model.NameUsageWritable;
 import org.gbif.checklistbank.model.ParsedNameUsage;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -47,6 +48,17 @@ public interface NameUsageMapper {
    */
   Integer getKey(@Param("uuid") UUID datasetKey, @Param("taxonId") String taxonId);
 
+  /**
+   * Lists the existing usages for the given taxonIDs in a dataset with only the key and taxonID populated,
+   * ordered by their key.
+   */
+  List<NameUsage> listKeysByTaxonIds(@Param("uuid") UUID datasetKey, @Param("taxonIds") Collection<String> taxonIds);
+
+  /**
+   * Reserves the given number of new usage keys from the name usage id sequence.
+   */
+  List<Integer> nextKeys(@Param("size") int size);
+
   /**
    * A simple paging query for all non deleted usages in checklistbank.
    * We only return name usage ids here to avoid extremely heavy operations for the database when the offset gets
@@ -56,6 +68,34 @@ public interface NameUsageMapper {
    */
   List<Integer> list(@Nullable @Param("uuid") UUID datasetKey, @Param("page") Pageable page);
 
+  /**
+   * A keyset paging query for all non deleted usages in checklistbank.
+   * Unlike offset based paging the costs are the same for every page.
+   *
+   * @param lastKey the last key of the previous page or null to start with the first usage
+   * @return up to limit name usage ids greater than lastKey, ordered by their key
+   */
+  List<Integer> listAfter(@Nullable @Param("uuid") UUID datasetKey, @Nullable @Param("lastKey") Integer lastKey,
+                          @Param("limit") int limit);
+
+  /**
+   * Lists all non deleted usages within a fixed key range, e.g. between two keys of listPageStartKeys.
+   *
+   * @param fromKey the first key to include
+   * @param toKey   the key to stop before or null to include all remaining usages
+   * @return the name usage ids of the range, ordered by their key
+   */
+  List<Integer> listRange(@Nullable @Param("uuid") UUID datasetKey, @Param("fromKey") int fromKey,
+                          @Nullable @Param("toKey") Integer toKey);
+
+  /**
+   * Lists the first key of every page when paging through all non deleted usages ordered by their key,
+   * reading the key index only once.
+   *
+   * @return the first usage id of each page of the given size
+   */
+  List<Integer> listPageStartKeys(@Nullable @Param("uuid") UUID datasetKey, @Param("size") int size);
+
   /**
    * @return the number of non deleted name usages
    */
@@ -72,6 +112,13 @@ public interface NameUsageMapper {
 
   List<NameUsage> listChildren(@Param("key") int parentKey, @Param("page") Pageable page);
 
+  /**
+   * Lists the classification of a usage as stored in its materialized parent_path, starting with the root.
+   * For synonyms the accepted usage itself is excluded.
+   * Usages without a parent path yet return an empty list.
+   */
+  List<NameUsage> listParents(@Param("key") int usageKey);
+
   List<NameUsage> listSynonyms(@Param("key") int usageKey, @Param("page") Pageable page);
 
   List<NameUsage> listCombinations(@Param("key") int basionymKey);
@@ -118,14 +165,17 @@ public interface NameUsageMapper {
   void updateForeignKeys(@Param("key") int usageKey, @Param("par") Integer parentKey, @Param("bas") Integer basionymKey);
 
   /**
-   * @return the set of issues associated with the usage
+   * Materializes the parent_path of the given usages based on their parent_fk and the path of their parent.
+   * Parents within the given keys are resolved first, so a batch needs to contain entire subtrees
+   * or usages whose parents already have a path.
+   * Usages whose parent has no path yet are set to null.
    */
-  NameUsage getIssues(@Param("key") int usageKey);
+  void updateParentPaths(@Param("keys") Collection<Integer> usageKeys);
 
   /**
-   * @return list all usage keys that have a BACKBONE_MATCH_NONE issue.
+   * @return the set of issues associated with the usage
    */
-  Set<Integer> listNoMatchUsageKeys(@Param("uuid") UUID datasetKey);
+  NameUsage getIssues(@Param("key") int usageKey);
 
   /**
    * Update the name usage issues with the given set
@@ -17,6 +17,7 @@ import org.gbif.api.model.checklistbank.ParsedName;
 import org.gbif.api.model.common.paging.Pageable;
 import org.gbif.api.vocabulary.Rank;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -49,6 +50,11 @@ public interface ParsedNameMapper {
 
   ParsedName getByName(@Param("name") String scientificName, @Param("rank") Rank rank);
 
+  /**
+   * @return all stored names with any of the given scientific names regardless of their rank
+   */
+  List<ParsedName> listByNames(@Param("names") Collection<String> scientificNames);
+
   /**
    * Insert a new parsed name into the name table.
    */
@@ -37,14 +37,18 @@ public interface UsageMapper {
    */
   List<Integer> listParents(@Param("key") int usageKey);
 
+  Integer minKey();
+
+  Integer maxKey();
+
   /**
-   * Update a backbone name usage with the given source taxon key
+   * @return the postgres histogram bounds of the name_usage id column as an array literal or null if not analyzed yet
    */
-  void updateSourceTaxonKey(@Param("key") int nubKey, @Param("sourceTaxonKey") int sourceTaxonKey);
+  String keyHistogram();
 
   /**
-   * Sets sourceTaxonKey to null for all backbone name usages from a given constituent
+   * @return the number of name usages as estimated by postgres, -1 or 0 if never analyzed
    */
-  void deleteSourceTaxonKeyByConstituent(@Param("uuid") UUID constituentKey);
+  Long estimateCount();
 
 }
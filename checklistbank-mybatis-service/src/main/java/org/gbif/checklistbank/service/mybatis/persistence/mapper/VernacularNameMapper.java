@@ -15,6 +15,9 @@ package org.gbif.checklistbank.service.mybatis.persistence.mapper;
 
 import org.gbif.api.model.checklistbank.VernacularName;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.apache.ibatis.annotations.Param;
 import org.springframework.stereotype.Repository;
 
@@ -34,6 +37,18 @@ public interface VernacularNameMapper extends NameUsageComponentMapper<Vernacula
    */
   VernacularName getByNubUsage(@Param("key") int usageKey, @Param("lang") String language);
 
+  /**
+   * Retrieves the preferred vernacular name in the given language for each of the given checklist usages.
+   * Usages without a name in that language are absent from the result.
+   */
+  List<VernacularName> listPreferredByChecklistUsages(@Param("keys") Collection<Integer> usageKeys, @Param("lang") String language);
+
+  /**
+   * Retrieves the preferred vernacular name in the given language for each of the given nub usages.
+   * Usages without a name in that language are absent from the result.
+   */
+  List<VernacularName> listPreferredByNubUsages(@Param("keys") Collection<Integer> usageKeys, @Param("lang") String language);
+
   void insert(@Param("key") int usageKey, @Param("obj") VernacularName vernacularName, @Param("sourceKey") Integer sourceKey);
 
 }
@@ -43,7 +43,13 @@ public abstract class HstoreCountTypeHandler<KEY extends Comparable> extends Bas
   @Override
   public void setNonNullParameter(PreparedStatement ps, int i, Map<KEY, Integer> parameter, JdbcType jdbcType)
     throws SQLException {
-    ps.setString(i, HStoreConverter.toString(parameter));
+    Map<String, Integer> raw = Maps.newHashMap();
+    for (Map.Entry<KEY, Integer> entry : parameter.entrySet()) {
+      if (entry.getKey() != null && entry.getValue() != null) {
+        raw.put(fromKey(entry.getKey()), entry.getValue());
+      }
+    }
+    ps.setString(i, HStoreConverter.toString(raw));
   }
 
   @Override
@@ -94,4 +100,11 @@ public abstract class HstoreCountTypeHandler<KEY extends Comparable> extends Bas
 
   protected abstract KEY toKey(String key) throws IllegalArgumentException;
 
+  /**
+   * The reverse of toKey. Defaults to the enum name or string value of the key.
+   */
+  protected String fromKey(KEY key) {
+    return key instanceof Enum ? ((Enum<?>) key).name() : key.toString();
+  }
+
 }
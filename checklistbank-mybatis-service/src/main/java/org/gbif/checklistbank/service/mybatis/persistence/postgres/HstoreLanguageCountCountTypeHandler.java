@@ -22,4 +22,9 @@ public class HstoreLanguageCountCountTypeHandler extends HstoreCountTypeHandler<
     return Language.fromIsoCode(key);
   }
 
+  @Override
+  protected String fromKey(Language key) {
+    return key.getIso2LetterCode();
+  }
+
 }
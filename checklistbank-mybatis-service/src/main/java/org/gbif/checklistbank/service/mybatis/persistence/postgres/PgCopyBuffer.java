@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.service.mybatis.persistence.postgres;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Date;
+
+import org.postgresql.PGConnection;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+/**
+ * Buffers rows for a single table as CSV and writes them with one native postgres COPY command,
+ * which is considerably faster than even batched inserts for larger amounts of new records.
+ *
+ * Nulls are written as unquoted empty values, all other values are quoted.
+ * Enumerations are written by their name, collections as postgres array literals.
+ * Enum and array columns therefore rely on postgres casting the text values.
+ */
+public class PgCopyBuffer {
+  private static final Joiner COMMA_JOINER = Joiner.on(",");
+
+  private final String table;
+  private final String[] columns;
+  private final StringBuilder sb = new StringBuilder();
+  private int rows;
+
+  public PgCopyBuffer(String table, String... columns) {
+    this.table = table;
+    this.columns = columns;
+  }
+
+  /**
+   * Adds a new row with one value per column in the order given in the constructor.
+   */
+  public PgCopyBuffer add(Object... values) {
+    Preconditions.checkArgument(values.length == columns.length,
+        "Expected %s values for table %s but got %s", columns.length, table, values.length);
+    for (int i = 0; i < values.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      append(values[i]);
+    }
+    sb.append('\n');
+    rows++;
+    return this;
+  }
+
+  public int size() {
+    return rows;
+  }
+
+  /**
+   * @return the buffered rows as csv
+   */
+  String content() {
+    return sb.toString();
+  }
+
+  /**
+   * Copies all buffered rows to postgres and clears the buffer.
+   * The connection is not committed, so several tables can be copied in one transaction.
+   *
+   * @param con an open postgres connection, potentially wrapped by a pool
+   * @return number of copied rows
+   */
+  public long copy(Connection con) throws SQLException, IOException {
+    if (rows == 0) {
+      return 0;
+    }
+    String sql = "COPY " + table + " (" + COMMA_JOINER.join(columns) + ") FROM STDIN WITH (FORMAT csv)";
+    long cnt = con.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, new StringReader(sb.toString()));
+    sb.setLength(0);
+    rows = 0;
+    return cnt;
+  }
+
+  private void append(Object val) {
+    if (val == null) {
+      return;
+    }
+    String x;
+    if (val instanceof Enum) {
+      x = ((Enum<?>) val).name();
+    } else if (val instanceof Date) {
+      x = new Timestamp(((Date) val).getTime()).toString();
+    } else if (val instanceof Collection) {
+      StringBuilder arr = new StringBuilder("{");
+      boolean first = true;
+      for (Object o : (Collection<?>) val) {
+        if (!first) {
+          arr.append(',');
+        }
+        first = false;
+        if (o == null) {
+          arr.append("NULL");
+        } else {
+          arr.append('"')
+              .append((o instanceof Enum ? ((Enum<?>) o).name() : o.toString()).replace("\\", "\\\\").replace("\"", "\\\""))
+              .append('"');
+        }
+      }
+      x = arr.append('}').toString();
+    } else {
+      x = val.toString();
+    }
+    sb.append('"').append(x.replace("\"", "\"\"")).append('"');
+  }
+}
@@ -17,25 +17,56 @@ import org.gbif.checklistbank.model.Citation;
 import org.gbif.checklistbank.service.CitationService;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.CitationMapper;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
+/**
+ * Citation service keeping a bounded cache of citation keys shared by all sync threads,
+ * as the same citations are repeated very often within a dataset.
+ */
 @Service
 public class CitationServiceMyBatis implements CitationService {
-  private static final Logger LOG = LoggerFactory.getLogger(ParsedNameServiceMyBatis.class);
+  private static final Logger LOG = LoggerFactory.getLogger(CitationServiceMyBatis.class);
+  private static final int PRELOAD_BATCH_SIZE = 1000;
+  private static final int STATS_INTERVAL = 100000;
   private CitationMapper mapper;
+  private final Cache<String, Integer> cache;
+  private final AtomicLong lookups = new AtomicLong();
 
+  /**
+   * @param cacheSize maximum number of citation keys to cache. Zero disables the cache
+   * @param cacheTtl seconds to keep a cached key, limiting the impact of citations removed by other processes
+   */
   @Autowired
-  CitationServiceMyBatis(CitationMapper mapper) {
+  CitationServiceMyBatis(CitationMapper mapper,
+                         @Value("${checklistbank.import.citationCache.size:100000}") long cacheSize,
+                         @Value("${checklistbank.import.citationCache.ttl:3600}") long cacheTtl) {
     this.mapper = mapper;
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(Math.max(0, cacheSize))
+        .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
   }
 
   @Override
@@ -48,15 +79,22 @@ public class CitationServiceMyBatis implements CitationService {
     if (Strings.isNullOrEmpty(citation)) {
       return null;
     }
+    logStats();
+    Integer key = cache.getIfPresent(citation);
+    if (key != null) {
+      return key;
+    }
     try {
-      return createOrGetThrowing(citation, doi, link);
+      key = createOrGetThrowing(citation, doi, link);
     } catch (DataIntegrityViolationException e) {
       // we have a unique constraint in the database which can throw an exception when we
       // concurrently write the same name into the table
       // try to read and ignore exception if we can read the name
       LOG.info("Inserting citation >>>{}<<< failed, try to re-read", citation);
-      return createOrGetThrowing(citation, doi, link);
+      key = createOrGetThrowing(citation, doi, link);
     }
+    cache.put(citation, key);
+    return key;
   }
 
   @Transactional
@@ -71,4 +109,38 @@ public class CitationServiceMyBatis implements CitationService {
     }
     return key;
   }
+
+  @Override
+  public void preload(Collection<String> citations) {
+    Set<String> misses = Sets.newHashSet();
+    for (String c : citations) {
+      // check the map view so preloading does not count as cache misses
+      if (!Strings.isNullOrEmpty(c) && !cache.asMap().containsKey(c)) {
+        misses.add(c);
+      }
+    }
+    for (List<String> batch : Iterables.partition(misses, PRELOAD_BATCH_SIZE)) {
+      for (Citation c : mapper.listByCitations(batch)) {
+        cache.put(c.getCitation(), c.getKey());
+      }
+    }
+  }
+
+  public CacheStats getCacheStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Removes all cached keys, e.g. after citations have been deleted.
+   */
+  public void invalidateCache() {
+    cache.invalidateAll();
+  }
+
+  private void logStats() {
+    if (lookups.incrementAndGet() % STATS_INTERVAL == 0) {
+      CacheStats stats = cache.stats();
+      LOG.info("Citation cache with {} keys: hit rate={}, {} hits, {} misses", cache.size(), stats.hitRate(), stats.hitCount(), stats.missCount());
+    }
+  }
 }
@@ -18,28 +18,47 @@ import org.gbif.checklistbank.service.DatasetAnalysisService;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.DatasetMetricsMapper;
 
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+/**
+ * Persists new dataset metrics using the counts staged by the last import and rematching where they exist,
+ * aggregating only the remaining ones in the database.
+ * In verification mode all counts are aggregated in the database and compared to the staged ones.
+ */
 @Service
 public class DatasetAnalysisServiceMyBatis implements DatasetAnalysisService {
 
   private static final Logger LOG = LoggerFactory.getLogger(DatasetAnalysisServiceMyBatis.class);
   private final DatasetMetricsMapper mapper;
+  private final boolean verify;
 
   @Autowired
-  DatasetAnalysisServiceMyBatis(DatasetMetricsMapper mapper) {
+  DatasetAnalysisServiceMyBatis(DatasetMetricsMapper mapper,
+                                @Value("${checklistbank.analysis.verify:false}") boolean verify) {
     this.mapper = mapper;
+    this.verify = verify;
   }
 
   @Override
   public DatasetMetrics analyse(UUID datasetKey, Date downloaded) {
     LOG.info("Create new metrics for dataset {}", datasetKey);
-    mapper.insert(datasetKey, downloaded);
+    mapper.insert(datasetKey, downloaded, !verify);
+    if (verify) {
+      List<String> differences = mapper.listPendingDifferences(datasetKey);
+      if (differences.isEmpty()) {
+        LOG.info("Staged metrics for dataset {} verified", datasetKey);
+      } else {
+        LOG.warn("Staged metrics for dataset {} differ from the database in {}", datasetKey, differences);
+      }
+    }
+    mapper.deletePending(datasetKey);
     return mapper.get(datasetKey);
   }
 }
@@ -16,9 +16,8 @@ package org.gbif.checklistbank.service.mybatis.service;
 import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.model.checklistbank.NameUsageMetrics;
 import org.gbif.api.model.checklistbank.ParsedName;
-import org.gbif.api.model.checklistbank.VerbatimNameUsage;
 import org.gbif.checklistbank.logging.LogContext;
-import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.model.UsageForeignKeys;
 import org.gbif.checklistbank.service.DatasetImportService;
 import org.gbif.checklistbank.service.ImporterCallback;
@@ -115,24 +114,9 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
       return neoKeys;
     }
 
-    @Transactional
     private void write(List<Integer> neoNodeIdBatch) throws Exception {
-      for (Integer id : neoNodeIdBatch) {
-        NameUsage u = dao.readUsage(id);
-        ParsedName pn = dao.readName(id);
-        NameUsageMetrics m = dao.readMetrics(id);
-
-        boolean insert = dao.isInsert(u);
-        syncService.syncUsage(insert, u, pn, m);
-
-        // remember usageKey and things about this record
-        if (insert) {
-          inserts.add(id);
-        }
-        usageKeys.put(id, u.getKey());
-        // tell main importer about the new usageKey so we can prepare usages with good foreign keys
-        dao.reportUsageKey(id, u.getKey());
-      }
+      // the sync service tells the main importer about new usageKeys so we can prepare usages with good foreign keys
+      usageKeys.putAll(syncService.syncUsages(datasetKey, dao, neoNodeIdBatch, inserts));
     }
   }
 
@@ -165,6 +149,7 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
 
         boolean insert = dao.isInsert(u);
         syncService.syncUsage(insert, u, pn, m);
+        dao.reportSyncedUsage(u);
       }
       LOG.debug("Completed batch of {} pro parte usages", usages.size());
       LogContext.endDataset();
@@ -201,13 +186,12 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
       return ids;
     }
 
-    @Transactional
     private void write(List<Integer> ids) throws Exception {
+      Map<Integer, Integer> batch = Maps.newLinkedHashMap();
       for (Integer id : ids) {
-        VerbatimNameUsage v = dao.readVerbatim(id);
-        UsageExtensions e = dao.readExtensions(id);
-        syncService.syncUsageExtras(inserts.contains(id), datasetKey, usages.get(id), v, e);
+        batch.put(id, usages.get(id));
       }
+      syncService.syncUsageExtras(datasetKey, dao, batch, inserts);
     }
   }
 
@@ -268,12 +252,11 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
     return exec.submit(new ForeignKeySync(datasetKey, fks));
   }
 
-  @Transactional
   private List<Integer> updateForeignKeyBatch(List<UsageForeignKeys> fks) {
+    // one set based update for the entire batch
+    syncService.updateForeignKeys(fks);
     List<Integer> ids = Lists.newArrayList();
     for (UsageForeignKeys fk : fks) {
-      // update usage by usage doing both potential updates in one statement
-      syncService.updateForeignKeys(fk.getUsageKey(), fk.getParentKey(), fk.getBasionymKey());
       ids.add(fk.getUsageKey());
     }
     return ids;
@@ -294,6 +277,11 @@ public class DatasetImportServiceMyBatis implements DatasetImportService, AutoCl
     syncService.insertNubRelations(datasetKey, relations);
   }
 
+  @Override
+  public void stageMetrics(UUID datasetKey, DatasetMetricsCounter metrics) {
+    syncService.stageMetrics(datasetKey, metrics);
+  }
+
   @Override
   public int deleteDataset(UUID datasetKey) {
     return syncService.deleteDataset(datasetKey);
@@ -22,6 +22,7 @@ import org.gbif.checklistbank.model.RawUsage;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.*;
 
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 import javax.sql.DataSource;
@@ -29,11 +30,16 @@ import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
@@ -52,7 +58,13 @@ public class NameUsageServiceMyBatis implements NameUsageService {
   private final RawUsageMapper rawUsageMapper;
   private final VerbatimNameUsageMapperJson verbatimParser = new VerbatimNameUsageMapperJson();
   private final DataSource ds;
+  // preferred vernacular name by usage key and language, empty if there is none
+  private final Cache<String, Optional<String>> vernacularCache;
 
+  /**
+   * @param vernacularCacheSize maximum number of usage and language combinations to cache. Zero disables the cache
+   * @param vernacularCacheTtl seconds to keep a cached vernacular name
+   */
   @Autowired
   NameUsageServiceMyBatis(
       NameUsageMapper mapper,
@@ -60,13 +72,20 @@ public class NameUsageServiceMyBatis implements NameUsageService {
       NameUsageMetricsMapper metricsMapper,
       RawUsageMapper rawUsageMapper,
       ParsedNameMapper parsedNameMapper,
-      DataSource ds) {
+      DataSource ds,
+      @Value("${checklistbank.vernacularCache.size:10000}") long vernacularCacheSize,
+      @Value("${checklistbank.vernacularCache.ttl:3600}") long vernacularCacheTtl) {
     this.mapper = mapper;
     this.metricsMapper = metricsMapper;
     this.vernacularNameMapper = vernacularNameMapper;
     this.rawUsageMapper = rawUsageMapper;
     this.parsedNameMapper = parsedNameMapper;
     this.ds = ds;
+    vernacularCache = CacheBuilder.newBuilder()
+        .maximumSize(Math.max(0, vernacularCacheSize))
+        .expireAfterWrite(vernacularCacheTtl, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
   }
 
   @Override
@@ -133,7 +152,7 @@ public class NameUsageServiceMyBatis implements NameUsageService {
       // otherwise the db queries get too heavy for the database if offsets are high!
       List<Integer> usageIds = mapper.list(datasetKey, page);
       for (Integer uid : usageIds) {
-        usages.add(get(uid, locale));
+        usages.add(mapper.get(uid));
       }
     }
     return localizedPage(locale, usages, page);
@@ -150,10 +169,21 @@ public class NameUsageServiceMyBatis implements NameUsageService {
     return localizedPage(locale, usages, page);
   }
 
+  /**
+   * Reads the classification with a single query based on the materialized parent path.
+   * Usages without a path yet walk up the parent keys instead.
+   */
   @Override
   public List<NameUsage> listParents(int usageKey, @Nullable Locale locale) {
     LinkedList<NameUsage> parents = Lists.newLinkedList();
     NameUsage curr = get(usageKey, locale);
+    if (curr != null && curr.getParentKey() != null) {
+      List<NameUsage> path = mapper.listParents(usageKey);
+      if (!path.isEmpty()) {
+        addVernacularNames(path, getLanguage(locale));
+        return path;
+      }
+    }
     if (curr != null) {
       // make sure we don't hit some circular structures which should not exist really, but who
       // knows...
@@ -238,17 +268,51 @@ public class NameUsageServiceMyBatis implements NameUsageService {
   }
 
   /**
-   * Adds a matching vernacular name of a given language to a list of existing name usages. See
-   * {@link #addVernacularName(org.gbif.api.model.checklistbank.NameUsage, String)} for logic used
-   * in picking the common name.
+   * Adds a matching vernacular name of a given language to a list of existing name usages,
+   * picking the preferred one if there are several.
+   * Names not in the cache are loaded with a single query for all nub and one for all other usages.
    *
    * @param usages the checklist usages to add a vernacular name to
    * @param language the requested language
    */
   private void addVernacularNames(List<NameUsage> usages, @Nullable String language) {
     if (language == null) return;
+    Set<Integer> nubKeys = Sets.newHashSet();
+    Set<Integer> checklistKeys = Sets.newHashSet();
     for (NameUsage u : usages) {
-      addVernacularName(u, language);
+      if (u != null) {
+        Optional<String> name = vernacularCache.getIfPresent(cacheKey(u.getKey(), language));
+        if (name != null) {
+          name.ifPresent(u::setVernacularName);
+        } else {
+          (u.isNub() ? nubKeys : checklistKeys).add(u.getKey());
+        }
+      }
+    }
+    if (nubKeys.isEmpty() && checklistKeys.isEmpty()) {
+      return;
+    }
+
+    Map<Integer, String> names = Maps.newHashMap();
+    if (!nubKeys.isEmpty()) {
+      for (VernacularName v : vernacularNameMapper.listPreferredByNubUsages(nubKeys, language)) {
+        names.put(v.getTaxonKey(), v.getVernacularName());
+      }
+    }
+    if (!checklistKeys.isEmpty()) {
+      for (VernacularName v : vernacularNameMapper.listPreferredByChecklistUsages(checklistKeys, language)) {
+        names.put(v.getTaxonKey(), v.getVernacularName());
+      }
+    }
+    for (NameUsage u : usages) {
+      if (u != null && (nubKeys.contains(u.getKey()) || checklistKeys.contains(u.getKey()))) {
+        String name = names.get(u.getKey());
+        if (name != null) {
+          u.setVernacularName(name);
+        }
+        // also cache the absence of a name
+        vernacularCache.put(cacheKey(u.getKey(), language), Optional.ofNullable(name));
+      }
     }
   }
 
@@ -260,30 +324,17 @@ public class NameUsageServiceMyBatis implements NameUsageService {
    * @param language the requested language
    */
   private void addVernacularName(NameUsage u, @Nullable String language) {
-    if (u == null || language == null) {
-      return;
+    if (u != null) {
+      addVernacularNames(Collections.singletonList(u), language);
     }
+  }
 
-    // first try with given language
-    VernacularName v = getVernacularNameInLanguage(u, language);
-
-    if (v != null) {
-      u.setVernacularName(v.getVernacularName());
-    }
+  private static String cacheKey(int usageKey, String language) {
+    return usageKey + "|" + language;
   }
 
-  /**
-   * Gets a single vernacular name for a given language and a name usage.
-   *
-   * @param u the name usage of the vernacular name
-   * @param language the requested language, never null
-   * @return vernacular name or null if none can be found
-   */
-  private VernacularName getVernacularNameInLanguage(NameUsage u, String language) {
-    if (u.isNub()) {
-      return vernacularNameMapper.getByNubUsage(u.getKey(), language);
-    } else {
-      return vernacularNameMapper.getByChecklistUsage(u.getKey(), language);
-    }
+  @VisibleForTesting
+  CacheStats getVernacularCacheStats() {
+    return vernacularCache.stats();
   }
 }
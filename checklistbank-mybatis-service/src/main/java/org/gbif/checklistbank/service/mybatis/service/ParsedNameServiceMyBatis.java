@@ -15,30 +15,62 @@ package org.gbif.checklistbank.service.mybatis.service;
 
 import org.gbif.api.exception.UnparsableException;
 import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.service.ParsedNameService;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.ParsedNameMapper;
 import org.gbif.checklistbank.utils.NameParsers;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
 
+/**
+ * Parsed name service keeping a bounded cache of stored names by their scientific name and rank
+ * shared by all sync threads. Names without a rank are never cached as they cannot be looked up.
+ */
 @Service
 public class ParsedNameServiceMyBatis implements ParsedNameService {
   private static final Logger LOG = LoggerFactory.getLogger(ParsedNameServiceMyBatis.class);
+  private static final int PRELOAD_BATCH_SIZE = 1000;
+  private static final int STATS_INTERVAL = 100000;
   private ParsedNameMapper mapper;
+  private final Cache<String, ParsedName> cache;
+  private final AtomicLong lookups = new AtomicLong();
 
+  /**
+   * @param cacheSize maximum number of names to cache. Zero disables the cache
+   * @param cacheTtl seconds to keep a cached name, limiting the impact of orphaned names removed by other processes
+   */
   @Autowired
-  ParsedNameServiceMyBatis(ParsedNameMapper mapper) {
+  ParsedNameServiceMyBatis(ParsedNameMapper mapper,
+                           @Value("${checklistbank.import.nameCache.size:200000}") long cacheSize,
+                           @Value("${checklistbank.import.nameCache.ttl:3600}") long cacheTtl) {
     this.mapper = mapper;
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(Math.max(0, cacheSize))
+        .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
   }
 
   public ParsedName get(int key) {
@@ -67,21 +99,74 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
   @Transactional
   private ParsedName createOrGetThrowing(ParsedName preParsed, boolean update)
       throws DataIntegrityViolationException {
-    ParsedName pn = mapper.getByName(preParsed.getScientificName(), preParsed.getRank());
+    logStats();
+    ParsedName pn = null;
+    if (preParsed.getRank() != null) {
+      pn = cache.getIfPresent(cacheKey(preParsed.getScientificName(), preParsed.getRank()));
+    }
+    if (pn == null) {
+      pn = mapper.getByName(preParsed.getScientificName(), preParsed.getRank());
+    }
     if (pn == null) {
       // try to write the name to postgres
       mapper.create(preParsed);
-    } else if (update && !pn.equals(preParsed)) {
+    } else {
       // is it different?
       preParsed.setKey(pn.getKey());
-      mapper.update(preParsed);
-
-    } else {
-      return pn;
+      if (update && !pn.equals(preParsed)) {
+        mapper.update(preParsed);
+      } else {
+        cache(pn);
+        return pn;
+      }
     }
+    cache(preParsed);
     return preParsed;
   }
 
+  @Override
+  public void preload(Collection<ParsedName> names) {
+    Set<String> misses = Sets.newHashSet();
+    for (ParsedName pn : names) {
+      // check the map view so preloading does not count as cache misses
+      if (pn != null && pn.getRank() != null && !Strings.isNullOrEmpty(pn.getScientificName())
+          && !cache.asMap().containsKey(cacheKey(pn.getScientificName(), pn.getRank()))) {
+        misses.add(pn.getScientificName());
+      }
+    }
+    for (List<String> batch : Iterables.partition(misses, PRELOAD_BATCH_SIZE)) {
+      mapper.listByNames(batch).forEach(this::cache);
+    }
+  }
+
+  public CacheStats getCacheStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Removes all cached names, e.g. after names have been deleted.
+   */
+  public void invalidateCache() {
+    cache.invalidateAll();
+  }
+
+  private void cache(ParsedName pn) {
+    if (pn.getKey() != null && pn.getRank() != null) {
+      cache.put(cacheKey(pn.getScientificName(), pn.getRank()), pn);
+    }
+  }
+
+  private static String cacheKey(String scientificName, Rank rank) {
+    return rank.name() + '|' + scientificName;
+  }
+
+  private void logStats() {
+    if (lookups.incrementAndGet() % STATS_INTERVAL == 0) {
+      CacheStats stats = cache.stats();
+      LOG.info("Name cache with {} names: hit rate={}, {} hits, {} misses", cache.size(), stats.hitRate(), stats.hitCount(), stats.missCount());
+    }
+  }
+
   @Override
   public int deleteOrphaned() {
     int deletedAll = 0;
@@ -95,6 +180,7 @@ public class ParsedNameServiceMyBatis implements ParsedNameService {
         deletedAll = deletedAll + deleted;
       }
     }
+    invalidateCache();
     return deletedAll;
   }
 
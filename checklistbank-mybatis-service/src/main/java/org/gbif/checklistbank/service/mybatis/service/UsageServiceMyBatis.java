@@ -22,12 +22,15 @@ import org.gbif.checklistbank.service.mybatis.persistence.postgres.IntArrayPgWri
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.lang3.StringUtils;
 import org.postgresql.PGConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,6 +76,29 @@ public class UsageServiceMyBatis implements UsageService {
     }
   }
 
+  @Override
+  public int[] keyHistogram() {
+    Integer min = usageMapper.minKey();
+    Integer max = usageMapper.maxKey();
+    if (min == null || max == null) {
+      return new int[0];
+    }
+    String hist = StringUtils.strip(usageMapper.keyHistogram(), "{}");
+    IntStream bounds = StringUtils.isBlank(hist) ? IntStream.empty() :
+        Arrays.stream(hist.split(",")).mapToInt(x -> Integer.parseInt(x.trim()));
+    // the sampled bounds can be outdated, keep only those between the real min and max
+    return IntStream.concat(
+        IntStream.concat(IntStream.of(min), bounds.filter(x -> x > min && x < max).sorted().distinct()),
+        min < max ? IntStream.of(max) : IntStream.empty()
+    ).toArray();
+  }
+
+  @Override
+  public long estimateCount() {
+    Long cnt = usageMapper.estimateCount();
+    return cnt == null ? -1 : cnt;
+  }
+
   @Override
   public Integer maxUsageKey(UUID datasetKey) {
     return mapper.maxUsageKey(datasetKey);
@@ -21,35 +21,55 @@ import org.gbif.api.vocabulary.IdentifierType;
 import org.gbif.api.vocabulary.NameUsageIssue;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.logging.LogContext;
+import org.gbif.checklistbank.model.Citation;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.model.NameUsageWritable;
 import org.gbif.checklistbank.model.RawUsage;
 import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.model.UsageForeignKeys;
 import org.gbif.checklistbank.service.CitationService;
+import org.gbif.checklistbank.service.ImporterCallback;
 import org.gbif.checklistbank.service.ParsedNameService;
 import org.gbif.checklistbank.service.UsageSyncService;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.*;
+import org.gbif.checklistbank.service.mybatis.persistence.postgres.PgCopyBuffer;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
+import javax.sql.DataSource;
 
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Isolation;
-import org.springframework.transaction.annotation.Transactional;
 
 import com.codahale.metrics.Meter;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 /**
  * Implements the insert and update methods for a single name usage and its related verbatim,
  * extension and metrics data.
+ * Batches of usages are written through a separate MyBatis batch session, grouping all statements by table
+ * so they are sent to postgres as a single JDBC batch each.
+ * New records of a batch, i.e. all records of a dataset imported for the first time, are streamed
+ * with native postgres COPY commands instead.
  */
 @Service
 public class UsageSyncServiceMyBatis implements UsageSyncService {
@@ -73,6 +93,8 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
   private final TypeSpecimenMapper typeSpecimenMapper;
   private final VernacularNameMapper vernacularNameMapper;
   private final DatasetMetricsMapper datasetMetricsMapper;
+  private final SqlSessionFactory sqlSessionFactory;
+  private final DataSource ds;
   // global meter/counters across all datasets
   private final Meter meterUsages = new Meter();
   private final Meter meterExtensions = new Meter();
@@ -96,7 +118,9 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
       SpeciesProfileMapper speciesProfileMapper,
       TypeSpecimenMapper typeSpecimenMapper,
       VernacularNameMapper vernacularNameMapper,
-      DatasetMetricsMapper datasetMetricsMapper) {
+      DatasetMetricsMapper datasetMetricsMapper,
+      SqlSessionFactory sqlSessionFactory,
+      DataSource ds) {
     this.nameUsageMapper = nameUsageMapper;
     this.metricsMapper = metricsMapper;
     this.nameService = nameService;
@@ -113,6 +137,8 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
     this.typeSpecimenMapper = typeSpecimenMapper;
     this.vernacularNameMapper = vernacularNameMapper;
     this.datasetMetricsMapper = datasetMetricsMapper;
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.ds = ds;
   }
 
   /**
@@ -159,14 +185,8 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
             usage.getDatasetKey());
       }
 
-      // count
-      meterUsages.mark();
-      int cnt = counterUsages.incrementAndGet();
-      if (cnt % 10000 == 0) {
-        LogContext.startDataset(usage.getDatasetKey());
-        LOG.info("Synced {} usages, mean rate={}", cnt, meterUsages.getMeanRate());
-        LogContext.endDataset();
-      }
+      nameUsageMapper.updateParentPaths(ImmutableList.of(usage.getKey()));
+      countUsages(usage.getDatasetKey(), 1);
       return usage.getKey();
 
     } catch (RuntimeException e) {
@@ -183,8 +203,14 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
       int usageKey,
       @Nullable VerbatimNameUsage verbatim,
       @Nullable UsageExtensions extensions) {
+    ExtensionMappers mappers = new ExtensionMappers();
     // insert extension data
-    syncExtensions(usageKey, !insert, extensions);
+    if (!insert) {
+      deleteExtensions(mappers, ImmutableList.of(usageKey));
+    }
+    if (extensions != null) {
+      insertExtensions(mappers, ImmutableMap.of(usageKey, extensions));
+    }
 
     // update or insert verbatim
     // we delete and insert instead of updates to avoid updating non existing records
@@ -192,12 +218,257 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
     rawMapper.delete(usageKey);
 
     // insert verbatim
-    insertVerbatim(verbatim, datasetKey, usageKey);
+    insertVerbatim(rawMapper, verbatim, datasetKey, usageKey);
+
+    countExtensions(datasetKey, 1);
+  }
+
+  @Override
+  public Map<Integer, Integer> syncUsages(UUID datasetKey, ImporterCallback callback, List<Integer> ids, Set<Integer> inserts) {
+    final boolean nub = Constants.NUB_DATASET_KEY.equals(datasetKey);
+    // find previous usageKeys for the entire batch based on the dataset specific taxonID
+    Map<String, Integer> previousKeys = Maps.newHashMap();
+    Iterator<Integer> newKeys = Collections.emptyIterator();
+    if (!nub) {
+      List<String> taxonIDs = Lists.newArrayList();
+      for (Integer id : ids) {
+        taxonIDs.add(callback.readTaxonID(id));
+      }
+      List<String> nonNullIDs = taxonIDs.stream().filter(Objects::nonNull).collect(Collectors.toList());
+      if (!nonNullIDs.isEmpty()) {
+        for (NameUsage u : nameUsageMapper.listKeysByTaxonIds(datasetKey, nonNullIDs)) {
+          // like getKey select the first key in case of non unique taxonIDs
+          previousKeys.putIfAbsent(u.getTaxonID(), u.getKey());
+        }
+      }
+      // reserve exactly one key for every usage without a taxonID and every new taxonID.
+      // Forced inserts with a previous key keep that key
+      Set<String> newTaxonIDs = new HashSet<>();
+      int missing = 0;
+      for (String taxonID : taxonIDs) {
+        if (taxonID == null || !previousKeys.containsKey(taxonID) && newTaxonIDs.add(taxonID)) {
+          missing++;
+        }
+      }
+      if (missing > 0) {
+        newKeys = nameUsageMapper.nextKeys(missing).iterator();
+      }
+    }
+
+    // names do not depend on other usages, read them upfront to resolve existing name keys with a single query
+    Map<Integer, ParsedName> names = Maps.newHashMap();
+    for (Integer id : ids) {
+      names.put(id, callback.readName(id));
+    }
+    nameService.preload(names.values());
+
+    Map<Integer, Integer> usageKeys = Maps.newLinkedHashMap();
+    List<NameUsage> usages = Lists.newArrayList();
+    List<NameUsageWritable> newUsages = Lists.newArrayList();
+    List<NameUsageWritable> updatedUsages = Lists.newArrayList();
+    List<NameUsageMetrics> newMetrics = Lists.newArrayList();
+    List<NameUsageMetrics> updatedMetrics = Lists.newArrayList();
+    List<Integer> nubRelDeletions = Lists.newArrayList();
+    Map<Integer, Integer> newNubRels = Maps.newLinkedHashMap();
+    Map<Integer, Integer> updatedNubRels = Maps.newLinkedHashMap();
+    for (Integer id : ids) {
+      NameUsage u = callback.readUsage(id);
+      ParsedName pn = names.get(id);
+      NameUsageMetrics m = callback.readMetrics(id);
+      Preconditions.checkNotNull(u);
+      Preconditions.checkNotNull(pn);
+      Preconditions.checkNotNull(m);
+      u.setDatasetKey(datasetKey);
+
+      boolean insert = callback.isInsert(u);
+      if (!nub) {
+        u.setKey(previousKeys.get(u.getTaxonID()));
+      }
+      if (u.getKey() == null || insert) {
+        insert = true;
+        if (u.getKey() == null) {
+          // keys are reserved upfront so inserts can be batched and self references resolved.
+          // Nub usages come with their keys, so do datasets unless the taxonIDs changed since they were read
+          if (!newKeys.hasNext()) {
+            newKeys = nameUsageMapper.nextKeys(1).iterator();
+          }
+          u.setKey(newKeys.next());
+        }
+        if (!nub && u.getTaxonID() != null) {
+          previousKeys.put(u.getTaxonID(), u.getKey());
+        }
+        inserts.add(id);
+      }
+      updateSelfReferences(u);
+      // tell the importer about the usageKey before the next usage is read so it can resolve foreign keys
+      callback.reportUsageKey(id, u.getKey());
+      usageKeys.put(id, u.getKey());
+      usages.add(u);
+
+      try {
+        NameUsageWritable uw = toWritable(datasetKey, u, pn, m);
+        m.setKey(u.getKey());
+        if (insert) {
+          newUsages.add(uw);
+          newMetrics.add(m);
+        } else {
+          updatedUsages.add(uw);
+          updatedMetrics.add(m);
+        }
+        if (!nub) {
+          if (!insert) {
+            nubRelDeletions.add(u.getKey());
+          }
+          if (u.getNubKey() != null) {
+            (insert ? newNubRels : updatedNubRels).put(u.getKey(), u.getNubKey());
+          }
+        }
+      } catch (RuntimeException e) {
+        LOG.error("Error while syncing usage {}: {}", u.getKey(), pn.getScientificName());
+        throw e;
+      }
+    }
+
+    // usages first so all foreign keys exist, inserts before updates as updated records might point to new ones
+    try {
+      copyNewUsages(datasetKey, newUsages, newMetrics, newNubRels);
+
+    } catch (SQLException | IOException e) {
+      LOG.error("Error while copying batch of {} new usages starting with usage {}", newUsages.size(), newUsages.get(0).getKey());
+      throw new IllegalStateException("Failed to copy new usages", e);
+    }
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      NameUsageMapper usageBatch = session.getMapper(NameUsageMapper.class);
+      updatedUsages.forEach(usageBatch::update);
+      NameUsageMetricsMapper metricsBatch = session.getMapper(NameUsageMetricsMapper.class);
+      updatedMetrics.forEach(metricsBatch::update);
+      NubRelMapper nubRelBatch = session.getMapper(NubRelMapper.class);
+      nubRelDeletions.forEach(nubRelBatch::delete);
+      updatedNubRels.forEach((key, nubKey) -> nubRelBatch.insert(datasetKey, key, nubKey));
+      session.commit();
+      // batches are in taxonomic order and parents of the first usages have been synced before
+      nameUsageMapper.updateParentPaths(usageKeys.values());
+
+    } catch (RuntimeException e) {
+      LOG.error("Error while syncing batch of {} usages starting with usage {}", ids.size(), Iterables.getFirst(usageKeys.values(), null));
+      throw e;
+    }
+
+    usages.forEach(callback::reportSyncedUsage);
+    countUsages(datasetKey, ids.size());
+    return usageKeys;
+  }
+
+  /**
+   * Streams new usages, their metrics and nub relations to postgres in a single transaction.
+   * The last_interpreted timestamp is left to the column default.
+   */
+  private void copyNewUsages(UUID datasetKey, List<NameUsageWritable> usages, List<NameUsageMetrics> metrics,
+                             Map<Integer, Integer> nubRels) throws SQLException, IOException {
+    if (usages.isEmpty()) {
+      return;
+    }
+    PgCopyBuffer usageBuf = new PgCopyBuffer("name_usage", "id", "dataset_key", "constituent_key", "name_fk", "rank",
+        "parent_fk", "is_synonym", "status", "nom_status", "issues", "name_published_in_fk", "according_to_fk", "origin",
+        "remarks", "\"references\"", "taxon_id", "source_taxon_key", "modified", "num_descendants",
+        "pp_synonym_fk", "basionym_fk",
+        "kingdom_fk", "phylum_fk", "class_fk", "order_fk", "family_fk", "genus_fk", "subgenus_fk", "species_fk");
+    for (NameUsageWritable u : usages) {
+      usageBuf.add(u.getKey(), datasetKey, u.getConstituentKey(), u.getNameKey(), u.getRank(),
+          u.getParentKey(), u.isSynonym(), u.getTaxonomicStatus(), u.getNomenclaturalStatus(), u.getIssues(),
+          u.getPublishedInKey(), u.getAccordingToKey(), u.getOrigin(),
+          u.getRemarks(), u.getReferences(), u.getTaxonID(), u.getSourceTaxonKey(), u.getModified(), u.getNumDescendants(),
+          u.getProParteKey(), u.getBasionymKey(),
+          u.getKingdomKey(), u.getPhylumKey(), u.getClassKey(), u.getOrderKey(), u.getFamilyKey(), u.getGenusKey(),
+          u.getSubgenusKey(), u.getSpeciesKey());
+    }
+    PgCopyBuffer metricsBuf = new PgCopyBuffer("name_usage_metrics", "usage_fk", "dataset_key", "count_children",
+        "count_synonyms", "count_p", "count_c", "count_o", "count_f", "count_g", "count_sg", "count_s");
+    for (NameUsageMetrics m : metrics) {
+      metricsBuf.add(m.getKey(), datasetKey, m.getNumChildren(), m.getNumSynonyms(), m.getNumPhylum(), m.getNumClass(),
+          m.getNumOrder(), m.getNumFamily(), m.getNumGenus(), m.getNumSubgenus(), m.getNumSpecies());
+    }
+    PgCopyBuffer nubRelBuf = new PgCopyBuffer("nub_rel", "dataset_key", "usage_fk", "nub_fk");
+    nubRels.forEach((key, nubKey) -> nubRelBuf.add(datasetKey, key, nubKey));
+
+    try (Connection con = ds.getConnection()) {
+      con.setAutoCommit(false);
+      usageBuf.copy(con);
+      metricsBuf.copy(con);
+      nubRelBuf.copy(con);
+      con.commit();
+    }
+  }
+
+  @Override
+  public void syncUsageExtras(UUID datasetKey, ImporterCallback callback, Map<Integer, Integer> usageKeys, Set<Integer> inserts) {
+    Map<Integer, UsageExtensions> extensions = Maps.newLinkedHashMap();
+    Map<Integer, VerbatimNameUsage> verbatims = Maps.newLinkedHashMap();
+    List<Integer> updates = Lists.newArrayList();
+    for (Map.Entry<Integer, Integer> e : usageKeys.entrySet()) {
+      UsageExtensions ext = callback.readExtensions(e.getKey());
+      if (ext != null) {
+        extensions.put(e.getValue(), ext);
+      }
+      VerbatimNameUsage v = callback.readVerbatim(e.getKey());
+      if (v != null) {
+        verbatims.put(e.getValue(), v);
+      }
+      if (!inserts.contains(e.getKey())) {
+        updates.add(e.getValue());
+      }
+    }
+    citationService.preload(citations(extensions.values()));
+
+    try (SqlSession session = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      ExtensionMappers mappers = new ExtensionMappers(session);
+      // remove previous records of updated usages. Inserted usages cannot have any
+      deleteExtensions(mappers, updates);
+      updates.forEach(mappers.raw::delete);
+      insertExtensions(mappers, extensions);
+      PgCopyBuffer rawBuf = new PgCopyBuffer("raw_usage", "usage_fk", "dataset_key", "json");
+      for (Map.Entry<Integer, Integer> e : usageKeys.entrySet()) {
+        VerbatimNameUsage v = verbatims.get(e.getValue());
+        if (v != null) {
+          if (inserts.contains(e.getKey())) {
+            rawBuf.add(e.getValue(), datasetKey, vParser.write(v));
+          } else {
+            insertVerbatim(mappers.raw, v, datasetKey, e.getValue());
+          }
+        }
+      }
+      // verbatim json is the bulk of the data, stream it for new usages on the same connection before committing
+      session.flushStatements();
+      rawBuf.copy(session.getConnection());
+      session.commit();
+      extensions.values().forEach(callback::reportSyncedExtensions);
+
+    } catch (SQLException | IOException e) {
+      LOG.error("Failed to copy verbatim records for batch of {} usages starting with usage {}", usageKeys.size(), Iterables.getFirst(usageKeys.values(), null));
+      throw new IllegalStateException("Failed to copy verbatim records", e);
+
+    } catch (RuntimeException e) {
+      LOG.error("Failed to sync extensions for batch of {} usages starting with usage {}", usageKeys.size(), Iterables.getFirst(usageKeys.values(), null));
+      throw e;
+    }
+
+    countExtensions(datasetKey, usageKeys.size());
+  }
+
+  private void countUsages(UUID datasetKey, int size) {
+    meterUsages.mark(size);
+    int cnt = counterUsages.addAndGet(size);
+    if (cnt / 10000 != (cnt - size) / 10000) {
+      LogContext.startDataset(datasetKey);
+      LOG.info("Synced {} usages, mean rate={}", cnt, meterUsages.getMeanRate());
+      LogContext.endDataset();
+    }
+  }
 
-    // count
-    meterExtensions.mark();
-    int cnt = counterExtensions.incrementAndGet();
-    if (cnt % 10000 == 0) {
+  private void countExtensions(UUID datasetKey, int size) {
+    meterExtensions.mark(size);
+    int cnt = counterExtensions.addAndGet(size);
+    if (cnt / 10000 != (cnt - size) / 10000) {
       LogContext.startDataset(datasetKey);
       LOG.info("Synced {} usage supplements, mean rate={}", cnt, meterExtensions.getMeanRate());
       LogContext.endDataset();
@@ -207,6 +478,47 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
   @Override
   public void updateForeignKeys(int usageKey, Integer parentKey, Integer basionymKey) {
     nameUsageMapper.updateForeignKeys(usageKey, parentKey, basionymKey);
+    if (parentKey != null) {
+      nameUsageMapper.updateParentPaths(ImmutableList.of(usageKey));
+    }
+  }
+
+  /**
+   * Copies all keys into a temporary table and updates the usages with a single statement.
+   * Null keys keep the existing value, just as with the single usage update.
+   * Parent paths of usages with a new parent and all their descendants are updated in the same transaction.
+   */
+  @Override
+  public void updateForeignKeys(List<UsageForeignKeys> fks) {
+    PgCopyBuffer buf = new PgCopyBuffer("fk_update", "id", "parent_fk", "basionym_fk");
+    for (UsageForeignKeys fk : fks) {
+      buf.add(fk.getUsageKey(), fk.getParentKey(), fk.getBasionymKey());
+    }
+    try (Connection con = ds.getConnection()) {
+      con.setAutoCommit(false);
+      try (Statement st = con.createStatement()) {
+        st.execute("CREATE TEMP TABLE fk_update (id int, parent_fk int, basionym_fk int) ON COMMIT DROP");
+        buf.copy(con);
+        st.executeUpdate("UPDATE name_usage u SET parent_fk=coalesce(t.parent_fk, u.parent_fk), "
+            + "basionym_fk=coalesce(t.basionym_fk, u.basionym_fk) FROM fk_update t WHERE u.id=t.id");
+        // descendants can be reached from several updated usages, the path from the topmost one wins
+        st.executeUpdate("WITH RECURSIVE t AS ("
+            + "  SELECT u.id, CASE WHEN u.parent_fk IS NULL THEN '{}'::int[] WHEN p.parent_path IS NULL THEN NULL "
+            + "    ELSE p.parent_path || p.id END AS path, 0 AS depth"
+            + "  FROM fk_update f JOIN name_usage u ON u.id=f.id LEFT JOIN name_usage p ON p.id=u.parent_fk"
+            + "  WHERE f.parent_fk IS NOT NULL"
+            + " UNION ALL"
+            + "  SELECT c.id, t.path || t.id, t.depth + 1"
+            + "  FROM t JOIN name_usage c ON c.parent_fk=t.id"
+            + "  WHERE c.id != t.id AND t.path IS NOT NULL AND t.depth < 100"
+            + ") UPDATE name_usage u SET parent_path=x.path"
+            + " FROM (SELECT DISTINCT ON (id) id, path FROM t ORDER BY id, depth DESC) x WHERE u.id=x.id");
+      }
+      con.commit();
+
+    } catch (SQLException | IOException e) {
+      throw new IllegalStateException("Failed to update foreign keys of " + fks.size() + " usages", e);
+    }
   }
 
   /** @return the usage key for the inserted record */
@@ -235,110 +547,156 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
     return uw.getKey();
   }
 
-  private void insertVerbatim(@Nullable VerbatimNameUsage verbatim, UUID datasetKey, int usageKey) {
+  private void insertVerbatim(RawUsageMapper mapper, @Nullable VerbatimNameUsage verbatim, UUID datasetKey, int usageKey) {
     if (verbatim != null) {
       RawUsage raw = new RawUsage();
       raw.setUsageKey(usageKey);
       raw.setDatasetKey(datasetKey);
       raw.setJson(vParser.write(verbatim));
-      rawMapper.insert(raw);
+      mapper.insert(raw);
     }
   }
 
-  private void syncExtensions(final int usageKey, boolean removeBefore, UsageExtensions ext) {
-    if (removeBefore) {
-      // remove all previous extension records
-      // remove all previous extension records
-      descriptionMapper.deleteByUsage(usageKey);
-      distributionMapper.deleteByUsage(usageKey);
-      identifierMapper.deleteByUsage(usageKey);
-      multimediaMapper.deleteByUsage(usageKey);
-      referenceMapper.deleteByUsage(usageKey);
-      speciesProfileMapper.deleteByUsage(usageKey);
-      typeSpecimenMapper.deleteByUsage(usageKey);
-      vernacularNameMapper.deleteByUsage(usageKey);
+  /**
+   * The mappers needed to write extension and verbatim records.
+   * Either the regular spring managed ones or those bound to a batch session.
+   */
+  private class ExtensionMappers {
+    final DescriptionMapper description;
+    final DistributionMapper distribution;
+    final IdentifierMapper identifier;
+    final MultimediaMapper multimedia;
+    final ReferenceMapper reference;
+    final SpeciesProfileMapper speciesProfile;
+    final TypeSpecimenMapper typeSpecimen;
+    final VernacularNameMapper vernacularName;
+    final RawUsageMapper raw;
+
+    ExtensionMappers() {
+      description = descriptionMapper;
+      distribution = distributionMapper;
+      identifier = identifierMapper;
+      multimedia = multimediaMapper;
+      reference = referenceMapper;
+      speciesProfile = speciesProfileMapper;
+      typeSpecimen = typeSpecimenMapper;
+      vernacularName = vernacularNameMapper;
+      raw = rawMapper;
+    }
+
+    ExtensionMappers(SqlSession session) {
+      description = session.getMapper(DescriptionMapper.class);
+      distribution = session.getMapper(DistributionMapper.class);
+      identifier = session.getMapper(IdentifierMapper.class);
+      multimedia = session.getMapper(MultimediaMapper.class);
+      reference = session.getMapper(ReferenceMapper.class);
+      speciesProfile = session.getMapper(SpeciesProfileMapper.class);
+      typeSpecimen = session.getMapper(TypeSpecimenMapper.class);
+      vernacularName = session.getMapper(VernacularNameMapper.class);
+      raw = session.getMapper(RawUsageMapper.class);
     }
 
-    if (ext == null) return;
+    List<NameUsageComponentMapper<?>> components() {
+      return ImmutableList.of(description, distribution, identifier, multimedia, reference, speciesProfile,
+          typeSpecimen, vernacularName);
+    }
+  }
 
+  /**
+   * Removes all previous extension records of the given usages, grouped by table.
+   */
+  private static void deleteExtensions(ExtensionMappers mappers, List<Integer> usageKeys) {
+    for (NameUsageComponentMapper<?> mapper : mappers.components()) {
+      for (Integer key : usageKeys) {
+        mapper.deleteByUsage(key);
+      }
+    }
+  }
+
+  /**
+   * Inserts all extension records of the given usages keyed on their usageKey, grouped by table.
+   */
+  private void insertExtensions(ExtensionMappers mappers, Map<Integer, UsageExtensions> extensions) {
     try {
-      for (Description d : ext.descriptions) {
-        Integer sk = citationService.createOrGet(d.getSource());
-        descriptionMapper.insert(usageKey, d, sk);
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (Description d : e.getValue().descriptions) {
+          mappers.description.insert(e.getKey(), d, citationService.createOrGet(d.getSource()));
+        }
       }
-      for (Distribution d : ext.distributions) {
-        distributionMapper.insert(usageKey, d, citationService.createOrGet(d.getSource()));
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (Distribution d : e.getValue().distributions) {
+          mappers.distribution.insert(e.getKey(), d, citationService.createOrGet(d.getSource()));
+        }
       }
-      for (Identifier i : ext.identifiers) {
-        if (i.getType() == null) {
-          i.setType(IdentifierType.UNKNOWN);
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (Identifier i : e.getValue().identifiers) {
+          if (i.getType() == null) {
+            i.setType(IdentifierType.UNKNOWN);
+          }
+          mappers.identifier.insert(e.getKey(), i);
         }
-        identifierMapper.insert(usageKey, i);
       }
-      for (NameUsageMediaObject m : ext.media) {
-        multimediaMapper.insert(usageKey, m, citationService.createOrGet(m.getSource()));
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (NameUsageMediaObject m : e.getValue().media) {
+          mappers.multimedia.insert(e.getKey(), m, citationService.createOrGet(m.getSource()));
+        }
       }
-      for (Reference r : ext.referenceList) {
-        String citation = r.getCitation();
-        if (Strings.isNullOrEmpty(citation)) {
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (Reference r : e.getValue().referenceList) {
           // try to build from pieces if full citation is not given!!!
-          citation = buildCitation(r);
-        }
-        if (!Strings.isNullOrEmpty(citation)) {
-          referenceMapper.insert(
-              usageKey, citationService.createOrGet(citation, r.getDoi(), r.getLink()), r);
+          String citation = Citation.citation(r);
+          if (!Strings.isNullOrEmpty(citation)) {
+            mappers.reference.insert(e.getKey(), citationService.createOrGet(citation, r.getDoi(), r.getLink()), r);
+          }
         }
       }
-      for (SpeciesProfile s : ext.speciesProfiles) {
-        speciesProfileMapper.insert(usageKey, s, citationService.createOrGet(s.getSource()));
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (SpeciesProfile sp : e.getValue().speciesProfiles) {
+          mappers.speciesProfile.insert(e.getKey(), sp, citationService.createOrGet(sp.getSource()));
+        }
       }
-      for (TypeSpecimen t : ext.typeSpecimens) {
-        typeSpecimenMapper.insert(usageKey, t, citationService.createOrGet(t.getSource()));
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (TypeSpecimen t : e.getValue().typeSpecimens) {
+          mappers.typeSpecimen.insert(e.getKey(), t, citationService.createOrGet(t.getSource()));
+        }
       }
-      for (VernacularName v : ext.vernacularNames) {
-        vernacularNameMapper.insert(usageKey, v, citationService.createOrGet(v.getSource()));
+      for (Map.Entry<Integer, UsageExtensions> e : extensions.entrySet()) {
+        for (VernacularName v : e.getValue().vernacularNames) {
+          mappers.vernacularName.insert(e.getKey(), v, citationService.createOrGet(v.getSource()));
+        }
       }
 
     } catch (Exception e) {
-      LOG.error("Failed to sync extensions for usage {}", usageKey, e);
-      LOG.info("failed usage {}", ext);
-      LOG.info("failed usage descriptions {}", ext.descriptions);
-      LOG.info("failed usage distributions {}", ext.distributions);
-      LOG.info("failed usage identifiers {}", ext.identifiers);
-      LOG.info("failed usage media {}", ext.media);
-      LOG.info("failed usage references {}", ext.referenceList);
-      LOG.info("failed usage speciesProfiles {}", ext.speciesProfiles);
-      LOG.info("failed usage typeSpecimens {}", ext.typeSpecimens);
-      LOG.info("failed usage vernacularNames {}", ext.vernacularNames);
+      LOG.error("Failed to sync extensions for usages {}", extensions.keySet(), e);
+      for (UsageExtensions ext : extensions.values()) {
+        LOG.info("failed usage {}", ext);
+      }
       Throwables.propagate(e);
     }
   }
 
-  protected static String buildCitation(Reference r) {
-    StringBuilder sb = new StringBuilder();
-    if (!Strings.isNullOrEmpty(r.getAuthor())) {
-      sb.append(r.getAuthor());
-      if (Strings.isNullOrEmpty(r.getDate())) {
-        sb.append(": ");
-      } else {
-        sb.append(" ");
-      }
-    }
-    if (!Strings.isNullOrEmpty(r.getDate())) {
-      sb.append("(");
-      sb.append(r.getDate());
-      sb.append(") ");
-    }
-    if (!Strings.isNullOrEmpty(r.getTitle())) {
-      sb.append(r.getTitle());
-    }
-    if (!Strings.isNullOrEmpty(r.getSource())) {
-      if (!Strings.isNullOrEmpty(r.getTitle())) {
-        sb.append(": ");
+  /**
+   * @return all citations used by the given extension records
+   */
+  private static Set<String> citations(Collection<UsageExtensions> extensions) {
+    Set<String> citations = new HashSet<>();
+    for (UsageExtensions ext : extensions) {
+      ext.descriptions.forEach(d -> citations.add(d.getSource()));
+      ext.distributions.forEach(d -> citations.add(d.getSource()));
+      ext.media.forEach(m -> citations.add(m.getSource()));
+      for (Reference r : ext.referenceList) {
+        citations.add(Citation.citation(r));
       }
-      sb.append(r.getSource());
+      ext.speciesProfiles.forEach(sp -> citations.add(sp.getSource()));
+      ext.typeSpecimens.forEach(t -> citations.add(t.getSource()));
+      ext.vernacularNames.forEach(v -> citations.add(v.getSource()));
     }
-    return Strings.emptyToNull(sb.toString().trim());
+    citations.remove(null);
+    return citations;
+  }
+
+  protected static String buildCitation(Reference r) {
+    return Citation.buildCitation(r);
   }
 
   /**
@@ -436,50 +794,60 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
     return uw;
   }
 
+  /**
+   * Replaces all nub relations of a dataset in a single transaction.
+   * All matches are copied into a temporary table which is then used to update nub_rel,
+   * the BACKBONE_MATCH_NONE issue and for the CoL the backbone source taxon keys with a few set based statements.
+   */
   @Override
   public void insertNubRelations(UUID datasetKey, Map<Integer, Integer> relations) {
-    LOG.info("Remove previous nub matches for dataset {}", datasetKey);
-    nubRelMapper.deleteByDataset(datasetKey);
-    // for CoL with its instable ids remove previous source keys from nub
-    if (Constants.COL_DATASET_KEY.equals(datasetKey)) {
-      LOG.info("Updating Catalogue of Life source taxa in the backbone");
-      usageMapper.deleteSourceTaxonKeyByConstituent(datasetKey);
-    }
-    LOG.info("Load all no match flags");
-    Set<Integer> previousNoMatches = nameUsageMapper.listNoMatchUsageKeys(datasetKey);
+    final String issue = "'" + NameUsageIssue.BACKBONE_MATCH_NONE.name() + "'";
+    PgCopyBuffer buf = new PgCopyBuffer("nub_match", "usage_fk", "nub_fk");
+    relations.forEach((usageKey, nubKey) -> buf.add(usageKey, nubKey));
+    try (Connection con = ds.getConnection()) {
+      con.setAutoCommit(false);
+      try (Statement st = con.createStatement()) {
+        st.execute("CREATE TEMP TABLE nub_match (usage_fk int PRIMARY KEY, nub_fk int) ON COMMIT DROP");
+        buf.copy(con);
+        st.execute("ANALYZE nub_match");
+
+        LOG.info("Replace previous nub matches for dataset {} with {} new ones", datasetKey, relations.size());
+        st.executeUpdate("DELETE FROM nub_rel WHERE dataset_key='" + datasetKey + "'");
+        st.executeUpdate("INSERT INTO nub_rel (dataset_key, usage_fk, nub_fk)"
+            + " SELECT '" + datasetKey + "', usage_fk, nub_fk FROM nub_match WHERE nub_fk IS NOT NULL");
+
+        // flag no matches unless flagged already and remove the flag from matches
+        st.executeUpdate("UPDATE name_usage u SET issues = array_append(u.issues, " + issue + "::text)"
+            + " FROM nub_match m WHERE u.id=m.usage_fk AND m.nub_fk IS NULL"
+            + " AND (u.issues IS NULL OR NOT u.issues @> array[" + issue + "])");
+        st.executeUpdate("UPDATE name_usage u SET issues = array_remove(u.issues, " + issue + "::text)"
+            + " FROM nub_match m WHERE u.id=m.usage_fk AND m.nub_fk IS NOT NULL"
+            + " AND u.issues @> array[" + issue + "]");
+
+        // for CoL with its instable ids replace the source keys in the nub
+        if (Constants.COL_DATASET_KEY.equals(datasetKey)) {
+          LOG.info("Updating Catalogue of Life source taxa in the backbone");
+          st.executeUpdate("UPDATE name_usage SET source_taxon_key=null"
+              + " WHERE dataset_key='" + Constants.NUB_DATASET_KEY + "' AND constituent_key='" + datasetKey + "'");
+          st.executeUpdate("UPDATE name_usage n SET source_taxon_key=m.usage_fk"
+              + " FROM (SELECT DISTINCT ON (nub_fk) nub_fk, usage_fk FROM nub_match WHERE nub_fk IS NOT NULL ORDER BY nub_fk, usage_fk) m"
+              + " WHERE n.id=m.nub_fk");
+        }
+      }
+      con.commit();
 
-    LOG.debug("Insert {} nub matches for dataset {}", relations.size(), datasetKey);
-    for (List<Integer> batch : Iterables.partition(relations.keySet(), 10000)) {
-      insertNubRelationBatch(datasetKey, relations, batch, previousNoMatches);
+    } catch (SQLException | IOException e) {
+      throw new IllegalStateException("Failed to insert " + relations.size() + " nub relations for dataset " + datasetKey, e);
     }
   }
 
-  // TODO: Batch mode
-  @Transactional(isolation = Isolation.READ_UNCOMMITTED)
-  private void insertNubRelationBatch(
-      UUID datasetKey,
-      Map<Integer, Integer> relations,
-      Iterable<Integer> usageKeyBatch,
-      Set<Integer> previousNoMatches) {
-    LOG.debug("Insert batch of {} nub matches for dataset {}", relations.size(), datasetKey);
-    for (Integer usageKey : usageKeyBatch) {
-      if (relations.get(usageKey) == null) {
-        // no match, add issue if not existing yet
-        if (!previousNoMatches.contains(usageKey)) {
-          nameUsageMapper.addIssue(usageKey, NameUsageIssue.BACKBONE_MATCH_NONE);
-        }
-
-      } else {
-        // match, remove issue if it existed before
-        if (previousNoMatches.contains(usageKey)) {
-          nameUsageMapper.removeIssue(usageKey, NameUsageIssue.BACKBONE_MATCH_NONE);
-        }
-        nubRelMapper.insert(datasetKey, usageKey, relations.get(usageKey));
-        // for CoL with its instable ids update source key
-        if (Constants.COL_DATASET_KEY.equals(datasetKey)) {
-          usageMapper.updateSourceTaxonKey(relations.get(usageKey), usageKey);
-        }
-      }
+  @Override
+  public void stageMetrics(UUID datasetKey, DatasetMetricsCounter metrics) {
+    if (metrics.getUsagesCount() == null) {
+      // a rematching only counted backbone matches, keep the other staged counts of the last import
+      datasetMetricsMapper.stageMatches(datasetKey, metrics);
+    } else {
+      datasetMetricsMapper.stage(datasetKey, metrics);
     }
   }
 
@@ -493,7 +861,8 @@ public class UsageSyncServiceMyBatis implements UsageSyncService {
     LogContext.endDataset();
     int numDeleted = usageMapper.deleteByDataset(datasetKey);
     // we do not remove old dataset metrics, just add a new, empty one as the most recent
-    datasetMetricsMapper.insert(datasetKey, new Date());
+    datasetMetricsMapper.deletePending(datasetKey);
+    datasetMetricsMapper.insert(datasetKey, new Date(), false);
     return numDeleted;
   }
 
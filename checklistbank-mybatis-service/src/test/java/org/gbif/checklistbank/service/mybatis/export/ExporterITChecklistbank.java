@@ -21,12 +21,16 @@ import org.gbif.utils.file.FileUtils;
 
 import java.io.File;
 import java.util.UUID;
+import java.util.zip.ZipFile;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 /** Export squirrel test db as dwca */
 public class ExporterITChecklistbank extends ChecklistbankMyBatisServiceITBase {
 
@@ -49,7 +53,13 @@ public class ExporterITChecklistbank extends ChecklistbankMyBatisServiceITBase {
       Exporter exp = new Exporter(repository, ctx, null);
       exp.export(dataset(Constants.NUB_DATASET_KEY));
 
-      exp.export(dataset(ClbLoadTestDb.SQUIRRELS_DATASET_KEY));
+      File dwca = exp.export(dataset(ClbLoadTestDb.SQUIRRELS_DATASET_KEY));
+      try (ZipFile zip = new ZipFile(dwca)) {
+        assertNotNull(zip.getEntry("meta.xml"));
+        assertNotNull(zip.getEntry("eml.xml"));
+        // core and extension data files
+        assertTrue(zip.size() > 3);
+      }
 
     } finally {
       org.apache.commons.io.FileUtils.deleteDirectory(repository);
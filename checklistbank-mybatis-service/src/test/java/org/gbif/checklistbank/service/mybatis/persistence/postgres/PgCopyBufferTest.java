@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.service.mybatis.persistence.postgres;
+
+import org.gbif.api.vocabulary.NameUsageIssue;
+import org.gbif.api.vocabulary.Rank;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PgCopyBufferTest {
+
+  @Test
+  public void testEscaping() {
+    PgCopyBuffer buf = new PgCopyBuffer("raw_usage", "id", "a", "b", "c", "d", "e");
+    buf.add(1, null, "", "tab\tnew\nline", "back\\slash", "say \"hi\", then leave");
+    assertEquals(1, buf.size());
+    assertEquals("\"1\",,\"\",\"tab\tnew\nline\",\"back\\slash\",\"say \"\"hi\"\", then leave\"\n", buf.content());
+  }
+
+  @Test
+  public void testTypes() {
+    Date date = new Date(1500000000000L);
+    PgCopyBuffer buf = new PgCopyBuffer("name_usage", "id", "is_synonym", "rank", "modified");
+    buf.add(12, true, Rank.SPECIES, date);
+    buf.add(13, false, null, null);
+    assertEquals(2, buf.size());
+    assertEquals("\"12\",\"true\",\"SPECIES\",\"" + new Timestamp(date.getTime()) + "\"\n"
+        + "\"13\",\"false\",,\n", buf.content());
+  }
+
+  @Test
+  public void testArrays() {
+    PgCopyBuffer buf = new PgCopyBuffer("name_usage", "issues", "remarks");
+    buf.add(Arrays.asList(NameUsageIssue.BACKBONE_MATCH_NONE, null, NameUsageIssue.RANK_INVALID), List.of());
+    buf.add(List.of("a\"b", "c\\d", "x,y", "tab\tnew\nline"), null);
+    // array literals first, then quoted as csv
+    assertEquals("\"{\"\"BACKBONE_MATCH_NONE\"\",NULL,\"\"RANK_INVALID\"\"}\",\"{}\"\n"
+        + "\"{\"\"a\\\"\"b\"\",\"\"c\\\\d\"\",\"\"x,y\"\",\"\"tab\tnew\nline\"\"}\",\n", buf.content());
+  }
+
+  @Test
+  public void testColumnCount() {
+    PgCopyBuffer buf = new PgCopyBuffer("nub_rel", "dataset_key", "usage_fk", "nub_fk");
+    assertThrows(IllegalArgumentException.class, () -> buf.add(1, 2));
+    assertEquals(0, buf.size());
+    assertEquals("", buf.content());
+  }
+
+  @Test
+  public void testCopyEmpty() throws Exception {
+    // nothing is sent for an empty buffer
+    assertEquals(0, new PgCopyBuffer("nub_rel", "dataset_key", "usage_fk", "nub_fk").copy(null));
+  }
+}
@@ -14,23 +14,37 @@
 package org.gbif.checklistbank.service.mybatis.service;
 
 import org.gbif.ChecklistbankMyBatisServiceITBase;
+import org.gbif.checklistbank.model.Citation;
 import org.gbif.checklistbank.service.CitationService;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.CitationMapper;
+import org.gbif.checklistbank.service.mybatis.persistence.test.extensions.ClbDbLoadTestDataBeforeEach;
+import org.gbif.checklistbank.service.mybatis.persistence.test.extensions.TestData;
 import org.gbif.utils.text.StringUtils;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+@TestData(TestData.DATAFILE.SQUIRRELS)
+@ExtendWith(ClbDbLoadTestDataBeforeEach.class)
 public class CitationServiceChecklistbankMyBatisIT extends ChecklistbankMyBatisServiceITBase {
+  private static final String ADVERSARIA = "Adversaria zoologica: 408.";
+  private static final String PROC_ZOOL = "Proc. Zool. Soc. Lond. vol. 1914 p. 416";
 
   private final CitationService service;
+  private final CitationMapper mapper;
 
   @Autowired
-  public CitationServiceChecklistbankMyBatisIT(CitationService citationService) {
+  public CitationServiceChecklistbankMyBatisIT(CitationService citationService, CitationMapper citationMapper) {
     super();
     this.service = citationService;
+    this.mapper = citationMapper;
   }
 
   @Test
@@ -42,4 +56,39 @@ public class CitationServiceChecklistbankMyBatisIT extends ChecklistbankMyBatisS
     final Integer cid2 = service.createOrGet(citation);
     assertEquals(cid2, cid);
   }
+
+  @Test
+  public void testListByCitations() throws Exception {
+    List<Citation> citations = mapper.listByCitations(List.of(ADVERSARIA, PROC_ZOOL, "Not existing"));
+    assertEquals(2, citations.size());
+    for (Citation c : citations) {
+      assertEquals(mapper.getByCitation(c.getCitation()), c.getKey());
+    }
+  }
+
+  /**
+   * The test config disables the citation cache, so use a dedicated service with a cache.
+   */
+  @Test
+  public void testPreload() throws Exception {
+    CitationServiceMyBatis cached = new CitationServiceMyBatis(mapper, 1000, 3600);
+    cached.preload(Arrays.asList(ADVERSARIA, PROC_ZOOL, null, ""));
+    // preloading itself is neither a hit nor a miss
+    assertEquals(0, cached.getCacheStats().requestCount());
+
+    assertEquals(mapper.getByCitation(ADVERSARIA), cached.createOrGet(ADVERSARIA));
+    assertEquals(mapper.getByCitation(PROC_ZOOL), cached.createOrGet(PROC_ZOOL));
+    assertEquals(2, cached.getCacheStats().hitCount());
+    assertEquals(0, cached.getCacheStats().missCount());
+
+    // unknown citations are not cached by preloading, but once created
+    cached.preload(List.of("A new citation"));
+    Integer key = cached.createOrGet("A new citation");
+    assertNotNull(key);
+    assertEquals(mapper.getByCitation("A new citation"), key);
+    assertEquals(1, cached.getCacheStats().missCount());
+    assertEquals(key, cached.createOrGet("A new citation"));
+    assertEquals(3, cached.getCacheStats().hitCount());
+    assertEquals(1, cached.getCacheStats().missCount());
+  }
 }
@@ -15,10 +15,13 @@ package org.gbif.checklistbank.service.mybatis.service;
 
 import org.gbif.ChecklistbankMyBatisServiceITBase;
 import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.api.model.checklistbank.NameUsage;
 import org.gbif.api.vocabulary.Kingdom;
 import org.gbif.api.vocabulary.Language;
 import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.model.DatasetMetricsCounter;
 import org.gbif.checklistbank.service.DatasetAnalysisService;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.DatasetMetricsMapper;
 import org.gbif.checklistbank.service.mybatis.persistence.postgres.ClbLoadTestDb;
 import org.gbif.checklistbank.service.mybatis.persistence.test.extensions.TestData;
 
@@ -33,12 +36,14 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 public class DatasetAnalysisServiceChecklistbankMyBatisIT extends ChecklistbankMyBatisServiceITBase {
 
   private final DatasetAnalysisService service;
+  private final DatasetMetricsMapper mapper;
 
   @Autowired
   public DatasetAnalysisServiceChecklistbankMyBatisIT(
-      DatasetAnalysisService datasetAnalysisService) {
+      DatasetAnalysisService datasetAnalysisService, DatasetMetricsMapper mapper) {
     super();
     this.service = datasetAnalysisService;
+    this.mapper = mapper;
   }
 
   @Test
@@ -66,4 +71,31 @@ public class DatasetAnalysisServiceChecklistbankMyBatisIT extends ChecklistbankM
     assertEquals(4, d.getCountNamesByLanguage(Language.ENGLISH));
     assertEquals(2, d.getCountNamesByLanguage(Language.GERMAN));
   }
+
+  @Test
+  public void testAnalyseStaged() {
+    DatasetMetricsCounter counter = new DatasetMetricsCounter();
+    NameUsage u = new NameUsage();
+    u.setRank(Rank.SPECIES);
+    counter.countUsage(u);
+    counter.countUsage(u);
+    mapper.stage(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, counter);
+
+    DatasetMetrics d = service.analyse(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, new Date());
+    // staged counts are used
+    assertEquals(2, d.getUsagesCount());
+    assertEquals(0, d.getSynonymsCount());
+    assertEquals(2, d.getCountByRank(Rank.SPECIES));
+    assertEquals(0, d.getCountByRank(Rank.GENUS));
+    // counts not staged are aggregated in the database
+    assertEquals(44, d.getDistinctNamesCount());
+    assertEquals(2, d.getNubMatchingCount());
+    assertEquals(2, d.getCountByKingdom(Kingdom.ANIMALIA));
+    assertEquals(4, d.getCountNamesByLanguage(Language.ENGLISH));
+
+    // staged counts are only used once
+    d = service.analyse(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, new Date());
+    assertEquals(44, d.getUsagesCount());
+    assertEquals(16, d.getSynonymsCount());
+  }
 }
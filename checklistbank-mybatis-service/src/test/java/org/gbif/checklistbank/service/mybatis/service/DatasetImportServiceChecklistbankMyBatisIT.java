@@ -128,6 +128,11 @@ public class DatasetImportServiceChecklistbankMyBatisIT extends ChecklistbankMyB
       return pn;
     }
 
+    @Override
+    public String readTaxonID(long id) {
+      return u.getTaxonID();
+    }
+
     @Override
     public boolean isInsert(NameUsage usage) {
       return true;
@@ -158,5 +163,11 @@ public class DatasetImportServiceChecklistbankMyBatisIT extends ChecklistbankMyB
 
     @Override
     public void reportNewFuture(Future<List<Integer>> future) {}
+
+    @Override
+    public void reportSyncedUsage(NameUsage usage) {}
+
+    @Override
+    public void reportSyncedExtensions(UsageExtensions extensions) {}
   }
 }
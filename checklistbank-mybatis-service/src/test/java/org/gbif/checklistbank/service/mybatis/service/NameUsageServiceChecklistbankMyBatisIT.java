@@ -290,6 +290,17 @@ public class NameUsageServiceChecklistbankMyBatisIT extends ChecklistbankMyBatis
     assertEquals(2, usages.size());
   }
 
+  @Test
+  public void testVernacularNamesInPages() {
+    List<NameUsage> usages = service.listChildren(100000024, Locale.UK, null).getResults();
+    NameUsage squirrel = usages.stream().filter(u -> u.getKey() == 100000025).findFirst().get();
+    assertEquals("Eurasian Red Squirrel", squirrel.getVernacularName());
+
+    usages = service.listParents(100000025, Locale.UK);
+    NameUsage genus = usages.stream().filter(u -> u.getKey() == 100000011).findFirst().get();
+    assertEquals("Tree squirrels", genus.getVernacularName());
+  }
+
   @Test
   public void testListRelatedNotFound() {
     assertTrue(service.listRelated(NOT_FOUND_KEY, Locale.UK, null).getResults().isEmpty());
@@ -20,16 +20,22 @@ import org.gbif.api.vocabulary.NamePart;
 import org.gbif.api.vocabulary.NameType;
 import org.gbif.api.vocabulary.Rank;
 import org.gbif.checklistbank.service.ParsedNameService;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.ParsedNameMapper;
 import org.gbif.checklistbank.service.mybatis.persistence.test.extensions.ClbDbLoadTestDataBeforeEach;
 import org.gbif.checklistbank.service.mybatis.persistence.test.extensions.TestData;
 import org.gbif.checklistbank.utils.NameParsers;
 
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
 @TestData(TestData.DATAFILE.SQUIRRELS)
@@ -37,11 +43,13 @@ import static org.junit.jupiter.api.Assertions.assertNull;
 public class ParsedNameServiceChecklistbankMyBatisIT extends ChecklistbankMyBatisServiceITBase {
 
   private final ParsedNameService service;
+  private final ParsedNameMapper mapper;
 
   @Autowired
-  public ParsedNameServiceChecklistbankMyBatisIT(ParsedNameService parsedNameService) {
+  public ParsedNameServiceChecklistbankMyBatisIT(ParsedNameService parsedNameService, ParsedNameMapper parsedNameMapper) {
     super();
     this.service = parsedNameService;
+    this.mapper = parsedNameMapper;
   }
 
   @Test
@@ -103,6 +111,62 @@ public class ParsedNameServiceChecklistbankMyBatisIT extends ChecklistbankMyBati
     }
   }
 
+  private static ParsedName name(String scientificName, Rank rank) {
+    ParsedName pn = new ParsedName();
+    pn.setScientificName(scientificName);
+    pn.setRank(rank);
+    pn.setType(NameType.SCIENTIFIC);
+    return pn;
+  }
+
+  @Test
+  public void testListByNames() throws Exception {
+    List<ParsedName> names = mapper.listByNames(List.of("Sciuridae", "Sciurus Linnaeus, 1758", "Abies alba Mill."));
+    // Sciurus exists both as genus and subgenus
+    assertEquals(3, names.size());
+    for (ParsedName pn : names) {
+      assertEquals(mapper.getByName(pn.getScientificName(), pn.getRank()).getKey(), pn.getKey());
+    }
+    assertEquals(0, mapper.listByNames(List.of("Abies alba Mill.")).size());
+  }
+
+  /**
+   * The test config disables the name cache, so use a dedicated service with a cache.
+   */
+  @Test
+  public void testPreload() throws Exception {
+    ParsedNameServiceMyBatis cached = new ParsedNameServiceMyBatis(mapper, 1000, 3600);
+    List<ParsedName> names = List.of(
+        name("Sciuridae", Rank.FAMILY),
+        name("Sciurus Linnaeus, 1758", Rank.GENUS),
+        name("Sciurus Linnaeus, 1758", Rank.SUBGENUS),
+        name("Sciurillus pusillus E. Geoffroy, 1803", Rank.SPECIES)
+    );
+    cached.preload(names);
+    // preloading itself is neither a hit nor a miss
+    assertEquals(0, cached.getCacheStats().requestCount());
+
+    for (ParsedName n : names) {
+      ParsedName pn = cached.createOrGet(name(n.getScientificName(), n.getRank()), false);
+      assertEquals(mapper.getByName(n.getScientificName(), n.getRank()).getKey(), pn.getKey());
+    }
+    assertEquals(names.size(), cached.getCacheStats().hitCount());
+    assertEquals(0, cached.getCacheStats().missCount());
+    Map<Rank, Integer> sciurus = names.stream()
+        .filter(n -> n.getScientificName().startsWith("Sciurus"))
+        .collect(Collectors.toMap(ParsedName::getRank, n -> cached.createOrGet(n, false).getKey()));
+    assertNotEquals(sciurus.get(Rank.GENUS), sciurus.get(Rank.SUBGENUS));
+
+    // unknown names are not cached by preloading, but once created
+    ParsedName abies = name("Abies alba Mill.", Rank.SPECIES);
+    cached.preload(List.of(abies));
+    ParsedName created = cached.createOrGet(name("Abies alba Mill.", Rank.SPECIES), false);
+    assertNotNull(created.getKey());
+    assertEquals(1, cached.getCacheStats().missCount());
+    assertEquals(created.getKey(), cached.createOrGet(name("Abies alba Mill.", Rank.SPECIES), false).getKey());
+    assertEquals(1, cached.getCacheStats().missCount());
+  }
+
   @Test
   public void testOrphaned() throws Exception {
     assertEquals(1, service.deleteOrphaned());
@@ -23,6 +23,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestData(TestData.DATAFILE.SQUIRRELS)
 public class UsageServiceChecklistbankMyBatisTest extends ChecklistbankMyBatisServiceITBase {
@@ -41,6 +42,18 @@ public class UsageServiceChecklistbankMyBatisTest extends ChecklistbankMyBatisSe
     assertEquals(46, squirrels.size());
   }
 
+  @Test
+  public void testKeyHistogram() {
+    List<Integer> squirrels = service.listAll();
+    int[] keys = service.keyHistogram();
+    assertTrue(keys.length >= 2);
+    assertEquals(squirrels.stream().mapToInt(x -> x).min().getAsInt(), keys[0]);
+    assertEquals(squirrels.stream().mapToInt(x -> x).max().getAsInt(), keys[keys.length - 1]);
+    for (int i = 1; i < keys.length; i++) {
+      assertTrue(keys[i - 1] < keys[i]);
+    }
+  }
+
   @Test
   public void testlistParents() {
     List<Integer> squirrels = service.listParents(100000007);
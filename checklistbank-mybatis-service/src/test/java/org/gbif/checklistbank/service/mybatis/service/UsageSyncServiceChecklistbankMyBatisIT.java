@@ -15,6 +15,7 @@ package org.gbif.checklistbank.service.mybatis.service;
 
 import org.gbif.ChecklistbankMyBatisServiceITBase;
 import org.gbif.api.exception.UnparsableException;
+import org.gbif.api.model.Constants;
 import org.gbif.api.model.checklistbank.*;
 import org.gbif.api.model.common.Identifier;
 import org.gbif.api.model.common.LinneanClassificationKeys;
@@ -22,6 +23,7 @@ import org.gbif.api.service.checklistbank.NameUsageService;
 import org.gbif.api.util.ClassificationUtils;
 import org.gbif.api.vocabulary.*;
 import org.gbif.checklistbank.model.UsageExtensions;
+import org.gbif.checklistbank.service.ImporterCallback;
 import org.gbif.checklistbank.service.UsageSyncService;
 import org.gbif.checklistbank.service.mybatis.persistence.postgres.ClbLoadTestDb;
 import org.gbif.checklistbank.service.mybatis.persistence.test.extensions.ClbDbLoadTestDataBeforeEach;
@@ -30,10 +32,19 @@ import org.gbif.checklistbank.utils.NameParsers;
 import org.gbif.dwc.terms.DwcTerm;
 
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+import javax.sql.DataSource;
 
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Order;
@@ -43,11 +54,14 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @TestData(TestData.DATAFILE.SQUIRRELS)
 @ExtendWith(ClbDbLoadTestDataBeforeEach.class)
@@ -57,13 +71,15 @@ public class UsageSyncServiceChecklistbankMyBatisIT extends ChecklistbankMyBatis
 
   private final UsageSyncService service;
   private final NameUsageService nameUsageService;
+  private final DataSource dataSource;
 
   @Autowired
   public UsageSyncServiceChecklistbankMyBatisIT(
-      UsageSyncService usageSyncService, NameUsageService nameUsageService) {
+      UsageSyncService usageSyncService, NameUsageService nameUsageService, DataSource dataSource) {
     super();
     this.service = usageSyncService;
     this.nameUsageService = nameUsageService;
+    this.dataSource = dataSource;
   }
 
   @Test
@@ -76,9 +92,64 @@ public class UsageSyncServiceChecklistbankMyBatisIT extends ChecklistbankMyBatis
   @Test
   @Order(2)
   public void nubRelations() throws Exception {
+    // a stale no match flag on a usage that matches now and one on a usage that still does not match
+    execute("UPDATE name_usage SET issues = array['BACKBONE_MATCH_NONE'] WHERE id IN (100000002, 100000003)");
+    Map<Integer, Integer> rels = new HashMap<>();
+    rels.put(100000001, null);
+    rels.put(100000002, 10);
+    rels.put(100000003, null);
+    // run twice to make sure issues are not added again
+    for (int x = 0; x < 2; x++) {
+      service.insertNubRelations(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, rels);
+
+      // all previous relations of the dataset are replaced
+      assertEquals(ImmutableMap.of(100000002, 10), nubRelations(ClbLoadTestDb.SQUIRRELS_DATASET_KEY));
+      assertEquals(1, countNoMatchIssues(100000001));
+      assertEquals(0, countNoMatchIssues(100000002));
+      assertEquals(1, countNoMatchIssues(100000003));
+    }
+
+    // CoL relations replace the source taxon keys of the backbone usages coming from the CoL
+    execute("UPDATE name_usage SET constituent_key='" + Constants.COL_DATASET_KEY + "', source_taxon_key=100000005 WHERE id=1");
+    rels.clear();
+    rels.put(100000004, 10);
+    service.insertNubRelations(Constants.COL_DATASET_KEY, rels);
+    assertEquals(ImmutableMap.of(100000004, 10), nubRelations(Constants.COL_DATASET_KEY));
+    assertNull(sourceTaxonKey(1));
+    assertEquals(100000004, sourceTaxonKey(10));
+  }
+
+  private void execute(String sql) throws SQLException {
+    try (Connection con = dataSource.getConnection(); Statement st = con.createStatement()) {
+      st.execute(sql);
+    }
+  }
+
+  private Map<Integer, Integer> nubRelations(UUID datasetKey) throws SQLException {
     Map<Integer, Integer> rels = new HashMap<>();
-    rels.put(1, 1);
-    service.insertNubRelations(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, rels);
+    try (Connection con = dataSource.getConnection(); Statement st = con.createStatement();
+         ResultSet rs = st.executeQuery("SELECT usage_fk, nub_fk FROM nub_rel WHERE dataset_key='" + datasetKey + "'")) {
+      while (rs.next()) {
+        rels.put(rs.getInt(1), rs.getInt(2));
+      }
+    }
+    return rels;
+  }
+
+  private int countNoMatchIssues(int key) throws SQLException {
+    try (Connection con = dataSource.getConnection(); Statement st = con.createStatement();
+         ResultSet rs = st.executeQuery("SELECT cardinality(array_positions(issues, 'BACKBONE_MATCH_NONE')) FROM name_usage WHERE id=" + key)) {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  private Integer sourceTaxonKey(int key) throws SQLException {
+    try (Connection con = dataSource.getConnection(); Statement st = con.createStatement();
+         ResultSet rs = st.executeQuery("SELECT source_taxon_key FROM name_usage WHERE id=" + key)) {
+      rs.next();
+      return (Integer) rs.getObject(1);
+    }
   }
 
   @Test
@@ -243,6 +314,171 @@ public class UsageSyncServiceChecklistbankMyBatisIT extends ChecklistbankMyBatis
     assertEquals(u, u2);
   }
 
+  @Test
+  @Order(5)
+  public void testSyncUsages() throws Exception {
+    NameUsage k = addHigher(1, null, null, "Plantae", Rank.KINGDOM);
+
+    BatchData data = new BatchData();
+    for (int id = 0; id < 3; id++) {
+      NameUsage u = new NameUsage();
+      u.setDatasetKey(ClbLoadTestDb.SQUIRRELS_DATASET_KEY);
+      u.setScientificName("Abies alba" + id + " Mill.");
+      u.setTaxonID("batch" + id);
+      u.setOrigin(Origin.SOURCE);
+      u.setRank(Rank.SPECIES);
+      u.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+      u.setParentKey(k.getKey());
+      u.setKingdomKey(k.getKey());
+      u.setSpeciesKey(-1); // point to itself!
+      data.usages.add(u);
+    }
+    List<Integer> ids = Lists.newArrayList(0, 1, 2);
+
+    Set<Integer> inserts = Sets.newHashSet();
+    Map<Integer, Integer> keys = service.syncUsages(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, data, ids, inserts);
+    assertEquals(3, keys.size());
+    assertEquals(Sets.newHashSet(ids), inserts);
+    assertEquals(keys, data.reported);
+    for (Integer id : ids) {
+      NameUsage u2 = nameUsageService.get(keys.get(id), null);
+      assertEquals("batch" + id, u2.getTaxonID());
+      assertEquals(keys.get(id), u2.getSpeciesKey());
+    }
+
+    // a second sync updates the existing records
+    for (NameUsage u : data.usages) {
+      u.setKey(null);
+      u.setSpeciesKey(-1);
+      u.setRemarks("updated");
+    }
+    inserts.clear();
+    data.reported.clear();
+    assertEquals(keys, service.syncUsages(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, data, ids, inserts));
+    assertTrue(inserts.isEmpty());
+    for (Integer id : ids) {
+      assertEquals("updated", nameUsageService.get(keys.get(id), null).getRemarks());
+    }
+
+    // new usages only reserve as many keys as they need, even when they come before existing ones in a batch
+    data.usages.add(newBatchUsage(3, k));
+    data.usages.add(newBatchUsage(4, k));
+    for (NameUsage u : data.usages) {
+      u.setKey(null);
+      u.setSpeciesKey(-1);
+    }
+    inserts.clear();
+    Map<Integer, Integer> keys2 = service.syncUsages(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, data, Lists.newArrayList(3, 0, 1, 2), inserts);
+    assertEquals(Sets.newHashSet(3), inserts);
+    keys2 = service.syncUsages(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, data, Lists.newArrayList(4), inserts);
+    assertEquals(keys2.get(4).intValue(), data.reported.get(3) + 1);
+  }
+
+  private static NameUsage newBatchUsage(int id, NameUsage k) {
+    NameUsage u = new NameUsage();
+    u.setDatasetKey(ClbLoadTestDb.SQUIRRELS_DATASET_KEY);
+    u.setScientificName("Abies alba" + id + " Mill.");
+    u.setTaxonID("batch" + id);
+    u.setOrigin(Origin.SOURCE);
+    u.setRank(Rank.SPECIES);
+    u.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+    u.setParentKey(k.getKey());
+    u.setKingdomKey(k.getKey());
+    return u;
+  }
+
+  @Test
+  @Order(6)
+  public void testParentPath() throws Exception {
+    NameUsage k = addHigher(1, null, null, "Plantae", Rank.KINGDOM);
+    NameUsage p = addHigher(2, k.getKey(), k, "Tracheophyta", Rank.PHYLUM);
+
+    BatchData data = new BatchData();
+    NameUsage u = new NameUsage();
+    u.setDatasetKey(ClbLoadTestDb.SQUIRRELS_DATASET_KEY);
+    u.setScientificName("Abies alba Mill.");
+    u.setTaxonID("path");
+    u.setOrigin(Origin.SOURCE);
+    u.setRank(Rank.SPECIES);
+    u.setTaxonomicStatus(TaxonomicStatus.ACCEPTED);
+    u.setParentKey(p.getKey());
+    u.setKingdomKey(k.getKey());
+    u.setPhylumKey(p.getKey());
+    data.usages.add(u);
+    Map<Integer, Integer> keys = service.syncUsages(ClbLoadTestDb.SQUIRRELS_DATASET_KEY, data, Lists.newArrayList(0), Sets.newHashSet());
+
+    List<NameUsage> parents = nameUsageService.listParents(keys.get(0), null);
+    assertEquals(2, parents.size());
+    assertEquals(k.getKey(), parents.get(0).getKey());
+    assertEquals(p.getKey(), parents.get(1).getKey());
+  }
+
+  /**
+   * Importer callback serving usages by their list index.
+   */
+  private static class BatchData implements ImporterCallback {
+    final List<NameUsage> usages = Lists.newArrayList();
+    final Map<Integer, Integer> reported = new HashMap<>();
+
+    @Override
+    public NameUsage readUsage(long id) {
+      return usages.get((int) id);
+    }
+
+    @Override
+    public ParsedName readName(long id) {
+      NameUsage u = readUsage(id);
+      return NameParsers.INSTANCE.parseQuietly(u.getScientificName(), u.getRank());
+    }
+
+    @Override
+    public String readTaxonID(long id) {
+      return readUsage(id).getTaxonID();
+    }
+
+    @Override
+    public boolean isInsert(NameUsage usage) {
+      return false;
+    }
+
+    @Override
+    public UsageExtensions readExtensions(long id) {
+      return null;
+    }
+
+    @Override
+    public NameUsageMetrics readMetrics(long id) {
+      return new NameUsageMetrics();
+    }
+
+    @Override
+    public VerbatimNameUsage readVerbatim(long id) {
+      return null;
+    }
+
+    @Override
+    public List<Integer> readParentKeys(long id) {
+      return null;
+    }
+
+    @Override
+    public void reportUsageKey(long id, int usageKey) {
+      reported.put((int) id, usageKey);
+    }
+
+    @Override
+    public void reportNewFuture(Future<List<Integer>> future) {
+    }
+
+    @Override
+    public void reportSyncedUsage(NameUsage usage) {
+    }
+
+    @Override
+    public void reportSyncedExtensions(UsageExtensions extensions) {
+    }
+  }
+
   private NameUsage addHigher(
       int key, Integer parentKey, LinneanClassificationKeys higherKeys, String name, Rank rank)
       throws UnparsableException {
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.nub;
+
+import org.gbif.utils.concurrent.ExecutorUtils;
+import org.gbif.utils.concurrent.NamedThreadFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Matches batches of names on a shared, bounded worker pool and hands back the results in the original order.
+ * <p>
+ * Each batch keeps at most a fixed window of matches in flight, so huge batches never pile up in memory.
+ * If the pool queue is full because of concurrent batches the calling thread does the matching itself,
+ * which slows down the producer instead of rejecting work.
+ */
+@Component
+public class BatchMatcher implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchMatcher.class);
+  private static final String NAME = "batch-matcher";
+
+  private final ExecutorService exec;
+  private final int maxBatchSize;
+  private final int maxInFlight;
+
+  /**
+   * @param threads number of matching threads. Zero or less uses all available processors
+   * @param maxBatchSize maximum number of names allowed in a single batch
+   */
+  @Autowired
+  public BatchMatcher(@Value("${checklistbank.nub.batch.threads:0}") int threads,
+                      @Value("${checklistbank.nub.batch.maxSize:10000}") int maxBatchSize) {
+    if (threads < 1) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    this.maxBatchSize = maxBatchSize;
+    this.maxInFlight = threads * 4;
+    exec = new ThreadPoolExecutor(threads, threads,
+        0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads * 16),
+        new NamedThreadFactory(NAME),
+        new ThreadPoolExecutor.CallerRunsPolicy());
+    LOG.info("Created batch matcher with {} threads and a maximum batch size of {}", threads, maxBatchSize);
+  }
+
+  /**
+   * @throws IllegalArgumentException if the batch is larger than the configured maximum
+   */
+  public void verifyBatchSize(List<?> batch) {
+    Preconditions.checkArgument(batch.size() <= maxBatchSize,
+        "Batch of %s names exceeds the maximum allowed size of %s", batch.size(), maxBatchSize);
+  }
+
+  /**
+   * Matches all requests concurrently and passes the results to the consumer in the same order as the requests.
+   * The consumer is always called from the calling thread.
+   */
+  public <T> void match(List<NameMatchRequest> requests, Function<NameMatchRequest, T> matcher, Consumer<T> consumer) {
+    verifyBatchSize(requests);
+    Deque<Future<T>> window = new ArrayDeque<>(maxInFlight);
+    try {
+      for (NameMatchRequest req : requests) {
+        if (window.size() >= maxInFlight) {
+          consumer.accept(window.poll().get());
+        }
+        window.add(exec.submit(() -> matcher.apply(req)));
+      }
+      while (!window.isEmpty()) {
+        consumer.accept(window.poll().get());
+      }
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Batch matching interrupted", e);
+
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Batch matching failed", e.getCause());
+
+    } finally {
+      // the client might have gone away, dont waste cycles on the remaining names
+      for (Future<T> f : window) {
+        f.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws Exception {
+    ExecutorUtils.stop(exec, 10, TimeUnit.SECONDS);
+  }
+}
@@ -19,6 +19,8 @@ import org.gbif.api.vocabulary.Rank;
 
 import javax.annotation.Nullable;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  *
  */
@@ -56,11 +58,13 @@ public class Classification implements LinneanClassification {
 
   @Nullable
   @Override
+  @JsonProperty("class")
   public String getClazz() {
     return clazz;
   }
 
   @Override
+  @JsonProperty("class")
   public void setClazz(String clazz) {
     this.clazz = clazz;
   }
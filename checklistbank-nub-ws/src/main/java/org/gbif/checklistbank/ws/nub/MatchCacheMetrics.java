@@ -0,0 +1,61 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.nub;
+
+import org.gbif.nub.lookup.fuzzy.NubMatchingServiceImpl;
+
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheStats;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Exposes the hit, miss and eviction counts of the match result cache as metrics.
+ */
+@Component
+public class MatchCacheMetrics implements MeterBinder {
+
+  private final NubMatchingServiceImpl matchingService;
+
+  @Autowired
+  public MatchCacheMetrics(NubMatchingServiceImpl matchingService) {
+    this.matchingService = matchingService;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    counter(registry, "hits", "Cached match results served", CacheStats::hitCount);
+    counter(registry, "misses", "Match requests not found in the cache", CacheStats::missCount);
+    counter(registry, "evictions", "Match results evicted from the cache", CacheStats::evictionCount);
+    Gauge.builder("nub.match.cache.size", matchingService, NubMatchingServiceImpl::getCacheSize)
+        .description("Number of cached match results")
+        .register(registry);
+  }
+
+  private void counter(MeterRegistry registry, String name, String description, ToLongFunction<CacheStats> value) {
+    FunctionCounter.builder("nub.match.cache." + name, matchingService, s -> {
+          CacheStats stats = s.getCacheStats();
+          return stats == null ? 0 : value.applyAsLong(stats);
+        })
+        .description(description)
+        .register(registry);
+  }
+}
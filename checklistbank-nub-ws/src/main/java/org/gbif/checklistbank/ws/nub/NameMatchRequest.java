@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.nub;
+
+import java.util.Set;
+
+/**
+ * A single name to be matched as part of a batch match request.
+ * Carries the same parameters as the GET match methods, with the classification given as flat properties.
+ */
+public class NameMatchRequest extends Classification {
+  private Integer usageKey;
+  private String scientificName;
+  private String authorship;
+  private String rank;
+  private String genericName;
+  private String specificEpithet;
+  private String infraspecificEpithet;
+  private Set<Integer> exclude;
+  private Boolean strict;
+  private Boolean verbose;
+
+  public Integer getUsageKey() {
+    return usageKey;
+  }
+
+  public void setUsageKey(Integer usageKey) {
+    this.usageKey = usageKey;
+  }
+
+  public String getScientificName() {
+    return scientificName;
+  }
+
+  public void setScientificName(String scientificName) {
+    this.scientificName = scientificName;
+  }
+
+  public String getAuthorship() {
+    return authorship;
+  }
+
+  public void setAuthorship(String authorship) {
+    this.authorship = authorship;
+  }
+
+  public String getRank() {
+    return rank;
+  }
+
+  public void setRank(String rank) {
+    this.rank = rank;
+  }
+
+  public String getGenericName() {
+    return genericName;
+  }
+
+  public void setGenericName(String genericName) {
+    this.genericName = genericName;
+  }
+
+  public String getSpecificEpithet() {
+    return specificEpithet;
+  }
+
+  public void setSpecificEpithet(String specificEpithet) {
+    this.specificEpithet = specificEpithet;
+  }
+
+  public String getInfraspecificEpithet() {
+    return infraspecificEpithet;
+  }
+
+  public void setInfraspecificEpithet(String infraspecificEpithet) {
+    this.infraspecificEpithet = infraspecificEpithet;
+  }
+
+  /**
+   * @return higher taxon ids to exclude from matching results
+   */
+  public Set<Integer> getExclude() {
+    return exclude;
+  }
+
+  public void setExclude(Set<Integer> exclude) {
+    this.exclude = exclude;
+  }
+
+  public Boolean getStrict() {
+    return strict;
+  }
+
+  public void setStrict(Boolean strict) {
+    this.strict = strict;
+  }
+
+  public Boolean getVerbose() {
+    return verbose;
+  }
+
+  public void setVerbose(Boolean verbose) {
+    this.verbose = verbose;
+  }
+}
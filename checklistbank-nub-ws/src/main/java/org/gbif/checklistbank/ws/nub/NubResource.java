@@ -25,15 +25,25 @@ import org.gbif.nub.lookup.NameUsageMatchingService2;
 import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.LookupUsage;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Strings;
 
 import io.swagger.v3.oas.annotations.Hidden;
@@ -58,11 +68,16 @@ public class NubResource {
 
   private final NameUsageMatchingService2 matchingService;
   private final IdLookup lookup;
+  private final BatchMatcher batchMatcher;
+  private final ObjectMapper mapper;
 
   @Autowired
-  public NubResource(NameUsageMatchingService2 matchingService, IdLookup lookup) {
+  public NubResource(NameUsageMatchingService2 matchingService, IdLookup lookup, BatchMatcher batchMatcher,
+                     ObjectMapper mapper) {
     this.matchingService = matchingService;
     this.lookup = lookup;
+    this.batchMatcher = batchMatcher;
+    this.mapper = mapper;
   }
 
   @Hidden
@@ -207,6 +222,59 @@ public class NubResource {
         classification, exclude, bool(strict), bool(verbose)));
   }
 
+  /**
+   * Matches a JSON list of names in one request.
+   * Results are streamed back as a JSON array in the same order as the given names.
+   */
+  @Operation(
+    operationId = "matchNamesBatch",
+    summary = "Fuzzy name match service for a batch of names",
+    description = "Fuzzy matches a JSON list of names against the GBIF Backbone Taxonomy. Each entry accepts the same " +
+      "properties as the GET match parameters: usageKey, scientificName, authorship, rank, genericName, specificEpithet, " +
+      "infraspecificEpithet, kingdom, phylum, class, order, family, genus, strict and verbose.\n\n" +
+      "Matches are returned as a JSON list in the same order as the given names.",
+    extensions = @Extension(name = "Order", properties = @ExtensionProperty(name = "Order", value = "0131"))
+  )
+  @Tag(name = "Searching names")
+  @ApiResponse(responseCode = "200", description = "Name usage matches in request order")
+  @PostMapping(value = "match", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> matchBatch(@RequestBody List<NameMatchRequest> names) {
+    return stream(names, this::match);
+  }
+
+  // Not publicly documented to allow GBIF to change this API
+  @Hidden
+  @PostMapping(value = "match2", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> match2Batch(@RequestBody List<NameMatchRequest> names) {
+    return stream(names, req -> matchingService.v2(match(req)));
+  }
+
+  private NameUsageMatch match(NameMatchRequest req) {
+    // the request itself is the classification
+    return matchingService.match2(req.getUsageKey(), req.getScientificName(), req.getAuthorship(),
+        req.getGenericName(), req.getSpecificEpithet(), req.getInfraspecificEpithet(),
+        parseRank(req.getRank()), req, req.getExclude(), bool(req.getStrict()), bool(req.getVerbose()));
+  }
+
+  private <T> ResponseEntity<StreamingResponseBody> stream(List<NameMatchRequest> names, Function<NameMatchRequest, T> matcher) {
+    // fail before we start streaming so we can still respond with a proper http status
+    batchMatcher.verifyBatchSize(names);
+    StreamingResponseBody body = out -> {
+      try (JsonGenerator jgen = mapper.getFactory().createGenerator(out)) {
+        jgen.writeStartArray();
+        batchMatcher.match(names, matcher, m -> {
+          try {
+            jgen.writeObject(m);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+        jgen.writeEndArray();
+      }
+    };
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+
   private Rank parseRank(String value) throws IllegalArgumentException {
     if (!Strings.isNullOrEmpty(value)) {
       ParseResult<Rank> pr = RankParser.getInstance().parse(value);
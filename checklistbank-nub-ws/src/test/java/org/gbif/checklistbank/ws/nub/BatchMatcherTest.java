@@ -0,0 +1,64 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.nub;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BatchMatcherTest {
+
+  @Test
+  void preserveOrder() throws Exception {
+    List<NameMatchRequest> requests = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      NameMatchRequest req = new NameMatchRequest();
+      req.setUsageKey(i);
+      requests.add(req);
+    }
+
+    List<Integer> results = new ArrayList<>();
+    try (BatchMatcher matcher = new BatchMatcher(4, 1000)) {
+      matcher.match(requests, req -> {
+        // make later requests finish earlier
+        try {
+          Thread.sleep(req.getUsageKey() % 3);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        return req.getUsageKey();
+      }, results::add);
+    }
+
+    assertEquals(1000, results.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, (int) results.get(i));
+    }
+  }
+
+  @Test
+  void maxBatchSize() throws Exception {
+    try (BatchMatcher matcher = new BatchMatcher(2, 10)) {
+      List<NameMatchRequest> requests = new ArrayList<>();
+      for (int i = 0; i < 11; i++) {
+        requests.add(new NameMatchRequest());
+      }
+      assertThrows(IllegalArgumentException.class, () -> matcher.match(requests, r -> r, r -> {}));
+    }
+  }
+}
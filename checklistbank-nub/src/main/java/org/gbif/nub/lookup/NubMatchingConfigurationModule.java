@@ -14,11 +14,13 @@
 package org.gbif.nub.lookup;
 
 import org.gbif.nub.config.ClbNubConfiguration;
+import org.gbif.nub.lookup.fuzzy.FuzzyEngine;
 import org.gbif.nub.lookup.fuzzy.HigherTaxaComparator;
 import org.gbif.nub.lookup.fuzzy.NubIndex;
 import org.gbif.nub.lookup.fuzzy.NubIndexer;
 import org.gbif.nub.lookup.straight.IdLookup;
 import org.gbif.nub.lookup.straight.IdLookupImpl;
+import org.gbif.nub.lookup.straight.IdLookupMapped;
 import org.gbif.nub.lookup.straight.IdLookupPassThru;
 
 import java.io.File;
@@ -42,9 +44,15 @@ public class NubMatchingConfigurationModule {
   private static final Logger LOG = LoggerFactory.getLogger(NubMatchingConfigurationModule.class);
 
 
+  /**
+   * @param fuzzyEngine the implementation to generate fuzzy name candidates with, LUCENE or DELETION_INDEX
+   */
   @Bean
-  public NubIndex provideIndex(NubIndexer nubIndexer) throws IOException {
-    return nubIndexer.index();
+  public NubIndex provideIndex(NubIndexer nubIndexer,
+                               @Value("${checklistbank.nub.fuzzyEngine:LUCENE}") FuzzyEngine fuzzyEngine) throws IOException {
+    NubIndex index = nubIndexer.index();
+    index.setFuzzyEngine(fuzzyEngine);
+    return index;
   }
 
   @Bean
@@ -56,14 +64,34 @@ public class NubMatchingConfigurationModule {
     return comp;
   }
 
+  /**
+   * @param mapped if true use a read only, memory mapped snapshot instead of a mapdb based lookup
+   */
   @Bean
-  public IdLookup provideLookup(@Value("${checklistbank.nub.indexDir:#{null}}") File indexDir, ClbNubConfiguration cfg) {
+  public IdLookup provideLookup(@Value("${checklistbank.nub.indexDir:#{null}}") File indexDir, ClbNubConfiguration cfg,
+                                @Value("${checklistbank.nub.mappedLookup:false}") boolean mapped) {
     try {
       IdLookup lookup;
       if (cfg == null) {
         LOG.info("Using a pass through lookup");
         lookup = new IdLookupPassThru();
 
+      } else if (mapped) {
+        File snapshot;
+        if (indexDir == null) {
+          snapshot = File.createTempFile("nublookup", ".bin");
+          snapshot.deleteOnExit();
+        } else {
+          snapshot = new File(indexDir.getParentFile(), "nublookup.bin");
+        }
+        if (snapshot.exists() && snapshot.length() > 0) {
+          LOG.info("Opening lookup snapshot at {}", snapshot.getAbsolutePath());
+          lookup = IdLookupMapped.open(snapshot);
+        } else {
+          LOG.info("Creating lookup snapshot at {}", snapshot.getAbsolutePath());
+          lookup = IdLookupMapped.build(snapshot, cfg, false);
+        }
+
       } else if (indexDir == null) {
         LOG.info("Building a new temporary lookup db");
         lookup = IdLookupImpl.temp().load(cfg, false);
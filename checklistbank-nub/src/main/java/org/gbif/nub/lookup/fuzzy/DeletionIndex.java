@@ -0,0 +1,229 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.fuzzy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * A precomputed symmetric deletion index (SymSpell) over all terms of a lucene field,
+ * generating the same candidate terms as a lucene FuzzyQuery with a prefix length of 1 and up to 2 edits.
+ * <p>
+ * For every indexed term all variants with up to 2 characters deleted from its first {@link #PREFIX_LENGTH}
+ * characters are stored. A query term generates its own deletion variants, looks up the terms sharing any of them
+ * and verifies each of them with the restricted Damerau-Levenshtein distance lucene uses.
+ * Limiting the variants to the prefix keeps memory usage manageable while the final verification
+ * on the full term keeps results exact. Unlike the levenshtein automaton of a FuzzyQuery latency is bounded
+ * by the number of terms sharing a prefix and there is no risk of a TooComplexToDeterminizeException.
+ * <p>
+ * Candidates are plain terms, so an index built from an older reader only misses terms added since.
+ */
+class DeletionIndex {
+  private static final Logger LOG = LoggerFactory.getLogger(DeletionIndex.class);
+  static final int PREFIX_LENGTH = 7;
+  static final int MAX_EDITS = 2;
+  // same as the FuzzyQuery default
+  static final int MAX_EXPANSIONS = 50;
+
+  private final String field;
+  private final String[] terms;
+  private final Long2ObjectMap<IntArrayList> variants;
+
+  private DeletionIndex(String field, String[] terms, Long2ObjectMap<IntArrayList> variants) {
+    this.field = field;
+    this.terms = terms;
+    this.variants = variants;
+  }
+
+  /**
+   * Builds a new deletion index for all terms of the given field.
+   */
+  static DeletionIndex build(IndexReader reader, String field) throws IOException {
+    LOG.info("Start building deletion index for field {}", field);
+    List<String> termList = new ArrayList<>();
+    Terms fieldTerms = MultiFields.getTerms(reader, field);
+    if (fieldTerms != null) {
+      TermsEnum iter = fieldTerms.iterator();
+      BytesRef term;
+      while ((term = iter.next()) != null) {
+        termList.add(term.utf8ToString());
+      }
+    }
+    String[] terms = termList.toArray(new String[0]);
+    DeletionIndex idx = new DeletionIndex(field, terms, new Long2ObjectOpenHashMap<>());
+    for (int id = 0; id < terms.length; id++) {
+      for (String v : deletes(terms[id], MAX_EDITS)) {
+        idx.variants.computeIfAbsent(hash(v), k -> new IntArrayList(1)).add(id);
+      }
+    }
+    for (IntArrayList ids : idx.variants.values()) {
+      ids.trim();
+    }
+    LOG.info("Built deletion index with {} terms and {} deletion variants", terms.length, idx.variants.size());
+    return idx;
+  }
+
+  /**
+   * A drop in replacement for a lucene FuzzyQuery with a prefix length of 1.
+   * Matches any of the candidate terms, boosting closer ones.
+   */
+  Query fuzzyQuery(Term term, int maxEdits) {
+    BooleanQuery.Builder builder = new BooleanQuery.Builder();
+    for (Candidate c : candidates(term.text(), maxEdits)) {
+      TermQuery tq = new TermQuery(new Term(field, c.term));
+      tq.setBoost(1 + maxEdits - c.distance);
+      builder.add(tq, BooleanClause.Occur.SHOULD);
+    }
+    return builder.build();
+  }
+
+  /**
+   * @return all indexed terms within maxEdits of the given term sharing the same first character,
+   * closest and alphabetically first ones first, limited to MAX_EXPANSIONS.
+   */
+  @VisibleForTesting
+  List<Candidate> candidates(String term, int maxEdits) {
+    List<Candidate> candidates = new ArrayList<>();
+    if (term.isEmpty()) {
+      return candidates;
+    }
+    IntSet seen = new IntOpenHashSet();
+    for (String v : deletes(term, Math.min(maxEdits, MAX_EDITS))) {
+      IntArrayList ids = variants.get(hash(v));
+      if (ids != null) {
+        for (int i = 0; i < ids.size(); i++) {
+          int id = ids.getInt(i);
+          if (seen.add(id)) {
+            String t = terms[id];
+            if (t.charAt(0) == term.charAt(0) && Math.abs(t.length() - term.length()) <= maxEdits) {
+              int dist = distance(term, t, maxEdits);
+              // like lucene we require a similarity above zero, i.e. fewer edits than the shorter term has characters
+              if (dist <= maxEdits && dist < Math.min(t.length(), term.length())) {
+                candidates.add(new Candidate(t, dist));
+              }
+            }
+          }
+        }
+      }
+    }
+    candidates.sort(Comparator.<Candidate>comparingInt(c -> c.distance).thenComparing(c -> c.term));
+    return candidates.size() > MAX_EXPANSIONS ? candidates.subList(0, MAX_EXPANSIONS) : candidates;
+  }
+
+  static class Candidate {
+    final String term;
+    final int distance;
+
+    Candidate(String term, int distance) {
+      this.term = term;
+      this.distance = distance;
+    }
+  }
+
+  /**
+   * @return the term prefix plus all its variants with up to maxDeletes characters removed
+   */
+  private static Set<String> deletes(String term, int maxDeletes) {
+    Set<String> result = new HashSet<>();
+    String prefix = term.length() > PREFIX_LENGTH ? term.substring(0, PREFIX_LENGTH) : term;
+    result.add(prefix);
+    addDeletes(prefix, maxDeletes, result);
+    return result;
+  }
+
+  private static void addDeletes(String x, int maxDeletes, Set<String> result) {
+    if (maxDeletes > 0 && x.length() > 1) {
+      for (int i = 0; i < x.length(); i++) {
+        String del = x.substring(0, i) + x.substring(i + 1);
+        if (result.add(del)) {
+          addDeletes(del, maxDeletes - 1, result);
+        }
+      }
+    }
+  }
+
+  /**
+   * 64 bit FNV-1a hash. Collisions only cause additional candidates to be verified.
+   */
+  private static long hash(String x) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < x.length(); i++) {
+      h ^= x.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    return h;
+  }
+
+  /**
+   * Optimal string alignment distance, i.e. levenshtein with transpositions as used by lucene.
+   * Stops early and returns maxEdits + 1 as soon as the distance is known to exceed maxEdits.
+   */
+  @VisibleForTesting
+  static int distance(String a, String b, int maxEdits) {
+    final int n = a.length();
+    final int m = b.length();
+    int[] prev2 = new int[m + 1];
+    int[] prev = new int[m + 1];
+    int[] curr = new int[m + 1];
+    for (int j = 0; j <= m; j++) {
+      prev[j] = j;
+    }
+    for (int i = 1; i <= n; i++) {
+      curr[0] = i;
+      int rowMin = curr[0];
+      for (int j = 1; j <= m; j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int d = Math.min(Math.min(prev[j] + 1, curr[j - 1] + 1), prev[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d = Math.min(d, prev2[j - 2] + 1);
+        }
+        curr[j] = d;
+        rowMin = Math.min(rowMin, d);
+      }
+      if (rowMin > maxEdits) {
+        return maxEdits + 1;
+      }
+      int[] tmp = prev2;
+      prev2 = prev;
+      prev = curr;
+      curr = tmp;
+    }
+    return prev[m];
+  }
+}
@@ -111,7 +111,11 @@ public class NubIndex implements AutoCloseable {
   private static final ScientificNameAnalyzer analyzer = new ScientificNameAnalyzer();
   private final UUID datasetKey;
   private final Directory index;
-  private final IndexSearcher searcher;
+  private final SearcherManager searcherManager;
+  // optional in memory copy of all stored fields
+  private volatile UsageTable usageTable;
+  // optional precomputed fuzzy candidates, null to use lucene FuzzyQueries
+  private volatile DeletionIndex deletionIndex;
 
   private static void load(Directory d, NameUsageMapper mapper, UUID nubDatasetKey) throws IOException {
     LOG.info("Start building a new nub index from checklist {}", nubDatasetKey);
@@ -182,8 +186,45 @@ public class NubIndex implements AutoCloseable {
   public NubIndex(UUID datasetKey, Directory d) throws IOException {
     index = d;
     this.datasetKey = datasetKey;
-    DirectoryReader reader = DirectoryReader.open(index);
-    searcher = new IndexSearcher(reader);
+    searcherManager = new SearcherManager(index, null);
+  }
+
+  /**
+   * Loads all stored usage fields into a compact in memory table so searches only need to collect lucene document ids.
+   */
+  public synchronized void loadUsageTable() throws IOException {
+    buildUsageTable();
+  }
+
+  /**
+   * Selects the engine used to generate fuzzy name candidates.
+   * The deletion index is built right away.
+   */
+  public synchronized void setFuzzyEngine(FuzzyEngine engine) throws IOException {
+    LOG.info("Use {} fuzzy engine", engine);
+    if (engine == FuzzyEngine.DELETION_INDEX) {
+      buildDeletionIndex();
+    } else {
+      deletionIndex = null;
+    }
+  }
+
+  private void buildDeletionIndex() throws IOException {
+    IndexSearcher searcher = searcherManager.acquire();
+    try {
+      deletionIndex = DeletionIndex.build(searcher.getIndexReader(), FIELD_CANONICAL_NAME);
+    } finally {
+      searcherManager.release(searcher);
+    }
+  }
+
+  private void buildUsageTable() throws IOException {
+    IndexSearcher searcher = searcherManager.acquire();
+    try {
+      usageTable = UsageTable.build(searcher.getIndexReader());
+    } finally {
+      searcherManager.release(searcher);
+    }
   }
 
   public UUID getDatasetKey() {
@@ -195,16 +236,19 @@ public class NubIndex implements AutoCloseable {
     Query q = NumericRangeQuery.newIntRange(NubIndex.FIELD_ID, Integer.MAX_VALUE, usageID, usageID, true, true);
 
     try {
-      IndexSearcher searcher = obtainSearcher();
-      TopDocs docs = searcher.search(q, 3);
-      if (docs.totalHits > 0) {
-        Document doc = searcher.doc(docs.scoreDocs[0].doc);
-        NameUsageMatch match = fromDoc(doc);
-        match.setConfidence(100);
-        return match;
-
-      } else {
-        LOG.warn("No usage {} found in lucene index", usageID);
+      IndexSearcher searcher = searcherManager.acquire();
+      try {
+        TopDocs docs = searcher.search(q, 3);
+        if (docs.totalHits > 0) {
+          NameUsageMatch match = toMatch(searcher, docs.scoreDocs[0].doc);
+          match.setConfidence(100);
+          return match;
+
+        } else {
+          LOG.warn("No usage {} found in lucene index", usageID);
+        }
+      } finally {
+        searcherManager.release(searcher);
       }
     } catch (IOException e) {
       LOG.error("Cannot load usage {} from lucene index", usageID, e.getMessage());
@@ -228,7 +272,7 @@ public class NubIndex implements AutoCloseable {
     Query q;
     if (fuzzySearch) {
       // allow 2 edits for names longer than 10 chars
-      q = new FuzzyQuery(t, analyzedName.length() > 10 ? 2 : 1, 1);
+      q = fuzzyQuery(t, analyzedName.length() > 10 ? 2 : 1);
     } else {
       q = new TermQuery(t);
     }
@@ -242,27 +286,39 @@ public class NubIndex implements AutoCloseable {
     }
   }
 
+  private Query fuzzyQuery(Term t, int maxEdits) {
+    DeletionIndex di = deletionIndex;
+    if (di != null) {
+      return di.fuzzyQuery(t, maxEdits);
+    }
+    return new FuzzyQuery(t, maxEdits, 1);
+  }
+
   private List<NameUsageMatch> search(Query q, String name, boolean fuzzySearch, int maxMatches) {
     List<NameUsageMatch> results = Lists.newArrayList();
     try {
-      IndexSearcher searcher = obtainSearcher();
-      TopDocs docs = searcher.search(q, maxMatches);
-      if (docs.totalHits > 0) {
-        for (ScoreDoc sdoc : docs.scoreDocs) {
-          NameUsageMatch match = fromDoc(searcher.doc(sdoc.doc));
-          if (name.equalsIgnoreCase(match.getCanonicalName())) {
-            match.setMatchType(NameUsageMatch.MatchType.EXACT);
-            results.add(match);
-          } else {
-            // even though we used a term query for straight matching the lucene analyzer has already normalized
-            // the name drastically. So we include these matches here only in case of fuzzy queries
-            match.setMatchType(NameUsageMatch.MatchType.FUZZY);
-            results.add(match);
+      IndexSearcher searcher = searcherManager.acquire();
+      try {
+        TopDocs docs = searcher.search(q, maxMatches);
+        if (docs.totalHits > 0) {
+          for (ScoreDoc sdoc : docs.scoreDocs) {
+            NameUsageMatch match = toMatch(searcher, sdoc.doc);
+            if (name.equalsIgnoreCase(match.getCanonicalName())) {
+              match.setMatchType(NameUsageMatch.MatchType.EXACT);
+              results.add(match);
+            } else {
+              // even though we used a term query for straight matching the lucene analyzer has already normalized
+              // the name drastically. So we include these matches here only in case of fuzzy queries
+              match.setMatchType(NameUsageMatch.MatchType.FUZZY);
+              results.add(match);
+            }
           }
-        }
 
-      } else {
-        LOG.debug("No {} match for name {}", fuzzySearch ? "fuzzy" : "straight", name);
+        } else {
+          LOG.debug("No {} match for name {}", fuzzySearch ? "fuzzy" : "straight", name);
+        }
+      } finally {
+        searcherManager.release(searcher);
       }
 
     } catch (IOException e) {
@@ -271,15 +327,22 @@ public class NubIndex implements AutoCloseable {
     return results;
   }
 
-  private IndexSearcher obtainSearcher() {
-    return searcher;
+  /**
+   * Builds a NameUsageMatch for the given document id, using the usage table if it belongs to the searchers reader.
+   */
+  private NameUsageMatch toMatch(IndexSearcher searcher, int doc) throws IOException {
+    UsageTable table = usageTable;
+    if (table != null && table.isFor(searcher.getIndexReader())) {
+      return table.get(doc);
+    }
+    return fromDoc(searcher.doc(doc));
   }
 
   /**
    * Builds a NameUsageMatch instance from a lucene Document and populates all fields but the matching specifics
    * i.e. confidence and matchType.
    */
-  private static NameUsageMatch fromDoc(Document doc) {
+  static NameUsageMatch fromDoc(Document doc) {
     NameUsageMatch u = new NameUsageMatch();
     u.setUsageKey(toInt(doc, FIELD_ID));
     u.setAcceptedUsageKey(toInteger(doc, FIELD_ACCEPTED_ID));
@@ -381,6 +444,7 @@ public class NubIndex implements AutoCloseable {
 
   @Override
   public void close() throws Exception {
+    searcherManager.close();
     index.close();
   }
 }
@@ -34,15 +34,21 @@ public class NubIndexer {
   private final NameUsageMapper mapper;
   private final File indexDir;
   private final UUID nubDatasetKey;
+  private final boolean usageTable;
 
+  /**
+   * @param usageTable if true loads all stored usage fields into memory once instead of reading them from lucene for every hit
+   */
   @Autowired
   public NubIndexer(NameUsageMapper mapper,
                     @Value("${checklistbank.nub.indexDir:#{null}}") File indexDir,
-                    @Value("${checklistbank.nub.datasetKey:d7dddbf4-2cf0-4f39-9b2a-bb099caae36c}") UUID nubDatasetKey) {
+                    @Value("${checklistbank.nub.datasetKey:d7dddbf4-2cf0-4f39-9b2a-bb099caae36c}") UUID nubDatasetKey,
+                    @Value("${checklistbank.nub.usageTable:false}") boolean usageTable) {
     this.mapper = mapper;
     this.indexDir = indexDir;
     this.nubDatasetKey =
       nubDatasetKey;
+    this.usageTable = usageTable;
   }
 
   @Transactional
@@ -57,6 +63,9 @@ public class NubIndexer {
       index = NubIndex.newFileIndex(indexDir, mapper, nubDatasetKey);
       LOG.info("Lucene file index initialized at {}", indexDir.getAbsolutePath());
     }
+    if (usageTable) {
+      index.loadUsageTable();
+    }
     return index;
   }
 }
@@ -33,6 +33,8 @@ import org.gbif.nub.lookup.similarity.ScientificNameSimilarity;
 import org.gbif.nub.lookup.similarity.StringSimilarity;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
@@ -45,12 +47,18 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.common.collect.*;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 @Service
 public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsageMatchingService2 {
@@ -90,19 +98,98 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
   }
 
   private final AuthorComparator authComp;
+  // name based match results, null if caching is disabled
+  private final Cache<MatchKey, NameUsageMatch> cache;
 
   protected enum MatchingMode {FUZZY, STRICT, HIGHER}
 
   /**
-   * @param nubIndex
-   * @param htComp
+   * Creates a matching service without a result cache.
    */
-  @Autowired
   public NubMatchingServiceImpl(NubIndex nubIndex, HigherTaxaComparator htComp) {
+    this(nubIndex, htComp, 0, 0);
+  }
+
+  /**
+   * @param cacheSize maximum number of name based match results to cache. Zero or less disables the cache
+   * @param cacheTtl seconds to keep a cached match result. The nub index never changes once opened,
+   *                 so this is the only expiry and results of a new backbone require a restart or the ttl to pass
+   */
+  @Autowired
+  public NubMatchingServiceImpl(NubIndex nubIndex, HigherTaxaComparator htComp,
+                                @Value("${checklistbank.nub.cache.size:100000}") long cacheSize,
+                                @Value("${checklistbank.nub.cache.ttl:3600}") long cacheTtl) {
     this.nubIndex = nubIndex;
     this.htComp = htComp;
     authComp = AuthorComparator.createWithAuthormap();
     initHackMap();
+    if (cacheSize > 0) {
+      LOG.info("Caching up to {} match results for {}s", cacheSize, cacheTtl);
+      cache = CacheBuilder.newBuilder()
+          .maximumSize(cacheSize)
+          .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+          .recordStats()
+          .build();
+    } else {
+      cache = null;
+    }
+  }
+
+  /**
+   * Cache key made up of the normalized request parameters used for name based matching.
+   */
+  private static class MatchKey {
+    private final String name;
+    private final Rank rank;
+    private final List<String> classification;
+    private final Set<Integer> exclude;
+    private final boolean strict;
+    private final boolean verbose;
+
+    MatchKey(String name, Rank rank, @Nullable LinneanClassification cl, @Nullable Set<Integer> exclude, boolean strict, boolean verbose) {
+      this.name = name;
+      this.rank = rank;
+      this.classification = new ArrayList<>(Rank.LINNEAN_RANKS.size());
+      for (Rank r : Rank.LINNEAN_RANKS) {
+        classification.add(cl == null ? null : cl.getHigherRank(r));
+      }
+      this.exclude = exclude == null ? ImmutableSet.of() : ImmutableSet.copyOf(exclude);
+      this.strict = strict;
+      this.verbose = verbose;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) return true;
+      if (o == null || getClass() != o.getClass()) return false;
+      MatchKey that = (MatchKey) o;
+      return strict == that.strict &&
+          verbose == that.verbose &&
+          Objects.equals(name, that.name) &&
+          rank == that.rank &&
+          Objects.equals(classification, that.classification) &&
+          Objects.equals(exclude, that.exclude);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(name, rank, classification, exclude, strict, verbose);
+    }
+  }
+
+  /**
+   * @return hit, miss and eviction counts of the match result cache or null if caching is disabled
+   */
+  @Nullable
+  public CacheStats getCacheStats() {
+    return cache == null ? null : cache.stats();
+  }
+
+  /**
+   * @return number of currently cached match results
+   */
+  public long getCacheSize() {
+    return cache == null ? 0 : cache.size();
   }
 
   private void initHackMap() {
@@ -240,7 +327,7 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
       LOG.debug("{} Match of usageKey[{}] in {}", match.getMatchType(), usageKey, watch);
     } else {
       NameNRank nr = NameNRank.build(scientificName, authorship, genericName, specificEpithet, infraSpecificEpithet, rank, classification);
-      match = matchInternal(nr.name, nr.rank, classification, exclude, strict, verbose);
+      match = matchCached(nr.name, nr.rank, classification, exclude, strict, verbose);
       watch.stop();
       LOG.debug("{} Match of {} >{}< to {} [{}] in {}", match.getMatchType(), nr.rank, nr.name, match.getUsageKey(), match.getScientificName(), watch);
     }
@@ -248,6 +335,27 @@ public class NubMatchingServiceImpl implements NameUsageMatchingService, NameUsa
     return match;
   }
 
+  /**
+   * Looks up the match result in the cache first, delegating to matchInternal for misses.
+   * Cached matches are shared between callers and must not be modified.
+   */
+  private NameUsageMatch matchCached(@Nullable String scientificName, @Nullable Rank rank, @Nullable LinneanClassification classification, Set<Integer> exclude, boolean strict, boolean verbose) {
+    if (cache == null) {
+      return matchInternal(scientificName, rank, classification, exclude, strict, verbose);
+    }
+    // matchInternal cleans the classification anyway, do it upfront to normalize the cache key
+    if (classification != null) {
+      cleanClassification(classification);
+    }
+    MatchKey key = new MatchKey(CleanupUtils.clean(scientificName), rank, classification, exclude, strict, verbose);
+    try {
+      return cache.get(key, () -> matchInternal(scientificName, rank, classification, exclude, strict, verbose));
+    } catch (ExecutionException | UncheckedExecutionException e) {
+      Throwables.throwIfUnchecked(e.getCause());
+      throw new IllegalStateException("Failed to match " + scientificName, e.getCause());
+    }
+  }
+
   /**
    * Real method doing the work
    */
@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.fuzzy;
+
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.api.util.ClassificationUtils;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.util.Bits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * A columnar, in heap copy of all stored fields of the nub index, addressed by the lucene document id.
+ * Keys, ranks and status are kept in primitive arrays, all names in a single deduplicated string pool.
+ * <p>
+ * This allows searches to only collect document ids and build NameUsageMatch instances straight from memory
+ * instead of loading and decompressing the stored lucene fields for every hit.
+ * A table is only valid for the index reader it was built from as document ids change with every new reader.
+ */
+class UsageTable {
+  private static final Logger LOG = LoggerFactory.getLogger(UsageTable.class);
+  private static final int NULL = -1;
+  private static final Rank[] RANKS = Rank.values();
+  private static final TaxonomicStatus[] STATUS = TaxonomicStatus.values();
+  private static final List<Rank> HIGHER_RANKS = ImmutableList.of(
+      Rank.KINGDOM, Rank.PHYLUM, Rank.CLASS, Rank.ORDER, Rank.FAMILY, Rank.GENUS, Rank.SPECIES
+  );
+
+  private final IndexReader reader;
+  private final int[] usageKey;
+  private final int[] acceptedKey;
+  private final byte[] rank;
+  private final byte[] status;
+  private final int[] scientificName;
+  private final int[] canonicalName;
+  // first dimension is the index of the rank in HIGHER_RANKS
+  private final int[][] higherKey;
+  private final int[][] higherName;
+  private String[] names;
+
+  private UsageTable(IndexReader reader, int size) {
+    this.reader = reader;
+    usageKey = new int[size];
+    acceptedKey = new int[size];
+    rank = new byte[size];
+    status = new byte[size];
+    scientificName = new int[size];
+    canonicalName = new int[size];
+    higherKey = new int[HIGHER_RANKS.size()][size];
+    higherName = new int[HIGHER_RANKS.size()][size];
+  }
+
+  /**
+   * Reads all stored documents of the given reader into a new table.
+   */
+  static UsageTable build(IndexReader reader) throws IOException {
+    LOG.info("Start loading usage table for {} documents", reader.numDocs());
+    final int size = reader.maxDoc();
+    final Bits live = MultiFields.getLiveDocs(reader);
+
+    UsageTable table = new UsageTable(reader, size);
+    StringPool pool = new StringPool();
+    for (int doc = 0; doc < size; doc++) {
+      if (live == null || live.get(doc)) {
+        table.set(doc, NubIndex.fromDoc(reader.document(doc)), pool);
+      } else {
+        table.usageKey[doc] = NULL;
+      }
+    }
+    table.names = pool.toArray();
+    LOG.info("Loaded usage table with {} documents and {} distinct names", reader.numDocs(), table.names.length);
+    return table;
+  }
+
+  private void set(int doc, NameUsageMatch m, StringPool pool) {
+    usageKey[doc] = m.getUsageKey();
+    acceptedKey[doc] = toInt(m.getAcceptedUsageKey());
+    rank[doc] = (byte) m.getRank().ordinal();
+    status[doc] = (byte) m.getStatus().ordinal();
+    scientificName[doc] = pool.idx(m.getScientificName());
+    canonicalName[doc] = pool.idx(m.getCanonicalName());
+    for (int i = 0; i < HIGHER_RANKS.size(); i++) {
+      Rank r = HIGHER_RANKS.get(i);
+      higherKey[i][doc] = toInt(m.getHigherRankKey(r));
+      higherName[i][doc] = pool.idx(m.getHigherRank(r));
+    }
+  }
+
+  /**
+   * @return true if the table was built from the given reader and its document ids can be used
+   */
+  boolean isFor(IndexReader reader) {
+    return this.reader == reader;
+  }
+
+  /**
+   * Builds a new NameUsageMatch instance for the given document populating all fields
+   * but the matching specifics, i.e. confidence and matchType.
+   */
+  NameUsageMatch get(int doc) {
+    NameUsageMatch u = new NameUsageMatch();
+    u.setUsageKey(usageKey[doc]);
+    u.setAcceptedUsageKey(toInteger(acceptedKey[doc]));
+    u.setScientificName(name(scientificName[doc]));
+    u.setCanonicalName(name(canonicalName[doc]));
+    for (int i = 0; i < HIGHER_RANKS.size(); i++) {
+      ClassificationUtils.setHigherRank(u, HIGHER_RANKS.get(i), name(higherName[i][doc]), toInteger(higherKey[i][doc]));
+    }
+    u.setRank(RANKS[rank[doc]]);
+    u.setStatus(STATUS[status[doc]]);
+    return u;
+  }
+
+  int size() {
+    return usageKey.length;
+  }
+
+  private String name(int idx) {
+    return idx == NULL ? null : names[idx];
+  }
+
+  private static int toInt(Integer x) {
+    return x == null ? NULL : x;
+  }
+
+  private static Integer toInteger(int x) {
+    return x == NULL ? null : x;
+  }
+
+  /**
+   * Assigns a stable index to every distinct string, null being represented by the NULL index.
+   */
+  private static class StringPool {
+    private final Object2IntMap<String> index = new Object2IntOpenHashMap<>();
+    private String[] strings = new String[1024];
+
+    StringPool() {
+      index.defaultReturnValue(NULL);
+    }
+
+    int idx(String x) {
+      if (x == null) {
+        return NULL;
+      }
+      int idx = index.getInt(x);
+      if (idx == NULL) {
+        idx = index.size();
+        if (idx == strings.length) {
+          strings = Arrays.copyOf(strings, strings.length * 2);
+        }
+        strings[idx] = x;
+        index.put(x, idx);
+      }
+      return idx;
+    }
+
+    String[] toArray() {
+      return Arrays.copyOf(strings, index.size());
+    }
+  }
+}
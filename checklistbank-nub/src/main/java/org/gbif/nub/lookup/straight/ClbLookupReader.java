@@ -0,0 +1,203 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.postgres.TabMapperBase;
+import org.gbif.nub.config.ClbNubConfiguration;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.postgresql.copy.CopyManager;
+import org.postgresql.core.BaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+/**
+ * Streams all backbone usages needed for an id lookup from postgres using the COPY command.
+ */
+class ClbLookupReader {
+  private static final Logger LOG = LoggerFactory.getLogger(ClbLookupReader.class);
+
+  private ClbLookupReader() {
+  }
+
+  /**
+   * Reads all backbone usages, passing each of them to the consumer.
+   * Pro parte usages are read last and only once with all their pro parte keys.
+   */
+  static void read(ClbNubConfiguration clb, boolean includeDeleted, Consumer<LookupUsage> consumer) throws SQLException, IOException {
+    AtomicInteger counter = new AtomicInteger();
+    Consumer<LookupUsage> counting = u -> {
+      counter.incrementAndGet();
+      consumer.accept(u);
+    };
+    try (Connection c = clb.connect()) {
+      final CopyManager cm = new CopyManager((BaseConnection) c);
+      final String delClause = includeDeleted ? "" : " AND deleted is null";
+
+      // first read bulk of regular usages - we add pro parte usage later
+      LOG.info("Reading existing nub usages {}from postgres ...", includeDeleted ? "incl. deleted " : "");
+      try (Writer writer = new UsageWriter(counting)) {
+        cm.copyOut("COPY ("
+            + "SELECT u.id, coalesce(NULLIF(trim(n.canonical_name), ''), n.scientific_name), n.authorship, n.year, u.rank, u.status, u.kingdom_fk, deleted is not null"
+            + " FROM name_usage u join name n ON name_fk=n.id"
+            + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "'" + delClause + " AND pp_synonym_fk is null)"
+            + " TO STDOUT WITH NULL ''", writer);
+        LOG.info("Read {} nub usages", counter.get());
+      }
+      final int uCount = counter.get();
+
+      // now load pro parte keys separately saving us from doing complex aggregations
+      LOG.info("Reading existing pro parte nub usages {}from postgres ...", includeDeleted ? "incl. deleted " : "");
+      try (Writer writer = new ProParteUsageWriter(counting)) {
+        cm.copyOut("COPY ("
+            + "SELECT u.id, u.parent_fk, u.pp_synonym_fk, coalesce(NULLIF(trim(n.canonical_name), ''), n.scientific_name), n.authorship, n.year, u.rank, u.status, u.kingdom_fk, deleted is not null"
+            + " FROM name_usage u join name n ON name_fk=n.id"
+            + " WHERE dataset_key = '" + Constants.NUB_DATASET_KEY + "'" + delClause + " AND pp_synonym_fk is not null"
+            + " ORDER BY pp_synonym_fk)"
+            + " TO STDOUT WITH NULL ''", writer);
+        LOG.info("Read {} pro parte usages", counter.get() - uCount);
+      }
+    }
+  }
+
+  /**
+   * int key
+   * String canonical
+   * String authorship
+   * String year
+   * Rank rank
+   * TaxonomicStatus status
+   * Kingdom kingdom
+   * boolean deleted
+   */
+  private static class UsageWriter extends TabMapperBase {
+    private final Consumer<LookupUsage> consumer;
+
+    public UsageWriter(Consumer<LookupUsage> consumer) {
+      // the number of columns in our query to consume
+      super(8);
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+      LookupUsage u = new LookupUsage(
+          toInt(row[0]),
+          row[1],
+          row[2],
+          row[3],
+          Rank.valueOf(row[4]),
+          TaxonomicStatus.valueOf(row[5]),
+          toKingdom(row[6]),
+          "t".equals(row[7])
+      );
+      consumer.accept(u);
+    }
+  }
+
+  /**
+   * The writer expects the incoming rows to be sorted by the proParteKey!
+   * <p>
+   * int key
+   * int parentKey
+   * int proParteKey
+   * String canonical
+   * String authorship
+   * String year
+   * Rank rank
+   * TaxonomicStatus status
+   * Kingdom kingdom
+   * boolean deleted
+   */
+  private static class ProParteUsageWriter extends TabMapperBase {
+    private final Consumer<LookupUsage> consumer;
+    private LookupUsage u;
+    private Integer lastProParteKey;
+
+    public ProParteUsageWriter(Consumer<LookupUsage> consumer) {
+      // the number of columns in our query to consume
+      super(10);
+      this.consumer = consumer;
+    }
+
+    @Override
+    protected void addRow(String[] row) {
+      Integer key = toInt(row[0]);
+      Integer parentKey = toInt(row[1]);
+      Integer proParteKey = toInt(row[2]);
+      boolean deleted = "t".equals(row[9]);
+      // only create a new usage if the pro parte key changes
+      if (lastProParteKey == null || !lastProParteKey.equals(proParteKey)) {
+        // add last if existing
+        if (u != null) {
+          consumer.accept(u);
+        }
+        // start new usage
+        lastProParteKey = proParteKey;
+        u = new LookupUsage(
+            key,
+            new Int2IntOpenHashMap(),
+            row[3],
+            row[4],
+            row[5],
+            Rank.valueOf(row[6]),
+            TaxonomicStatus.valueOf(row[7]),
+            toKingdom(row[8]),
+            deleted
+        );
+      }
+      // negate key if its a deleted usage
+      key = deleted ? -1 * key : key;
+      // add parent key -> usage key into map
+      u.getProParteKeys().put(parentKey, key);
+    }
+
+    @Override
+    public void close() throws IOException {
+      // we need to add the last usage still
+      if (u != null) {
+        consumer.accept(u);
+      }
+      super.close();
+    }
+  }
+
+  /**
+   * Translates the kingdom_fk into a kingdom enum value.
+   * To avoid NPEs it translates null kingdoms into incertae sedis,
+   * see http://dev.gbif.org/issues/browse/POR-3202
+   *
+   * @return matching kingdom or incertae sedis in case of null (which should *never* happen!)
+   */
+  private static Kingdom toKingdom(String x) {
+    Integer usageKey = toInt(x);
+    return usageKey == null ? Kingdom.INCERTAE_SEDIS : Kingdom.byNubUsageKey(usageKey);
+  }
+
+  private static Integer toInt(String x) {
+    return x == null ? null : Integer.valueOf(x);
+  }
+}
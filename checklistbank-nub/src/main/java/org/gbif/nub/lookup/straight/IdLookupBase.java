@@ -0,0 +1,319 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.model.checklistbank.ParsedName;
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.checklistbank.authorship.AuthorComparator;
+import org.gbif.checklistbank.model.Equality;
+import org.gbif.checklistbank.utils.KingdomUtils;
+import org.gbif.checklistbank.utils.NameFormatter;
+import org.gbif.checklistbank.utils.RankUtils;
+import org.gbif.checklistbank.utils.SciNameNormalizer;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import javax.annotation.Nullable;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntSet;
+
+/**
+ * Base class for id lookups doing a lookup by the normalized canonical name
+ * and then leniently filtering by rank, kingdom and authorship.
+ * Implementations only need to provide the usages for a given normalized canonical name.
+ */
+abstract class IdLookupBase implements IdLookup {
+  private static final Logger LOG = LoggerFactory.getLogger(IdLookupBase.class);
+
+  protected final AuthorComparator authComp = AuthorComparator.createWithAuthormap();
+
+  /**
+   * @param canonicalNameNormed the canonical name normalized with {@link #norm(String)}
+   * @return a new, modifiable list of all usages with the given normalized canonical name or null if there are none
+   */
+  protected abstract List<LookupUsage> get(String canonicalNameNormed);
+
+  @VisibleForTesting
+  protected static String norm(String x) {
+    x = SciNameNormalizer.normalize(x);
+    return StringUtils.isBlank(x) ? null : x.toLowerCase();
+  }
+
+  @Override
+  public AuthorComparator getAuthorComparator() {
+    return authComp;
+  }
+
+  @Override
+  public List<LookupUsage> match(String canonicalName) {
+    List<LookupUsage> hits = get(norm(canonicalName));
+    if (hits != null) {
+      return hits;
+    }
+    return Lists.newArrayList();
+  }
+
+  private static boolean ignore(int id, IntSet[] ignoreIDs){
+    if (ignoreIDs != null) {
+      for (IntSet set : ignoreIDs) {
+        if (set.contains(id)) return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public LookupUsage match(final String canonicalName, @Nullable String authorship, @Nullable String year, Rank rank, @Nullable TaxonomicStatus status, Kingdom kingdom, IntSet... ignoreIDs) {
+    final String canonicalNameNormed = norm(canonicalName);
+    if (canonicalNameNormed == null) return null;
+
+    List<LookupUsage> hits = get(canonicalNameNormed);
+    if (hits == null) return null;
+
+    final boolean lookupWithAuthorship = authorship != null || year != null;
+    List<LookupUsage> withAuthormatch = new ArrayList<>();
+    List<LookupUsage> canonicalMatch = new ArrayList<>();
+
+    // filter by rank, kingdom & authorship
+    Iterator<LookupUsage> iter = hits.iterator();
+    while (iter.hasNext()) {
+      LookupUsage u = iter.next();
+      if (ignore(u.getKey(), ignoreIDs)) {
+        iter.remove();
+      } else {
+        boolean matchWithAuthorship = u.getAuthorship() != null || u.getYear() != null;
+        // allow uncertain kingdoms and ranks to match
+        if (rank != null && !RankUtils.match(rank, u.getRank()) || kingdom != null && !KingdomUtils.match(kingdom, u.getKingdom())) {
+          iter.remove();
+        } else {
+          // compare authorship. Only keep unknown matches if no authorship was requested
+          Equality eq = authComp.compare(authorship, year, u.getAuthorship(), u.getYear());
+          if (eq == Equality.DIFFERENT) {
+            iter.remove();
+          } else {
+            if (!matchWithAuthorship) {
+              canonicalMatch.add(u);
+            } else if (eq == Equality.EQUAL){
+              withAuthormatch.add(u);
+            }
+          }
+        }
+      }
+    }
+
+    if (!withAuthormatch.isEmpty()) {
+      hits = withAuthormatch;
+    } else if (!lookupWithAuthorship && !canonicalMatch.isEmpty()) {
+      hits = canonicalMatch;
+    }
+
+    if (hits.size() == 1) {
+      return hits.get(0);
+
+    } else if (hits.size() > 1) {
+      // try a very exact match first to see if we only get 1 hit
+      LookupUsage exact = exactMatch(canonicalName, authorship, year, hits);
+      if (exact != null) {
+        LOG.debug("{} matches, but only 1 exact match {} for {} {} {} {} {}", hits.size(), exact.getKey(), kingdom, rank, canonicalName, authorship, year);
+        return exact;
+      }
+
+      // Several matches. If we ever had too many bad usages they might block forever a stable id.
+
+      // If only one current id is matched use that!
+      List<LookupUsage> current = hits.stream()
+              .filter(u -> !u.isDeleted())
+              .collect(Collectors.toList());
+      if (current.size() == 1) {
+        LOG.debug("{} matches, but only 1 current usage {} for {} {} {} {} {}", hits.size(), current.get(0).getKey(), kingdom, rank, canonicalName, authorship, year);
+        return current.get(0);
+      }
+
+      // if requested rank & kingdom was clear, snap better to results utilizing the status and prefering current over deleted usages
+      LookupUsage match = null;
+      if (rank != Rank.UNRANKED && kingdom != Kingdom.INCERTAE_SEDIS) {
+        // use only current matches if possible
+        if (status != null) {
+          match = matchByStatus(status, current);
+          if (match == null) {
+            match = matchByStatus(status, hits);
+          }
+        }
+      }
+
+      // Still no clear match - pick lowest key
+      if (match == null) {
+        match = selectLowestKey(hits);
+        LOG.debug("Use lowest usage key {} for ambiguous match with {} hits for {} {} {} {} {}", match.getKey(), hits.size(), kingdom, rank, canonicalName, authorship, year);
+      }
+      return match;
+    }
+    LOG.debug("No match for {} {} {} {} {}", kingdom, rank, canonicalName, authorship, year);
+    return null;
+  }
+
+  /**
+   * Try to match exactly kingdom, rank, canonical name, authorship and year on current, non deleted names only.
+   * @return match or null
+   */
+  @Override
+  public LookupUsage exactCurrentMatch(final ParsedName pn, Kingdom kingdom, IntSet... ignoreIDs) {
+    final String canonicalName = norm(NameFormatter.canonicalOrScientificName(pn));
+    if (canonicalName == null) return null;
+
+    List<LookupUsage> hits = get(canonicalName);
+    if (hits == null) return null;
+
+    // filter by rank, kingdom, authorship and only allow current, non deleted matches
+    hits.removeIf(u -> ignore(u.getKey(), ignoreIDs) ||
+            u.isDeleted() ||
+            pn.getRank() != null && !RankUtils.match(pn.getRank(), u.getRank()) ||
+            kingdom != null && !KingdomUtils.match(kingdom, u.getKingdom()) ||
+            !Objects.equals(canonicalName, u.getCanonical()) ||
+            !Objects.equals(pn.getAuthorship(), u.getAuthorship()) ||
+            !Objects.equals(pn.getYear(), u.getYear())
+    );
+
+    if (hits.size() == 1) {
+      return hits.get(0);
+
+    } else if (hits.size() > 1) {
+      LOG.debug("{} exact matches for {} {} {} {} {}", hits.size(), kingdom, pn.getRank(), canonicalName, pn.getAuthorship(), pn.getYear());
+    }
+    return null;
+  }
+
+  private static LookupUsage selectLowestKey(List<LookupUsage> matches) {
+    LookupUsage match = null;
+    for (LookupUsage u : matches) {
+      if (match == null || match.getKey() > u.getKey()) {
+        match = u;
+      }
+    }
+    return match;
+  }
+  
+  /**
+   * For multiple candidates, filter them by status:
+   *     a) If one matches use that
+   *     b) If multiple match, use lowest id of those
+   *     c) If none matches and candidate to be matched has status of accepted, use lowest existing id of all current matches
+   *     d) If none matches and candidate to be matched has a status that is anything but accepted, issue new id
+   * @param status status to filter by
+   * @return matching usage or null
+   */
+  private LookupUsage matchByStatus(TaxonomicStatus status, List<LookupUsage> candidates) {
+    List<LookupUsage> matches = candidates.stream()
+        .filter(u -> status.equals(u.getStatus()))
+        .collect(Collectors.toList());
+    if (!matches.isEmpty()) {
+      return selectLowestKey(matches);
+    }
+    // no direct status matches. Allow any other for accepted
+    if (TaxonomicStatus.ACCEPTED == status) {
+      return selectLowestKey(candidates);
+    }
+    // no exact status matches. Try to merge all synonym/accepted stati
+    matches = candidates.stream()
+        .filter(u -> status.isAccepted() == u.getStatus().isAccepted())
+        .collect(Collectors.toList());
+    return selectLowestKey(matches);
+  }
+  
+  /**
+   * Checks candidates for a single unambigous exact match
+   */
+  private LookupUsage exactMatch(String canonicalName, String authorship, String year, List<LookupUsage> candidates) {
+    LookupUsage match = null;
+    for (LookupUsage u : candidates) {
+      if (Objects.equals(canonicalName, u.getCanonical())
+          && Objects.equals(authorship, u.getAuthorship())
+          && Objects.equals(year, u.getYear())) {
+        // did we have a match already?
+        if (match != null) {
+          return null;
+        }
+        // no, keep it
+        match = u;
+      }
+
+    }
+    return match;
+  }
+
+  @Override
+  public Spliterator<LookupUsage> spliterator() {
+    return Spliterators.spliteratorUnknownSize(iterator(), 0);
+  }
+
+  /**
+   * Iterates over all usages, expanding pro parte usages into one usage per pro parte key.
+   */
+  protected static class ProParteIterator implements Iterator<LookupUsage> {
+    private final Iterator<LookupUsage> iter;
+    private LookupUsage pp = null;
+    private IntIterator ppIter = null;
+
+    public ProParteIterator(Iterator<LookupUsage> iter) {
+      this.iter = iter;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return (ppIter != null && ppIter.hasNext()) || iter.hasNext();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("You cannot remove from an id lookup");
+    }
+
+    @Override
+    public LookupUsage next() {
+      if (ppIter != null && ppIter.hasNext()) {
+        return proParteUsage(ppIter.next());
+      }
+      LookupUsage u = iter.next();
+      if (u.getProParteKeys() != null && !u.getProParteKeys().isEmpty()) {
+        pp = u;
+        ppIter = u.getProParteKeys().values().iterator();
+        return proParteUsage(ppIter.next());
+      }
+      return u;
+    }
+
+    private LookupUsage proParteUsage(int val) {
+      LookupUsage ppu = new LookupUsage();
+      ppu.setDeleted(val < 0);
+      ppu.setKey(Math.abs(val));
+      ppu.setKingdom(pp.getKingdom());
+      ppu.setRank(pp.getRank());
+      ppu.setCanonical(pp.getCanonical());
+      ppu.setAuthorship(pp.getAuthorship());
+      ppu.setYear(pp.getYear());
+      return ppu;
+    }
+  }
+}
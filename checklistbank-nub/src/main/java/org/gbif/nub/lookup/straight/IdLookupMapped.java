@@ -0,0 +1,410 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.straight;
+
+import org.gbif.api.vocabulary.Kingdom;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.api.vocabulary.TaxonomicStatus;
+import org.gbif.nub.config.ClbNubConfiguration;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+
+/**
+ * A read only id lookup backed by a memory mapped snapshot file.
+ * <p>
+ * The file holds a sorted array of 64 bit hashes of the normalized canonical names,
+ * a parallel array of fixed width usage records, a shared region of all distinct strings
+ * and a region with the pro parte keys of the few pro parte usages.
+ * A lookup binary searches the hashes and only builds LookupUsage instances for the hits,
+ * so opening a snapshot is instant, several processes share the same pages via the OS page cache
+ * and hardly any heap is used.
+ * <p>
+ * Snapshots are built once with {@link #build(File, Iterable)} or straight from postgres
+ * with {@link #build(File, ClbNubConfiguration, boolean)}.
+ */
+public class IdLookupMapped extends IdLookupBase {
+  private static final Logger LOG = LoggerFactory.getLogger(IdLookupMapped.class);
+  private static final long MAGIC = 0x4e75624c6f6f6b75L; // NubLooku
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = 8 + 7 * 4;
+  private static final int NULL = -1;
+  private static final HashFunction HASH = Hashing.murmur3_128();
+  private static final Rank[] RANKS = Rank.values();
+  private static final TaxonomicStatus[] STATUS = TaxonomicStatus.values();
+  private static final Kingdom[] KINGDOMS = Kingdom.values();
+
+  // record layout, all ints
+  private static final int KEY = 0;
+  private static final int CANONICAL = 1;
+  private static final int NORM = 2;
+  private static final int AUTHORSHIP = 3;
+  private static final int YEAR = 4;
+  private static final int FLAGS = 5;
+  private static final int PRO_PARTE = 6;
+  private static final int RECORD_INTS = 7;
+
+  private final File file;
+  private final int records;
+  private final int size;
+  private final int deleted;
+  private final int keyMax;
+  private final LongBuffer hashes;
+  private final IntBuffer usages;
+  private final ByteBuffer strings;
+  private final IntBuffer proParte;
+
+  private IdLookupMapped(File file) throws IOException {
+    this.file = file;
+    try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+      if (header.getLong() != MAGIC) {
+        throw new IOException("Not an id lookup snapshot: " + file.getAbsolutePath());
+      }
+      int version = header.getInt();
+      if (version != VERSION) {
+        throw new IOException("Unsupported id lookup snapshot version " + version + " in " + file.getAbsolutePath());
+      }
+      records = header.getInt();
+      size = header.getInt();
+      deleted = header.getInt();
+      keyMax = header.getInt();
+      int stringBytes = header.getInt();
+      int proParteInts = header.getInt();
+
+      // the mappings stay valid after the channel is closed
+      long pos = HEADER_BYTES;
+      hashes = map(ch, pos, 8L * records).asLongBuffer();
+      pos += 8L * records;
+      usages = map(ch, pos, 4L * RECORD_INTS * records).asIntBuffer();
+      pos += 4L * RECORD_INTS * records;
+      strings = map(ch, pos, stringBytes);
+      pos += stringBytes;
+      proParte = map(ch, pos, 4L * proParteInts).asIntBuffer();
+    }
+    LOG.info("Opened id lookup snapshot {} with {} usages ({} deleted) and max key {}", file.getAbsolutePath(), size, deleted, keyMax);
+  }
+
+  private static ByteBuffer map(FileChannel ch, long pos, long length) throws IOException {
+    Preconditions.checkArgument(length <= Integer.MAX_VALUE, "Id lookup snapshot section too large: %s bytes", length);
+    return ch.map(FileChannel.MapMode.READ_ONLY, pos, length);
+  }
+
+  /**
+   * Opens an existing snapshot file.
+   */
+  public static IdLookupMapped open(File file) throws IOException {
+    return new IdLookupMapped(file);
+  }
+
+  /**
+   * Writes a new snapshot file with the given usages and opens it.
+   * An existing file is only replaced once the new snapshot is complete.
+   */
+  public static IdLookupMapped build(File file, Iterable<LookupUsage> usages) throws IOException {
+    SnapshotWriter writer = new SnapshotWriter();
+    for (LookupUsage u : usages) {
+      writer.add(u);
+    }
+    writer.write(file);
+    return open(file);
+  }
+
+  /**
+   * Writes a new snapshot file with all backbone usages streamed from postgres and opens it.
+   */
+  public static IdLookupMapped build(File file, ClbNubConfiguration clb, boolean includeDeleted) throws IOException, SQLException {
+    SnapshotWriter writer = new SnapshotWriter();
+    ClbLookupReader.read(clb, includeDeleted, writer::add);
+    writer.write(file);
+    return open(file);
+  }
+
+  private static long hash(String canonicalNameNormed) {
+    return HASH.hashString(canonicalNameNormed, StandardCharsets.UTF_8).asLong();
+  }
+
+  @Override
+  protected List<LookupUsage> get(String canonicalNameNormed) {
+    final long h = hash(canonicalNameNormed);
+    int idx = lowerBound(h);
+    if (idx >= records || hashes.get(idx) != h) {
+      return null;
+    }
+    final byte[] norm = canonicalNameNormed.getBytes(StandardCharsets.UTF_8);
+    List<LookupUsage> hits = new ArrayList<>();
+    for (; idx < records && hashes.get(idx) == h; idx++) {
+      // verify the name to rule out hash collisions
+      if (stringEquals(usages.get(idx * RECORD_INTS + NORM), norm)) {
+        hits.add(usage(idx));
+      }
+    }
+    return hits.isEmpty() ? null : hits;
+  }
+
+  /**
+   * @return the index of the first hash equal or greater than h
+   */
+  private int lowerBound(long h) {
+    int low = 0;
+    int high = records;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (hashes.get(mid) < h) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private LookupUsage usage(int idx) {
+    final int base = idx * RECORD_INTS;
+    final int flags = usages.get(base + FLAGS);
+    Int2IntMap pp = null;
+    int ppIdx = usages.get(base + PRO_PARTE);
+    if (ppIdx != NULL) {
+      int n = proParte.get(ppIdx++);
+      pp = new Int2IntOpenHashMap(n);
+      for (int i = 0; i < n; i++) {
+        pp.put(proParte.get(ppIdx++), proParte.get(ppIdx++));
+      }
+    }
+    return new LookupUsage(
+        usages.get(base + KEY),
+        pp,
+        string(usages.get(base + CANONICAL)),
+        string(usages.get(base + AUTHORSHIP)),
+        string(usages.get(base + YEAR)),
+        decode(RANKS, flags >>> 24),
+        decode(STATUS, (flags >>> 16) & 0xff),
+        decode(KINGDOMS, (flags >>> 8) & 0xff),
+        (flags & 1) == 1
+    );
+  }
+
+  private static <T> T decode(T[] values, int x) {
+    return x == 0 ? null : values[x - 1];
+  }
+
+  private String string(int offset) {
+    if (offset == NULL) {
+      return null;
+    }
+    byte[] bytes = new byte[strings.getInt(offset)];
+    strings.get(offset + 4, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private boolean stringEquals(int offset, byte[] x) {
+    if (offset == NULL || strings.getInt(offset) != x.length) {
+      return false;
+    }
+    for (int i = 0; i < x.length; i++) {
+      if (strings.get(offset + 4 + i) != x[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return the largest usage key existing in the backbone
+   */
+  public int getKeyMax() {
+    return keyMax;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public int deletedIds() {
+    return deleted;
+  }
+
+  @Override
+  public Iterator<LookupUsage> iterator() {
+    return new ProParteIterator(new Iterator<LookupUsage>() {
+      private int idx = 0;
+
+      @Override
+      public boolean hasNext() {
+        return idx < records;
+      }
+
+      @Override
+      public LookupUsage next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return usage(idx++);
+      }
+    });
+  }
+
+  /**
+   * Mapped buffers are released by the garbage collector, there is nothing to close explicitly.
+   */
+  @Override
+  public void close() throws Exception {
+    LOG.info("Closing id lookup snapshot {}", file.getAbsolutePath());
+  }
+
+  /**
+   * Collects usages in compact primitive form and writes them as a sorted snapshot.
+   */
+  private static class SnapshotWriter {
+    private final LongArrayList hashes = new LongArrayList();
+    private final IntArrayList records = new IntArrayList();
+    private final IntArrayList proParte = new IntArrayList();
+    private final Object2IntMap<String> stringOffsets = new Object2IntOpenHashMap<>();
+    private final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+    private int size = 0;
+    private int deleted = 0;
+    private int keyMax = 0;
+
+    SnapshotWriter() {
+      stringOffsets.defaultReturnValue(NULL);
+    }
+
+    void add(LookupUsage u) {
+      String norm = norm(u.getCanonical());
+      if (norm == null) {
+        LOG.warn("Missing canonical name for {} usage {}", u.getKingdom(), u.getKey());
+        return;
+      }
+      hashes.add(hash(norm));
+      records.add(u.getKey());
+      records.add(string(u.getCanonical()));
+      records.add(string(norm));
+      records.add(string(u.getAuthorship()));
+      records.add(string(u.getYear()));
+      records.add(encode(u.getRank()) << 24 | encode(u.getStatus()) << 16 | encode(u.getKingdom()) << 8 | (u.isDeleted() ? 1 : 0));
+      if (u.getProParteKeys() == null || u.getProParteKeys().isEmpty()) {
+        records.add(NULL);
+      } else {
+        records.add(proParte.size());
+        proParte.add(u.getProParteKeys().size());
+        for (Int2IntMap.Entry e : u.getProParteKeys().int2IntEntrySet()) {
+          proParte.add(e.getIntKey());
+          proParte.add(e.getIntValue());
+        }
+      }
+      size++;
+      if (u.isDeleted()) {
+        deleted++;
+      }
+      keyMax = Math.max(keyMax, u.getMaxKey());
+    }
+
+    private static int encode(Enum<?> x) {
+      return x == null ? 0 : x.ordinal() + 1;
+    }
+
+    private int string(String x) {
+      if (x == null) {
+        return NULL;
+      }
+      int offset = stringOffsets.getInt(x);
+      if (offset == NULL) {
+        offset = strings.size();
+        byte[] bytes = x.getBytes(StandardCharsets.UTF_8);
+        strings.write(bytes.length >>> 24);
+        strings.write(bytes.length >>> 16);
+        strings.write(bytes.length >>> 8);
+        strings.write(bytes.length);
+        strings.write(bytes, 0, bytes.length);
+        stringOffsets.put(x, offset);
+      }
+      return offset;
+    }
+
+    /**
+     * Sorts all records by their hash and usage key and writes them to a temporary file
+     * which finally replaces the target file.
+     */
+    void write(File file) throws IOException {
+      final int n = hashes.size();
+      LOG.info("Writing id lookup snapshot with {} usages and {} bytes of strings to {}", n, strings.size(), file.getAbsolutePath());
+      int[] order = new int[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = i;
+      }
+      IntArrays.quickSort(order, (a, b) -> {
+        int c = Long.compare(hashes.getLong(a), hashes.getLong(b));
+        return c != 0 ? c : Integer.compare(records.getInt(a * RECORD_INTS + KEY), records.getInt(b * RECORD_INTS + KEY));
+      });
+
+      File parent = file.getAbsoluteFile().getParentFile();
+      if (parent != null) {
+        parent.mkdirs();
+      }
+      File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(n);
+        out.writeInt(size);
+        out.writeInt(deleted);
+        out.writeInt(keyMax);
+        out.writeInt(strings.size());
+        out.writeInt(proParte.size());
+        for (int i : order) {
+          out.writeLong(hashes.getLong(i));
+        }
+        for (int i : order) {
+          for (int j = 0; j < RECORD_INTS; j++) {
+            out.writeInt(records.getInt(i * RECORD_INTS + j));
+          }
+        }
+        strings.writeTo(out);
+        for (int i = 0; i < proParte.size(); i++) {
+          out.writeInt(proParte.getInt(i));
+        }
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+}
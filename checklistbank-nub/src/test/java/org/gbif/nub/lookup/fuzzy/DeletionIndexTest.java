@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.fuzzy;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DeletionIndexTest {
+
+  @Test
+  public void distance() {
+    assertEquals(0, DeletionIndex.distance("abies alba", "abies alba", 2));
+    assertEquals(1, DeletionIndex.distance("abies alba", "abies albba", 2));
+    assertEquals(1, DeletionIndex.distance("abies alba", "abeis alba", 2));
+    assertEquals(1, DeletionIndex.distance("abies alba", "abies alb", 2));
+    assertEquals(2, DeletionIndex.distance("abies alba", "apies albe", 2));
+    // early exit
+    assertEquals(3, DeletionIndex.distance("abies alba", "picea abies", 2));
+    assertEquals(2, DeletionIndex.distance("abies alba", "abies", 1));
+  }
+}
@@ -24,6 +24,8 @@ import org.gbif.utils.file.csv.CSVReaderFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeAll;
@@ -120,4 +122,32 @@ public class NubIndexTest {
     assertTrue(m.isSynonym());
 
   }
+
+  @Test
+  public void testUsageTable() throws Exception {
+    NubIndex tableIndex = NubIndex.newMemoryIndex(readTestNames());
+    tableIndex.loadUsageTable();
+    for (String name : Lists.newArrayList("Abies alba", "Abbies alba", "Picea abies", "Abies")) {
+      assertEquals(index.matchByName(name, true, 10), tableIndex.matchByName(name, true, 10));
+    }
+    for (int key = 1; key <= 10; key++) {
+      assertEquals(index.matchByUsageId(key), tableIndex.matchByUsageId(key));
+    }
+    tableIndex.close();
+  }
+
+  @Test
+  public void testDeletionIndex() throws Exception {
+    NubIndex delIndex = NubIndex.newMemoryIndex(readTestNames());
+    delIndex.setFuzzyEngine(FuzzyEngine.DELETION_INDEX);
+    for (String name : Lists.newArrayList("Abies alba", "abies  alba", "Abbies alba", "abyes alba", " apies  alba",
+        "Abies alllbbbbaaa", "Aebies allba", "Obies alba", "Acantophora", "Picea abies", "Abies")) {
+      assertEquals(keys(index.matchByName(name, true, 10)), keys(delIndex.matchByName(name, true, 10)), name);
+    }
+    delIndex.close();
+  }
+
+  private static Set<Integer> keys(List<NameUsageMatch> matches) {
+    return matches.stream().map(NameUsageMatch::getUsageKey).collect(Collectors.toSet());
+  }
 }
@@ -13,10 +13,17 @@
  */
 package org.gbif.nub.lookup.fuzzy;
 
+import org.gbif.api.model.checklistbank.NameUsageMatch;
+import org.gbif.nub.lookup.NubMatchingTestConfiguration;
+
 import org.junit.jupiter.api.Test;
 
+import com.google.common.cache.CacheStats;
+
 import static org.gbif.api.vocabulary.Rank.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 
 public class NubMatchingServiceImplTest {
 
@@ -76,4 +83,26 @@ public class NubMatchingServiceImplTest {
     assertEquals(100, NubMatchingServiceImpl.normConfidence(1000));
   }
 
+  @Test
+  public void matchCache() throws Exception {
+    NubIndex index = NubMatchingTestConfiguration.provideIndex();
+    NubMatchingServiceImpl matcher = new NubMatchingServiceImpl(index, NubMatchingTestConfiguration.provideSynonyms(), 10, 60);
+
+    NameUsageMatch m1 = matcher.match("Abacion tesselatum", null, null, false, false);
+    // whitespace is cleaned before caching
+    NameUsageMatch m2 = matcher.match(" Abacion  tesselatum", null, null, false, false);
+    assertSame(m1, m2);
+    CacheStats stats = matcher.getCacheStats();
+    assertEquals(1, stats.missCount());
+    assertEquals(1, stats.hitCount());
+    assertEquals(1, matcher.getCacheSize());
+
+    // strict matching is a different request
+    matcher.match("Abacion tesselatum", null, null, true, false);
+    assertEquals(2, matcher.getCacheStats().missCount());
+
+    // no cache configured
+    assertNull(new NubMatchingServiceImpl(index, NubMatchingTestConfiguration.provideSynonyms()).getCacheStats());
+  }
+
 }
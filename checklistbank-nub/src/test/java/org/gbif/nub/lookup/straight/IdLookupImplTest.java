@@ -33,12 +33,20 @@ public class IdLookupImplTest {
   IdLookup l;
 
   @BeforeEach
-  public void init() {
-    l = newTestLookup();
+  public void init() throws Exception {
+    l = newLookup(testUsages());
+  }
+
+  protected IdLookup newLookup(Collection<LookupUsage> usages) throws Exception {
+    return IdLookupImpl.temp().load(usages);
   }
 
   public static IdLookup newTestLookup() {
-    Collection<LookupUsage> usages = Lists.newArrayList(
+    return IdLookupImpl.temp().load(testUsages());
+  }
+
+  public static Collection<LookupUsage> testUsages() {
+    return Lists.newArrayList(
         new LookupUsage(1,  "Animalia", null, null, KINGDOM, ACCEPTED, ANIMALIA, false),
         new LookupUsage(2,  "Oenanthe", "Vieillot", "1816", GENUS, ACCEPTED, ANIMALIA, false),
         new LookupUsage(3,  "Oenanthe", "Linnaeus", "1753", GENUS, ACCEPTED, PLANTAE, false),
@@ -58,7 +66,6 @@ public class IdLookupImplTest {
         new LookupUsage(17, "BOLD:AAJ6407", null, null, UNRANKED, ACCEPTED, ANIMALIA, false),
         new LookupUsage(18, "SH486523.07FU", null, null, UNRANKED, SYNONYM, FUNGI, false)
     );
-    return IdLookupImpl.temp().load(usages);
   }
 
   @Test
@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.nub.lookup.straight;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.common.collect.Lists;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import static org.gbif.api.vocabulary.Kingdom.ANIMALIA;
+import static org.gbif.api.vocabulary.Kingdom.PLANTAE;
+import static org.gbif.api.vocabulary.Rank.SPECIES;
+import static org.gbif.api.vocabulary.TaxonomicStatus.ACCEPTED;
+import static org.gbif.api.vocabulary.TaxonomicStatus.PROPARTE_SYNONYM;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs all id lookup tests against a memory mapped snapshot.
+ */
+public class IdLookupMappedTest extends IdLookupImplTest {
+
+  @TempDir
+  File dir;
+
+  @Override
+  protected IdLookup newLookup(Collection<LookupUsage> usages) throws Exception {
+    return IdLookupMapped.build(new File(dir, "lookup.bin"), usages);
+  }
+
+  @Test
+  public void testReopen() throws Exception {
+    File f = new File(dir, "pp.bin");
+    Int2IntOpenHashMap pp = new Int2IntOpenHashMap();
+    pp.put(100, 21);
+    pp.put(101, -22);
+    List<LookupUsage> usages = Lists.newArrayList(
+        new LookupUsage(20, pp, "Puma concolor", "Linnaeus", "1771", SPECIES, PROPARTE_SYNONYM, ANIMALIA, false),
+        new LookupUsage(30, "Abies alba", "Mill.", null, SPECIES, ACCEPTED, PLANTAE, false)
+    );
+    IdLookupMapped.build(f, usages).close();
+
+    try (IdLookupMapped l = IdLookupMapped.open(f)) {
+      assertEquals(2, l.size());
+      assertEquals(30, l.getKeyMax());
+      assertEquals(usages.get(0), l.match("Puma concolor", SPECIES, ANIMALIA));
+      assertEquals(usages.get(1), l.match("Abies  alba", "Mill.", null, SPECIES, ACCEPTED, PLANTAE));
+      // pro parte usages are expanded into their keys
+      assertEquals(3, Lists.newArrayList(l).size());
+    }
+  }
+}
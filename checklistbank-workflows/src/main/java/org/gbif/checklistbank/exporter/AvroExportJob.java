@@ -25,6 +25,7 @@ import org.gbif.checklistbank.service.mybatis.service.VernacularNameServiceMyBat
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -56,6 +57,7 @@ public class AvroExportJob implements Callable<Integer> {
   private final int endKey;
 
   private final String targetHdfsDir;
+  private final ExportManifest manifest;
 
   /**
    * Service layer.
@@ -82,7 +84,8 @@ public class AvroExportJob implements Callable<Integer> {
     DistributionServiceMyBatis distributionService,
     SpeciesProfileServiceMyBatis speciesProfileService,
     FileSystem fileSystem,
-    String targetHdfsDir
+    String targetHdfsDir,
+    ExportManifest manifest
   ) {
     this.nameUsageService = nameUsageService;
     this.vernacularNameService = vernacularNameService;
@@ -93,6 +96,7 @@ public class AvroExportJob implements Callable<Integer> {
     this.startKey = startKey;
     this.endKey = endKey;
     this.targetHdfsDir = targetHdfsDir;
+    this.manifest = manifest;
   }
 
   /**
@@ -120,8 +124,10 @@ public class AvroExportJob implements Callable<Integer> {
 
     Map<Integer, List<SpeciesProfile>> speciesProfileMap = speciesProfileService.listRange(startKey, endKey);
 
-    File file = new File(startKey+ "-" + endKey + ".avro");
+    File file = new File(ExportManifest.rangeName(startKey, endKey) + ".avro");
     Path path = new Path(targetHdfsDir, file.getName());
+    // write to a hidden file first so incomplete ranges are never read
+    Path tmp = new Path(targetHdfsDir, "." + file.getName() + ".tmp");
     fileSystem.mkdirs(path.getParent());
 
     log.info("Creating file {}", path.getName());
@@ -129,7 +135,7 @@ public class AvroExportJob implements Callable<Integer> {
     Schema schema = new Schema.Parser().parse(classLoader.getResource("nameusage.avrsc").openStream());
     DatumWriter<NameUsageAvro> datumWriter = new SpecificDatumWriter<>(NameUsageAvro.class);
     try(DataFileWriter<NameUsageAvro> dataFileWriter = new DataFileWriter<>(datumWriter)) {
-      dataFileWriter.create(schema, new BufferedOutputStream(fileSystem.create(path)));
+      dataFileWriter.create(schema, new BufferedOutputStream(fileSystem.create(tmp, true)));
       for (NameUsage usage : usages) {
         if (usage == null) {
           log.warn("Unexpected name usage found in range {}-{}, docCount={}", startKey, endKey, docCount);
@@ -153,6 +159,13 @@ public class AvroExportJob implements Callable<Integer> {
       }
     }
 
+    if (fileSystem.exists(path)) {
+      fileSystem.delete(path, false);
+    }
+    if (!fileSystem.rename(tmp, path)) {
+      throw new IOException("Failed to move " + tmp + " to " + path);
+    }
+    manifest.markCompleted(startKey, endKey, docCount);
     log.info("{} moved to hdfs", file.getName());
     // job finished notice
     stopWatch.stop();
@@ -23,7 +23,11 @@ import org.gbif.checklistbank.service.mybatis.service.DistributionServiceMyBatis
 import org.gbif.checklistbank.service.mybatis.service.SpeciesProfileServiceMyBatis;
 import org.gbif.checklistbank.service.mybatis.service.VernacularNameServiceMyBatis;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.stream.IntStream;
 
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -47,6 +51,9 @@ public class AvroExporter extends NameUsageBatchProcessor {
   private static final Logger LOG = LoggerFactory.getLogger(AvroExporter.class);
 
   private final String targetHdfsDir;
+  private final boolean resume;
+  private final ExportManifest manifest;
+  private Map<String, Integer> completed = new HashMap<>();
 
   @Autowired
   public AvroExporter(
@@ -54,6 +61,7 @@ public class AvroExporter extends NameUsageBatchProcessor {
       @Value("${" + IndexingConfigKeys.KEYS_INDEXING_CONF_PREFIX + IndexingConfigKeys.TARGET_HDFS_DIR + "}") String targetHdfsDir,
       @Value("${" + IndexingConfigKeys.KEYS_INDEXING_CONF_PREFIX + IndexingConfigKeys.BATCH_SIZE + "}") Integer batchSize,
       @Value("${" + IndexingConfigKeys.KEYS_INDEXING_CONF_PREFIX + IndexingConfigKeys.LOG_INTERVAL + "}") Integer logInterval,
+      @Value("${" + IndexingConfigKeys.KEYS_INDEXING_CONF_PREFIX + IndexingConfigKeys.RESUME + ":false}") boolean resume,
       UsageService nameUsageService,
       VernacularNameService vernacularNameService,
       DescriptionService descriptionService,
@@ -71,17 +79,77 @@ public class AvroExporter extends NameUsageBatchProcessor {
         speciesProfileService,
         fileSystem);
     this.targetHdfsDir = targetHdfsDir;
+    this.resume = resume;
+    this.manifest = new ExportManifest(fileSystem, targetHdfsDir);
   }
 
+  /**
+   * Exports all usages, by default replacing all content of the target dir.
+   * In resume mode the key ranges of the previous export are kept and all ranges recorded as completed in its manifest are skipped.
+   * Keys outside of the previous ranges are covered by additional ranges.
+   */
   @SneakyThrows
   @Override
   public int run() {
-    // clear avro dir from old exports first
-    LOG.info("Remove all content from target dir {}", targetHdfsDir);
-    fileSystem.delete(new Path(targetHdfsDir), true);
+    if (resume) {
+      completed = manifest.readCompleted();
+      long records = completed.values().stream().mapToLong(Integer::longValue).sum();
+      LOG.info("Resume export in {} with {} completed ranges and {} records", targetHdfsDir, completed.size(), records);
+      counter.set(records);
+    } else {
+      // clear avro dir from old exports first
+      LOG.info("Remove all content from target dir {}", targetHdfsDir);
+      fileSystem.delete(new Path(targetHdfsDir), true);
+    }
     return super.run();
   }
 
+  @SneakyThrows
+  @Override
+  protected int[] keyRanges() {
+    int[] bounds = resume ? manifest.readBounds() : null;
+    if (bounds == null) {
+      bounds = super.keyRanges();
+      manifest.writeBounds(bounds);
+    } else {
+      LOG.info("Reuse {} key ranges of previous export", bounds.length - 1);
+      int[] extended = extend(bounds, super.keyRanges());
+      if (extended.length > bounds.length) {
+        LOG.info("Key space changed since the previous export, add {} key ranges", extended.length - bounds.length);
+        bounds = extended;
+        manifest.writeBounds(bounds);
+      }
+    }
+    return bounds;
+  }
+
+  /**
+   * Extends the range bounds of a previous export so they also cover keys below its first or above its last bound.
+   * Existing ranges are kept as they are so their completed markers stay valid.
+   *
+   * @param bounds  range bounds of the previous export
+   * @param current range bounds partitioning the current key space
+   */
+  static int[] extend(int[] bounds, int[] current) {
+    if (bounds.length == 0) {
+      return current;
+    }
+    if (current.length == 0) {
+      return bounds;
+    }
+    final int first = bounds[0];
+    final int last = bounds[bounds.length - 1];
+    return IntStream.concat(
+        IntStream.concat(Arrays.stream(current).filter(b -> b < first), Arrays.stream(bounds)),
+        Arrays.stream(current).filter(b -> b > last)
+    ).toArray();
+  }
+
+  @Override
+  protected boolean isCompleted(int startKey, int endKey) {
+    return completed.containsKey(ExportManifest.rangeName(startKey, endKey));
+  }
+
   @Override
   protected Callable<Integer> newBatchJob(
     int startKey,
@@ -102,6 +170,7 @@ public class AvroExporter extends NameUsageBatchProcessor {
         distributionService,
         speciesProfileService,
         fileSystem,
-        targetHdfsDir);
+        targetHdfsDir,
+        manifest);
   }
 }
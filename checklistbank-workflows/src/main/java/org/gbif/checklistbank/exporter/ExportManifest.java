@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.exporter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Keeps track of an avro export in a hidden _manifest folder inside the target directory,
+ * so an interrupted export can be resumed.
+ * The manifest holds the key range bounds the export was planned with and one small file per completed range
+ * with the number of exported records.
+ */
+public class ExportManifest {
+  static final String DIR = "_manifest";
+  private static final String BOUNDS = "bounds";
+  private static final String DONE_SUFFIX = ".done";
+
+  private final FileSystem fileSystem;
+  private final Path dir;
+
+  public ExportManifest(FileSystem fileSystem, String targetHdfsDir) {
+    this.fileSystem = fileSystem;
+    this.dir = new Path(targetHdfsDir, DIR);
+  }
+
+  /**
+   * @return the range bounds of a previous export or null if there are none
+   */
+  public int[] readBounds() throws IOException {
+    Path p = new Path(dir, BOUNDS);
+    if (!fileSystem.exists(p)) {
+      return null;
+    }
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(fileSystem.open(p), StandardCharsets.UTF_8))) {
+      return br.lines()
+          .filter(StringUtils::isNotBlank)
+          .mapToInt(x -> Integer.parseInt(x.trim()))
+          .toArray();
+    }
+  }
+
+  public void writeBounds(int[] bounds) throws IOException {
+    fileSystem.mkdirs(dir);
+    try (Writer w = new OutputStreamWriter(fileSystem.create(new Path(dir, BOUNDS), true), StandardCharsets.UTF_8)) {
+      for (int b : bounds) {
+        w.write(Integer.toString(b));
+        w.write('\n');
+      }
+    }
+  }
+
+  /**
+   * @return the number of exported records for each completed range keyed by its {@link #rangeName(int, int)}
+   */
+  public Map<String, Integer> readCompleted() throws IOException {
+    Map<String, Integer> completed = new HashMap<>();
+    if (fileSystem.exists(dir)) {
+      for (FileStatus st : fileSystem.listStatus(dir)) {
+        String name = st.getPath().getName();
+        if (name.endsWith(DONE_SUFFIX)) {
+          try (BufferedReader br = new BufferedReader(new InputStreamReader(fileSystem.open(st.getPath()), StandardCharsets.UTF_8))) {
+            completed.put(StringUtils.removeEnd(name, DONE_SUFFIX), Integer.parseInt(br.readLine().trim()));
+          }
+        }
+      }
+    }
+    return completed;
+  }
+
+  /**
+   * Records a range as completed. Call only once its avro file has been moved into place.
+   */
+  public void markCompleted(int startKey, int endKey, int records) throws IOException {
+    Path p = new Path(dir, rangeName(startKey, endKey) + DONE_SUFFIX);
+    try (Writer w = new OutputStreamWriter(fileSystem.create(p, true), StandardCharsets.UTF_8)) {
+      w.write(Integer.toString(records));
+    }
+  }
+
+  /**
+   * @return the name of a range with inclusive start and end key, also used for its avro file
+   */
+  public static String rangeName(int startKey, int endKey) {
+    return startKey + "-" + endKey;
+  }
+}
@@ -33,6 +33,7 @@ public class IndexingConfigKeys {
   //Avro indexing settings
   public static final String NAME_NODE = "nameNode";
   public static final String TARGET_HDFS_DIR = "targetHdfsDir";
+  public static final String RESUME = "resume";
 
 
   private IndexingConfigKeys(){
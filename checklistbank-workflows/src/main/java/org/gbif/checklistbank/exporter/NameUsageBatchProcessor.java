@@ -24,8 +24,7 @@ import org.gbif.checklistbank.service.mybatis.service.SpeciesProfileServiceMyBat
 import org.gbif.checklistbank.service.mybatis.service.VernacularNameServiceMyBatis;
 
 import java.text.DecimalFormat;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -66,8 +65,9 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
 
   protected final FileSystem fileSystem;
 
-  //
-  private List<Integer> allIds;
+  // key range bounds with an inclusive start and exclusive end key
+  private int[] bounds;
+  private int rangeIdx = 0;
   protected int jobCounter = 0;
 
   private class CountReporter extends Thread {
@@ -77,11 +77,14 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
      */
     private StopWatch stopWatch = new StopWatch();
     private final long total;
+    // records already exported by a previous run
+    private final long offset;
     private final DecimalFormat twoDForm = new DecimalFormat("#.##");
     private boolean interrupted = false;
 
-    CountReporter(long total) {
+    CountReporter(long total, long offset) {
       this.total = total;
+      this.offset = offset;
     }
 
     @Override
@@ -111,8 +114,9 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
     private void log() {
       long cnt = counter.get();
       double percCompleted = (double) cnt / (double) total;
-      double percRemaining = 1d - percCompleted;
-      long timeRemaining = (long) (stopWatch.getTime() * (percRemaining / percCompleted));
+      // estimate from the records of this run only
+      double percRun = (double) (cnt - offset) / (double) (total - offset);
+      long timeRemaining = (long) (stopWatch.getTime() * ((1d - percRun) / percRun));
       LOG.info("{} documents ({}%) added in {}", cnt, twoDForm.format(percCompleted * 100), stopWatch.toString());
       LOG.info("Expected remaining time to finish {}", DurationFormatUtils.formatDurationHMS(timeRemaining));
     }
@@ -148,49 +152,88 @@ public abstract class NameUsageBatchProcessor extends ThreadPoolRunner<Integer>
   }
 
   /**
-   * Creates a list of NameUsageIndexingJob by loading all usage ids and splitting up the jobs between those ids.
+   * Creates a new job for the next key range that has not been completed before.
    *
-   * @return a {@link List} of ids.
+   * @return the next job or null if all ranges are processed
    */
   @Override
   protected Callable<Integer> newJob() {
-    if (allIds == null) {
+    if (bounds == null) {
       initKeys();
     }
 
-    // any new job to be created?
-    if (allIds.size() <= jobCounter * batchSize) {
-      LOG.info("No more jobs to insert. Created {} jobs in total each processing {} records.", jobCounter, batchSize);
-      return null;
+    while (rangeIdx < bounds.length - 1) {
+      final int startKey = bounds[rangeIdx];
+      final int endKey = bounds[rangeIdx + 1] - 1;
+      rangeIdx++;
+      if (!isCompleted(startKey, endKey)) {
+        jobCounter++;
+        return newBatchJob(startKey, endKey, nameUsageService, vernacularNameService, descriptionService, distributionService, speciesProfileService, fileSystem);
+      }
     }
+    LOG.info("No more jobs to insert. Created {} jobs in total for {} key ranges.", jobCounter, bounds.length - 1);
+    return null;
+  }
 
-    // produce new job with a new slice
-    final int startKey = allIds.get(jobCounter * batchSize);
-    int endIdx = (jobCounter + 1) * batchSize - 1;
-    final int endKey = endIdx > allIds.size() ? allIds.get(allIds.size() - 1) : allIds.get(endIdx);
-    jobCounter++;
+  protected abstract Callable<Integer> newBatchJob(int startKey, int endKey, UsageService nameUsageService, VernacularNameServiceMyBatis vernacularNameService, DescriptionServiceMyBatis descriptionService, DistributionServiceMyBatis distributionService, SpeciesProfileServiceMyBatis speciesProfileService, FileSystem fileSystem);
 
-    return newBatchJob(startKey, endKey, nameUsageService, vernacularNameService, descriptionService, distributionService, speciesProfileService, fileSystem);
+  /**
+   * @return the key range bounds to process, see {@link #partition(int[], long, int)}
+   */
+  protected int[] keyRanges() {
+    return partition(nameUsageService.keyHistogram(), nameUsageService.estimateCount(), batchSize);
   }
 
-  protected abstract Callable<Integer> newBatchJob(int startKey, int endKey, UsageService nameUsageService, VernacularNameServiceMyBatis vernacularNameService, DescriptionServiceMyBatis descriptionService, DistributionServiceMyBatis distributionService, SpeciesProfileServiceMyBatis speciesProfileService, FileSystem fileSystem);
+  /**
+   * Override to skip key ranges which have been processed before.
+   */
+  protected boolean isCompleted(int startKey, int endKey) {
+    return false;
+  }
+
+  /**
+   * Splits the key space into consecutive ranges of roughly batchSize usages each,
+   * assuming usages are evenly distributed within each histogram bucket.
+   *
+   * @param histogram sorted keys starting with the lowest and ending with the highest key
+   * @param total     estimated number of usages, if unknown the key space is assumed to be dense
+   * @return range bounds with an inclusive start and exclusive end key, ending with the highest key + 1
+   */
+  static int[] partition(int[] histogram, long total, int batchSize) {
+    if (histogram.length == 0) {
+      return new int[0];
+    }
+    final int min = histogram[0];
+    final int max = histogram[histogram.length - 1];
+    if (total <= 0) {
+      total = (long) max - min + 1;
+    }
+    final int parts = (int) Math.max(1, (total + batchSize - 1) / batchSize);
+    final int buckets = histogram.length - 1;
+    int[] bounds = new int[parts + 1];
+    int n = 0;
+    bounds[n++] = min;
+    for (int k = 1; k < parts; k++) {
+      double pos = (double) k * buckets / parts;
+      int b = (int) pos;
+      int key = b >= buckets ? max : histogram[b] + (int) ((pos - b) * ((long) histogram[b + 1] - histogram[b]));
+      if (key > bounds[n - 1]) {
+        bounds[n++] = key;
+      }
+    }
+    bounds[n++] = max + 1;
+    return Arrays.copyOf(bounds, n);
+  }
 
   private void initKeys() {
     StopWatch stopWatch = new StopWatch();
-
-    LOG.debug("Start retrieving all usage ids ...");
-    stopWatch.start();
-    allIds = nameUsageService.listAll();
-
-    LOG.info("Retrieved all {} usage ids in {}", allIds.size(), stopWatch);
-    stopWatch.reset();
     stopWatch.start();
-    Collections.sort(allIds);
-    LOG.info("Sorted all {} usage ids in {}", allIds.size(), stopWatch);
-    LOG.info("{} full jobs each processing {} records to be created.", allIds.size() / batchSize, batchSize);
+    bounds = keyRanges();
+    long total = nameUsageService.estimateCount();
+    LOG.info("Partitioned ~{} usages into {} key ranges in {}", total, Math.max(0, bounds.length - 1), stopWatch);
 
     // start global reporter
-    reporterThread = new CountReporter(allIds.size());
+    reporterThread = new CountReporter(Math.max(total, counter.get()), counter.get());
     reporterThread.start();
   }
 
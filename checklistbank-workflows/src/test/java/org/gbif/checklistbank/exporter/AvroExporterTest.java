@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.exporter;
+
+import org.gbif.api.model.checklistbank.NameUsage;
+import org.gbif.checklistbank.service.UsageService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.gbif.checklistbank.exporter.NameUsageBatchProcessorTest.assertContiguous;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AvroExporterTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private FileSystem fs;
+  private String dir;
+
+  /**
+   * Usage service only exposing a key histogram.
+   */
+  private static class HistogramUsageService implements UsageService {
+    private final int[] histogram;
+
+    HistogramUsageService(int... histogram) {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public List<Integer> listAll() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int[] keyHistogram() {
+      return histogram;
+    }
+
+    @Override
+    public long estimateCount() {
+      return histogram.length == 0 ? 0 : histogram[histogram.length - 1] - histogram[0] + 1;
+    }
+
+    @Override
+    public Integer maxUsageKey(UUID datasetKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<NameUsage> listRange(int usageKeyStart, int usageKeyEnd) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Integer> listParents(int usageKey) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Integer> listOldUsages(UUID datasetKey, Date before) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Before
+  public void init() throws Exception {
+    fs = FileSystem.getLocal(new Configuration());
+    dir = tmp.getRoot().getAbsolutePath();
+  }
+
+  private AvroExporter exporter(boolean resume, int... histogram) {
+    return new AvroExporter(1, dir, 10, 60, resume, new HistogramUsageService(histogram), null, null, null, null, fs);
+  }
+
+  @Test
+  public void keyRanges() throws Exception {
+    int[] bounds = exporter(false, 1, 100).keyRanges();
+    assertArrayEquals(new int[]{1, 10, 20, 30, 40, 50, 60, 70, 80, 90, 101}, bounds);
+    assertArrayEquals(bounds, new ExportManifest(fs, dir).readBounds());
+
+    // a new export replans the ranges
+    bounds = exporter(false, 1, 50).keyRanges();
+    assertArrayEquals(new int[]{1, 10, 20, 30, 40, 51}, bounds);
+    assertArrayEquals(bounds, new ExportManifest(fs, dir).readBounds());
+  }
+
+  @Test
+  public void resumeSameKeys() throws Exception {
+    int[] bounds = exporter(false, 1, 100).keyRanges();
+    // different batching would create other ranges, but the previous ones must be reused
+    assertArrayEquals(bounds, exporter(true, 1, 50, 100).keyRanges());
+    assertArrayEquals(bounds, exporter(true, 2, 99).keyRanges());
+  }
+
+  @Test
+  public void resumeNewKeys() throws Exception {
+    int[] bounds = exporter(false, 1, 100).keyRanges();
+
+    // new usages with higher keys were added
+    int[] resumed = exporter(true, 1, 150).keyRanges();
+    for (int i = 0; i < bounds.length; i++) {
+      assertEquals(bounds[i], resumed[i]);
+    }
+    assertContiguous(resumed, 1, 150);
+    assertArrayEquals(resumed, new ExportManifest(fs, dir).readBounds());
+
+    // and lower keys
+    int[] resumed2 = exporter(true, -20, 150).keyRanges();
+    assertContiguous(resumed2, -20, 150);
+    int offset = resumed2.length - resumed.length;
+    assertTrue(offset > 0);
+    for (int i = 0; i < resumed.length; i++) {
+      assertEquals(resumed[i], resumed2[i + offset]);
+    }
+  }
+
+  @Test
+  public void resumeWithoutManifest() throws Exception {
+    assertArrayEquals(new int[]{1, 10, 20, 30, 40, 51}, exporter(true, 1, 50).keyRanges());
+  }
+
+  @Test
+  public void extend() {
+    int[] bounds = new int[]{10, 20, 31};
+    assertArrayEquals(bounds, AvroExporter.extend(bounds, new int[0]));
+    assertArrayEquals(bounds, AvroExporter.extend(bounds, new int[]{12, 25, 31}));
+    assertArrayEquals(new int[]{1, 5}, AvroExporter.extend(new int[0], new int[]{1, 5}));
+    assertArrayEquals(new int[]{10, 20, 31, 33, 41}, AvroExporter.extend(bounds, new int[]{10, 18, 26, 33, 41}));
+    assertArrayEquals(new int[]{1, 5, 10, 20, 31, 41}, AvroExporter.extend(bounds, new int[]{1, 5, 20, 41}));
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.exporter;
+
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExportManifestTest {
+
+  @Rule
+  public TemporaryFolder tmp = new TemporaryFolder();
+
+  private FileSystem fs;
+  private String dir;
+
+  @Before
+  public void init() throws Exception {
+    fs = FileSystem.getLocal(new Configuration());
+    dir = tmp.getRoot().getAbsolutePath();
+  }
+
+  @Test
+  public void bounds() throws Exception {
+    ExportManifest manifest = new ExportManifest(fs, dir);
+    assertNull(manifest.readBounds());
+
+    manifest.writeBounds(new int[]{1, 10, 101});
+    assertTrue(fs.exists(new Path(dir, ExportManifest.DIR)));
+    assertArrayEquals(new int[]{1, 10, 101}, manifest.readBounds());
+    // a new instance reads the same bounds
+    assertArrayEquals(new int[]{1, 10, 101}, new ExportManifest(fs, dir).readBounds());
+
+    // overwrite
+    manifest.writeBounds(new int[]{1, 10, 101, 150});
+    assertArrayEquals(new int[]{1, 10, 101, 150}, manifest.readBounds());
+
+    manifest.writeBounds(new int[0]);
+    assertArrayEquals(new int[0], manifest.readBounds());
+  }
+
+  @Test
+  public void completed() throws Exception {
+    ExportManifest manifest = new ExportManifest(fs, dir);
+    assertTrue(manifest.readCompleted().isEmpty());
+
+    manifest.writeBounds(new int[]{1, 10, 101});
+    assertTrue(manifest.readCompleted().isEmpty());
+
+    manifest.markCompleted(1, 9, 7);
+    manifest.markCompleted(10, 100, 0);
+    Map<String, Integer> completed = new ExportManifest(fs, dir).readCompleted();
+    assertEquals(2, completed.size());
+    assertEquals(7, (int) completed.get("1-9"));
+    assertEquals(0, (int) completed.get("10-100"));
+
+    // marking again replaces the record count
+    manifest.markCompleted(1, 9, 8);
+    assertEquals(8, (int) manifest.readCompleted().get(ExportManifest.rangeName(1, 9)));
+  }
+
+  @Test
+  public void rangeName() {
+    assertEquals("1-9", ExportManifest.rangeName(1, 9));
+    assertEquals("100-100", ExportManifest.rangeName(100, 100));
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.exporter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NameUsageBatchProcessorTest {
+
+  @Test
+  public void partitionEmpty() {
+    assertArrayEquals(new int[0], NameUsageBatchProcessor.partition(new int[0], 100, 10));
+    assertArrayEquals(new int[0], NameUsageBatchProcessor.partition(new int[0], 0, 10));
+  }
+
+  @Test
+  public void partitionSingleBucket() {
+    // a single usage
+    assertArrayEquals(new int[]{5, 6}, NameUsageBatchProcessor.partition(new int[]{5}, 1, 10));
+    // min and max only
+    assertArrayEquals(new int[]{1, 101}, NameUsageBatchProcessor.partition(new int[]{1, 100}, 100, 100));
+  }
+
+  @Test
+  public void partitionSmallTotal() {
+    assertArrayEquals(new int[]{1, 1001}, NameUsageBatchProcessor.partition(new int[]{1, 10, 500, 1000}, 5, 10));
+  }
+
+  @Test
+  public void partitionDense() {
+    // unknown total assumes all keys from 1 to 100 are used
+    int[] bounds = NameUsageBatchProcessor.partition(new int[]{1, 100}, -1, 10);
+    assertArrayEquals(new int[]{1, 10, 20, 30, 40, 50, 60, 70, 80, 90, 101}, bounds);
+    assertContiguous(bounds, 1, 100);
+  }
+
+  @Test
+  public void partitionContiguous() {
+    int[] hist = new int[]{1, 1000, 5000, 5001, 5002, 100000};
+    int[] bounds = NameUsageBatchProcessor.partition(hist, 100000, 1000);
+    // 100 ranges, but the narrow buckets between 5000 and 5002 collapse into 2 ranges
+    assertEquals(63, bounds.length);
+    assertContiguous(bounds, 1, 100000);
+
+    // more ranges than keys
+    bounds = NameUsageBatchProcessor.partition(new int[]{1, 3}, 100, 10);
+    assertArrayEquals(new int[]{1, 2, 4}, bounds);
+    assertContiguous(bounds, 1, 3);
+  }
+
+  /**
+   * Asserts the bounds cover exactly the keys from min to max with strictly increasing, non overlapping ranges.
+   */
+  static void assertContiguous(int[] bounds, int min, int max) {
+    assertEquals(min, bounds[0]);
+    assertEquals(max + 1, bounds[bounds.length - 1]);
+    for (int i = 1; i < bounds.length; i++) {
+      assertTrue("Bounds not increasing at " + i, bounds[i] > bounds[i - 1]);
+    }
+  }
+}
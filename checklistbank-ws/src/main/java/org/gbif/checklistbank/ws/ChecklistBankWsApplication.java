@@ -40,6 +40,7 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.FilterType;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
@@ -56,6 +57,7 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
   })
 @Import({SpringServiceConfig.class, SpringElasticsearchConfiguration.class})
 @EnableConfigurationProperties
+@EnableScheduling
 @ComponentScan(
   basePackages = {
     "org.gbif.ws.server.interceptor",
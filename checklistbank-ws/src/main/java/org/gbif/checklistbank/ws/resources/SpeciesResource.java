@@ -15,7 +15,6 @@ package org.gbif.checklistbank.ws.resources;
 
 import org.gbif.api.annotation.NullToNotFound;
 import org.gbif.api.documentation.CommonParameters;
-import org.gbif.api.model.Constants;
 import org.gbif.api.model.checklistbank.*;
 import org.gbif.api.model.checklistbank.search.*;
 import org.gbif.api.model.common.Identifier;
@@ -30,8 +29,8 @@ import org.gbif.checklistbank.model.NubMapping;
 import org.gbif.checklistbank.model.TreeContainer;
 import org.gbif.checklistbank.model.UsageCount;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.DistributionMapper;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.NameUsageMapper;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.NubRelMapper;
-import org.gbif.checklistbank.service.mybatis.persistence.mapper.UsageCountMapper;
 
 import java.lang.annotation.*;
 import java.util.*;
@@ -42,6 +41,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.http.MediaType;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.bind.annotation.*;
 
 import com.google.common.base.Strings;
@@ -116,11 +116,12 @@ public class SpeciesResource {
   private final DistributionService distributionService;
   private final IdentifierService identifierService;
   private final NameUsageSearchService searchService;
-  private final UsageCountMapper usageCountMapper;
+  private final UsageCountCache usageCountCache;
 
   // Used instead of DistributionService to avoid upgrading GBIF API.
   private final DistributionMapper distributionMapper;
   private final NubRelMapper nubRelMapper;
+  private final NameUsageMapper nameUsageMapper;
 
   /**
    * Stable name usage key for documentation.
@@ -173,9 +174,10 @@ public class SpeciesResource {
       DistributionService distributionService,
       IdentifierService identifierService,
       NameUsageSearchService searchService,
-      UsageCountMapper usageCountMapper,
+      UsageCountCache usageCountCache,
       DistributionMapper distributionMapper,
-      NubRelMapper nubRelMapper) {
+      NubRelMapper nubRelMapper,
+      NameUsageMapper nameUsageMapper) {
     this.nameUsageService = nameUsageService;
     this.vernacularNameService = vernacularNameService;
     this.typeSpecimenService = typeSpecimenService;
@@ -186,15 +188,17 @@ public class SpeciesResource {
     this.distributionService = distributionService;
     this.identifierService = identifierService;
     this.searchService = searchService;
-    this.usageCountMapper = usageCountMapper;
+    this.usageCountCache = usageCountCache;
     this.distributionMapper = distributionMapper;
     this.nubRelMapper = nubRelMapper;
+    this.nameUsageMapper = nameUsageMapper;
   }
 
   /**
    * This retrieves a list of all NameUsage from ChecklistBank.
    *
    * @param datasetKeys the optional checklist keys to limit paging to
+   * @param lastKey the optional last usage key of the previous page to page by key instead of offset
    * @param page the limit, offset paging information
    * @return requested list of NameUsage or an empty list if none could be found
    */
@@ -218,6 +222,12 @@ public class SpeciesResource {
       @Parameter(
         name = "name",
         description = "A name without authorship, to match exactly."
+      ),
+      @Parameter(
+        name = "lastKey",
+        description = "The key of the last name usage of the previous page. If given, usages with a larger key are " +
+          "returned ordered by their key and the offset is ignored, which allows to page through entire checklists. " +
+          "Cannot be combined with sourceId or name."
       )
     }
   )
@@ -229,16 +239,27 @@ public class SpeciesResource {
       @RequestParam(value = DATASET_KEY, required = false) Set<UUID> datasetKeys,
       @RequestParam(value = "sourceId", required = false) String sourceId,
       @RequestParam(value = "name", required = false) String canonicalName,
+      @RequestParam(value = "lastKey", required = false) Integer lastKey,
       Pageable page) {
 
     Locale locale = LocaleContextHolder.getLocale();
 
-    // limit the maximum allowed offset
-    checkDeepPaging(page);
-
     if (datasetKeys == null) {
       datasetKeys = ImmutableSet.of();
     }
+    if (lastKey != null) {
+      if (!Strings.isNullOrEmpty(sourceId) || !Strings.isNullOrEmpty(canonicalName)) {
+        throw new IllegalArgumentException("The lastKey parameter cannot be combined with sourceId or name");
+      }
+      if (datasetKeys.size() > 1) {
+        throw new IllegalArgumentException("Multiple datasetKey parameters are not allowed");
+      }
+      return listAfter(datasetKeys.isEmpty() ? null : datasetKeys.iterator().next(), lastKey, page, locale);
+    }
+
+    // limit the maximum allowed offset
+    checkDeepPaging(page);
+
     if (Strings.isNullOrEmpty(canonicalName)) {
       if (datasetKeys.size() > 1) {
         // https://github.com/gbif/checklistbank/issues/54
@@ -255,6 +276,19 @@ public class SpeciesResource {
     }
   }
 
+  /**
+   * Keyset paging of usages, so deep pages are as cheap as the first one.
+   */
+  private PagingResponse<NameUsage> listAfter(UUID datasetKey, int lastKey, Pageable page, Locale locale) {
+    List<NameUsage> usages = new ArrayList<>();
+    for (Integer key : nameUsageMapper.listAfter(datasetKey, lastKey, page.getLimit())) {
+      usages.add(nameUsageService.get(key, locale));
+    }
+    PagingResponse<NameUsage> resp = new PagingResponse<>(page, null, usages);
+    resp.setEndOfRecords(usages.size() < page.getLimit());
+    return resp;
+  }
+
   /**
    * We can't remember why this was needed.  Performance is very poor for large datasets, so it's not part of the
    * public API.  It should probably be /mapping/{datasetKey} if it were to become supported.
@@ -386,7 +420,7 @@ public class SpeciesResource {
   @DefaultBadResponses
   @GetMapping("{usageKey}/childrenAll")
   public List<UsageCount> listAllChildren(@PathVariable("usageKey") int parentKey) {
-    return usageCountMapper.children(parentKey);
+    return usageCountCache.children(parentKey);
   }
 
   /**
@@ -778,35 +812,22 @@ public class SpeciesResource {
   @Hidden
   @GetMapping("rootAll/{datasetKey}")
   public List<UsageCount> root(@PathVariable("datasetKey") UUID datasetKey) {
-    return usageCountMapper.root(datasetKey);
+    return usageCountCache.root(datasetKey);
   }
 
-  /** Not sure why this exists */
+  /**
+   * Not sure why this exists.
+   * Serves a cached snapshot of the backbone down to orders which clients can revalidate via ETag or Last-Modified.
+   */
   @Hidden
   @Deprecated
   @GetMapping("rootNub")
-  public TreeContainer<UsageCount, Integer> rootNub() {
-    TreeContainer<UsageCount, Integer> tree = new TreeContainer<>();
-    // kingdoms
-    tree.setRoot(usageCountMapper.root(Constants.NUB_DATASET_KEY));
-    for (UsageCount k : tree.getRoot()) {
-      // phyla ~140, classes ~350, orders ~1400, families are over 22.000 skip
-      addChildrenRecursively(tree, k.getKey(), 0, Rank.PHYLUM, Rank.CLASS, Rank.ORDER);
-    }
-    return tree;
-  }
-
-  private void addChildrenRecursively(
-      TreeContainer<UsageCount, Integer> tree, int parent, int rankIdx, Rank... ranks) {
-    List<UsageCount> children = usageCountMapper.childrenUntilRank(parent, ranks[rankIdx]);
-    if (!children.isEmpty()) {
-      tree.getChildren().put(parent, children);
-      if (++rankIdx < ranks.length) {
-        for (UsageCount c : children) {
-          addChildrenRecursively(tree, c.getKey(), rankIdx, ranks);
-        }
-      }
+  public TreeContainer<UsageCount, Integer> rootNub(WebRequest request) {
+    UsageCountCache.NubTree nub = usageCountCache.nubTree();
+    if (request.checkNotModified(nub.getETag(), nub.getLastModified())) {
+      return null;
     }
+    return nub.getTree();
   }
 
   /* Same parameters for search and suggest queries. */
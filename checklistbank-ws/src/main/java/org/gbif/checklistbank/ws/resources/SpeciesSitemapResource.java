@@ -14,12 +14,13 @@
 package org.gbif.checklistbank.ws.resources;
 
 import org.gbif.api.model.Constants;
-import org.gbif.api.model.common.paging.PagingRequest;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.NameUsageMapper;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -34,6 +35,8 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.collect.Maps;
 
 import freemarker.cache.ClassTemplateLoader;
@@ -45,6 +48,9 @@ import io.swagger.v3.oas.annotations.Hidden;
 /**
  * Species sitemap resource producing text sitemaps for all checklist bank name usages.
  * As sitemaps are limited to a maximum of 50k entries a sitemap index file is also dynamically created.
+ * The first usage key of every sitemap is kept for a day so each sitemap is read with a cheap key range query
+ * instead of an offset. Pages are bounded by the next start key, so usages added or deleted in the meantime
+ * only change the size of a sitemap.
  *
  * see https://www.sitemaps.org/protocol.html
  */
@@ -55,6 +61,7 @@ public class SpeciesSitemapResource {
 
     private static final Logger LOG = LoggerFactory.getLogger(SpeciesSitemapResource.class);
     private static final int SITEMAP_SIZE = 50000;
+    private static final int START_KEYS_EXPIRY_HOURS = 24;
     private static final String INDEX_TEMPLATE = "sitemapindex.ftl";
     private static final String TEMPLATE_PATH = "/templates";
     private static final Configuration FTL = provideFreemarker();
@@ -62,7 +69,7 @@ public class SpeciesSitemapResource {
     private final NameUsageMapper nameUsageMapper;
     private final String portalUrl;
     private final String apiUrl;
-
+    private final Supplier<List<Integer>> startKeys;
 
     /**
      * Provides a freemarker template loader. It is configured to access the utf8 templates folder on the classpath, i.e.
@@ -87,6 +94,13 @@ public class SpeciesSitemapResource {
             portalUrl = portalUrl + "/";
         }
         this.portalUrl = portalUrl;
+        this.startKeys = Suppliers.memoizeWithExpiration(this::loadStartKeys, START_KEYS_EXPIRY_HOURS, TimeUnit.HOURS);
+    }
+
+    private List<Integer> loadStartKeys() {
+        List<Integer> keys = nameUsageMapper.listPageStartKeys(Constants.NUB_DATASET_KEY, SITEMAP_SIZE);
+        LOG.info("Loaded start keys for {} sitemaps", keys.size());
+        return keys;
     }
 
     /**
@@ -94,15 +108,13 @@ public class SpeciesSitemapResource {
      */
     @GetMapping
     public ResponseEntity sitemapIndex() throws IOException {
-        int cnt = nameUsageMapper.count(Constants.NUB_DATASET_KEY);
-        int maps = (int) Math.ceil((double) cnt/SITEMAP_SIZE);
-        LOG.info("Requested sitemap index to {} index files with {} usages", maps, cnt);
+        int maps = startKeys.get().size();
+        LOG.info("Requested sitemap index to {} index files", maps);
 
         try (Writer writer = new StringWriter()) {
             Map<String, Object> data = Maps.newHashMap();
             data.put("apiUrl", apiUrl);
             data.put("maps", maps);
-            data.put("cnt", cnt);
             FTL.getTemplate(INDEX_TEMPLATE).process(data, writer);
             return ResponseEntity.ok()
                                  .contentType(MediaType.APPLICATION_XML)
@@ -120,13 +132,17 @@ public class SpeciesSitemapResource {
     public ResponseEntity<StreamingResponseBody> sitemap(@PathVariable("page") int page) {
         Preconditions.checkArgument(page > 0, "Page parameter must be positive");
 
+        List<Integer> keys = startKeys.get();
         StreamingResponseBody stream = os -> {
             Writer writer = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
-            PagingRequest req = new PagingRequest((long) (page - 1) * SITEMAP_SIZE, SITEMAP_SIZE);
-            for (int key : nameUsageMapper.list(Constants.NUB_DATASET_KEY, req)) {
-                writer.write(portalUrl);
-                writer.write(String.valueOf(key));
-                writer.write("\n");
+            if (page <= keys.size()) {
+                // bound pages by the cached start keys so they neither overlap nor skip usages changed since
+                Integer toKey = page < keys.size() ? keys.get(page) : null;
+                for (int key : nameUsageMapper.listRange(Constants.NUB_DATASET_KEY, keys.get(page - 1), toKey)) {
+                    writer.write(portalUrl);
+                    writer.write(String.valueOf(key));
+                    writer.write("\n");
+                }
             }
             writer.flush();
         };
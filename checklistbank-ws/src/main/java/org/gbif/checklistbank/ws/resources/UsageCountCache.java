@@ -0,0 +1,190 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.resources;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.model.TreeContainer;
+import org.gbif.checklistbank.model.UsageCount;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.DatasetMetricsMapper;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.UsageCountMapper;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+
+/**
+ * Caches the brief usage count listings which only change with a new import.
+ * <p>
+ * The backbone tree of the rootNub resource is kept as a snapshot that is only rebuilt
+ * when the latest backbone metrics change, i.e. a new backbone has been published.
+ * The backbone version is checked on a configurable schedule and the old snapshot is served until the new one is ready.
+ * Root and children listings of all datasets expire after the same interval.
+ */
+@Component
+public class UsageCountCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(UsageCountCache.class);
+  // phyla ~140, classes ~350, orders ~1400, families are over 22.000 skip
+  private static final Rank[] TREE_RANKS = {Rank.PHYLUM, Rank.CLASS, Rank.ORDER};
+
+  private final UsageCountMapper usageCountMapper;
+  private final DatasetMetricsMapper metricsMapper;
+  private final LoadingCache<UUID, List<UsageCount>> roots;
+  private final LoadingCache<Integer, List<UsageCount>> children;
+  private volatile NubTree nubTree;
+
+  /**
+   * A backbone tree together with the creation date of the backbone metrics it was built for.
+   */
+  public static class NubTree {
+    private final TreeContainer<UsageCount, Integer> tree;
+    private final Date version;
+
+    private NubTree(TreeContainer<UsageCount, Integer> tree, Date version) {
+      this.tree = tree;
+      this.version = version;
+    }
+
+    public TreeContainer<UsageCount, Integer> getTree() {
+      return tree;
+    }
+
+    /**
+     * @return the backbone version the tree was built for, usable as last modified date
+     */
+    public long getLastModified() {
+      return version == null ? -1 : version.getTime();
+    }
+
+    public String getETag() {
+      return "\"nub-" + Long.toHexString(getLastModified()) + "\"";
+    }
+  }
+
+  @Autowired
+  public UsageCountCache(UsageCountMapper usageCountMapper, DatasetMetricsMapper metricsMapper,
+                         @Value("${checklistbank.usageCount.cache.size:10000}") long cacheSize,
+                         @Value("${checklistbank.usageCount.cache.ttlMinutes:60}") long ttlMinutes) {
+    this.usageCountMapper = usageCountMapper;
+    this.metricsMapper = metricsMapper;
+    roots = CacheBuilder.newBuilder()
+        .maximumSize(cacheSize)
+        .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+        .recordStats()
+        .build(CacheLoader.from(usageCountMapper::root));
+    children = CacheBuilder.newBuilder()
+        .maximumSize(cacheSize)
+        .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+        .recordStats()
+        .build(CacheLoader.from(usageCountMapper::children));
+  }
+
+  public List<UsageCount> root(UUID datasetKey) {
+    return roots.getUnchecked(datasetKey);
+  }
+
+  public List<UsageCount> children(int parentKey) {
+    return children.getUnchecked(parentKey);
+  }
+
+  /**
+   * @return the current backbone tree, building it on first access
+   */
+  public NubTree nubTree() {
+    NubTree t = nubTree;
+    if (t == null) {
+      synchronized (this) {
+        if (nubTree == null) {
+          nubTree = buildNubTree(nubVersion());
+        }
+        t = nubTree;
+      }
+    }
+    return t;
+  }
+
+  /**
+   * Rebuilds the backbone tree and drops all cached backbone listings if a new backbone has been published since.
+   * Nothing happens before the tree was requested for the first time.
+   */
+  @Scheduled(
+      initialDelayString = "${checklistbank.usageCount.refreshMinutes:10}",
+      fixedDelayString = "${checklistbank.usageCount.refreshMinutes:10}",
+      timeUnit = TimeUnit.MINUTES)
+  public void refresh() {
+    NubTree current = nubTree;
+    if (current != null) {
+      Date version = nubVersion();
+      if (!Objects.equals(version, current.version)) {
+        LOG.info("Backbone changed from {} to {}. Rebuild backbone tree", current.version, version);
+        roots.invalidate(Constants.NUB_DATASET_KEY);
+        children.invalidateAll();
+        nubTree = buildNubTree(version);
+      }
+    }
+  }
+
+  public CacheStats getRootCacheStats() {
+    return roots.stats();
+  }
+
+  public CacheStats getChildrenCacheStats() {
+    return children.stats();
+  }
+
+  private Date nubVersion() {
+    DatasetMetrics m = metricsMapper.get(Constants.NUB_DATASET_KEY);
+    return m == null ? null : m.getCreated();
+  }
+
+  private NubTree buildNubTree(Date version) {
+    LOG.info("Build backbone tree for version {}", version);
+    TreeContainer<UsageCount, Integer> tree = new TreeContainer<>();
+    // kingdoms
+    tree.setRoot(usageCountMapper.root(Constants.NUB_DATASET_KEY));
+    for (UsageCount k : tree.getRoot()) {
+      addChildrenRecursively(tree, k.getKey(), 0);
+    }
+    LOG.info("Built backbone tree with {} kingdoms and {} parents", tree.getRoot().size(), tree.getChildren().size());
+    return new NubTree(tree, version);
+  }
+
+  private void addChildrenRecursively(TreeContainer<UsageCount, Integer> tree, int parent, int rankIdx) {
+    List<UsageCount> kids = usageCountMapper.childrenUntilRank(parent, TREE_RANKS[rankIdx]);
+    if (!kids.isEmpty()) {
+      tree.getChildren().put(parent, kids);
+      if (++rankIdx < TREE_RANKS.length) {
+        for (UsageCount c : kids) {
+          addChildrenRecursively(tree, c.getKey(), rankIdx);
+        }
+      }
+    }
+  }
+}
@@ -25,20 +25,23 @@ import org.gbif.api.model.common.search.SearchResponse;
 import org.gbif.api.service.checklistbank.*;
 import org.gbif.api.vocabulary.TypeStatus;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.DistributionMapper;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.NameUsageMapper;
 import org.gbif.checklistbank.service.mybatis.persistence.mapper.NubRelMapper;
-import org.gbif.checklistbank.service.mybatis.persistence.mapper.UsageCountMapper;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentMatchers;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -54,9 +57,10 @@ public class SpeciesResourceTest {
   private DistributionService mockDistributionService;
   private IdentifierService mockIdentifierService;
   private NameUsageSearchService mockSearchService;
-  private UsageCountMapper mockUsageCountMapper;
+  private UsageCountCache mockUsageCountCache;
   private DistributionMapper mockDistributionMapper;
   private NubRelMapper mockNubRelMapper;
+  private NameUsageMapper mockNameUsageMapper;
 
   private SpeciesResource resource;
 
@@ -78,17 +82,18 @@ public class SpeciesResourceTest {
     mockDistributionService = mock(DistributionService.class);
     mockIdentifierService = mock(IdentifierService.class);
     mockSearchService = mock(NameUsageSearchService.class);
-    mockUsageCountMapper = mock(UsageCountMapper.class);
+    mockUsageCountCache = mock(UsageCountCache.class);
     mockDistributionMapper = mock(DistributionMapper.class);
     mockNubRelMapper = mock(NubRelMapper.class);
+    mockNameUsageMapper = mock(NameUsageMapper.class);
 
     searchResponse = new SearchResponse<NameUsageSearchResult, NameUsageSearchParameter>(0, 20);
     searchResponse.setCount(1000L);
 
     resource = new SpeciesResource(mockNameUsageService, mockVernacularNameService, mockTypeSpecimenService,
       mockSpeciesProfileService, mockReferenceService, mockImageService, mockDescriptionService,
-      mockDistributionService, mockIdentifierService, mockSearchService, mockUsageCountMapper,
-      mockDistributionMapper, mockNubRelMapper);
+      mockDistributionService, mockIdentifierService, mockSearchService, mockUsageCountCache,
+      mockDistributionMapper, mockNubRelMapper, mockNameUsageMapper);
 
     locale = Locale.US;
     Locale.setDefault(Locale.US); // needed for the LocaleContext in the resources
@@ -127,4 +132,16 @@ public class SpeciesResourceTest {
     SearchResponse<NameUsageSearchResult, NameUsageSearchParameter> searchResponse2 = resource.search(new NameUsageSearchRequest(1000L, 20));
     assertNotNull(searchResponse2);
   }
+
+  @Test
+  public void testListAfterKey() {
+    UUID datasetKey = UUID.randomUUID();
+    when(mockNameUsageMapper.listAfter(datasetKey, 100, 2)).thenReturn(Lists.newArrayList(NAME_USAGE_KEY));
+    when(mockNameUsageService.get(NAME_USAGE_KEY, locale)).thenReturn(nameUsage);
+
+    PagingResponse<NameUsage> result = resource.list(ImmutableSet.of(datasetKey), null, null, 100, new PagingRequest(0, 2));
+    assertEquals(1, result.getResults().size());
+    assertEquals(nameUsage, result.getResults().get(0));
+    assertTrue(result.isEndOfRecords());
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.resources;
+
+import org.gbif.api.model.Constants;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.NameUsageMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SpeciesSitemapResourceTest {
+
+  private NameUsageMapper mapper;
+  private SpeciesSitemapResource resource;
+
+  @Before
+  public void setUp() {
+    mapper = mock(NameUsageMapper.class);
+    when(mapper.listPageStartKeys(Constants.NUB_DATASET_KEY, 50000)).thenReturn(Lists.newArrayList(1, 100, 200));
+    resource = new SpeciesSitemapResource(mapper, "https://www.gbif.org/species", "https://api.gbif.org/v1/");
+  }
+
+  /**
+   * Pages are bounded by the cached start keys so a usage inserted or deleted since cannot shift them.
+   */
+  @Test
+  public void testPageBounds() throws Exception {
+    // a usage was inserted into the first page after the start keys were cached
+    when(mapper.listRange(Constants.NUB_DATASET_KEY, 1, 100)).thenReturn(Lists.newArrayList(1, 5, 99));
+    when(mapper.listRange(Constants.NUB_DATASET_KEY, 100, 200)).thenReturn(Lists.newArrayList(100, 150));
+    when(mapper.listRange(Constants.NUB_DATASET_KEY, 200, null)).thenReturn(Lists.newArrayList(200, 201));
+
+    assertEquals("https://www.gbif.org/species/1\nhttps://www.gbif.org/species/5\nhttps://www.gbif.org/species/99\n", sitemap(1));
+    assertEquals("https://www.gbif.org/species/100\nhttps://www.gbif.org/species/150\n", sitemap(2));
+    assertEquals("https://www.gbif.org/species/200\nhttps://www.gbif.org/species/201\n", sitemap(3));
+    verify(mapper).listRange(Constants.NUB_DATASET_KEY, 200, null);
+  }
+
+  @Test
+  public void testPageOutOfRange() throws Exception {
+    assertEquals("", sitemap(4));
+    verify(mapper, never()).listRange(any(), anyInt(), any());
+  }
+
+  private String sitemap(int page) throws Exception {
+    StreamingResponseBody body = resource.sitemap(page).getBody();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    body.writeTo(out);
+    return out.toString(StandardCharsets.UTF_8.name());
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gbif.checklistbank.ws.resources;
+
+import org.gbif.api.model.Constants;
+import org.gbif.api.model.checklistbank.DatasetMetrics;
+import org.gbif.api.vocabulary.Rank;
+import org.gbif.checklistbank.model.UsageCount;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.DatasetMetricsMapper;
+import org.gbif.checklistbank.service.mybatis.persistence.mapper.UsageCountMapper;
+
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatchers;
+
+import com.google.common.collect.Lists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UsageCountCacheTest {
+
+  private UsageCountMapper usageCountMapper;
+  private DatasetMetricsMapper metricsMapper;
+  private UsageCountCache cache;
+
+  @Before
+  public void setUp() {
+    usageCountMapper = mock(UsageCountMapper.class);
+    metricsMapper = mock(DatasetMetricsMapper.class);
+    UsageCount k = new UsageCount();
+    k.setKey(1);
+    k.setName("Animalia");
+    k.setRank(Rank.KINGDOM);
+    when(usageCountMapper.root(Constants.NUB_DATASET_KEY)).thenReturn(Lists.newArrayList(k));
+    when(usageCountMapper.childrenUntilRank(ArgumentMatchers.anyInt(), ArgumentMatchers.any(Rank.class)))
+        .thenReturn(Lists.newArrayList());
+    metrics(1000);
+    cache = new UsageCountCache(usageCountMapper, metricsMapper, 100, 60);
+  }
+
+  private void metrics(long created) {
+    DatasetMetrics m = new DatasetMetrics();
+    m.setCreated(new Date(created));
+    when(metricsMapper.get(Constants.NUB_DATASET_KEY)).thenReturn(m);
+  }
+
+  @Test
+  public void testNubTree() {
+    UsageCountCache.NubTree t1 = cache.nubTree();
+    assertEquals(1, t1.getTree().getRoot().size());
+    assertEquals(1000, t1.getLastModified());
+
+    // same backbone, keep the snapshot
+    cache.refresh();
+    assertSame(t1, cache.nubTree());
+    verify(usageCountMapper, times(1)).root(Constants.NUB_DATASET_KEY);
+
+    // new backbone
+    metrics(2000);
+    cache.refresh();
+    UsageCountCache.NubTree t2 = cache.nubTree();
+    assertEquals(2000, t2.getLastModified());
+    assertNotEquals(t1.getETag(), t2.getETag());
+    verify(usageCountMapper, times(2)).root(Constants.NUB_DATASET_KEY);
+  }
+
+  @Test
+  public void testRoot() {
+    cache.root(Constants.NUB_DATASET_KEY);
+    cache.root(Constants.NUB_DATASET_KEY);
+    verify(usageCountMapper, times(1)).root(Constants.NUB_DATASET_KEY);
+    assertEquals(1, cache.getRootCacheStats().hitCount());
+  }
+}